@@ -0,0 +1,98 @@
+package com.example.trial.weather.benchmark;
+
+import com.example.trial.weather.domain.AirportData;
+import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.exceptions.AirportNotFoundExcepition;
+import com.example.trial.weather.exceptions.InvalidDataPointException;
+import com.example.trial.weather.repository.Repository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class generates the airport catalogues of the benchmarks, always the
+ * same for a given size so the results are comparable between runs.
+ * @author ignaciolarranaga@gmail.com
+ */
+final class Catalogue {
+
+    /**
+     * The maximum number of airports (the distinct iata codes).
+     */
+    static final int MAXIMUM_SIZE = 26 * 26 * 26;
+
+    /**
+     * The seed of the generated coordinates.
+     */
+    private static final long SEED = 42;
+
+    /**
+     * The latitudes covered by the airports (most of the populated areas).
+     */
+    private static final double MINIMUM_LATITUDE = -55;
+    private static final double MAXIMUM_LATITUDE = 70;
+
+    private Catalogue() {
+    }
+
+    /**
+     * @param index An airport index (up to MAXIMUM_SIZE)
+     * @return The iata code of the airport, i.e. AAA, AAB, ...
+     */
+    static String iata(int index) {
+        return new String(new char[] {(char) ('A' + index / (26 * 26)),
+            (char) ('A' + index / 26 % 26), (char) ('A' + index % 26)});
+    }
+
+    /**
+     * @param size The number of airports
+     * @return The airports of the catalogue
+     */
+    static List<AirportData> airports(int size) {
+        if (size < 1 || size > MAXIMUM_SIZE) {
+            throw new IllegalArgumentException("Invalid catalogue size: " + size);
+        }
+
+        final Random random = new Random(SEED);
+        final List<AirportData> airports = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            airports.add(new AirportData(iata(i), MINIMUM_LATITUDE
+                + random.nextDouble() * (MAXIMUM_LATITUDE - MINIMUM_LATITUDE),
+                random.nextDouble() * 360 - 180));
+        }
+        return airports;
+    }
+
+    /**
+     * @param random The source of the values
+     * @return A valid wind data point
+     */
+    static DataPoint windDataPoint(Random random) {
+        final int mean = random.nextInt(100);
+        return new DataPoint(mean / 2, mean, mean * 2, mean, 1 + random.nextInt(20));
+    }
+
+    /**
+     * Loads a catalogue into a repository, with the wind information of
+     * every airport (so the queries return information).
+     * @param repository The repository to be loaded
+     * @param size The number of airports
+     * @return The airports loaded
+     */
+    static List<AirportData> load(Repository repository, int size) {
+        final List<AirportData> airports = airports(size);
+        repository.loadAirports(airports);
+
+        final Random random = new Random(SEED);
+        try {
+            for (AirportData airport : airports) {
+                repository.updateAtmosphericInformation(airport.getIata(),
+                    DataPoint.Type.WIND, windDataPoint(random));
+            }
+        } catch (InvalidDataPointException | AirportNotFoundExcepition ex) {
+            throw new IllegalStateException("The catalogue could not be loaded", ex);
+        }
+        return airports;
+    }
+
+}
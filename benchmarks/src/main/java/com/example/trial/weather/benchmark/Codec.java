@@ -0,0 +1,38 @@
+package com.example.trial.weather.benchmark;
+
+/**
+ * The JSON codecs measured: the ones used by the service (Gson for the ping
+ * and the updates, Jackson for the responses) and a hand-written one on the
+ * Jackson streaming API. The serialization benchmarks are parameterized by
+ * this enum, so every constant is measured by default.
+ * @author ignaciolarranaga@gmail.com
+ */
+public enum Codec {
+
+    GSON {
+        @Override
+        JsonCodec create() {
+            return new GsonCodec();
+        }
+    },
+
+    JACKSON {
+        @Override
+        JsonCodec create() {
+            return new JacksonCodec();
+        }
+    },
+
+    HAND_WRITTEN {
+        @Override
+        JsonCodec create() {
+            return new StreamingCodec();
+        }
+    };
+
+    /**
+     * @return A codec of the implementation
+     */
+    abstract JsonCodec create();
+
+}
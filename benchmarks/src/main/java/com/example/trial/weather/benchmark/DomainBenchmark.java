@@ -0,0 +1,118 @@
+package com.example.trial.weather.benchmark;
+
+import com.example.trial.weather.domain.AirportData;
+import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.exceptions.InvalidDataPointException;
+import com.example.trial.weather.exceptions.InvalidIATAException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures the domain operations on the hot paths of the
+ * queries and updates: the distance between airports and the validations of
+ * the iata codes and data points. They do not depend on the repository, so
+ * they are not parameterized by its implementation.
+ * @author ignaciolarranaga@gmail.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DomainBenchmark {
+
+    /**
+     * The number of distinct values used on each benchmark (a power of 2).
+     */
+    private static final int VALUES = 1024;
+
+    private AirportData[] airports;
+
+    private String[] iatas;
+
+    private String[] invalidIatas;
+
+    private DataPoint[] dataPoints;
+
+    private DataPoint.Type[] types;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        final List<AirportData> catalogue = Catalogue.airports(VALUES);
+        airports = catalogue.toArray(new AirportData[VALUES]);
+
+        final Random random = new Random(VALUES);
+        iatas = new String[VALUES];
+        invalidIatas = new String[VALUES];
+        dataPoints = new DataPoint[VALUES];
+        types = new DataPoint.Type[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            iatas[i] = airports[i].getIata();
+            invalidIatas[i] = iatas[i].toLowerCase();
+
+            // Valid values for every type
+            types[i] = DataPoint.Type.values()[i % DataPoint.Type.values().length];
+            final int mean = types[i] == DataPoint.Type.PRESSURE
+                ? 650 + random.nextInt(150) : random.nextInt(100);
+            dataPoints[i] = new DataPoint(mean - 1, mean, mean + 1, mean,
+                1 + random.nextInt(20));
+        }
+    }
+
+    @Benchmark
+    public double distance() {
+        final int index = next();
+        return airports[index].distance(airports[(index + 1) & (VALUES - 1)]);
+    }
+
+    @Benchmark
+    public DataPoint validateDataPoint() throws InvalidDataPointException {
+        final int index = next();
+        dataPoints[index].validate(types[index]);
+        return dataPoints[index];
+    }
+
+    @Benchmark
+    public String validateIATA() throws InvalidIATAException {
+        final String iata = iatas[next()];
+        AirportData.validateIATA(iata);
+        return iata;
+    }
+
+    /**
+     * The invalid codes are frequent on the public API (e.g. typos), so
+     * their cost (the exception included) is measured too.
+     */
+    @Benchmark
+    public InvalidIATAException validateInvalidIATA() {
+        try {
+            AirportData.validateIATA(invalidIatas[next()]);
+            throw new IllegalStateException("Invalid code accepted");
+        } catch (InvalidIATAException ex) {
+            return ex;
+        }
+    }
+
+    /**
+     * @return The index of the next values to use
+     */
+    private int next() {
+        next = (next + 1) & (VALUES - 1);
+        return next;
+    }
+
+}
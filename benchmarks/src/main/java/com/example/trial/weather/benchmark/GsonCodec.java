@@ -0,0 +1,73 @@
+package com.example.trial.weather.benchmark;
+
+import com.example.trial.weather.domain.AtmosphericInformation;
+import com.example.trial.weather.domain.DataPoint;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Gson codec, as used on the ping query and the update parsing (from and
+ * to strings).
+ * @author ignaciolarranaga@gmail.com
+ */
+final class GsonCodec implements JsonCodec {
+
+    private static final Type INFORMATION_LIST =
+        new TypeToken<List<AtmosphericInformation>>() { }.getType();
+
+    private static final Type STATISTICS =
+        new TypeToken<Map<String, Object>>() { }.getType();
+
+    private final Gson gson = new Gson();
+
+    @Override
+    public byte[] encodeDataPoint(DataPoint dataPoint) {
+        return gson.toJson(dataPoint).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public DataPoint decodeDataPoint(byte[] json) {
+        return gson.fromJson(new String(json, StandardCharsets.UTF_8),
+            DataPoint.class);
+    }
+
+    @Override
+    public byte[] encodeInformation(AtmosphericInformation information) {
+        return gson.toJson(information).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public AtmosphericInformation decodeInformation(byte[] json) {
+        return gson.fromJson(new String(json, StandardCharsets.UTF_8),
+            AtmosphericInformation.class);
+    }
+
+    @Override
+    public byte[] encodeInformationList(
+        List<AtmosphericInformation> information) {
+        return gson.toJson(information, INFORMATION_LIST)
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public List<AtmosphericInformation> decodeInformationList(byte[] json) {
+        return gson.fromJson(new String(json, StandardCharsets.UTF_8),
+            INFORMATION_LIST);
+    }
+
+    @Override
+    public byte[] encodeStatistics(Map<String, Object> statistics) {
+        return gson.toJson(statistics).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Map<String, Object> decodeStatistics(byte[] json) {
+        return gson.fromJson(new String(json, StandardCharsets.UTF_8),
+            STATISTICS);
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.example.trial.weather.benchmark;
+
+import com.example.trial.weather.domain.AtmosphericInformation;
+import com.example.trial.weather.domain.DataPoint;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Jackson data binding codec, as used by the JSON provider of the
+ * responses.
+ * @author ignaciolarranaga@gmail.com
+ */
+final class JacksonCodec implements JsonCodec {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final JavaType informationList = mapper.getTypeFactory()
+        .constructCollectionType(List.class, AtmosphericInformation.class);
+
+    private final JavaType statistics = mapper.getTypeFactory()
+        .constructMapType(Map.class, String.class, Object.class);
+
+    @Override
+    public byte[] encodeDataPoint(DataPoint dataPoint) throws IOException {
+        return mapper.writeValueAsBytes(dataPoint);
+    }
+
+    @Override
+    public DataPoint decodeDataPoint(byte[] json) throws IOException {
+        return mapper.readValue(json, DataPoint.class);
+    }
+
+    @Override
+    public byte[] encodeInformation(AtmosphericInformation information)
+        throws IOException {
+        return mapper.writeValueAsBytes(information);
+    }
+
+    @Override
+    public AtmosphericInformation decodeInformation(byte[] json)
+        throws IOException {
+        return mapper.readValue(json, AtmosphericInformation.class);
+    }
+
+    @Override
+    public byte[] encodeInformationList(
+        List<AtmosphericInformation> information) throws IOException {
+        return mapper.writerFor(informationList).writeValueAsBytes(information);
+    }
+
+    @Override
+    public List<AtmosphericInformation> decodeInformationList(byte[] json)
+        throws IOException {
+        return mapper.readValue(json, informationList);
+    }
+
+    @Override
+    public byte[] encodeStatistics(Map<String, Object> statistics)
+        throws IOException {
+        return mapper.writeValueAsBytes(statistics);
+    }
+
+    @Override
+    public Map<String, Object> decodeStatistics(byte[] json)
+        throws IOException {
+        return mapper.readValue(json, statistics);
+    }
+
+}
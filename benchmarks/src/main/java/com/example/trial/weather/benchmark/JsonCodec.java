@@ -0,0 +1,45 @@
+package com.example.trial.weather.benchmark;
+
+import com.example.trial.weather.domain.AtmosphericInformation;
+import com.example.trial.weather.domain.DataPoint;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This interface represents a way of encoding and decoding the JSON payloads
+ * of the service (UTF-8 encoded, as sent on the wire).
+ * @author ignaciolarranaga@gmail.com
+ */
+interface JsonCodec {
+
+    byte[] encodeDataPoint(DataPoint dataPoint) throws IOException;
+
+    DataPoint decodeDataPoint(byte[] json) throws IOException;
+
+    byte[] encodeInformation(AtmosphericInformation information)
+        throws IOException;
+
+    AtmosphericInformation decodeInformation(byte[] json) throws IOException;
+
+    /**
+     * @param information The result of a weather query with a radius
+     * @return The JSON array
+     * @throws IOException If the information can not be encoded
+     */
+    byte[] encodeInformationList(List<AtmosphericInformation> information)
+        throws IOException;
+
+    List<AtmosphericInformation> decodeInformationList(byte[] json)
+        throws IOException;
+
+    /**
+     * @param statistics The statistics returned by the ping query
+     * @return The JSON object
+     * @throws IOException If the statistics can not be encoded
+     */
+    byte[] encodeStatistics(Map<String, Object> statistics) throws IOException;
+
+    Map<String, Object> decodeStatistics(byte[] json) throws IOException;
+
+}
@@ -0,0 +1,50 @@
+package com.example.trial.weather.benchmark;
+
+import com.example.trial.weather.repository.Repository;
+import com.example.trial.weather.repository.StaticRepositoryImpl;
+
+/**
+ * The repository implementations measured. The repository benchmarks are
+ * parameterized by this enum, so every constant is measured by default (a
+ * new implementation only needs its constant).
+ * @author ignaciolarranaga@gmail.com
+ */
+public enum RepositoryImplementation {
+
+    STATIC {
+        @Override
+        Repository create() {
+            return new StaticRepositoryImpl();
+        }
+
+        @Override
+        void setNeighborListsEnabled(Repository repository, boolean enabled) {
+            ((StaticRepositoryImpl) repository).setNeighborListsEnabled(enabled);
+        }
+    };
+
+    /**
+     * @return An empty repository of the implementation
+     */
+    Repository newRepository() {
+        final Repository repository = create();
+        // The static implementation keeps the state of the previous trials
+        repository.reset();
+        return repository;
+    }
+
+    /**
+     * @return A repository of the implementation
+     */
+    abstract Repository create();
+
+    /**
+     * Enables or disables the materialization of the most requested radii
+     * (the implementations not materializing them ignore it).
+     * @param repository A repository of the implementation
+     * @param enabled If the radii have to be materialized
+     */
+    void setNeighborListsEnabled(Repository repository, boolean enabled) {
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.example.trial.weather.benchmark;
+
+import com.example.trial.weather.domain.AtmosphericInformation;
+import com.example.trial.weather.exceptions.AirportNotFoundExcepition;
+import com.example.trial.weather.repository.QueryPlan;
+import com.example.trial.weather.repository.Repository;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures the weather queries of the repository
+ * (Repository#getAtmosphericInformation(String, Double)) by catalogue size
+ * and radius, querying the airports of the catalogue in turns.
+ *
+ * The queries count on the usage statistics, which choose the radii to be
+ * materialized, so the plan is pinned per trial: the radius is materialized
+ * before measuring or the materialization is disabled. The plans of the
+ * queries of each iteration are reported, so a switch would be visible.
+ * @author ignaciolarranaga@gmail.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryQueryBenchmark {
+
+    @Param
+    private RepositoryImplementation implementation;
+
+    /**
+     * The number of airports of the catalogue.
+     */
+    @Param({"1000", "5000", "17576"})
+    private int airports;
+
+    /**
+     * The radius of the queries in km (0 means the airport only).
+     */
+    @Param({"0", "100", "500", "2000"})
+    private double radius;
+
+    /**
+     * If the radius is materialized before measuring (it can not be for the
+     * radius 0, or if its neighbors exceed the maximum entries), otherwise
+     * the materialization is disabled.
+     */
+    @Param({"false", "true"})
+    private boolean materialized;
+
+    /**
+     * The maximum time waiting the radius to be materialized.
+     */
+    private static final long MATERIALIZATION_TIMEOUT_IN_SECONDS = 10;
+
+    /**
+     * The number of queries performed between the checks of the
+     * materialization (more than the interval between its updates).
+     */
+    private static final int MATERIALIZATION_QUERIES = 2000;
+
+    private Repository repository;
+
+    private Map<QueryPlan, Long> iterationStartPlanCounts;
+
+    private String[] iatas;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws AirportNotFoundExcepition, InterruptedException {
+        repository = implementation.newRepository();
+        iatas = Catalogue.load(repository, airports).stream()
+            .map(airport -> airport.getIata()).toArray(String[]::new);
+
+        implementation.setNeighborListsEnabled(repository, materialized);
+        if (materialized && radius != 0) {
+            materialize();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        iterationStartPlanCounts = getQueryPlanCounts();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownIteration() {
+        final Map<QueryPlan, Long> planCounts = getQueryPlanCounts();
+        iterationStartPlanCounts.forEach((plan, count) ->
+            planCounts.merge(plan, -count, Long::sum));
+        planCounts.values().removeIf(count -> count == 0);
+        System.out.println("Query plans: " + planCounts);
+    }
+
+    @Benchmark
+    public Collection<AtmosphericInformation> getAtmosphericInformation()
+        throws AirportNotFoundExcepition {
+        final String iata = iatas[next];
+        next = next + 1 == iatas.length ? 0 : next + 1;
+        return repository.getAtmosphericInformation(iata,
+            radius == 0 ? null : radius);
+    }
+
+    /**
+     * Queries the radius until its neighbors are materialized (they are
+     * built in the background) or the timeout expires.
+     */
+    private void materialize()
+        throws AirportNotFoundExcepition, InterruptedException {
+        final long deadline = System.nanoTime()
+            + TimeUnit.SECONDS.toNanos(MATERIALIZATION_TIMEOUT_IN_SECONDS);
+        while (getQueryPlanCounts().getOrDefault(QueryPlan.NEIGHBOR_LIST, 0L) == 0
+            && System.nanoTime() < deadline) {
+            for (int i = 0; i < MATERIALIZATION_QUERIES; i++) {
+                getAtmosphericInformation();
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * @return The number of queries resolved with each plan
+     */
+    private Map<QueryPlan, Long> getQueryPlanCounts() {
+        final Map<QueryPlan, Long> planCounts = new EnumMap<>(QueryPlan.class);
+        planCounts.putAll(repository.getUsageStatistics().getQueryPlanCounts());
+        return planCounts;
+    }
+
+}
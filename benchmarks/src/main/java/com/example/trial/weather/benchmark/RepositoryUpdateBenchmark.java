@@ -0,0 +1,107 @@
+package com.example.trial.weather.benchmark;
+
+import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.exceptions.AirportNotFoundExcepition;
+import com.example.trial.weather.exceptions.InvalidDataPointException;
+import com.example.trial.weather.repository.Repository;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures the weather updates of the repository
+ * (Repository#updateAtmosphericInformation(String, DataPoint.Type, DataPoint))
+ * by the number of threads updating at a time, each one updating random
+ * airports of the catalogue. The throughput reported is the one of all the
+ * threads together, so it shows how the updates scale (or contend).
+ *
+ * There is a method per number of threads (JMH does not parameterize them),
+ * other numbers can be measured with the -t option.
+ * @author ignaciolarranaga@gmail.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryUpdateBenchmark {
+
+    /**
+     * The number of airports of the catalogue.
+     */
+    private static final int AIRPORTS = 5000;
+
+    /**
+     * The number of distinct data points sent.
+     */
+    private static final int DATA_POINTS = 1024;
+
+    @Param
+    private RepositoryImplementation implementation;
+
+    private Repository repository;
+
+    private String[] iatas;
+
+    private DataPoint[] dataPoints;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = implementation.newRepository();
+        iatas = Catalogue.load(repository, AIRPORTS).stream()
+            .map(airport -> airport.getIata()).toArray(String[]::new);
+
+        final Random random = new Random(AIRPORTS);
+        dataPoints = new DataPoint[DATA_POINTS];
+        for (int i = 0; i < dataPoints.length; i++) {
+            dataPoints[i] = Catalogue.windDataPoint(random);
+        }
+    }
+
+    @Benchmark @Threads(1)
+    public void updateAtmosphericInformation1Thread()
+        throws InvalidDataPointException, AirportNotFoundExcepition {
+        update();
+    }
+
+    @Benchmark @Threads(2)
+    public void updateAtmosphericInformation2Threads()
+        throws InvalidDataPointException, AirportNotFoundExcepition {
+        update();
+    }
+
+    @Benchmark @Threads(4)
+    public void updateAtmosphericInformation4Threads()
+        throws InvalidDataPointException, AirportNotFoundExcepition {
+        update();
+    }
+
+    @Benchmark @Threads(8)
+    public void updateAtmosphericInformation8Threads()
+        throws InvalidDataPointException, AirportNotFoundExcepition {
+        update();
+    }
+
+    private void update()
+        throws InvalidDataPointException, AirportNotFoundExcepition {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        repository.updateAtmosphericInformation(
+            iatas[random.nextInt(iatas.length)], DataPoint.Type.WIND,
+            dataPoints[random.nextInt(dataPoints.length)]);
+    }
+
+}
@@ -0,0 +1,268 @@
+package com.example.trial.weather.benchmark;
+
+import com.example.trial.weather.domain.AirportData;
+import com.example.trial.weather.domain.AtmosphericInformation;
+import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.exceptions.AirportNotFoundExcepition;
+import com.example.trial.weather.repository.Repository;
+import com.example.trial.weather.repository.RepositoryUsageStatistics;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This benchmark measures the encoding and decoding of the JSON payloads of
+ * the service by codec: the data points (updates), the atmospheric
+ * information, the weather query results with a radius (by number of
+ * airports) and the ping statistics.
+ *
+ * The allocation rate is as relevant as the throughput on these paths, so
+ * it should be run with the GC profiler (the main method does it, or the
+ * -prof gc option of benchmarks.jar).
+ * @author ignaciolarranaga@gmail.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /**
+     * The number of airports of the catalogue used for the statistics.
+     */
+    private static final int STATISTICS_AIRPORTS = 1000;
+
+    /**
+     * The number of weather queries counted on the statistics.
+     */
+    private static final int STATISTICS_QUERIES = 10000;
+
+    /**
+     * The maximum radius of the queries counted on the statistics.
+     */
+    private static final int STATISTICS_MAXIMUM_RADIUS = 500;
+
+    /**
+     * The interval of the queries performed (the rest are only counted).
+     */
+    private static final int STATISTICS_PERFORMED_QUERY_INTERVAL = 100;
+
+    @Param
+    private Codec codec;
+
+    private JsonCodec jsonCodec;
+
+    private DataPoint dataPoint;
+
+    private byte[] dataPointJson;
+
+    private AtmosphericInformation information;
+
+    private byte[] informationJson;
+
+    private Map<String, Object> statistics;
+
+    private byte[] statisticsJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        jsonCodec = codec.create();
+
+        final Random random = new Random(1);
+        dataPoint = dataPoint(random, DataPoint.Type.WIND);
+        dataPointJson = jsonCodec.encodeDataPoint(dataPoint);
+        check(dataPoint, jsonCodec.decodeDataPoint(dataPointJson));
+
+        information = information(random);
+        informationJson = jsonCodec.encodeInformation(information);
+        check(information, jsonCodec.decodeInformation(informationJson));
+
+        statistics = statistics();
+        statisticsJson = jsonCodec.encodeStatistics(statistics);
+    }
+
+    @Benchmark
+    public byte[] encodeDataPoint() throws IOException {
+        return jsonCodec.encodeDataPoint(dataPoint);
+    }
+
+    @Benchmark
+    public DataPoint decodeDataPoint() throws IOException {
+        return jsonCodec.decodeDataPoint(dataPointJson);
+    }
+
+    @Benchmark
+    public byte[] encodeInformation() throws IOException {
+        return jsonCodec.encodeInformation(information);
+    }
+
+    @Benchmark
+    public AtmosphericInformation decodeInformation() throws IOException {
+        return jsonCodec.decodeInformation(informationJson);
+    }
+
+    @Benchmark
+    public byte[] encodeRadiusResult(RadiusResult result) throws IOException {
+        return jsonCodec.encodeInformationList(result.information);
+    }
+
+    @Benchmark
+    public List<AtmosphericInformation> decodeRadiusResult(RadiusResult result)
+        throws IOException {
+        return jsonCodec.decodeInformationList(result.json.get(codec));
+    }
+
+    @Benchmark
+    public byte[] encodeStatistics() throws IOException {
+        return jsonCodec.encodeStatistics(statistics);
+    }
+
+    @Benchmark
+    public Map<String, Object> decodeStatistics() throws IOException {
+        return jsonCodec.decodeStatistics(statisticsJson);
+    }
+
+    /**
+     * This class represents the result of a weather query with a radius.
+     */
+    @State(Scope.Benchmark)
+    public static class RadiusResult {
+
+        /**
+         * The number of airports of the result.
+         */
+        @Param({"1", "30", "500"})
+        private int airports;
+
+        private List<AtmosphericInformation> information;
+
+        /**
+         * The result encoded by each codec.
+         */
+        private final Map<Codec, byte[]> json = new EnumMap<>(Codec.class);
+
+        @Setup
+        public void setUp() throws IOException {
+            final Random random = new Random(airports);
+            information = new ArrayList<>(airports);
+            for (int i = 0; i < airports; i++) {
+                information.add(information(random));
+            }
+
+            for (Codec codec : Codec.values()) {
+                final JsonCodec jsonCodec = codec.create();
+                json.put(codec, jsonCodec.encodeInformationList(information));
+                check(information, jsonCodec.decodeInformationList(
+                    json.get(codec)));
+            }
+        }
+
+    }
+
+    /**
+     * @param random The source of the values
+     * @param type The type of the data point
+     * @return A valid data point of the type
+     */
+    private static DataPoint dataPoint(Random random, DataPoint.Type type) {
+        final int mean = type == DataPoint.Type.PRESSURE
+            ? 650 + random.nextInt(150) : random.nextInt(100);
+        return new DataPoint(Math.max(0, mean - random.nextInt(10)), mean,
+            mean + random.nextInt(10), mean + random.nextInt(100) / 100.0,
+            1 + random.nextInt(100));
+    }
+
+    /**
+     * @param random The source of the values
+     * @return An information with all the data points
+     */
+    private static AtmosphericInformation information(Random random) {
+        final AtmosphericInformation information = new AtmosphericInformation();
+        information.setTemperature(dataPoint(random, DataPoint.Type.TEMPERATURE));
+        information.setWind(dataPoint(random, DataPoint.Type.WIND));
+        information.setHumidity(dataPoint(random, DataPoint.Type.HUMIDITY));
+        information.setPrecipitation(dataPoint(random, DataPoint.Type.PRECIPITATION));
+        information.setPressure(dataPoint(random, DataPoint.Type.PRESSURE));
+        information.setCloudCover(dataPoint(random, DataPoint.Type.CLOUD_COVER));
+        information.setLastUpdateTime(1450000000000L + random.nextInt());
+        return information;
+    }
+
+    /**
+     * @return The statistics of a repository, built as the ping query does
+     */
+    private static Map<String, Object> statistics() {
+        final Repository repository =
+            RepositoryImplementation.STATIC.newRepository();
+        final List<AirportData> airports = Catalogue.load(repository,
+            STATISTICS_AIRPORTS);
+
+        // Some queries are performed so their plans are counted too
+        final Random random = new Random(STATISTICS_QUERIES);
+        try {
+            for (int i = 0; i < STATISTICS_QUERIES; i++) {
+                final int radius = random.nextInt(STATISTICS_MAXIMUM_RADIUS);
+                final String iata = airports.get(
+                    random.nextInt(airports.size())).getIata();
+                if (i % STATISTICS_PERFORMED_QUERY_INTERVAL == 0) {
+                    repository.getAtmosphericInformation(iata,
+                        radius == 0 ? null : (double) radius);
+                } else {
+                    repository.countAtmosphericInformationCall(iata,
+                        radius == 0 ? null : (double) radius);
+                }
+            }
+        } catch (AirportNotFoundExcepition ex) {
+            throw new IllegalStateException("The statistics could not be built", ex);
+        }
+
+        final RepositoryUsageStatistics usage = repository.getUsageStatistics();
+        final Map<String, Object> result = new HashMap<>();
+        result.put("datasize", usage.getDataPointCount());
+        result.put("iata_freq", usage.getIataCallFrecuencies());
+        result.put("radius_freq", usage.getRadiusCallsHistogram());
+        result.put("query_plans", usage.getQueryPlanCounts());
+        return result;
+    }
+
+    /**
+     * Verifies a codec decodes what it encodes, so all of them do the same
+     * work.
+     */
+    private static void check(Object expected, Object decoded) {
+        if (!expected.equals(decoded)) {
+            throw new IllegalStateException("The decoded value " + decoded
+                + " differs from the encoded " + expected);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(SerializationBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+
+}
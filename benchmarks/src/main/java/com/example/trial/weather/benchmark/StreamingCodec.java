@@ -0,0 +1,299 @@
+package com.example.trial.weather.benchmark;
+
+import com.example.trial.weather.domain.AtmosphericInformation;
+import com.example.trial.weather.domain.DataPoint;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The hand-written codec, writing and reading each field with the Jackson
+ * streaming API (as the streamed responses of the service do), without
+ * reflection nor intermediate objects. The null data points are omitted.
+ * @author ignaciolarranaga@gmail.com
+ */
+final class StreamingCodec implements JsonCodec {
+
+    /**
+     * The initial size of the output buffers.
+     */
+    private static final int BUFFER_SIZE = 256;
+
+    private final JsonFactory factory = new JsonFactory();
+
+    @Override
+    public byte[] encodeDataPoint(DataPoint dataPoint) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(BUFFER_SIZE);
+        try (JsonGenerator generator = factory.createGenerator(output)) {
+            write(generator, dataPoint);
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    public DataPoint decodeDataPoint(byte[] json) throws IOException {
+        try (JsonParser parser = factory.createParser(json)) {
+            parser.nextToken();
+            return readDataPoint(parser);
+        }
+    }
+
+    @Override
+    public byte[] encodeInformation(AtmosphericInformation information)
+        throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(BUFFER_SIZE);
+        try (JsonGenerator generator = factory.createGenerator(output)) {
+            write(generator, information);
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    public AtmosphericInformation decodeInformation(byte[] json)
+        throws IOException {
+        try (JsonParser parser = factory.createParser(json)) {
+            parser.nextToken();
+            return readInformation(parser);
+        }
+    }
+
+    @Override
+    public byte[] encodeInformationList(
+        List<AtmosphericInformation> information) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(
+            BUFFER_SIZE * information.size());
+        try (JsonGenerator generator = factory.createGenerator(output)) {
+            generator.writeStartArray();
+            for (AtmosphericInformation airportInformation : information) {
+                write(generator, airportInformation);
+            }
+            generator.writeEndArray();
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    public List<AtmosphericInformation> decodeInformationList(byte[] json)
+        throws IOException {
+        try (JsonParser parser = factory.createParser(json)) {
+            expect(parser.nextToken(), JsonToken.START_ARRAY);
+            final List<AtmosphericInformation> information = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                information.add(readInformation(parser));
+            }
+            return information;
+        }
+    }
+
+    @Override
+    public byte[] encodeStatistics(Map<String, Object> statistics)
+        throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(
+            BUFFER_SIZE * 16);
+        try (JsonGenerator generator = factory.createGenerator(output)) {
+            writeValue(generator, statistics);
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> decodeStatistics(byte[] json) throws IOException {
+        try (JsonParser parser = factory.createParser(json)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            return (Map<String, Object>) readValue(parser);
+        }
+    }
+
+    private static void write(JsonGenerator generator, DataPoint dataPoint)
+        throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("first", dataPoint.getFirst());
+        generator.writeNumberField("second", dataPoint.getSecond());
+        generator.writeNumberField("third", dataPoint.getThird());
+        generator.writeNumberField("mean", dataPoint.getMean());
+        generator.writeNumberField("count", dataPoint.getCount());
+        generator.writeEndObject();
+    }
+
+    private static void write(JsonGenerator generator, String name,
+        DataPoint dataPoint) throws IOException {
+        if (dataPoint != null) {
+            generator.writeFieldName(name);
+            write(generator, dataPoint);
+        }
+    }
+
+    private static void write(JsonGenerator generator,
+        AtmosphericInformation information) throws IOException {
+        generator.writeStartObject();
+        write(generator, "temperature", information.getTemperature());
+        write(generator, "wind", information.getWind());
+        write(generator, "humidity", information.getHumidity());
+        write(generator, "precipitation", information.getPrecipitation());
+        write(generator, "pressure", information.getPressure());
+        write(generator, "cloudCover", information.getCloudCover());
+        generator.writeNumberField("lastUpdateTime",
+            information.getLastUpdateTime());
+        generator.writeEndObject();
+    }
+
+    /**
+     * @param generator The generator to write to
+     * @param value A map, int array, number or other value (as a string)
+     * @throws IOException If the value can not be written
+     */
+    private static void writeValue(JsonGenerator generator, Object value)
+        throws IOException {
+        if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeValue(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        } else if (value instanceof int[]) {
+            generator.writeStartArray();
+            for (int element : (int[]) value) {
+                generator.writeNumber(element);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Integer || value instanceof Long) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            generator.writeNumber(((Number) value).doubleValue());
+        } else if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    /**
+     * @param parser A parser positioned on the start of a data point
+     * @return The data point read
+     * @throws IOException If the data point can not be read
+     */
+    private static DataPoint readDataPoint(JsonParser parser)
+        throws IOException {
+        expect(parser.getCurrentToken(), JsonToken.START_OBJECT);
+        final DataPoint dataPoint = new DataPoint();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "first":
+                    dataPoint.setFirst(parser.getIntValue());
+                    break;
+                case "second":
+                    dataPoint.setSecond(parser.getIntValue());
+                    break;
+                case "third":
+                    dataPoint.setThird(parser.getIntValue());
+                    break;
+                case "mean":
+                    dataPoint.setMean(parser.getDoubleValue());
+                    break;
+                case "count":
+                    dataPoint.setCount(parser.getIntValue());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return dataPoint;
+    }
+
+    /**
+     * @param parser A parser positioned on the start of an information
+     * @return The information read
+     * @throws IOException If the information can not be read
+     */
+    private static AtmosphericInformation readInformation(JsonParser parser)
+        throws IOException {
+        expect(parser.getCurrentToken(), JsonToken.START_OBJECT);
+        final AtmosphericInformation information = new AtmosphericInformation();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (name) {
+                case "temperature":
+                    information.setTemperature(readDataPoint(parser));
+                    break;
+                case "wind":
+                    information.setWind(readDataPoint(parser));
+                    break;
+                case "humidity":
+                    information.setHumidity(readDataPoint(parser));
+                    break;
+                case "precipitation":
+                    information.setPrecipitation(readDataPoint(parser));
+                    break;
+                case "pressure":
+                    information.setPressure(readDataPoint(parser));
+                    break;
+                case "cloudCover":
+                    information.setCloudCover(readDataPoint(parser));
+                    break;
+                case "lastUpdateTime":
+                    information.setLastUpdateTime(parser.getLongValue());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return information;
+    }
+
+    /**
+     * @param parser A parser positioned on the start of a value
+     * @return The value read: maps, lists, numbers, booleans or strings
+     * @throws IOException If the value can not be read
+     */
+    private static Object readValue(JsonParser parser) throws IOException {
+        switch (parser.getCurrentToken()) {
+            case START_OBJECT:
+                final Map<String, Object> map = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String name = parser.getCurrentName();
+                    parser.nextToken();
+                    map.put(name, readValue(parser));
+                }
+                return map;
+            case START_ARRAY:
+                final List<Object> list = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(readValue(parser));
+                }
+                return list;
+            case VALUE_NUMBER_INT:
+                return parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return parser.getBooleanValue();
+            case VALUE_NULL:
+                return null;
+            default:
+                return parser.getText();
+        }
+    }
+
+    private static void expect(JsonToken token, JsonToken expected)
+        throws IOException {
+        if (token != expected) {
+            throw new IOException("Expected " + expected + " but was " + token);
+        }
+    }
+
+}
@@ -0,0 +1,507 @@
+package com.example.trial.weather;
+
+import com.example.trial.weather.domain.AirportData;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This is a parser of the airport files (see AirportLoader for the
+ * structure) that only extracts the IATA code, latitude and longitude.
+ *
+ * The file is memory mapped and split in chunks at line boundaries which are
+ * parsed in parallel, each line is scanned for the field boundaries (honoring
+ * the quoted fields, including escaped quotes and commas inside them) and
+ * only the needed fields are decoded, the coordinates directly from their
+ * bytes. The streams (e.g. an upload) are parsed in the same way, line by
+ * line as they are received.
+ *
+ * IMPORTANT: The lines can not contain line breaks inside quoted fields (as
+ * the chunks are split at any line break).
+ * @see AirportLoader
+ * @author ignaciolarranaga@gmail.com
+ */
+public class AirportFileParser {
+
+    /**
+     * Expected input file columns count.
+     */
+    public static final int FILE_EXPECTED_COLUMN_COUNT = 11;
+
+    /**
+     * Column indexes of the file (starting from 0).
+     */
+    public static final int IATA_CODE_FILE_COLUMN_INDEX = 4;
+    public static final int LATITUDE_FILE_COLUMN_INDEX = 6;
+    public static final int LONGITUDE_FILE_COLUMN_INDEX = 7;
+
+    /**
+     * The minimum size of a chunk, smaller files are not split.
+     */
+    private static final int MINIMUM_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * The maximum number of significant digits parsed directly, the
+     * coordinates with more digits are parsed by Double#parseDouble.
+     */
+    private static final int MAXIMUM_FAST_PATH_DIGITS = 15;
+
+    /**
+     * The powers of 10 exactly representable as doubles.
+     */
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4,
+        1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+        1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /**
+     * The initial size of the buffer used to parse the streams (it grows for
+     * longer lines).
+     */
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte QUOTE = '"';
+    private static final byte SEPARATOR = ',';
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    /**
+     * The number of chunks parsed in parallel.
+     */
+    private final int parallelism;
+
+    public AirportFileParser() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism The number of chunks parsed in parallel
+     */
+    public AirportFileParser(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism: "
+                + parallelism);
+        }
+
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param file The file to be parsed
+     * @return The airports of the file (in the same order) and the lines
+     * ignored
+     * @throws IOException If an error accessing the file occurs
+     */
+    public Result parse(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.READ)) {
+            final List<long[]> chunks = split(channel);
+            if (chunks.size() == 1) {
+                return parseChunk(channel, chunks.get(0)[0], chunks.get(0)[1]);
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(parallelism, chunks.size()));
+            try {
+                List<Future<Result>> parsed = new ArrayList<>();
+                for (long[] chunk : chunks) {
+                    parsed.add(executor.submit(() ->
+                        parseChunk(channel, chunk[0], chunk[1])));
+                }
+
+                // Merging the chunks in order, so the line numbers are
+                // relative to the whole file
+                Result result = new Result();
+                for (Future<Result> chunk : parsed) {
+                    result.append(chunk.get());
+                }
+                return result;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while parsing " + file, ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof IOException) {
+                    throw (IOException) ex.getCause();
+                }
+                throw new IOException("Error parsing " + file, ex.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * @param channel The channel of the file
+     * @return The start and end positions of the chunks, ending just after a
+     * line break (or at the end of the file)
+     * @throws IOException If an error accessing the file occurs
+     */
+    private List<long[]> split(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        // The chunks can not exceed the maximum size of a mapping
+        final long chunkSize = Math.max(Math.max(MINIMUM_CHUNK_SIZE,
+            size / parallelism), size / (Integer.MAX_VALUE / 2) + 1);
+
+        final List<long[]> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            if (end < size) {
+                end = nextLineStart(channel, end);
+            }
+            chunks.add(new long[] {start, end});
+            start = end;
+        }
+
+        if (chunks.isEmpty()) {
+            chunks.add(new long[] {0, 0});
+        }
+
+        return chunks;
+    }
+
+    /**
+     * @param channel The channel of the file
+     * @param position A position of the file
+     * @return The position after the next line break, or the end of the file
+     * @throws IOException If an error accessing the file occurs
+     */
+    private static long nextLineStart(FileChannel channel, long position)
+        throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long current = position;
+        while (channel.read(buffer, current) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                current++;
+                if (buffer.get() == LINE_FEED) {
+                    return current;
+                }
+            }
+            buffer.clear();
+        }
+        return channel.size();
+    }
+
+    /**
+     * @param channel The channel of the file
+     * @param start The start position of the chunk
+     * @param end The end position of the chunk
+     * @return The airports of the chunk (line numbers relative to it)
+     * @throws IOException If an error accessing the file occurs
+     */
+    private static Result parseChunk(FileChannel channel, long start, long end)
+        throws IOException {
+        final Result result = new Result();
+        if (start == end) {
+            return result;
+        }
+
+        final MappedByteBuffer buffer = channel.map(
+            FileChannel.MapMode.READ_ONLY, start, end - start);
+        final int limit = buffer.limit();
+
+        int lineStart = 0;
+        for (int i = 0; i <= limit; i++) {
+            if (i == limit || buffer.get(i) == LINE_FEED) {
+                int lineEnd = i;
+                if (lineEnd > lineStart
+                    && buffer.get(lineEnd - 1) == CARRIAGE_RETURN) {
+                    lineEnd--;
+                }
+
+                // A final line break does not start a new line
+                if (i < limit || lineEnd > lineStart) {
+                    parseLine(buffer, lineStart, lineEnd, result);
+                }
+                lineStart = i + 1;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses the airports of a stream incrementally (e.g. a file being
+     * received), line by line as they are available.
+     * @param input The stream of the file (it is not closed)
+     * @param consumer The consumer of each line number (starting from 0),
+     * the position after it and its airport, or null if the line is ignored
+     * @throws IOException If an error reading the stream occurs
+     */
+    public static void parse(InputStream input,
+        LineConsumer consumer) throws IOException {
+        byte[] bytes = new byte[STREAM_BUFFER_SIZE];
+        int length = 0;
+        int line = 0;
+        // The position of the start of the buffer in the stream
+        long position = 0;
+        int read;
+        while ((read = input.read(bytes, length, bytes.length - length)) != -1) {
+            length += read;
+
+            // Parsing the complete lines and moving the rest to the start
+            int lineStart = 0;
+            for (int i = length - read; i < length; i++) {
+                if (bytes[i] == LINE_FEED) {
+                    consumer.accept(line++, position + i + 1,
+                        parseLine(bytes, lineStart, i));
+                    lineStart = i + 1;
+                }
+            }
+            System.arraycopy(bytes, lineStart, bytes, 0, length - lineStart);
+            length -= lineStart;
+            position += lineStart;
+
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+        }
+
+        if (length > 0) {
+            consumer.accept(line, position + length,
+                parseLine(bytes, 0, length));
+        }
+    }
+
+    /**
+     * @param bytes The bytes containing the line
+     * @param start The position of the first byte of the line
+     * @param end The position of the line break (or after the last byte)
+     * @return The airport of the line or null if it is ignored
+     */
+    private static AirportData parseLine(byte[] bytes, int start, int end) {
+        if (end > start && bytes[end - 1] == CARRIAGE_RETURN) {
+            end--;
+        }
+        return parseLine(ByteBuffer.wrap(bytes), start, end);
+    }
+
+    /**
+     * @param buffer The buffer containing the line
+     * @param start The position of the first byte of the line
+     * @param end The position after the last byte of the line
+     * @param result The result of the parsing, where the airport is added or
+     * the line is registered as ignored
+     */
+    private static void parseLine(ByteBuffer buffer, int start, int end,
+        Result result) {
+        final AirportData airport = parseLine(buffer, start, end);
+        if (airport != null) {
+            result.airports.add(airport);
+        } else {
+            result.ignoredLines.add(result.lines);
+        }
+        result.lines++;
+    }
+
+    /**
+     * @param buffer The buffer containing the line
+     * @param start The position of the first byte of the line
+     * @param end The position after the last byte of the line
+     * @return The airport of the line or null if it doesn't match the
+     * structure or its coordinates are not numbers
+     */
+    static AirportData parseLine(ByteBuffer buffer, int start, int end) {
+        // The boundaries of the needed fields
+        int iataStart = -1;
+        int iataEnd = -1;
+        int latitudeStart = -1;
+        int latitudeEnd = -1;
+        int longitudeStart = -1;
+        int longitudeEnd = -1;
+
+        int column = 0;
+        int fieldStart = start;
+        boolean quoted = false;
+        for (int i = start; i <= end; i++) {
+            final byte current = i < end ? buffer.get(i) : SEPARATOR;
+            if (current == QUOTE) {
+                // An escaped quote ("") toggles twice
+                quoted = !quoted;
+            } else if (current == SEPARATOR && !quoted) {
+                if (column == IATA_CODE_FILE_COLUMN_INDEX) {
+                    iataStart = fieldStart;
+                    iataEnd = i;
+                } else if (column == LATITUDE_FILE_COLUMN_INDEX) {
+                    latitudeStart = fieldStart;
+                    latitudeEnd = i;
+                } else if (column == LONGITUDE_FILE_COLUMN_INDEX) {
+                    longitudeStart = fieldStart;
+                    longitudeEnd = i;
+                }
+                column++;
+                fieldStart = i + 1;
+            }
+        }
+
+        if (quoted || column != FILE_EXPECTED_COLUMN_COUNT) {
+            return null;
+        }
+
+        try {
+            return new AirportData(
+                decodeString(buffer, iataStart, iataEnd),
+                parseDouble(buffer, latitudeStart, latitudeEnd),
+                parseDouble(buffer, longitudeStart, longitudeEnd));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @param buffer The buffer containing the field
+     * @param start The position of the first byte of the field
+     * @param end The position after the last byte of the field
+     * @return The value of the field without the enclosing quotes
+     */
+    private static String decodeString(ByteBuffer buffer, int start,
+        int end) {
+        if (end - start >= 2 && buffer.get(start) == QUOTE
+            && buffer.get(end - 1) == QUOTE) {
+            start++;
+            end--;
+        }
+
+        final byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8).replace("\"\"", "\"");
+    }
+
+    /**
+     * Parses a decimal number (e.g. -71.005181) directly from its bytes, the
+     * numbers with exponent or too many digits are delegated to
+     * Double#parseDouble (the result is the same in both cases).
+     * @param buffer The buffer containing the field
+     * @param start The position of the first byte of the field
+     * @param end The position after the last byte of the field
+     * @return The value of the field
+     * @throws NumberFormatException If the field is not a number
+     */
+    static double parseDouble(ByteBuffer buffer, int start, int end) {
+        if (end - start >= 2 && buffer.get(start) == QUOTE
+            && buffer.get(end - 1) == QUOTE) {
+            start++;
+            end--;
+        }
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int significantDigits = 0;
+        int decimals = -1;
+        for (; i < end; i++) {
+            final byte current = buffer.get(i);
+            if (current >= '0' && current <= '9') {
+                mantissa = mantissa * 10 + (current - '0');
+                digits++;
+                if (mantissa != 0) {
+                    significantDigits++;
+                }
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else if (current == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                break;
+            }
+        }
+
+        if (i < end || digits == 0
+            || significantDigits > MAXIMUM_FAST_PATH_DIGITS
+            || decimals >= POWERS_OF_TEN.length) {
+            // Exponents, long numbers or invalid values
+            return Double.parseDouble(decodeString(buffer, start, end).trim());
+        }
+
+        // Both the mantissa and the power of ten are exact, so the division
+        // is correctly rounded (as Double#parseDouble)
+        final double value = mantissa / POWERS_OF_TEN[Math.max(0, decimals)];
+        return negative ? -value : value;
+    }
+
+    /**
+     * This interface represents the consumer of the lines parsed from a
+     * stream.
+     */
+    @FunctionalInterface
+    public interface LineConsumer {
+
+        /**
+         * @param line The line number (starting from 0)
+         * @param end The position after the line in the stream (i.e. where
+         * the following line starts)
+         * @param airport The airport of the line or null if it is ignored
+         * @throws IOException If an error consuming the line occurs
+         */
+        void accept(int line, long end, AirportData airport) throws IOException;
+
+    }
+
+    /**
+     * This class represents the result of parsing a file (or a chunk of it).
+     */
+    public static class Result {
+
+        private final List<AirportData> airports = new ArrayList<>();
+
+        private final List<Integer> ignoredLines = new ArrayList<>();
+
+        private int lines;
+
+        /**
+         * @param other The result of the following chunk
+         */
+        private void append(Result other) {
+            airports.addAll(other.airports);
+            for (int line : other.ignoredLines) {
+                ignoredLines.add(lines + line);
+            }
+            lines += other.lines;
+        }
+
+        /**
+         * @return The airports parsed, in order of appearance
+         */
+        public List<AirportData> getAirports() {
+            return airports;
+        }
+
+        /**
+         * @return The lines ignored (starting from 0) because they don't
+         * match the structure or their coordinates are not numbers
+         */
+        public List<Integer> getIgnoredLines() {
+            return ignoredLines;
+        }
+
+        /**
+         * @return The number of lines parsed
+         */
+        public int getLines() {
+            return lines;
+        }
+
+    }
+
+}
@@ -4,18 +4,36 @@ import com.example.trial.weather.domain.AirportData;
 import com.opencsv.CSVReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.InvocationCallback;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import org.glassfish.jersey.client.ClientProperties;
 
 /**
  * A simple airport loader which reads a file from disk and sends entries to
@@ -49,17 +67,65 @@ public class AirportLoader implements AutoCloseable {
      */
     private static final int DEFAULT_BATCH_SIZE = 500;
 
+    /**
+     * The maximum number of times a batch is retried on the pipelined
+     * uploads.
+     */
+    private static final int MAXIMUM_BATCH_RETRIES = 3;
+
+    /**
+     * The delay before the first retry of a batch (doubled on each retry).
+     */
+    private static final long RETRY_BASE_DELAY_IN_MILLISECONDS = 200;
+
+    /**
+     * The first status of the server errors (retried on the pipelined
+     * uploads).
+     */
+    private static final int SERVER_ERROR_STATUS = 500;
+
+    /**
+     * The status of the responses shed by the server (retried on the
+     * pipelined uploads).
+     */
+    private static final int TOO_MANY_REQUESTS_STATUS = 429;
+
+    /**
+     * The time waited for the response of a batch on the pipelined uploads
+     * (it is retried after that).
+     */
+    private static final int BATCH_TIMEOUT_IN_MILLISECONDS = 30000;
+
+    /**
+     * The concurrency the adaptive uploads start with.
+     */
+    private static final int INITIAL_ADAPTIVE_CONCURRENCY = 2;
+
+    /**
+     * The default maximum concurrency of the adaptive uploads.
+     */
+    private static final int DEFAULT_MAXIMUM_ADAPTIVE_CONCURRENCY = 16;
+
+    /**
+     * The argument selecting the adaptive upload (instead of a concurrency).
+     */
+    private static final String ADAPTIVE_ARGUMENT = "adaptive";
+
     /**
      * Expected input file columns count.
      */
-    private static final int FILE_EXPECTED_COLUMN_COUNT = 11;
+    private static final int FILE_EXPECTED_COLUMN_COUNT =
+        AirportFileParser.FILE_EXPECTED_COLUMN_COUNT;
 
     /**
      * Column indexes of the file (starting from 0).
      */
-    private static final int IATA_CODE_FILE_COLUMN_INDEX = 4;
-    private static final int LONGITUDE_FILE_COLUMN_INDEX = 7;
-    private static final int LATITUDE_FILE_COLUMN_INDEX = 6;
+    private static final int IATA_CODE_FILE_COLUMN_INDEX =
+        AirportFileParser.IATA_CODE_FILE_COLUMN_INDEX;
+    private static final int LONGITUDE_FILE_COLUMN_INDEX =
+        AirportFileParser.LONGITUDE_FILE_COLUMN_INDEX;
+    private static final int LATITUDE_FILE_COLUMN_INDEX =
+        AirportFileParser.LATITUDE_FILE_COLUMN_INDEX;
 
     /**
      * This is the base URL used by the autoloader.
@@ -227,6 +293,712 @@ public class AirportLoader implements AutoCloseable {
         }
     }
 
+    /**
+     * This method does the same operation than #uploadInBatch but pipelined:
+     * the caller thread parses the data while up to the given number of
+     * batches are being uploaded asynchronously (when that number is reached
+     * the parsing waits for a batch to complete). The batches failing because
+     * of the network or the server load (5XX or 429 responses) are retried
+     * with an increasing delay, the rejected airports are logged as in
+     * #uploadInBatch.
+     * The data has to be formatted as expected (check the class comments for
+     * details). The loader will ignore/log failed rows.
+     * @param reader The reader that is going to be used to access the data
+     * @param batchSize The size of the chunk to be uploaded
+     * @param concurrency The maximum number of batches uploading at a time
+     * @return The summary of the upload (it is also logged)
+     * @throws IOException If an error accessing the data occurs
+     * @throws InterruptedException If interrupted while waiting the uploads
+     */
+    public final UploadSummary uploadPipelined(final Reader reader,
+        final int batchSize, final int concurrency)
+        throws IOException, InterruptedException {
+        final UploadSummary summary = uploadPipelined(false, batchSize,
+            concurrency, null, (uploadSummary, sink) -> {
+            CSVReader csvReader = new CSVReader(reader);
+            String[] nextLine;
+            List<AirportData> batch = new ArrayList<>(batchSize);
+            for (int i = 0; (nextLine = csvReader.readNext()) != null; i++) {
+                uploadSummary.lines++;
+
+                // Validations
+                if (nextLine.length != FILE_EXPECTED_COLUMN_COUNT) {
+                    LOGGER.log(Level.SEVERE, "Ignoring line {0} because it doesn't "
+                        + "match the structure (does not have the specified amount "
+                        + "of fields).", i);
+                    uploadSummary.ignoredLines++;
+                    continue;
+                }
+
+                try {
+                    batch.add(new AirportData(
+                        nextLine[IATA_CODE_FILE_COLUMN_INDEX],
+                        Double.valueOf(nextLine[LATITUDE_FILE_COLUMN_INDEX]),
+                        Double.valueOf(nextLine[LONGITUDE_FILE_COLUMN_INDEX])));
+                } catch (NumberFormatException ex) {
+                    LOGGER.log(Level.SEVERE, "Ignoring line {0} because the "
+                        + "coordinates are not numbers.", i);
+                    uploadSummary.ignoredLines++;
+                    continue;
+                }
+
+                // Uploading each batchSize elements, waiting for a slot if
+                // there are already too many in progress
+                if (batch.size() == batchSize) {
+                    sink.acquire();
+                    sink.upload(batch, null);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+
+            // Uploading the possible remaining elements
+            if (!batch.isEmpty()) {
+                sink.acquire();
+                sink.upload(batch, null);
+            }
+        });
+
+        LOGGER.log(Level.INFO, "Loading process finished: {0}", summary);
+        return summary;
+    }
+
+    /**
+     * This method does the same operation than #uploadPipelined(Reader, int,
+     * int) but parsing the file with the AirportFileParser as it is read, so
+     * the parsing overlaps the uploads.
+     * @param file The file containing the data
+     * @param batchSize The size of the chunk to be uploaded
+     * @param concurrency The maximum number of batches uploading at a time
+     * @return The summary of the upload (it is also logged)
+     * @throws IOException If an error accessing the data occurs
+     * @throws InterruptedException If interrupted while waiting the uploads
+     * @see AirportFileParser
+     */
+    public final UploadSummary uploadPipelined(final Path file,
+        final int batchSize, final int concurrency)
+        throws IOException, InterruptedException {
+        final UploadSummary summary = uploadPipelined(false, batchSize,
+            concurrency, null, streamedFile(file, null, null));
+
+        LOGGER.log(Level.INFO, "Loading process finished: {0}", summary);
+        return summary;
+    }
+
+    /**
+     * This method does the same operation than #uploadPipelined(Path, int,
+     * int) but tuning the batch size and the concurrency during the upload
+     * (see BatchTuner): the batches grow while the throughput improves and
+     * shrink on timeouts or overload responses. The parameters chosen and
+     * the throughput curve are logged at the end.
+     * @param file The file containing the data
+     * @param maximumConcurrency The maximum number of batches uploading at a
+     * time
+     * @return The summary of the upload (it is also logged)
+     * @throws IOException If an error accessing the data occurs
+     * @throws InterruptedException If interrupted while waiting the uploads
+     * @see BatchTuner
+     */
+    public final UploadSummary uploadAdaptive(final Path file,
+        final int maximumConcurrency) throws IOException, InterruptedException {
+        final BatchTuner tuner = new BatchTuner(DEFAULT_BATCH_SIZE,
+            Math.min(INITIAL_ADAPTIVE_CONCURRENCY, maximumConcurrency),
+            maximumConcurrency, System.nanoTime());
+        final UploadSummary summary = uploadPipelined(false,
+            DEFAULT_BATCH_SIZE, tuner.getConcurrency(), tuner,
+            streamedFile(file, null, null));
+
+        LOGGER.log(Level.INFO, "Loading process finished: {0}, final batch "
+            + "size {1} and concurrency {2}, throughput curve (batch size x "
+            + "concurrency): {3}", new Object[] {summary, tuner.getBatchSize(),
+            tuner.getConcurrency(), tuner.getCurve()});
+        return summary;
+    }
+
+    /**
+     * This method does the same operation than #uploadPipelined(Path, int,
+     * int) but it can be resumed: the position of the file and the number of
+     * the last batch uploaded (with all the previous ones) are saved in the
+     * checkpoint file, and the upload continues from there when the
+     * checkpoint exists. The airports already defined are acknowledged by
+     * the server (e.g. the ones of the batches in progress when the upload
+     * stopped), and the checkpoint is deleted once everything is uploaded.
+     * @param file The file containing the data
+     * @param checkpoint The checkpoint file of the upload
+     * @param batchSize The size of the chunk to be uploaded
+     * @param concurrency The maximum number of batches uploading at a time
+     * @return The summary of the upload, of the lines after the checkpoint
+     * (it is also logged)
+     * @throws IOException If an error accessing the data or the checkpoint
+     * occurs
+     * @throws InterruptedException If interrupted while waiting the uploads
+     */
+    public final UploadSummary uploadResumable(final Path file,
+        final Path checkpoint, final int batchSize, final int concurrency)
+        throws IOException, InterruptedException {
+        final Checkpoint progress = Checkpoint.read(checkpoint);
+        if (progress.batch > 0) {
+            LOGGER.log(Level.INFO, "Resuming the upload after the batch {0} "
+                + "(position {1})", new Object[] {progress.batch,
+                progress.offset});
+        }
+
+        final UploadSummary summary = uploadPipelined(true, batchSize,
+            concurrency, null, streamedFile(file, progress, checkpoint));
+
+        if (summary.getFailedBatches() == 0) {
+            Files.deleteIfExists(checkpoint);
+        } else {
+            LOGGER.log(Level.WARNING, "The upload can be resumed from the "
+                + "checkpoint {0}", checkpoint);
+        }
+        LOGGER.log(Level.INFO, "Loading process finished: {0}", summary);
+        return summary;
+    }
+
+    /**
+     * This is the driver of the pipelined uploads: the source parses the
+     * data and uploads its batches through the sink, which bounds the
+     * batches in progress, and then it waits for all of them to complete.
+     * The retries acknowledge the airports already defined, as the server
+     * may have added them on the failed attempt.
+     * @param skipExisting If the airports already defined have to be
+     * acknowledged on the first attempt too
+     * @param batchSize The size of the batches (if not tuned)
+     * @param concurrency The maximum number of batches uploading at a time
+     * (the initial one if tuned)
+     * @param tuner The tuner of the batch size and the concurrency
+     * (optional)
+     * @param source The source of the batches
+     * @return The summary of the upload
+     * @throws IOException If an error accessing the data occurs
+     * @throws InterruptedException If interrupted while waiting the uploads
+     */
+    private UploadSummary uploadPipelined(final boolean skipExisting,
+        final int batchSize, final int concurrency, final BatchTuner tuner,
+        final BatchSource source) throws IOException, InterruptedException {
+        final WebTarget target = client.target(serverBaseUrl + "collect")
+            .path("/airports/");
+        final WebTarget skipTarget = target.queryParam("existing", "skip");
+        final WebTarget path = skipExisting ? skipTarget : target;
+        final InFlightBatches inFlight = new InFlightBatches(concurrency);
+        final UploadSummary summary = new UploadSummary();
+        final ScheduledExecutorService retries =
+            Executors.newSingleThreadScheduledExecutor();
+
+        try {
+            source.feed(summary, new BatchSink() {
+                @Override
+                public int getBatchSize() {
+                    return tuner != null ? tuner.getBatchSize() : batchSize;
+                }
+
+                @Override
+                public void acquire() throws InterruptedException {
+                    inFlight.acquire();
+                }
+
+                @Override
+                public void upload(List<AirportData> batch, Runnable uploaded) {
+                    uploadBatchAsync(path, skipTarget, batch, 0, inFlight,
+                        summary, retries, tuner, uploaded);
+                }
+            });
+
+            // Waiting all the uploads to complete
+            inFlight.awaitAll();
+        } finally {
+            retries.shutdownNow();
+        }
+
+        summary.finish();
+        return summary;
+    }
+
+    /**
+     * @param file The file containing the data
+     * @param progress The progress to resume from, registering on it the
+     * batches uploaded (optional)
+     * @param checkpoint The checkpoint file of the progress (optional)
+     * @return The source of the batches of the file, parsed with the
+     * AirportFileParser as it is read (so the parsing overlaps the uploads)
+     */
+    private static BatchSource streamedFile(final Path file,
+        final Checkpoint progress, final Path checkpoint) {
+        return (summary, sink) -> {
+            final long start = progress != null ? progress.offset : 0;
+            try (InputStream input = Files.newInputStream(file)) {
+                skipFully(input, start);
+
+                final long[] batchNumber = {progress != null ? progress.batch : 0};
+                final List<AirportData> batch = new ArrayList<>();
+                AirportFileParser.parse(input, (line, end, airport) -> {
+                    summary.lines++;
+                    if (airport == null) {
+                        LOGGER.log(Level.SEVERE, "Ignoring line {0} because it "
+                            + "doesn't match the structure.", line);
+                        summary.ignoredLines++;
+                        return;
+                    }
+
+                    // The size is taken for each batch, so it reflects the
+                    // latest measurements
+                    batch.add(airport);
+                    if (batch.size() >= sink.getBatchSize()) {
+                        try {
+                            sink.acquire();
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException(
+                                "Interrupted while waiting the uploads");
+                        }
+
+                        // The batch is done once uploaded up to the end of
+                        // its last line
+                        sink.upload(new ArrayList<>(batch), completion(progress,
+                            ++batchNumber[0], start + end, checkpoint));
+                        batch.clear();
+                    }
+                });
+
+                // Uploading the possible remaining elements
+                if (!batch.isEmpty()) {
+                    sink.acquire();
+                    sink.upload(batch, completion(progress, ++batchNumber[0],
+                        Files.size(file), checkpoint));
+                }
+            }
+        };
+    }
+
+    /**
+     * @param progress The progress of the upload (optional)
+     * @param number The number of the batch
+     * @param end The position after the last line of the batch
+     * @param checkpoint The checkpoint file of the progress
+     * @return The action registering the batch uploaded on the progress, or
+     * null if there is no progress
+     */
+    private static Runnable completion(Checkpoint progress, long number,
+        long end, Path checkpoint) {
+        return progress == null ? null
+            : () -> progress.completed(number, end, checkpoint);
+    }
+
+    /**
+     * @param input The stream to be advanced
+     * @param count The number of bytes to skip
+     * @throws IOException If the stream is shorter or can not be read
+     */
+    private static void skipFully(InputStream input, long count)
+        throws IOException {
+        for (long remaining = count; remaining > 0;) {
+            final long skipped = input.skip(remaining);
+            if (skipped <= 0) {
+                if (input.read() == -1) {
+                    throw new EOFException("The checkpoint position " + count
+                        + " is after the end of the file");
+                }
+                remaining--;
+            } else {
+                remaining -= skipped;
+            }
+        }
+    }
+
+    /**
+     * This method uploads a batch of airports asynchronously, retrying it if
+     * the failure is transient.
+     * @param path The target of the upload
+     * @param retryPath The target of the retries, which has to acknowledge
+     * the airports already defined (the failed attempt may have added them)
+     * @param batch The batch to be uploaded
+     * @param attempt The number of previous attempts
+     * @param inFlight The batches in progress, released when it completes
+     * @param summary The summary of the upload
+     * @param retries The executor of the delayed retries
+     * @param tuner The tuner informed of the results (optional)
+     * @param uploaded The action run once the batch is uploaded (optional,
+     * not run if it fails)
+     */
+    private void uploadBatchAsync(final WebTarget path,
+        final WebTarget retryPath, final List<AirportData> batch,
+        final int attempt, final InFlightBatches inFlight,
+        final UploadSummary summary, final ScheduledExecutorService retries,
+        final BatchTuner tuner, final Runnable uploaded) {
+        // The overloads of the batches sent before the latest reduction are
+        // ignored, so the failures of a burst reduce the parameters once
+        final long generation = tuner != null ? tuner.getGeneration() : 0;
+        final Predicate<String> retried = reason -> {
+            if (tuner != null && tuner.onOverloaded(generation,
+                System.nanoTime())) {
+                inFlight.setLimit(tuner.getConcurrency());
+            }
+
+            if (attempt < MAXIMUM_BATCH_RETRIES && !retries.isShutdown()) {
+                summary.retries.incrementAndGet();
+                retries.schedule(() -> uploadBatchAsync(retryPath, retryPath,
+                    batch, attempt + 1, inFlight, summary, retries, tuner,
+                    uploaded), RETRY_BASE_DELAY_IN_MILLISECONDS << attempt,
+                    TimeUnit.MILLISECONDS);
+                return true;
+            }
+
+            LOGGER.log(Level.SEVERE, "There was an error adding a batch "
+                + "of {0} airports: {1}", new Object[] {batch.size(), reason});
+            summary.failedBatches.incrementAndGet();
+            summary.failedAirports.addAndGet(batch.size());
+            return false;
+        };
+
+        path.request()
+            .property(ClientProperties.READ_TIMEOUT, BATCH_TIMEOUT_IN_MILLISECONDS)
+            .async().post(
+            Entity.entity(batch, MediaType.APPLICATION_JSON),
+            new InvocationCallback<Response>() {
+                @Override
+                public void completed(Response response) {
+                    // The slot is kept only by a scheduled retry, so nothing
+                    // thrown here leaks it
+                    boolean retrying = false;
+                    try {
+                        final int status = response.getStatus();
+                        if (status >= SERVER_ERROR_STATUS
+                            || status == TOO_MANY_REQUESTS_STATUS) {
+                            retrying = retried.test("HTTP " + status);
+                            return;
+                        }
+
+                        if (status != Response.Status.OK.getStatusCode()) {
+                            LOGGER.log(Level.SEVERE,
+                                "There was an error adding the airports: {0}",
+                                response.readEntity(String.class));
+                            summary.rejectedBatches.incrementAndGet();
+                        }
+                        summary.uploadedBatches.incrementAndGet();
+                        summary.uploadedAirports.addAndGet(batch.size());
+                        if (tuner != null) {
+                            tuner.onCompleted(batch.size(), System.nanoTime());
+                            inFlight.setLimit(tuner.getConcurrency());
+                        }
+                        if (uploaded != null) {
+                            try {
+                                uploaded.run();
+                            } catch (RuntimeException ex) {
+                                // Not propagated, as the client would report
+                                // the batch as failed too
+                                LOGGER.log(Level.SEVERE, "There was an error "
+                                    + "completing a batch upload", ex);
+                            }
+                        }
+                    } finally {
+                        response.close();
+                        if (!retrying) {
+                            inFlight.release();
+                        }
+                    }
+                }
+
+                @Override
+                public void failed(Throwable throwable) {
+                    if (!retried.test(throwable.toString())) {
+                        inFlight.release();
+                    }
+                }
+            });
+    }
+
+    /**
+     * This interface represents the source of the batches of a pipelined
+     * upload.
+     */
+    @FunctionalInterface
+    private interface BatchSource {
+
+        /**
+         * Parses the data, counting the lines on the summary, and uploads
+         * the batches through the sink.
+         * @param summary The summary of the upload
+         * @param sink The sink of the batches
+         * @throws IOException If an error accessing the data occurs
+         * @throws InterruptedException If interrupted while waiting a slot
+         */
+        void feed(UploadSummary summary, BatchSink sink)
+            throws IOException, InterruptedException;
+
+    }
+
+    /**
+     * This interface represents the uploads of a pipelined upload, each
+     * batch is uploaded on a slot acquired before.
+     */
+    private interface BatchSink {
+
+        /**
+         * @return The size the next batch has to reach before being
+         * uploaded (it reflects the latest measurements if tuned)
+         */
+        int getBatchSize();
+
+        /**
+         * Waits until a batch can be uploaded.
+         * @throws InterruptedException If interrupted while waiting
+         */
+        void acquire() throws InterruptedException;
+
+        /**
+         * Uploads a batch asynchronously on the slot acquired.
+         * @param batch The batch to be uploaded
+         * @param uploaded The action run once the batch is uploaded
+         * (optional, not run if it fails)
+         */
+        void upload(List<AirportData> batch, Runnable uploaded);
+
+    }
+
+    /**
+     * This class represents the progress of a resumable upload: the position
+     * of the file and the number of the last batch uploaded, with all the
+     * previous ones (the batches may complete out of order).
+     */
+    private static class Checkpoint {
+
+        private static final String OFFSET_PROPERTY = "offset";
+
+        private static final String BATCH_PROPERTY = "batch";
+
+        private long offset;
+
+        private long batch;
+
+        /**
+         * The end position of the batches uploaded after a pending one.
+         */
+        private final SortedMap<Long, Long> completed = new TreeMap<>();
+
+        /**
+         * @param file The checkpoint file
+         * @return The checkpoint saved, or the start if it does not exist
+         * @throws IOException If the checkpoint can not be read
+         */
+        static Checkpoint read(Path file) throws IOException {
+            final Checkpoint checkpoint = new Checkpoint();
+            if (Files.exists(file)) {
+                final Properties properties = new Properties();
+                try (InputStream input = Files.newInputStream(file)) {
+                    properties.load(input);
+                }
+                checkpoint.offset = Long.parseLong(
+                    properties.getProperty(OFFSET_PROPERTY, "0"));
+                checkpoint.batch = Long.parseLong(
+                    properties.getProperty(BATCH_PROPERTY, "0"));
+            }
+            return checkpoint;
+        }
+
+        /**
+         * Registers an uploaded batch, saving the checkpoint if it advances.
+         * @param number The number of the batch
+         * @param end The position after the last line of the batch
+         * @param file The checkpoint file
+         */
+        synchronized void completed(long number, long end, Path file) {
+            completed.put(number, end);
+            if (!completed.containsKey(batch + 1)) {
+                return;
+            }
+
+            while (completed.containsKey(batch + 1)) {
+                batch++;
+                offset = completed.remove(batch);
+            }
+
+            // Replacing the file atomically, so it is never left half written
+            final Properties properties = new Properties();
+            properties.setProperty(OFFSET_PROPERTY, String.valueOf(offset));
+            properties.setProperty(BATCH_PROPERTY, String.valueOf(batch));
+            try {
+                final Path temporary = file.resolveSibling(file.getFileName()
+                    + ".tmp");
+                try (OutputStream output = Files.newOutputStream(temporary)) {
+                    properties.store(output, null);
+                }
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "The checkpoint could not be saved", ex);
+            }
+        }
+
+    }
+
+    /**
+     * This class tracks the batches in progress, bounded by a limit that can
+     * change during the upload.
+     */
+    private static class InFlightBatches {
+
+        private int count;
+
+        private int limit;
+
+        InFlightBatches(int limit) {
+            this.limit = limit;
+        }
+
+        /**
+         * Waits until the number of batches in progress is under the limit
+         * and registers a new one.
+         * @throws InterruptedException If interrupted while waiting
+         */
+        synchronized void acquire() throws InterruptedException {
+            while (count >= limit) {
+                wait();
+            }
+            count++;
+        }
+
+        /**
+         * Registers the completion of a batch.
+         */
+        synchronized void release() {
+            count--;
+            notifyAll();
+        }
+
+        /**
+         * @param limit The new maximum number of batches in progress
+         */
+        synchronized void setLimit(int limit) {
+            this.limit = limit;
+            notifyAll();
+        }
+
+        /**
+         * Waits until all the batches complete.
+         * @throws InterruptedException If interrupted while waiting
+         */
+        synchronized void awaitAll() throws InterruptedException {
+            while (count > 0) {
+                wait();
+            }
+        }
+
+    }
+
+    /**
+     * This class summarizes the result of an upload.
+     */
+    public static class UploadSummary {
+
+        private final long start = System.nanoTime();
+
+        private long elapsedNanos;
+
+        private int lines;
+
+        private int ignoredLines;
+
+        private final AtomicInteger uploadedBatches = new AtomicInteger();
+
+        private final AtomicInteger uploadedAirports = new AtomicInteger();
+
+        private final AtomicInteger rejectedBatches = new AtomicInteger();
+
+        private final AtomicInteger failedBatches = new AtomicInteger();
+
+        private final AtomicInteger failedAirports = new AtomicInteger();
+
+        private final AtomicInteger retries = new AtomicInteger();
+
+        private void finish() {
+            elapsedNanos = System.nanoTime() - start;
+        }
+
+        /**
+         * @return The number of lines read
+         */
+        public int getLines() {
+            return lines;
+        }
+
+        /**
+         * @return The number of lines ignored for not matching the structure
+         */
+        public int getIgnoredLines() {
+            return ignoredLines;
+        }
+
+        /**
+         * @return The number of batches uploaded (including the ones with
+         * airports rejected by the server)
+         */
+        public int getUploadedBatches() {
+            return uploadedBatches.get();
+        }
+
+        /**
+         * @return The number of airports sent on the batches uploaded
+         */
+        public int getUploadedAirports() {
+            return uploadedAirports.get();
+        }
+
+        /**
+         * @return The number of batches with airports rejected by the server
+         */
+        public int getRejectedBatches() {
+            return rejectedBatches.get();
+        }
+
+        /**
+         * @return The number of batches not uploaded after all the retries
+         */
+        public int getFailedBatches() {
+            return failedBatches.get();
+        }
+
+        /**
+         * @return The number of airports of the batches not uploaded
+         */
+        public int getFailedAirports() {
+            return failedAirports.get();
+        }
+
+        /**
+         * @return The number of retries performed
+         */
+        public int getRetries() {
+            return retries.get();
+        }
+
+        /**
+         * @return The elapsed time in milliseconds
+         */
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        /**
+         * @return The airports uploaded per second
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0
+                : uploadedAirports.get() * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d lines (%d ignored), %d airports uploaded "
+                + "in %d batches (%d with rejected airports), %d batches "
+                + "failed (%d airports), %d retries, %d ms, %.1f airports/s",
+                lines, ignoredLines, uploadedAirports.get(),
+                uploadedBatches.get(), rejectedBatches.get(),
+                failedBatches.get(), failedAirports.get(), retries.get(),
+                getElapsedMillis(), getThroughput());
+        }
+
+    }
+
     public static void main(String args[]) throws IOException{
         File airportDataFile = new File(args[0]);
         if (!airportDataFile.exists() || airportDataFile.length() == 0) {
@@ -236,9 +1008,26 @@ public class AirportLoader implements AutoCloseable {
         }
 
         try (AirportLoader loader = new AirportLoader()) {
-            try (Reader reader = new FileReader(airportDataFile)) {
-                loader.uploadInBatch(reader, DEFAULT_BATCH_SIZE);
+            if (args.length > 1 && ADAPTIVE_ARGUMENT.equals(args[1])) {
+                loader.uploadAdaptive(airportDataFile.toPath(),
+                    DEFAULT_MAXIMUM_ADAPTIVE_CONCURRENCY);
+            } else if (args.length > 2) {
+                // The third argument is the checkpoint of a resumable upload
+                loader.uploadResumable(airportDataFile.toPath(),
+                    Paths.get(args[2]), DEFAULT_BATCH_SIZE,
+                    Integer.parseInt(args[1]));
+            } else if (args.length > 1) {
+                // The second argument is the number of concurrent uploads
+                loader.uploadPipelined(airportDataFile.toPath(),
+                    DEFAULT_BATCH_SIZE, Integer.parseInt(args[1]));
+            } else {
+                try (Reader reader = new FileReader(airportDataFile)) {
+                    loader.uploadInBatch(reader, DEFAULT_BATCH_SIZE);
+                }
             }
+        } catch (InterruptedException ex) {
+            LOGGER.log(Level.SEVERE, "The upload was interrupted", ex);
+            System.exit(1);
         }
 
         System.exit(0);
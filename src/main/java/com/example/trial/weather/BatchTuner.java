@@ -0,0 +1,283 @@
+package com.example.trial.weather;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class tunes the batch size and the concurrency of an upload from the
+ * observed throughput and errors.
+ *
+ * The completed batches are measured in windows (a few batches each). The
+ * batch size climbs the throughput curve: it keeps moving in the same
+ * direction (growing or shrinking) while the throughput of a window improves
+ * and reverses its direction when it worsens. The concurrency grows by one on
+ * each window without throughput loss. An overload (a timeout, a 429 or a
+ * 5XX response) halves both, so the following requests are smaller and
+ * fewer. Each reduction starts a new generation, and the overloads of the
+ * batches sent under a previous one are ignored (they were sent before the
+ * reduction, so a burst of failures halves the parameters once).
+ *
+ * The measurements of every window are kept as the throughput curve of the
+ * upload.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class BatchTuner {
+
+    /**
+     * The lowest and highest batch sizes.
+     */
+    public static final int MINIMUM_BATCH_SIZE = 10;
+    public static final int MAXIMUM_BATCH_SIZE = 20000;
+
+    /**
+     * The factor applied to the batch size on each step.
+     */
+    private static final double BATCH_SIZE_STEP = 1.5;
+
+    /**
+     * The relative change of the throughput considered noise (the parameters
+     * are kept).
+     */
+    private static final double THROUGHPUT_TOLERANCE = 0.05;
+
+    /**
+     * The minimum number of batches of a window (it is the concurrency if
+     * greater, so every slot completes at least one batch).
+     */
+    private static final int MINIMUM_WINDOW_BATCHES = 4;
+
+    /**
+     * The highest concurrency.
+     */
+    private final int maximumConcurrency;
+
+    /**
+     * The current batch size and concurrency.
+     */
+    private int batchSize;
+    private int concurrency;
+
+    /**
+     * If the batch size is growing (or shrinking).
+     */
+    private boolean growing = true;
+
+    /**
+     * The start time of the current window.
+     */
+    private long windowStart;
+
+    /**
+     * The batches and airports completed in the current window.
+     */
+    private int windowBatches;
+    private int windowAirports;
+
+    /**
+     * The throughput of the previous window (airports per second), or -1 if
+     * there is none with the current parameters.
+     */
+    private double previousThroughput = -1;
+
+    /**
+     * The number of reductions so far.
+     */
+    private long generation;
+
+    /**
+     * The measurements of the windows.
+     */
+    private final List<Sample> curve = new ArrayList<>();
+
+    /**
+     * @param initialBatchSize The batch size to start with
+     * @param initialConcurrency The concurrency to start with
+     * @param maximumConcurrency The highest concurrency
+     * @param now The current time in nanoseconds
+     */
+    public BatchTuner(int initialBatchSize, int initialConcurrency,
+        int maximumConcurrency, long now) {
+        if (initialConcurrency < 1 || maximumConcurrency < initialConcurrency) {
+            throw new IllegalArgumentException("Invalid concurrency: "
+                + initialConcurrency + " (maximum " + maximumConcurrency + ")");
+        }
+
+        this.batchSize = clamp(initialBatchSize);
+        this.concurrency = initialConcurrency;
+        this.maximumConcurrency = maximumConcurrency;
+        this.windowStart = now;
+    }
+
+    /**
+     * @return The size of the next batch
+     */
+    public synchronized int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return The number of batches to be uploading at a time
+     */
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @return The generation of the current parameters, to be sent with each
+     * batch (see #onOverloaded(long, long))
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return The measurements of the windows completed so far
+     */
+    public synchronized List<Sample> getCurve() {
+        return new ArrayList<>(curve);
+    }
+
+    /**
+     * Registers a batch uploaded, adjusting the parameters when a window
+     * completes.
+     * @param airports The number of airports of the batch
+     * @param now The current time in nanoseconds
+     */
+    public synchronized void onCompleted(int airports, long now) {
+        windowBatches++;
+        windowAirports += airports;
+        if (windowBatches < Math.max(MINIMUM_WINDOW_BATCHES, concurrency)) {
+            return;
+        }
+
+        final double throughput = windowAirports * 1e9
+            / Math.max(1, now - windowStart);
+        curve.add(new Sample(batchSize, concurrency, throughput, false));
+
+        if (previousThroughput < 0
+            || throughput > previousThroughput * (1 + THROUGHPUT_TOLERANCE)) {
+            // Improving (or the first window), keep climbing
+            step();
+            concurrency = Math.min(maximumConcurrency, concurrency + 1);
+        } else if (throughput < previousThroughput * (1 - THROUGHPUT_TOLERANCE)) {
+            // Worsening, going back
+            growing = !growing;
+            step();
+        }
+        previousThroughput = throughput;
+        startWindow(now);
+    }
+
+    /**
+     * Registers a batch failed because of the server load or the network
+     * (e.g. a timeout or a 429 response), reducing the parameters unless
+     * the batch was sent before the latest reduction.
+     * @param batchGeneration The generation the batch was sent under
+     * @param now The current time in nanoseconds
+     * @return If the parameters were reduced
+     */
+    public synchronized boolean onOverloaded(long batchGeneration, long now) {
+        if (batchGeneration != generation) {
+            return false;
+        }
+
+        curve.add(new Sample(batchSize, concurrency, windowAirports * 1e9
+            / Math.max(1, now - windowStart), true));
+
+        batchSize = clamp(batchSize / 2);
+        concurrency = Math.max(1, concurrency / 2);
+        growing = false;
+        previousThroughput = -1;
+        generation++;
+        startWindow(now);
+        return true;
+    }
+
+    /**
+     * Moves the batch size a step in the current direction.
+     */
+    private void step() {
+        final int next = clamp((int) Math.round(growing
+            ? batchSize * BATCH_SIZE_STEP : batchSize / BATCH_SIZE_STEP));
+        if (next == batchSize) {
+            // At a bound, the direction reverses on the next change
+            growing = !growing;
+        }
+        batchSize = next;
+    }
+
+    /**
+     * @param now The current time in nanoseconds
+     */
+    private void startWindow(long now) {
+        windowStart = now;
+        windowBatches = 0;
+        windowAirports = 0;
+    }
+
+    /**
+     * @param size A batch size
+     * @return The batch size within the bounds
+     */
+    private static int clamp(int size) {
+        return Math.max(MINIMUM_BATCH_SIZE, Math.min(MAXIMUM_BATCH_SIZE, size));
+    }
+
+    /**
+     * This class represents the measurement of a window.
+     */
+    public static class Sample {
+
+        private final int batchSize;
+
+        private final int concurrency;
+
+        private final double throughput;
+
+        private final boolean overloaded;
+
+        public Sample(int batchSize, int concurrency, double throughput,
+            boolean overloaded) {
+            this.batchSize = batchSize;
+            this.concurrency = concurrency;
+            this.throughput = throughput;
+            this.overloaded = overloaded;
+        }
+
+        /**
+         * @return The batch size used during the window
+         */
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        /**
+         * @return The concurrency used during the window
+         */
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        /**
+         * @return The airports uploaded per second during the window
+         */
+        public double getThroughput() {
+            return throughput;
+        }
+
+        /**
+         * @return If the window ended by an overload
+         */
+        public boolean isOverloaded() {
+            return overloaded;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d x %d: %.1f airports/s%s", batchSize,
+                concurrency, throughput, overloaded ? " (overloaded)" : "");
+        }
+
+    }
+
+}
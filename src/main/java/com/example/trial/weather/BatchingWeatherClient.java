@@ -0,0 +1,490 @@
+package com.example.trial.weather;
+
+import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.exceptions.WeatherUpdateException;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import org.glassfish.jersey.client.ClientProperties;
+
+/**
+ * A weather client for the collector agents producing updates at high rates.
+ *
+ * The updates are buffered and posted in batches to /collect/weather, a batch
+ * is sent when it reaches the maximum size or when the flush interval elapses
+ * (whatever happens first). Several batches are sent at a time without
+ * waiting for the previous ones, bounded by the maximum in flight batches: when
+ * reached the producers block until a batch completes (i.e. backpressure). The
+ * updates of an airport and point type are applied in order: a batch is held
+ * back while an earlier one with any of its airports and point types is being
+ * sent (or held back itself). The responses are always consumed, so the
+ * connections are kept alive and reused by the connection pool of the JVM.
+ *
+ * Each update returns a future completed when the server acknowledges it, or
+ * completed exceptionally with a WeatherUpdateException if rejected (e.g.
+ * unknown airport or invalid data point) or the error if the batch failed.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class BatchingWeatherClient implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(BatchingWeatherClient.class.getName());
+
+    /**
+     * The maximum number of updates of a batch accepted by the server.
+     */
+    public static final int MAXIMUM_BATCH_SIZE = 1000;
+
+    /**
+     * The default maximum number of updates of a batch.
+     */
+    private static final int DEFAULT_MAXIMUM_BATCH_SIZE = 500;
+
+    /**
+     * The default time an update waits to be sent.
+     */
+    private static final long DEFAULT_FLUSH_INTERVAL_IN_MILLISECONDS = 100;
+
+    /**
+     * The default maximum number of batches being sent at a time.
+     */
+    private static final int DEFAULT_MAXIMUM_IN_FLIGHT_BATCHES = 4;
+
+    /**
+     * The time a batch waits for the server response.
+     */
+    private static final int BATCH_TIMEOUT_IN_MILLISECONDS = 30000;
+
+    /**
+     * Shared gson (thread safe).
+     */
+    private static final Gson gson = new Gson();
+
+    /**
+     * The client used to access the server.
+     */
+    private final Client client;
+
+    /**
+     * The end point receiving the batches.
+     */
+    private final WebTarget weather;
+
+    /**
+     * The maximum number of updates of a batch.
+     */
+    private final int maximumBatchSize;
+
+    /**
+     * The maximum number of batches being sent at a time.
+     */
+    private final int maximumInFlightBatches;
+
+    /**
+     * The executor flushing the buffer periodically.
+     */
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * The updates waiting to be sent (guarded by this).
+     */
+    private List<PendingUpdate> buffer = new ArrayList<>();
+
+    /**
+     * The batches taken from the buffer and not completed yet (guarded by
+     * this).
+     */
+    private int pendingBatches;
+
+    /**
+     * The batches taken from the buffer and not sent yet, in order (guarded
+     * by this).
+     */
+    private final Deque<Batch> waitingBatches = new ArrayDeque<>();
+
+    /**
+     * The number of batches being sent (guarded by this).
+     */
+    private int inFlightBatches;
+
+    /**
+     * The airports and point types of the batches being sent (guarded by
+     * this).
+     */
+    private final Set<String> inFlightKeys = new HashSet<>();
+
+    /**
+     * If the client was closed (guarded by this).
+     */
+    private boolean closed;
+
+    /**
+     * Creates a client with the default thresholds.
+     * @param baseUrl Is the base address for the server
+     */
+    public BatchingWeatherClient(final String baseUrl) {
+        this(baseUrl, DEFAULT_MAXIMUM_BATCH_SIZE,
+            DEFAULT_FLUSH_INTERVAL_IN_MILLISECONDS,
+            DEFAULT_MAXIMUM_IN_FLIGHT_BATCHES);
+    }
+
+    /**
+     * @param baseUrl Is the base address for the server
+     * @param maximumBatchSize The maximum number of updates of a batch (up to
+     * MAXIMUM_BATCH_SIZE, the maximum accepted by the server)
+     * @param flushIntervalInMilliseconds The maximum time an update waits to
+     * be sent
+     * @param maximumInFlightBatches The maximum number of batches being sent
+     * at a time
+     */
+    public BatchingWeatherClient(final String baseUrl, int maximumBatchSize,
+        long flushIntervalInMilliseconds, int maximumInFlightBatches) {
+        if (maximumBatchSize < 1 || maximumBatchSize > MAXIMUM_BATCH_SIZE
+            || flushIntervalInMilliseconds < 1 || maximumInFlightBatches < 1) {
+            throw new IllegalArgumentException("Invalid thresholds: "
+                + maximumBatchSize + " updates, " + flushIntervalInMilliseconds
+                + " ms, " + maximumInFlightBatches + " batches in flight");
+        }
+
+        this.maximumBatchSize = maximumBatchSize;
+        this.maximumInFlightBatches = maximumInFlightBatches;
+
+        client = ClientBuilder.newClient();
+        weather = client.target(baseUrl + "collect").path("/weather");
+
+        flusher = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "weather-client-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalInMilliseconds,
+            flushIntervalInMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Buffers an update, sending the batch if it reached the maximum size.
+     * @param iata The iata code
+     * @param pointType The point type to be updated
+     * @param dataPoint The data point
+     * @return A future completed when the server acknowledges the update
+     * @throws IllegalStateException If the client was closed
+     */
+    public CompletableFuture<Void> update(String iata, String pointType,
+        DataPoint dataPoint) {
+        final PendingUpdate update = new PendingUpdate(iata, pointType,
+            dataPoint);
+
+        boolean full;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("The client is closed");
+            }
+
+            buffer.add(update);
+            full = buffer.size() >= maximumBatchSize;
+            if (full) {
+                takeBuffer();
+            }
+        }
+
+        if (full) {
+            send();
+        }
+        return update.future;
+    }
+
+    /**
+     * Sends the updates buffered, without waiting for the acknowledgements.
+     */
+    public void flush() {
+        synchronized (this) {
+            if (buffer.isEmpty()) {
+                return;
+            }
+
+            takeBuffer();
+        }
+
+        send();
+    }
+
+    /**
+     * This method queues the buffered updates as a new batch (the caller
+     * must hold the lock).
+     */
+    private void takeBuffer() {
+        waitingBatches.add(new Batch(buffer));
+        buffer = new ArrayList<>();
+        pendingBatches++;
+    }
+
+    /**
+     * This method sends the buffered updates and waits for their
+     * acknowledgements before releasing the resources.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+
+        flusher.shutdown();
+        flush();
+
+        // Every batch ends in time (by the timeout)
+        boolean interrupted = false;
+        synchronized (this) {
+            while (pendingBatches > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        client.close();
+    }
+
+    /**
+     * This method posts asynchronously the waiting batches that can be sent,
+     * then waits if the maximum number of batches are already being sent
+     * (until one of them completes).
+     */
+    private void send() {
+        post();
+
+        boolean interrupted = false;
+        synchronized (this) {
+            while (pendingBatches > maximumInFlightBatches) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * This method posts asynchronously the waiting batches, in order, while
+     * there are free slots. A batch is held back if it has an airport and
+     * point type of a batch being sent or of an earlier batch held back.
+     */
+    private void post() {
+        final List<Batch> ready = new ArrayList<>();
+        synchronized (this) {
+            final Set<String> heldBackKeys = new HashSet<>();
+            for (Iterator<Batch> it = waitingBatches.iterator();
+                it.hasNext() && inFlightBatches < maximumInFlightBatches;) {
+                final Batch batch = it.next();
+                if (!Collections.disjoint(batch.keys, inFlightKeys)
+                    || !Collections.disjoint(batch.keys, heldBackKeys)) {
+                    heldBackKeys.addAll(batch.keys);
+                    continue;
+                }
+
+                it.remove();
+                inFlightKeys.addAll(batch.keys);
+                inFlightBatches++;
+                ready.add(batch);
+            }
+        }
+
+        ready.forEach(this::post);
+    }
+
+    /**
+     * This method posts a batch asynchronously.
+     * @param batch The batch to be sent
+     */
+    private void post(final Batch batch) {
+        try {
+            weather.request()
+                .property(ClientProperties.READ_TIMEOUT, BATCH_TIMEOUT_IN_MILLISECONDS)
+                .async().post(
+                Entity.entity(gson.toJson(batch.updates), MediaType.APPLICATION_JSON),
+                new InvocationCallback<Response>() {
+                    @Override
+                    public void completed(Response response) {
+                        try {
+                            acknowledge(batch.updates, response);
+                        } catch (RuntimeException ex) {
+                            fail(batch, ex);
+                        } finally {
+                            response.close();
+                            release(batch);
+                        }
+                    }
+
+                    @Override
+                    public void failed(Throwable throwable) {
+                        fail(batch, throwable);
+                        release(batch);
+                    }
+                });
+        } catch (RuntimeException ex) {
+            fail(batch, ex);
+            release(batch);
+        }
+    }
+
+    /**
+     * This method completes the futures of a batch not acknowledged (the ones
+     * already completed are kept).
+     * @param batch The batch failed
+     * @param throwable The error
+     */
+    private static void fail(Batch batch, Throwable throwable) {
+        LOGGER.log(Level.WARNING, "There was an error sending a batch of {0} "
+            + "weather updates: {1}", new Object[] {batch.updates.size(),
+            throwable});
+        batch.updates.forEach(update ->
+            update.future.completeExceptionally(throwable));
+    }
+
+    /**
+     * This method registers a batch completed (only the first time), sending
+     * the next ones.
+     * @param batch The batch completed
+     */
+    private void release(Batch batch) {
+        if (!batch.released.compareAndSet(false, true)) {
+            return;
+        }
+
+        synchronized (this) {
+            inFlightKeys.removeAll(batch.keys);
+            inFlightBatches--;
+            pendingBatches--;
+            notifyAll();
+        }
+        post();
+    }
+
+    /**
+     * This method completes the futures of a batch from the server response.
+     * @param batch The updates sent
+     * @param response The server response
+     */
+    private static void acknowledge(List<PendingUpdate> batch,
+        Response response) {
+        final String entity = response.readEntity(String.class);
+
+        UpdateResult[] results = null;
+        if (response.getStatus() == Response.Status.OK.getStatusCode()) {
+            try {
+                results = gson.fromJson(entity, UpdateResult[].class);
+            } catch (JsonParseException ex) {
+                LOGGER.log(Level.FINEST, "Invalid batch response", ex);
+            }
+        }
+
+        if (results == null || results.length != batch.size()) {
+            LOGGER.log(Level.WARNING, "A batch of {0} weather updates was "
+                + "rejected: HTTP {1} {2}", new Object[] {batch.size(),
+                response.getStatus(), entity});
+            final WeatherUpdateException error = new WeatherUpdateException(
+                "The batch was rejected: " + entity, response.getStatus());
+            batch.forEach(update -> update.future.completeExceptionally(error));
+            return;
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i].status == Response.Status.OK.getStatusCode()) {
+                batch.get(i).future.complete(null);
+            } else {
+                batch.get(i).future.completeExceptionally(
+                    new WeatherUpdateException(results[i].message,
+                        results[i].status));
+            }
+        }
+    }
+
+    /**
+     * This class represents an update waiting to be acknowledged (the future
+     * is not sent).
+     */
+    private static class PendingUpdate {
+
+        private final String iata;
+
+        private final String pointType;
+
+        private final DataPoint dataPoint;
+
+        private final transient CompletableFuture<Void> future =
+            new CompletableFuture<>();
+
+        PendingUpdate(String iata, String pointType, DataPoint dataPoint) {
+            this.iata = iata;
+            this.pointType = pointType;
+            this.dataPoint = dataPoint;
+        }
+
+    }
+
+    /**
+     * This class represents a batch of updates and the airports and point
+     * types it updates.
+     */
+    private static class Batch {
+
+        private final List<PendingUpdate> updates;
+
+        private final Set<String> keys = new HashSet<>();
+
+        /**
+         * If the batch was already registered as completed.
+         */
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Batch(List<PendingUpdate> updates) {
+            this.updates = updates;
+            for (PendingUpdate update : updates) {
+                keys.add(update.iata + '/' + update.pointType);
+            }
+        }
+
+    }
+
+    /**
+     * This class represents the result of an update returned by the server.
+     */
+    private static class UpdateResult {
+
+        private int status;
+
+        private String message;
+
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.example.trial.weather;
 
 import com.example.trial.weather.domain.DataPoint;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
@@ -12,6 +13,8 @@ import javax.ws.rs.core.Response;
  * A reference implementation for the weather client. Consumers of the REST API
  * can look at WeatherClient to understand API semantics. This existing client
  * populates the REST endpoint with dummy data useful for testing.
+ * @see BatchingWeatherClient for the collector agents producing updates at
+ * high rates
  * @author code test administrator
  */
 public class WeatherClient {
@@ -26,6 +29,11 @@ public class WeatherClient {
      */
     private WebTarget collect;
 
+    /**
+     * The cache of the query results (null if not caching).
+     */
+    private WeatherQueryCache cache;
+
     public WeatherClient() {
         this(WeatherServer.BASE_URL);
     }
@@ -38,6 +46,16 @@ public class WeatherClient {
         collect = client.target(baseUrl + "collect");
     }
 
+    /**
+     * @param baseUrl Is the base address for the server
+     * @param cache The cache of the query results (usually one per process
+     * shared by all the clients)
+     */
+    public WeatherClient(final String baseUrl, WeatherQueryCache cache) {
+        this(baseUrl);
+        this.cache = cache;
+    }
+
     public void pingCollect() {
         WebTarget path = collect.path("/ping");
         Response response = path.request().get();
@@ -54,6 +72,17 @@ public class WeatherClient {
     }
 
     public void query(String iata) {
+        if (cache != null) {
+            String result;
+            try {
+                result = cache.weather(iata, "0");
+            } catch (WebApplicationException ex) {
+                result = ex.getMessage();
+            }
+            System.out.println("query." + iata + ".0: " + result);
+            return;
+        }
+
         WebTarget path = query.path("/weather/" + iata + "/0");
         Response response = path.request().get();
         System.out.println("query." + iata + ".0: " + response.readEntity(String.class));
@@ -0,0 +1,385 @@
+package com.example.trial.weather;
+
+import com.example.trial.weather.util.SingleFlight;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * A client side cache of the weather query results, intended to be shared by
+ * all the clients of a process (see WeatherClient).
+ *
+ * A result is served from the cache while fresh. Once stale it is still
+ * served during the stale while revalidate period, revalidating it in the
+ * background; after that period the caller waits for the revalidation. The
+ * revalidations are conditional requests (using the ETag of the result), so
+ * the result is only transferred again if it changed. Identical concurrent
+ * fetches are coalesced into a single request.
+ *
+ * The cache is bounded by the number of entries and bytes, evicting the
+ * least recently used results. The bytes of an entry are estimated as the
+ * characters of its key and result (2 bytes each).
+ * @author ignaciolarranaga@gmail.com
+ */
+public class WeatherQueryCache implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(WeatherQueryCache.class.getName());
+
+    /**
+     * The default time a result is served without revalidating it.
+     */
+    private static final long DEFAULT_FRESHNESS_IN_MILLISECONDS = 1000;
+
+    /**
+     * The default time a stale result is served while revalidated.
+     */
+    private static final long DEFAULT_STALE_WHILE_REVALIDATE_IN_MILLISECONDS = 10000;
+
+    /**
+     * The default maximum number of results cached.
+     */
+    private static final int DEFAULT_MAXIMUM_ENTRIES = 10000;
+
+    /**
+     * The default maximum bytes of the results cached.
+     */
+    private static final long DEFAULT_MAXIMUM_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * The client used to access the server.
+     */
+    private final Client client;
+
+    /**
+     * The end point for read queries.
+     */
+    private final WebTarget query;
+
+    /**
+     * The time a result is served without revalidating it and the time a
+     * stale result is served while revalidated (in nanoseconds).
+     */
+    private final long freshness;
+    private final long staleWhileRevalidate;
+
+    /**
+     * The bounds of the cache.
+     */
+    private final int maximumEntries;
+    private final long maximumBytes;
+
+    /**
+     * The results by query in access order, i.e. the least recently used
+     * first (guarded by this).
+     */
+    private final LinkedHashMap<String, Entry> entries =
+        new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The bytes of the entries (guarded by this).
+     */
+    private long bytes;
+
+    /**
+     * The fetches in progress by query.
+     */
+    private final SingleFlight<String, Entry> fetches = new SingleFlight<>();
+
+    /**
+     * The usage counters.
+     */
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong notModifiedCount = new AtomicLong();
+
+    /**
+     * Creates a cache with the default freshness and bounds.
+     * @param baseUrl Is the base address for the server
+     */
+    public WeatherQueryCache(final String baseUrl) {
+        this(baseUrl, DEFAULT_FRESHNESS_IN_MILLISECONDS,
+            DEFAULT_STALE_WHILE_REVALIDATE_IN_MILLISECONDS,
+            DEFAULT_MAXIMUM_ENTRIES, DEFAULT_MAXIMUM_BYTES);
+    }
+
+    /**
+     * @param baseUrl Is the base address for the server
+     * @param freshnessInMilliseconds The time a result is served without
+     * revalidating it
+     * @param staleWhileRevalidateInMilliseconds The time a stale result is
+     * served while revalidated
+     * @param maximumEntries The maximum number of results cached
+     * @param maximumBytes The maximum bytes of the results cached
+     */
+    public WeatherQueryCache(final String baseUrl, long freshnessInMilliseconds,
+        long staleWhileRevalidateInMilliseconds, int maximumEntries,
+        long maximumBytes) {
+        if (freshnessInMilliseconds < 0 || staleWhileRevalidateInMilliseconds < 0
+            || maximumEntries < 1 || maximumBytes < 1) {
+            throw new IllegalArgumentException("Invalid cache settings: "
+                + freshnessInMilliseconds + " ms fresh, "
+                + staleWhileRevalidateInMilliseconds + " ms stale, "
+                + maximumEntries + " entries, " + maximumBytes + " bytes");
+        }
+
+        this.freshness = TimeUnit.MILLISECONDS.toNanos(freshnessInMilliseconds);
+        this.staleWhileRevalidate = TimeUnit.MILLISECONDS.toNanos(
+            staleWhileRevalidateInMilliseconds);
+        this.maximumEntries = maximumEntries;
+        this.maximumBytes = maximumBytes;
+
+        client = ClientBuilder.newClient();
+        query = client.target(baseUrl + "query");
+    }
+
+    /**
+     * @param iata The iata code to get the information
+     * @param radius The radius in km to look for alternatives
+     * @return The JSON result of the weather query
+     * @throws WebApplicationException If the query was not successful (e.g.
+     * the airport was not found), with the server status and message
+     */
+    public String weather(String iata, String radius) {
+        final String key = iata + '/' + radius;
+
+        final Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+
+        if (entry != null) {
+            final long age = System.nanoTime() - entry.validatedAt;
+            if (age <= freshness) {
+                hitCount.incrementAndGet();
+                return entry.body;
+            } else if (age <= freshness + staleWhileRevalidate) {
+                hitCount.incrementAndGet();
+                if (entry.revalidating.compareAndSet(false, true)) {
+                    revalidate(key, entry);
+                }
+                return entry.body;
+            }
+        }
+
+        missCount.incrementAndGet();
+        return fetches.execute(key, () -> {
+            final Response response = request(key, entry).get();
+            try {
+                return store(key, entry, response);
+            } finally {
+                response.close();
+            }
+        }).body;
+    }
+
+    /**
+     * This method revalidates an entry in the background.
+     * @param key The query of the entry
+     * @param entry The entry to be revalidated
+     */
+    private void revalidate(final String key, final Entry entry) {
+        request(key, entry).async().get(new InvocationCallback<Response>() {
+            @Override
+            public void completed(Response response) {
+                try {
+                    store(key, entry, response);
+                } catch (WebApplicationException ex) {
+                    LOGGER.log(Level.FINE, "The revalidation of {0} failed: "
+                        + "{1}", new Object[] {key, ex.getMessage()});
+                } finally {
+                    response.close();
+                }
+            }
+
+            @Override
+            public void failed(Throwable throwable) {
+                LOGGER.log(Level.FINE, "The revalidation of {0} failed: {1}",
+                    new Object[] {key, throwable});
+                entry.revalidating.set(false);
+            }
+        });
+    }
+
+    /**
+     * @param key The query
+     * @param entry The entry cached for the query (null if none)
+     * @return The request for the query, conditional if the entry is tagged
+     */
+    private Invocation.Builder request(String key, Entry entry) {
+        final Invocation.Builder request = query.path("/weather/" + key)
+            .request(MediaType.APPLICATION_JSON);
+        if (entry != null && entry.tag != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, entry.tag);
+        }
+        return request;
+    }
+
+    /**
+     * This method updates the cache from a query response.
+     * @param key The query
+     * @param previous The entry cached when the request was made (null if
+     * none)
+     * @param response The query response
+     * @return The entry for the query
+     * @throws WebApplicationException If the query was not successful, the
+     * entry is removed
+     */
+    private Entry store(String key, Entry previous, Response response) {
+        final int status = response.getStatus();
+        final Entry entry;
+        if (status == Response.Status.NOT_MODIFIED.getStatusCode()
+            && previous != null) {
+            notModifiedCount.incrementAndGet();
+            entry = new Entry(previous.body, previous.tag);
+        } else if (status == Response.Status.OK.getStatusCode()) {
+            entry = new Entry(response.readEntity(String.class),
+                response.getEntityTag());
+        } else {
+            synchronized (this) {
+                if (previous != null && entries.get(key) == previous) {
+                    remove(key);
+                }
+            }
+            throw new WebApplicationException(response.readEntity(String.class),
+                status);
+        }
+
+        synchronized (this) {
+            final Entry current = entries.get(key);
+            if (previous != null && current != previous) {
+                // Already replaced by a more recent response
+                return current != null ? current : entry;
+            }
+
+            if (current != null) {
+                remove(key);
+            }
+            entries.put(key, entry);
+            bytes += entry.getBytes(key);
+
+            // Evicting the least recently used entries
+            final Iterator<Map.Entry<String, Entry>> iterator =
+                entries.entrySet().iterator();
+            while (entries.size() > maximumEntries || bytes > maximumBytes) {
+                final Map.Entry<String, Entry> eldest = iterator.next();
+                bytes -= eldest.getValue().getBytes(eldest.getKey());
+                iterator.remove();
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * @param key The query to be removed (guarded by this)
+     */
+    private void remove(String key) {
+        bytes -= entries.remove(key).getBytes(key);
+    }
+
+    /**
+     * Removes all the results cached.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return The number of results cached
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * @return The bytes of the results cached
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return The number of queries served from the cache (fresh or stale)
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return The number of queries waiting for a request
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return The number of revalidations answered with NOT_MODIFIED
+     */
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    /**
+     * This method closes the cache releasing all the resources.
+     */
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    /**
+     * This class represents a result cached.
+     */
+    private static class Entry {
+
+        /**
+         * The JSON result.
+         */
+        private final String body;
+
+        /**
+         * The entity tag of the result (null if not tagged).
+         */
+        private final EntityTag tag;
+
+        /**
+         * The time the result was received or revalidated (in nanoseconds).
+         */
+        private final long validatedAt = System.nanoTime();
+
+        /**
+         * If a background revalidation is in progress.
+         */
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+
+        Entry(String body, EntityTag tag) {
+            this.body = body;
+            this.tag = tag;
+        }
+
+        /**
+         * @param key The query of the entry
+         * @return The estimated bytes of the entry
+         */
+        long getBytes(String key) {
+            return 2L * (key.length() + body.length());
+        }
+
+    }
+
+}
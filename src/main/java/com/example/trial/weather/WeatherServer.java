@@ -1,17 +1,21 @@
 package com.example.trial.weather;
 
+import com.example.trial.weather.impl.QueryExecutor;
 import com.example.trial.weather.impl.RestWeatherCollectorEndpoint;
 import com.example.trial.weather.impl.RestWeatherQueryEndpoint;
+import com.example.trial.weather.repository.RepositoryFactory;
+import com.example.trial.weather.server.AccessLog;
+import com.example.trial.weather.server.AccessLogProbe;
+import com.example.trial.weather.server.AirportPreloader;
+import com.example.trial.weather.server.ServerConfiguration;
+import com.example.trial.weather.server.WeatherHttpServerFactory;
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Paths;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.http.server.HttpServer;
-import org.glassfish.grizzly.http.server.HttpServerFilter;
-import org.glassfish.grizzly.http.server.HttpServerProbe;
-import org.glassfish.grizzly.http.server.Request;
-import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
 
 /**
@@ -29,25 +33,32 @@ public class WeatherServer {
             System.out.println("Starting Weather App local testing server: " +
                 BASE_URL);
 
+            final ServerConfiguration configuration = ServerConfiguration.load();
+            QueryExecutor.configure(configuration);
+
+            // Loading the catalogue (if configured) before accepting requests
+            if (configuration.getPreloadFile() != null) {
+                new AirportPreloader(RepositoryFactory.getInstance())
+                    .preload(Paths.get(configuration.getPreloadFile()));
+            }
+
             final ResourceConfig resourceConfig = new ResourceConfig();
             resourceConfig.register(RestWeatherCollectorEndpoint.class);
             resourceConfig.register(RestWeatherQueryEndpoint.class);
 
-            HttpServer server = GrizzlyHttpServerFactory.createHttpServer(
-                URI.create(BASE_URL), resourceConfig, false);
+            HttpServer server = WeatherHttpServerFactory.createHttpServer(
+                URI.create(BASE_URL), resourceConfig, configuration);
+            AccessLog accessLog = new AccessLog(
+                new File(configuration.getAccessLogFile()));
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 server.shutdownNow();
+                accessLog.close();
             }));
 
-            HttpServerProbe probe = new HttpServerProbe.Adapter() {
-                @Override
-                public void onRequestReceiveEvent(HttpServerFilter filter,
-                    Connection connection, Request request) {
-                    System.out.println(request.getRequestURI());
-                }
-            };
+            // The requests are logged asynchronously to avoid blocking the
+            // worker threads on the console or the disk
             server.getServerConfiguration().getMonitoringConfig()
-                .getWebServerConfig().addProbes(probe);
+                .getWebServerConfig().addProbes(new AccessLogProbe(accessLog));
 
 
             // the autograder waits for this output before running automated
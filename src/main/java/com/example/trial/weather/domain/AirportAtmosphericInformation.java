@@ -0,0 +1,94 @@
+package com.example.trial.weather.domain;
+
+import java.util.Objects;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Associates the atmospheric information with the airport it belongs to.
+ * The AtmosphericInformation itself does not identify the airport, so this
+ * is used by the operations returning information of several airports where
+ * the consumer needs to know which one is which.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class AirportAtmosphericInformation {
+
+    /** Base prime used for hash code calculation. */
+    private static final int BASE_HASH_CODE_PRIME_NUMBER = 11;
+
+    /** Second prime used for hash code calculation. */
+    private static final int SECOND_HASH_CODE_PRIME_NUMBER = 71;
+
+    /**
+     * The airport the information belongs to.
+     */
+    private AirportData airport;
+
+    /**
+     * The atmospheric information of the airport.
+     */
+    private AtmosphericInformation atmosphericInformation;
+
+    public AirportAtmosphericInformation() {
+    }
+
+    public AirportAtmosphericInformation(AirportData airport,
+        AtmosphericInformation atmosphericInformation) {
+        this.airport = airport;
+        this.atmosphericInformation = atmosphericInformation;
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this,
+            ToStringStyle.NO_CLASS_NAME_STYLE);
+    }
+
+    @Override
+    public int hashCode() {
+        // The hash code generation is based on arbitrary different prime
+        // numbers like 11 and 71 as shown in the following lines
+        int hash = BASE_HASH_CODE_PRIME_NUMBER;
+        hash = SECOND_HASH_CODE_PRIME_NUMBER * hash + Objects.hashCode(this.airport);
+        hash = SECOND_HASH_CODE_PRIME_NUMBER * hash
+            + Objects.hashCode(this.atmosphericInformation);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+
+        final AirportAtmosphericInformation other =
+            (AirportAtmosphericInformation) obj;
+        return Objects.equals(this.airport, other.airport)
+                && Objects.equals(this.atmosphericInformation,
+                    other.atmosphericInformation);
+    }
+
+    // Getters and Setters
+
+    public AirportData getAirport() {
+        return airport;
+    }
+
+    public void setAirport(AirportData airport) {
+        this.airport = airport;
+    }
+
+    public AtmosphericInformation getAtmosphericInformation() {
+        return atmosphericInformation;
+    }
+
+    public void setAtmosphericInformation(
+        AtmosphericInformation atmosphericInformation) {
+        this.atmosphericInformation = atmosphericInformation;
+    }
+
+}
@@ -136,12 +136,47 @@ public class AirportData {
      * @return The Haversine distance from this airport to the other
      */
     public double distance(AirportData other) {
-        double deltaLat = Math.toRadians(other.latitude - latitude);
-        double deltaLon = Math.toRadians(other.longitude - longitude);
+        return distance(latitude, longitude, other.latitude, other.longitude);
+    }
+
+    /**
+     * This is the Haversine distance between two points given in degrees.
+     * @see #distance(AirportData)
+     * @param latitude1 The latitude of the first point
+     * @param longitude1 The longitude of the first point
+     * @param latitude2 The latitude of the second point
+     * @param longitude2 The longitude of the second point
+     * @return The Haversine distance in KM between the points
+     */
+    public static double distance(double latitude1, double longitude1,
+        double latitude2, double longitude2) {
+        return distance(latitude1, longitude1, Math.cos(Math.toRadians(latitude1)),
+            latitude2, longitude2, Math.cos(Math.toRadians(latitude2)));
+    }
+
+    /**
+     * This is the Haversine distance between two points given in degrees,
+     * with the cosines of their latitudes already calculated (e.g. when one
+     * point is compared against many).
+     * @see #distance(double, double, double, double)
+     * @param latitude1 The latitude of the first point
+     * @param longitude1 The longitude of the first point
+     * @param latitudeCosine1 The cosine of the latitude of the first point
+     * @param latitude2 The latitude of the second point
+     * @param longitude2 The longitude of the second point
+     * @param latitudeCosine2 The cosine of the latitude of the second point
+     * @return The Haversine distance in KM between the points
+     */
+    public static double distance(double latitude1, double longitude1,
+        double latitudeCosine1, double latitude2, double longitude2,
+        double latitudeCosine2) {
+        double deltaLat = Math.toRadians(latitude2 - latitude1);
+        double deltaLon = Math.toRadians(longitude2 - longitude1);
         double a = Math.pow(Math.sin(deltaLat / 2), 2)
                 + Math.pow(Math.sin(deltaLon / 2), 2)
-                * Math.cos(latitude) * Math.cos(other.latitude);
-        double c = 2 * Math.asin(Math.sqrt(a));
+                * latitudeCosine1
+                * latitudeCosine2;
+        double c = 2 * Math.asin(Math.sqrt(Math.min(1, a)));
 
         return EARTH_RADIUS_IN_KM * c;
     }
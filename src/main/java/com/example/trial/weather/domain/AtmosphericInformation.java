@@ -69,6 +69,29 @@ public class AtmosphericInformation {
                 (cloudCover != null ? 1 : 0);
     }
 
+    /**
+     * @param type the data point type
+     * @return The data point of the given type or null if there is none
+     */
+    public DataPoint getDataPoint(DataPoint.Type type) {
+        switch (type) {
+            case WIND:
+                return wind;
+            case TEMPERATURE:
+                return temperature;
+            case HUMIDITY:
+                return humidity;
+            case PRESSURE:
+                return pressure;
+            case CLOUD_COVER:
+                return cloudCover;
+            case PRECIPITATION:
+                return precipitation;
+            default:
+                throw new RuntimeException("Unexpected DataPointType " + type);
+        }
+    }
+
     /**
      * Update atmospheric information with the given data point for the given
      * point type.
@@ -109,6 +132,22 @@ public class AtmosphericInformation {
         lastUpdateTime = System.currentTimeMillis();
     }
 
+    /**
+     * @return A copy of this information (the data points are shared, as they
+     * are replaced but never modified once stored)
+     */
+    public AtmosphericInformation copy() {
+        final AtmosphericInformation copy = new AtmosphericInformation();
+        copy.temperature = temperature;
+        copy.wind = wind;
+        copy.humidity = humidity;
+        copy.precipitation = precipitation;
+        copy.pressure = pressure;
+        copy.cloudCover = cloudCover;
+        copy.lastUpdateTime = lastUpdateTime;
+        return copy;
+    }
+
     @Override
     public String toString() {
         return ReflectionToStringBuilder.toString(this,
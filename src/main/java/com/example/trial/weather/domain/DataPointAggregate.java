@@ -0,0 +1,170 @@
+package com.example.trial.weather.domain;
+
+import java.util.Objects;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * The aggregation of the data points of a same type of several airports
+ * (e.g. the temperature in a region).
+ * @author ignaciolarranaga@gmail.com
+ */
+public class DataPointAggregate {
+
+    /** Base prime used for hash code calculation. */
+    private static final int BASE_HASH_CODE_PRIME_NUMBER = 13;
+
+    /** Second prime used for hash code calculation. */
+    private static final int SECOND_HASH_CODE_PRIME_NUMBER = 67;
+
+    /**
+     * The number of airports aggregated.
+     */
+    private int airportCount;
+
+    /**
+     * The total number of observations of the airports.
+     */
+    private long count;
+
+    /**
+     * The mean of the observations (the means of the airports weighted by
+     * their count of observations).
+     */
+    private double mean;
+
+    /**
+     * The lowest 1st quartile of the airports.
+     */
+    private int minimum;
+
+    /**
+     * The highest 3rd quartile of the airports.
+     */
+    private int maximum;
+
+    /**
+     * The estimated 1st quartile of all the observations.
+     */
+    private double first;
+
+    /**
+     * The estimated median of all the observations.
+     */
+    private double second;
+
+    /**
+     * The estimated 3rd quartile of all the observations.
+     */
+    private double third;
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this,
+            ToStringStyle.NO_CLASS_NAME_STYLE);
+    }
+
+    @Override
+    public int hashCode() {
+        // The hash code generation is based on arbitrary different prime
+        // numbers like 13 and 67 as shown in the following lines
+        int hash = BASE_HASH_CODE_PRIME_NUMBER;
+        hash = SECOND_HASH_CODE_PRIME_NUMBER * hash + this.airportCount;
+        hash = SECOND_HASH_CODE_PRIME_NUMBER * hash + Long.hashCode(this.count);
+        hash = SECOND_HASH_CODE_PRIME_NUMBER * hash + Double.hashCode(this.mean);
+        hash = SECOND_HASH_CODE_PRIME_NUMBER * hash + this.minimum;
+        hash = SECOND_HASH_CODE_PRIME_NUMBER * hash + this.maximum;
+        hash = SECOND_HASH_CODE_PRIME_NUMBER * hash + Double.hashCode(this.first);
+        hash = SECOND_HASH_CODE_PRIME_NUMBER * hash + Double.hashCode(this.second);
+        hash = SECOND_HASH_CODE_PRIME_NUMBER * hash + Double.hashCode(this.third);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+
+        final DataPointAggregate other = (DataPointAggregate) obj;
+        return this.airportCount == other.airportCount
+            && this.count == other.count
+            && Objects.equals(this.mean, other.mean)
+            && this.minimum == other.minimum
+            && this.maximum == other.maximum
+            && Objects.equals(this.first, other.first)
+            && Objects.equals(this.second, other.second)
+            && Objects.equals(this.third, other.third);
+    }
+
+    // Getters and Setters
+
+    public int getAirportCount() {
+        return airportCount;
+    }
+
+    public void setAirportCount(int airportCount) {
+        this.airportCount = airportCount;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public void setMean(double mean) {
+        this.mean = mean;
+    }
+
+    public int getMinimum() {
+        return minimum;
+    }
+
+    public void setMinimum(int minimum) {
+        this.minimum = minimum;
+    }
+
+    public int getMaximum() {
+        return maximum;
+    }
+
+    public void setMaximum(int maximum) {
+        this.maximum = maximum;
+    }
+
+    public double getFirst() {
+        return first;
+    }
+
+    public void setFirst(double first) {
+        this.first = first;
+    }
+
+    public double getSecond() {
+        return second;
+    }
+
+    public void setSecond(double second) {
+        this.second = second;
+    }
+
+    public double getThird() {
+        return third;
+    }
+
+    public void setThird(double third) {
+        this.third = third;
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.example.trial.weather.exceptions;
+
+/**
+ * Indicates that the server did not accept a weather update.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class WeatherUpdateException extends WeatherException {
+
+    /** The HTTP status associated to the exception. */
+    private final int status;
+
+    public WeatherUpdateException(String reason, int status) {
+        super(reason);
+
+        this.status = status;
+    }
+
+    public final int getStatus() {
+        return status;
+    }
+
+}
@@ -0,0 +1,292 @@
+package com.example.trial.weather.impl;
+
+import com.example.trial.weather.server.ServerConfiguration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+/**
+ * This is a bounded executor used to run the query operations outside of the
+ * server worker threads. Queries (mainly large radius scans) can be slow, so
+ * running them in their own pool prevents heavy readers from starving the
+ * collectors (that share the server worker threads).
+ *
+ * The executor has a fixed number of threads and a bounded queue. When both
+ * are exhausted the request is rejected immediately with a SERVICE_UNAVAILABLE
+ * response, and the same happens if a request waits more than the configured
+ * timeout. A timed out query is cancelled: it is removed from the queue if it
+ * did not start, otherwise its thread is interrupted. Notice the repository
+ * operations do not check the interruption, so a running query keeps its
+ * thread until it completes (its result is discarded).
+ *
+ * The responses are resumed (i.e. serialized and written) by a separate pool
+ * of the same size once the queries complete, so a slow client does not hold
+ * a query thread.
+ *
+ * The settings are taken from the ServerConfiguration (see
+ * #configure(ServerConfiguration)), or from the system properties if the
+ * executor is used before being configured.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class QueryExecutor {
+
+    private static final Logger LOGGER = Logger.getLogger(QueryExecutor.class.getName());
+
+    /**
+     * The default number of threads used to process queries.
+     */
+    private static final int DEFAULT_THREAD_COUNT =
+        Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The default number of queries that can be waiting for a thread.
+     */
+    private static final int DEFAULT_QUEUE_LIMIT = 256;
+
+    /**
+     * The default maximum time a query can take (including the time waiting
+     * in the queue).
+     */
+    private static final long DEFAULT_TIMEOUT_IN_MILLISECONDS = 5000;
+
+    /**
+     * The amount of seconds suggested to the clients before retrying.
+     */
+    private static final int RETRY_AFTER_IN_SECONDS = 1;
+
+    /**
+     * This is the current shared executor instance.
+     */
+    private static QueryExecutor instance;
+
+    /**
+     * The actual executor running the queries.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * The executor resuming the responses with the query results.
+     */
+    private final ThreadPoolExecutor responder;
+
+    /**
+     * The maximum time in milliseconds a query can take.
+     */
+    private final long timeout;
+
+    /**
+     * The number of queries rejected because the executor was saturated.
+     */
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * The number of queries that exceeded the timeout.
+     */
+    private final AtomicLong timedOutCount = new AtomicLong();
+
+    /**
+     * @param threadCount The number of threads used to run queries
+     * @param queueLimit The maximum number of queries waiting for a thread
+     * @param timeout The maximum time in milliseconds a query can take
+     */
+    public QueryExecutor(int threadCount, int queueLimit, long timeout) {
+        this.timeout = timeout;
+
+        // The responses of the completed queries are never rejected, they
+        // are bounded by the queries accepted
+        responder = new ThreadPoolExecutor(threadCount, threadCount,
+            0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            threadFactory("weather-query-response-"));
+
+        // The responder is shut down once the queries accepted are completed
+        // (and so their responses submitted)
+        executor = new ThreadPoolExecutor(threadCount, threadCount,
+            0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueLimit),
+            threadFactory("weather-query-"), new ThreadPoolExecutor.AbortPolicy()) {
+            @Override
+            protected void terminated() {
+                responder.shutdown();
+            }
+        };
+    }
+
+    /**
+     * @param prefix The prefix of the thread names
+     * @return A factory of daemon threads named with the prefix and a number
+     */
+    private static ThreadFactory threadFactory(String prefix) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable,
+                prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * @return A new instance if none was yet created or the existing one
+     */
+    public static synchronized QueryExecutor getInstance() {
+        if (instance == null) {
+            instance = create(ServerConfiguration.fromProperties(
+                System.getProperties()));
+        }
+
+        return instance;
+    }
+
+    /**
+     * This method replaces the shared instance by one with the given
+     * settings (the queries accepted by the previous one are completed).
+     * @param configuration The configuration of the server
+     */
+    public static synchronized void configure(ServerConfiguration configuration) {
+        if (instance != null) {
+            instance.shutdown();
+        }
+        instance = create(configuration);
+    }
+
+    /**
+     * @param configuration The configuration of the server
+     * @return A new executor with the settings of the configuration (or the
+     * defaults for the ones not specified)
+     */
+    private static QueryExecutor create(ServerConfiguration configuration) {
+        return new QueryExecutor(
+            orDefault(configuration.getQueryThreadCount(), DEFAULT_THREAD_COUNT),
+            orDefault(configuration.getQueryQueueLimit(), DEFAULT_QUEUE_LIMIT),
+            configuration.getQueryTimeout() == ServerConfiguration.DEFAULT
+                ? DEFAULT_TIMEOUT_IN_MILLISECONDS : configuration.getQueryTimeout());
+    }
+
+    /**
+     * @param value A setting of the configuration
+     * @param defaultValue The value to be used if the setting is not specified
+     * @return The value or the default
+     */
+    private static int orDefault(int value, int defaultValue) {
+        return value == ServerConfiguration.DEFAULT ? defaultValue : value;
+    }
+
+    /**
+     * This method schedules a query and resumes the given asynchronous
+     * response with its result once completed (on the responder, so the
+     * query thread is released before writing the response). If the executor
+     * is saturated or the query takes too long the response is resumed with
+     * SERVICE_UNAVAILABLE.
+     * @param asyncResponse The suspended response to be resumed
+     * @param query The query producing the response
+     */
+    public void submit(AsyncResponse asyncResponse, Supplier<?> query) {
+        final FutureTask<Object> task = new FutureTask<Object>(() -> {
+            // The query may have already timed out while waiting in the
+            // queue, in that case there is no point on running it
+            return asyncResponse.isSuspended() ? query.get() : null;
+        }) {
+            @Override
+            protected void done() {
+                // A cancelled query was already resumed by the timeout
+                if (!isCancelled()) {
+                    responder.execute(() -> resume(asyncResponse, this));
+                }
+            }
+        };
+
+        asyncResponse.setTimeout(timeout, TimeUnit.MILLISECONDS);
+        asyncResponse.setTimeoutHandler(response -> {
+            timedOutCount.incrementAndGet();
+
+            // Freeing the queue place, or interrupting the thread if started
+            task.cancel(true);
+            executor.remove(task);
+            response.resume(serviceUnavailable(
+                "The query was not able to be completed in time."));
+        });
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            rejectedCount.incrementAndGet();
+            LOGGER.log(Level.FINEST, "Query rejected: ", ex);
+            asyncResponse.resume(serviceUnavailable(
+                "The server is too busy to process the query."));
+        }
+    }
+
+    /**
+     * Resumes a response with the result of its completed query, or an
+     * INTERNAL_SERVER_ERROR if it failed with anything but a runtime
+     * exception (which are mapped as usual).
+     * @param asyncResponse The suspended response to be resumed
+     * @param task The completed query
+     */
+    private static void resume(AsyncResponse asyncResponse,
+        FutureTask<Object> task) {
+        if (!asyncResponse.isSuspended()) {
+            return;
+        }
+
+        try {
+            asyncResponse.resume(task.get());
+        } catch (ExecutionException ex) {
+            LOGGER.log(Level.SEVERE, "Unexpected error running a query",
+                ex.getCause());
+            if (ex.getCause() instanceof RuntimeException) {
+                asyncResponse.resume(ex.getCause());
+            } else {
+                asyncResponse.resume(Response.serverError().build());
+            }
+        } catch (InterruptedException ex) {
+            // Not possible, the query is completed
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * This method stops accepting queries, the ones already accepted are
+     * completed.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * @return The number of queries rejected because of saturation
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return The number of queries that exceeded the timeout
+     */
+    public long getTimedOutCount() {
+        return timedOutCount.get();
+    }
+
+    /**
+     * @param message The message to be included in the response
+     * @return A SERVICE_UNAVAILABLE response suggesting when to retry
+     */
+    private static Response serviceUnavailable(String message) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_IN_SECONDS)
+            .entity(message).build();
+    }
+
+}
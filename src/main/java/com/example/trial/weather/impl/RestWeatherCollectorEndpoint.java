@@ -1,5 +1,6 @@
 package com.example.trial.weather.impl;
 
+import com.example.trial.weather.AirportFileParser;
 import com.example.trial.weather.WeatherCollectorEndpoint;
 import com.example.trial.weather.domain.AirportData;
 import com.example.trial.weather.domain.DataPoint;
@@ -9,11 +10,19 @@ import com.example.trial.weather.exceptions.InvalidDataPointException;
 import com.example.trial.weather.exceptions.InvalidIATAException;
 import com.example.trial.weather.repository.Repository;
 import com.example.trial.weather.repository.RepositoryFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -21,8 +30,10 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 /**
  * A REST implementation of the WeatherCollector API.
@@ -32,7 +43,7 @@ import javax.ws.rs.core.Response;
 @Path("/collect")
 public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
 
-    private static final Logger LOGGER = Logger.getLogger(RestWeatherCollectorEndpoint.class.getName());
+    private static final ThrottledLogger LOGGER = ThrottledLogger.getLogger(RestWeatherCollectorEndpoint.class.getName());
 
 	/**
 	 * Predefined responses (there is no real necessity of build a new response
@@ -48,6 +59,36 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
      */
     private static final Gson gson = new Gson();
 
+    /**
+     * Shared mapper used to stream the catalogue (the same format used in the
+     * other responses). It does not flush after each value, the streams are
+     * flushed every STREAM_FLUSH_INTERVAL airports.
+     */
+    private static final ObjectMapper mapper = new ObjectMapper()
+        .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+        .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    /**
+     * The number of airports streamed between flushes.
+     */
+    private static final int STREAM_FLUSH_INTERVAL = 1000;
+
+    /**
+     * The number of airports added at once on the imports.
+     */
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+
+    /**
+     * The modes of handling the airports already defined on the bulk adds.
+     */
+    private static final String EXISTING_REJECT = "reject";
+    private static final String EXISTING_SKIP = "skip";
+
+    /**
+     * The maximum number of weather updates accepted in a single request.
+     */
+    private static final int MAXIMUM_WEATHER_BATCH_SIZE = 1000;
+
     /**
      * @see WeatherCollectorEndpoint#ping()
      * @return An OK response with 1 every time
@@ -77,19 +118,83 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
     public Response updateWeather(@PathParam("iata") String iata,
                                   @PathParam("pointType") String pointType,
                                   String dataPointString) {
+        return updateWeather(iata, pointType,
+            gson.fromJson(dataPointString, DataPoint.class));
+    }
+
+    /**
+     * This method applies several weather updates (e.g. the ones buffered by
+     * a collector agent) in a single request, each update is handled as if
+     * it were posted individually, so an invalid one does not fail the others.
+     * @param updatesString The JSON representation of the updates, e.g.
+     * [{"iata": "BOS", "pointType": "wind", "dataPoint": {...}}]
+     * @return An OK response with a JSON array with one entry per update (in
+     * the same order) containing its status and the error message if any, or
+     * BAD_REQUEST if the updates can not be read or are too many
+     * @see #updateWeather(String, String, String)
+     */
+    @POST @Path("/weather")
+    @Consumes(MediaType.APPLICATION_JSON) @Produces(MediaType.APPLICATION_JSON)
+    public Response updateWeather(String updatesString) {
+        final WeatherUpdate[] updates;
+        try {
+            updates = gson.fromJson(updatesString, WeatherUpdate[].class);
+        } catch (JsonParseException ex) {
+            final String message = "The weather updates provided are not "
+                + "valid: " + ex.getMessage();
+            LOGGER.warning(() -> message);
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(message).build();
+        }
+        if (updates == null || updates.length > MAXIMUM_WEATHER_BATCH_SIZE) {
+            final String message = "Up to " + MAXIMUM_WEATHER_BATCH_SIZE
+                + " weather updates are accepted at once";
+            LOGGER.warning(() -> message);
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(message).build();
+        }
+
+        final List<WeatherUpdateResult> results = new ArrayList<>(updates.length);
+        for (WeatherUpdate update : updates) {
+            final Response response;
+            if (update == null || update.iata == null
+                || update.pointType == null || update.dataPoint == null) {
+                response = Response.status(Response.Status.BAD_REQUEST)
+                    .entity("The iata, pointType and dataPoint are required")
+                    .build();
+            } else {
+                response = updateWeather(update.iata, update.pointType,
+                    update.dataPoint);
+            }
+            results.add(new WeatherUpdateResult(response.getStatus(),
+                (String) response.getEntity()));
+        }
+
+        return Response.status(Response.Status.OK)
+            .entity(gson.toJson(results)).build();
+    }
+
+    /**
+     * @param iata The iata code
+     * @param pointType The point type to be updated
+     * @param dataPoint The data point
+     * @return An OK response if successfully updates the atmospheric,
+     * NOT_FOUND for not existent airports or data points, and BAD_REQUEST for
+     * invalid data points (with the error message as entity)
+     */
+    private Response updateWeather(String iata, String pointType,
+                                   DataPoint dataPoint) {
         // Validations
         try {
             AirportData.validateIATA(iata);
         } catch (InvalidIATAException ex) {
-            LOGGER.log(Level.WARNING, ex.getMessage());
+            LOGGER.warning(ex::getMessage);
             return Response.status(Response.Status.BAD_REQUEST)
                 .entity(ex.getMessage()).build();
         }
 
         Repository repository = RepositoryFactory.getInstance();
 
-        DataPoint dataPoint = gson.fromJson(dataPointString, DataPoint.class);
-
         try {
             // There was a typo error on the DataPoint constants,
             // we can not lost compatibility so the constant can not be updated
@@ -107,21 +212,21 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
         } catch (IllegalArgumentException ex) {
             final String message = "The data point type: " + pointType
                 + " does not exists.";
-            LOGGER.log(Level.WARNING, message);
-            LOGGER.log(Level.FINEST, "Exception associated: ", ex);
+            LOGGER.warning(() -> message);
+            LOGGER.log(Level.FINEST, ex, () -> "Exception associated: ");
             return Response.status(Response.Status.NOT_FOUND)
                 .entity(message).build();
         } catch (InvalidDataPointException ex) {
             final String message = "The data point provided was invalid (BLA): "
                 + ex.getDataPoint() + ": " + ex.getMessage();
-            LOGGER.log(Level.WARNING, message);
-            LOGGER.log(Level.FINEST, "Exception associated: ", ex);
+            LOGGER.warning(() -> message);
+            LOGGER.log(Level.FINEST, ex, () -> "Exception associated: ");
             return Response.status(Response.Status.BAD_REQUEST)
                 .entity(message).build();
         } catch (AirportNotFoundExcepition ex) {
             final String message = "The airport: " + iata + " does not exists.";
-            LOGGER.log(Level.WARNING, message);
-            LOGGER.log(Level.FINEST, "Exception associated: ", ex);
+            LOGGER.warning(() -> message);
+            LOGGER.log(Level.FINEST, ex, () -> "Exception associated: ");
             return Response.status(Response.Status.NOT_FOUND).entity(message)
                 .build();
         }
@@ -135,13 +240,102 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
      * @see WeatherCollectorEndpoint#getAirports
      */
     @Override
-    @GET @Path("/airports") @Produces(MediaType.APPLICATION_JSON)
     public Response getAirports() {
         Repository repository = RepositoryFactory.getInstance();
         return Response.status(Response.Status.OK)
             .entity(repository.getAirportCodes()).build();
     }
 
+    /**
+     * This method streams the airport codes (a JSON array) in order, without
+     * copying the catalogue nor blocking the writers.
+     * The catalogue can be paginated giving the last code received as the
+     * cursor of the following page.
+     * @param after The cursor, i.e. the code after which to start (optional)
+     * @param limitString The maximum number of codes to return (optional,
+     * all by default)
+     * @return A response streaming the airport codes or BAD_REQUEST for
+     * invalid parameters
+     * @see #getAirports()
+     */
+    @GET @Path("/airports") @Produces(MediaType.APPLICATION_JSON)
+    public Response getAirports(@QueryParam("after") String after,
+                                @QueryParam("limit") String limitString) {
+        return streamAirports(after, limitString,
+            (generator, airport) -> generator.writeString(airport.getIata()));
+    }
+
+    /**
+     * This method streams the full airport records (a JSON array of
+     * AirportData) in order of code, without copying the catalogue nor
+     * blocking the writers.
+     * The catalogue can be paginated giving the last code received as the
+     * cursor of the following page.
+     * @param after The cursor, i.e. the code after which to start (optional)
+     * @param limitString The maximum number of airports to return (optional,
+     * all by default)
+     * @return A response streaming the airports or BAD_REQUEST for invalid
+     * parameters
+     */
+    @GET @Path("/airports/export") @Produces(MediaType.APPLICATION_JSON)
+    public Response exportAirports(@QueryParam("after") String after,
+                                   @QueryParam("limit") String limitString) {
+        return streamAirports(after, limitString,
+            (generator, airport) -> mapper.writeValue(generator, airport));
+    }
+
+    /**
+     * @param after The cursor, i.e. the code after which to start
+     * @param limitString The maximum number of airports to return
+     * @param writer The writer of each airport
+     * @return A response streaming the airports as a JSON array
+     */
+    private Response streamAirports(String after, String limitString,
+        AirportWriter writer) {
+        final int limit;
+        try {
+            limit = limitString == null || limitString.trim().isEmpty()
+                ? Integer.MAX_VALUE : Integer.parseInt(limitString);
+            if (limit < 1) {
+                throw new NumberFormatException("Out of range: " + limit);
+            }
+        } catch (NumberFormatException ex) {
+            final String message = "The limit must be a positive number, "
+                + "received: " + limitString;
+            LOGGER.warning(() -> message);
+            LOGGER.log(Level.FINEST, ex, () -> "Exception associated: ");
+            return Response.status(Response.Status.BAD_REQUEST).entity(message)
+                .build();
+        }
+
+        final Repository repository = RepositoryFactory.getInstance();
+        StreamingOutput output = stream -> {
+            try (JsonGenerator generator = mapper.getFactory()
+                .createGenerator(stream)) {
+                generator.writeStartArray();
+                final int[] count = {0};
+                repository.forEachAirport(after, limit, airport -> {
+                    try {
+                        writer.write(generator, airport);
+
+                        // Flushing regularly, so the chunks are sent while
+                        // the catalogue is iterated
+                        if (++count[0] % STREAM_FLUSH_INTERVAL == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+                generator.writeEndArray();
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        };
+
+        return Response.status(Response.Status.OK).entity(output).build();
+    }
+
     /**
      * Delegates the call to the repositories to get the airport information.
      * @return A response with a list of airport codes
@@ -154,7 +348,7 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
         try {
             AirportData.validateIATA(iata);
         } catch (InvalidIATAException ex) {
-            LOGGER.log(Level.WARNING, ex.getMessage());
+            LOGGER.warning(ex::getMessage);
             return Response.status(Response.Status.BAD_REQUEST)
                 .entity(ex.getMessage()).build();
         }
@@ -165,7 +359,7 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
             return Response.status(Response.Status.OK).entity(ad).build();
         } else {
             String message = "The iata code: " + iata + " was not found.";
-            LOGGER.log(Level.WARNING, message);
+            LOGGER.warning(() -> message);
             return Response.status(Response.Status.NOT_FOUND).entity(message).build();
         }
     }
@@ -178,7 +372,6 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
      * @see WeatherCollectorEndpoint#addAirports(List<AirportData>)
      */
     @Override
-    @POST @Path("/airports") @Consumes({ MediaType.APPLICATION_JSON })
     public Response addAirports(List<AirportData> airports) {
         List errors = new ArrayList();
         for (AirportData airport : airports) {
@@ -200,6 +393,192 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
         }
     }
 
+    /**
+     * This method adds the airports as #addAirports(List) does, but the
+     * airports already defined can be acknowledged instead of reported (e.g.
+     * when a load is resumed or repeated), without building nor logging an
+     * error for each one.
+     * @param existing How the airports already defined are handled: "reject"
+     * (reported as errors, the default) or "skip" (acknowledged as added)
+     * @param airports The list of AirportData to be added
+     * @return OK if all went OK or BAD_REQUEST with the errors of the
+     * airports not added (or for an invalid mode)
+     * @see #addAirports(List)
+     */
+    @POST @Path("/airports") @Consumes({ MediaType.APPLICATION_JSON })
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response addAirports(@QueryParam("existing") String existing,
+                                List<AirportData> airports) {
+        if (existing == null || EXISTING_REJECT.equals(existing)) {
+            return addAirports(airports);
+        }
+        if (!EXISTING_SKIP.equals(existing)) {
+            final String message = "The existing mode must be '"
+                + EXISTING_REJECT + "' or '" + EXISTING_SKIP + "', received: "
+                + existing;
+            LOGGER.warning(() -> message);
+            return Response.status(Response.Status.BAD_REQUEST).entity(message)
+                .build();
+        }
+
+        // Validating all the airports and adding the valid ones at once, the
+        // repository skips the ones already defined
+        final List<String> errors = new ArrayList<>();
+        final List<AirportData> valid = new ArrayList<>(airports.size());
+        for (AirportData airport : airports) {
+            try {
+                airport.validate();
+                valid.add(airport);
+            } catch (InvalidAirportDataException ex) {
+                errors.add(ex.getMessage());
+            }
+        }
+        RepositoryFactory.getInstance().addAirports(valid);
+
+        if (errors.isEmpty()) {
+            return OK_RESPONSE;
+        } else {
+            LOGGER.warning(() -> errors.size() + " invalid airports received "
+                + "on addAirports operation");
+            return Response.status(Response.Status.BAD_REQUEST).entity(errors).build();
+        }
+    }
+
+    /**
+     * This method imports the airports of a raw airport file (see
+     * AirportLoader for the structure), optionally gzip compressed, e.g.:
+     * curl --data-binary @airports.dat -H "Content-Type: text/csv" ...
+     * The file is parsed as it is received and the airports are added in
+     * chunks, while the report is streamed: a JSON object with the errors
+     * (line, starting from 0, and message) of the lines not imported followed
+     * by the counts of lines and airports added.
+     * @param input The stream of the file
+     * @return A response streaming the report of the import
+     * @see AirportFileParser
+     */
+    @POST @Path("/airports/csv")
+    @Consumes({ "text/csv", MediaType.TEXT_PLAIN, MediaType.APPLICATION_OCTET_STREAM })
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response importAirports(InputStream input) {
+        final Repository repository = RepositoryFactory.getInstance();
+        StreamingOutput output = stream -> {
+            try (JsonGenerator generator = mapper.getFactory()
+                .createGenerator(stream)) {
+                final List<AirportData> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+                final List<Integer> chunkLines = new ArrayList<>(IMPORT_CHUNK_SIZE);
+                final int[] counts = {0, 0, 0};
+
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("errors");
+                AirportFileParser.parse(decompress(input), (line, end, airport) -> {
+                    counts[0]++;
+                    if (airport == null) {
+                        writeImportError(generator, line, "The line doesn't "
+                            + "match the structure.");
+                        counts[2]++;
+                        return;
+                    }
+
+                    try {
+                        airport.validate();
+                    } catch (InvalidAirportDataException ex) {
+                        writeImportError(generator, line, ex.getMessage());
+                        counts[2]++;
+                        return;
+                    }
+
+                    chunk.add(airport);
+                    chunkLines.add(line);
+                    if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                        final int added = importChunk(repository, chunk,
+                            chunkLines, generator);
+                        counts[1] += added;
+                        counts[2] += chunk.size() - added;
+                        chunk.clear();
+                        chunkLines.clear();
+
+                        // Flushing, so the report is sent during the import
+                        generator.flush();
+                    }
+                });
+                final int added = importChunk(repository, chunk, chunkLines,
+                    generator);
+                counts[1] += added;
+                counts[2] += chunk.size() - added;
+                generator.writeEndArray();
+
+                generator.writeNumberField("lines", counts[0]);
+                generator.writeNumberField("added", counts[1]);
+                generator.writeNumberField("rejected", counts[2]);
+                generator.writeEndObject();
+
+                if (counts[2] > 0) {
+                    LOGGER.warning(() -> counts[2] + " of " + counts[0]
+                        + " lines rejected on importAirports operation");
+                }
+            }
+        };
+
+        return Response.status(Response.Status.OK).entity(output).build();
+    }
+
+    /**
+     * @param input The stream received
+     * @return The stream decompressed if it is gzip compressed (detected by
+     * its header), or the same stream otherwise
+     * @throws IOException If an error reading the stream occurs
+     */
+    private static InputStream decompress(InputStream input) throws IOException {
+        final BufferedInputStream buffered = new BufferedInputStream(input);
+        buffered.mark(2);
+        final int header = buffered.read() | buffered.read() << 8;
+        buffered.reset();
+        return header == GZIPInputStream.GZIP_MAGIC
+            ? new GZIPInputStream(buffered) : buffered;
+    }
+
+    /**
+     * Adds a chunk of airports, reporting the ones already defined.
+     * @param repository The repository where to add the airports
+     * @param chunk The airports to be added
+     * @param lines The line of each airport
+     * @param generator The generator of the report
+     * @return The number of airports added
+     * @throws IOException If an error writing the report occurs
+     */
+    private static int importChunk(Repository repository,
+        List<AirportData> chunk, List<Integer> lines, JsonGenerator generator)
+        throws IOException {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        final List<AirportData> rejected = repository.addAirports(chunk);
+        // The rejected airports are in the same order than the chunk
+        for (int i = 0, j = 0; i < chunk.size() && j < rejected.size(); i++) {
+            if (chunk.get(i) == rejected.get(j)) {
+                writeImportError(generator, lines.get(i), "The iata airport: '"
+                    + chunk.get(i).getIata() + "' is already defined.");
+                j++;
+            }
+        }
+        return chunk.size() - rejected.size();
+    }
+
+    /**
+     * @param generator The generator of the report
+     * @param line The line not imported
+     * @param message The reason
+     * @throws IOException If an error writing the report occurs
+     */
+    private static void writeImportError(JsonGenerator generator, int line,
+        String message) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("line", line);
+        generator.writeStringField("message", message);
+        generator.writeEndObject();
+    }
+
     /**
      * This method do some validations and delegate the call to the repository.
      * @param iata The iata code of the airport to be added
@@ -221,13 +600,13 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
         try {
             AirportData.validateIATA(iata);
         } catch (InvalidIATAException ex) {
-            LOGGER.log(Level.WARNING, ex.getMessage());
+            LOGGER.warning(ex::getMessage);
             return Response.status(Response.Status.BAD_REQUEST)
                 .entity(ex.getMessage()).build();
         }
         if (repository.containsAirport(iata)) {
-            LOGGER.log(Level.WARNING,
-                "Invalid IATA code received on addAirport operation: {0}", iata);
+            LOGGER.warning(() ->
+                "Already defined IATA code received on addAirport operation: " + iata);
             final Response response = Response
                 .status(Response.Status.CONFLICT)
                 .entity("The iata airport: '" + iata + "' is already defined.")
@@ -244,9 +623,9 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
 
             return OK_RESPONSE;
         } catch (InvalidAirportDataException ex) {
-            LOGGER.log(Level.WARNING,
-                "Invalid airport data received on addAirport operation: {0}",
-                ex.getAirportData());
+            LOGGER.warning(() ->
+                "Invalid airport data received on addAirport operation: "
+                + ex.getAirportData());
             final Response response = Response
                 .status(Response.Status.BAD_REQUEST)
                 .entity(ex.getMessage())
@@ -271,7 +650,7 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
         try {
             AirportData.validateIATA(iata);
         } catch (InvalidIATAException ex) {
-            LOGGER.log(Level.WARNING, ex.getMessage());
+            LOGGER.warning(ex::getMessage);
             return Response.status(Response.Status.BAD_REQUEST)
                 .entity(ex.getMessage()).build();
         }
@@ -280,8 +659,8 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
             repository.removeAirport(iata);
             return OK_RESPONSE;
         } catch (AirportNotFoundExcepition ex) {
-            LOGGER.log(Level.WARNING, "Deleting unknown airport: {0}", ex.getIata());
-            LOGGER.log(Level.FINEST, "Exception associated: ", ex);
+            LOGGER.warning(() -> "Deleting unknown airport: " + ex.getIata());
+            LOGGER.log(Level.FINEST, ex, () -> "Exception associated: ");
             return NOT_FOUND_RESPONSE;
         }
     }
@@ -301,4 +680,50 @@ public class RestWeatherCollectorEndpoint implements WeatherCollectorEndpoint {
         return Response.noContent().build();
     }
 
+    /**
+     * This interface represents the way an airport is streamed.
+     */
+    @FunctionalInterface
+    private interface AirportWriter {
+
+        void write(JsonGenerator generator, AirportData airport)
+            throws IOException;
+
+    }
+
+    /**
+     * This class represents an entry of the weather updates body.
+     */
+    private static class WeatherUpdate {
+
+        private String iata;
+
+        private String pointType;
+
+        private DataPoint dataPoint;
+
+    }
+
+    /**
+     * This class represents the result of a weather update.
+     */
+    private static class WeatherUpdateResult {
+
+        /**
+         * The HTTP status the update would have had if posted individually.
+         */
+        private final int status;
+
+        /**
+         * The error message (null if updated).
+         */
+        private final String message;
+
+        WeatherUpdateResult(int status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+
+    }
+
 }
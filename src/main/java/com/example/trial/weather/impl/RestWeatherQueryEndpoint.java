@@ -2,47 +2,122 @@ package com.example.trial.weather.impl;
 
 import com.example.trial.weather.domain.AtmosphericInformation;
 import com.example.trial.weather.WeatherQueryEndpoint;
+import com.example.trial.weather.domain.AirportAtmosphericInformation;
 import com.example.trial.weather.domain.AirportData;
+import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.domain.DataPointAggregate;
 import com.example.trial.weather.exceptions.AirportNotFoundExcepition;
 import com.example.trial.weather.exceptions.InvalidIATAException;
+import com.example.trial.weather.repository.AtmosphericInformationChanges;
+import com.example.trial.weather.repository.Region;
 import com.example.trial.weather.repository.Repository;
 import com.example.trial.weather.repository.RepositoryFactory;
 import com.example.trial.weather.repository.RepositoryUsageStatistics;
+import com.example.trial.weather.util.SingleFlight;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
-import java.util.logging.Logger;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import org.glassfish.jersey.server.ChunkedOutput;
 
 /**
  * This is the implementation of the Query endpoint, mainly just do validations
  * and delegates to the repository.
+ * The HTTP requests are processed asynchronously on the QueryExecutor, so
+ * slow queries do not hold the server worker threads.
+ * @see QueryExecutor
  * @author code test administrator
  */
 @Path("/query")
 public class RestWeatherQueryEndpoint implements WeatherQueryEndpoint {
 
-    private static final Logger LOGGER = Logger.getLogger(RestWeatherQueryEndpoint.class.getName());
+    private static final ThrottledLogger LOGGER = ThrottledLogger.getLogger(RestWeatherQueryEndpoint.class.getName());
 
     /**
      * Shared gson.
      */
     private static final Gson gson = new Gson();
 
+    /**
+     * The weather queries in progress (by iata code and radius).
+     */
+    private static final SingleFlight<String, Collection<AtmosphericInformation>>
+        WEATHER_QUERIES = new SingleFlight<>();
+
+    /**
+     * Shared mapper used to stream the batch results (the same format used
+     * in the other query responses). It does not flush after each value, the
+     * streams are flushed every STREAM_FLUSH_INTERVAL results.
+     */
+    private static final ObjectMapper mapper = new ObjectMapper()
+        .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+        .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    /**
+     * The number of batch results streamed between flushes.
+     */
+    private static final int STREAM_FLUSH_INTERVAL = 100;
+
+    /**
+     * The maximum number of airports of a batch query.
+     */
+    private static final int MAXIMUM_BATCH_SIZE = 1000;
+
+    /**
+     * The maximum number of airports returned by a nearest query.
+     */
+    private static final int MAXIMUM_NEAREST_COUNT = 1000;
+
+    /**
+     * The maximum number of changes returned by a changes query.
+     */
+    private static final int MAXIMUM_CHANGES_COUNT = 10000;
+
+    /**
+     * The media type of the Server-Sent Events streams.
+     */
+    private static final String SERVER_SENT_EVENTS = "text/event-stream";
+
+    /**
+     * This method runs the #ping() method on the query executor.
+     * @param asyncResponse The response to be resumed with the ping result
+     * @see #ping()
+     */
+    @GET @Path("/ping")
+    public void ping(@Suspended AsyncResponse asyncResponse) {
+        QueryExecutor.getInstance().submit(asyncResponse, () -> ping());
+    }
+
     /**
      * This method gets the data from the repository and creates the result.
      * @see WeatherQueryEndpoint#ping()
      * @return A JSon formated Map with the required information
      */
     @Override
-    @GET @Path("/ping")
     public String ping() {
         Map<String, Object> result = new HashMap<>();
 
@@ -52,10 +127,58 @@ public class RestWeatherQueryEndpoint implements WeatherQueryEndpoint {
         result.put("datasize", statistics.getDataPointCount());
         result.put("iata_freq", statistics.getIataCallFrecuencies());
         result.put("radius_freq", statistics.getRadiusCallsHistogram());
+        result.put("query_plans", statistics.getQueryPlanCounts());
 
         return gson.toJson(result);
     }
 
+    /**
+     * This method runs the #weather(String, String) method on the query
+     * executor.
+     * @param asyncResponse The response to be resumed with the query result
+     * @param iata The iata code to get the information
+     * @param radiusString The radius in km to look for alternatives
+     * @see #weather(String, String)
+     */
+    @GET @Path("/weather/{iata}/{radius}") @Produces(MediaType.APPLICATION_JSON)
+    public void weather(@Suspended AsyncResponse asyncResponse,
+                        @PathParam("iata") String iata,
+                        @PathParam("radius") String radiusString,
+                        @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        QueryExecutor.getInstance().submit(asyncResponse,
+            () -> weather(iata, radiusString, ifNoneMatch));
+    }
+
+    /**
+     * This method performs the weather query tagging the result with an
+     * ETag, so the clients caching it can revalidate it with a conditional
+     * request: if the result did not change the NOT_MODIFIED response is
+     * returned without the information. The tag is computed from the version
+     * of the airports within the radius before running the query, so the
+     * NOT_MODIFIED responses do not run it (nor count it on the usage
+     * statistics).
+     * @param iata The iata code to get the information
+     * @param radiusString The radius in km to look for alternatives
+     * @param ifNoneMatch The If-None-Match header (null if not given)
+     * @return The #weather(String, String) response tagged, or NOT_MODIFIED
+     * if the tag matches the If-None-Match header
+     * @see #weather(String, String)
+     */
+    public Response weather(String iata, String radiusString,
+                            String ifNoneMatch) {
+        final EntityTag tag = tag(iata, radiusString);
+        if (tag != null && ifNoneMatch != null && matches(ifNoneMatch, tag)) {
+            return Response.notModified(tag).build();
+        }
+
+        final Response response = weather(iata, radiusString);
+        if (tag == null
+            || response.getStatus() != Response.Status.OK.getStatusCode()) {
+            return response;
+        }
+        return Response.fromResponse(response).tag(tag).build();
+    }
+
     /**
      * This method performs validations and delegates the call to the repository.
      * @see WeatherQueryEndpoint#weather(String, String)
@@ -64,23 +187,35 @@ public class RestWeatherQueryEndpoint implements WeatherQueryEndpoint {
      * @return A Response containing a List of AtmosphericInformation objects
      */
     @Override
-    @GET @Path("/weather/{iata}/{radius}") @Produces(MediaType.APPLICATION_JSON)
-    public Response weather(@PathParam("iata") String iata,
-                            @PathParam("radius") String radiusString) {
+    public Response weather(String iata, String radiusString) {
         try {
-            Repository repository = RepositoryFactory.getInstance();
+            final Repository repository = RepositoryFactory.getInstance();
 
             // Validations
             AirportData.validateIATA(iata);
-            //TODO: Improve radius validation
-
             double radius = radiusString == null ||
                 radiusString.trim().isEmpty() ? 0 :
                     Double.valueOf(radiusString);
+            if (!(radius >= 0)) {
+                throw new NumberFormatException("Out of range: " + radius);
+            }
 
-            Collection<AtmosphericInformation> result =
-                repository.getAtmosphericInformation(iata,
-                    radius == 0 ? null : radius);
+            // Identical concurrent queries share the same computation, but
+            // every query is counted on the usage statistics
+            final Double queryRadius = radius == 0 ? null : radius;
+            final AtomicBoolean computed = new AtomicBoolean();
+            Collection<AtmosphericInformation> sharedResult = WEATHER_QUERIES
+                .execute(iata + '/' + radius, () -> {
+                    computed.set(true);
+                    return repository.getAtmosphericInformation(iata,
+                        queryRadius);
+                });
+            if (!computed.get()) {
+                repository.countAtmosphericInformationCall(iata, queryRadius);
+            }
+
+            // The result is shared, so it is copied before being adjusted
+            List<AtmosphericInformation> result = new ArrayList<>(sharedResult);
 
             // We do this for compatibility with the old API implementation
             if (result.isEmpty()) {
@@ -89,23 +224,557 @@ public class RestWeatherQueryEndpoint implements WeatherQueryEndpoint {
 
             return Response.status(Response.Status.OK).entity(result).build();
         } catch (InvalidIATAException ex) {
-            LOGGER.log(Level.WARNING, ex.getMessage());
+            LOGGER.warning(ex::getMessage);
             return Response.status(Response.Status.BAD_REQUEST)
                 .entity(ex.getMessage()).build();
         } catch (AirportNotFoundExcepition ex) {
             final String message = "The airport " + ex.getIata() +
                 " for the requested where information was not found.";
-            LOGGER.log(Level.WARNING, message);
+            LOGGER.warning(() -> message);
             return Response.status(Response.Status.NOT_FOUND).entity(message)
                 .build();
         } catch (NumberFormatException ex) {
             final String message = "There radius given for the weather "
                 + " was not able to be parsed on the API call.";
-            LOGGER.warning(message);
-            LOGGER.log(Level.FINEST, "Exception associated: ", ex);
+            LOGGER.warning(() -> message);
+            LOGGER.log(Level.FINEST, ex, () -> "Exception associated: ");
             return Response.status(Response.Status.BAD_REQUEST).entity(message)
                 .build();
         }
     }
 
+    /**
+     * This method runs the #batch(String) method on the query executor.
+     * @param asyncResponse The response to be resumed with the query result
+     * @param queryString The JSON representation of the batch query
+     * @see #batch(String)
+     */
+    @POST @Path("/weather/batch") @Produces(MediaType.APPLICATION_JSON)
+    public void batch(@Suspended AsyncResponse asyncResponse,
+                      String queryString) {
+        QueryExecutor.getInstance().submit(asyncResponse,
+            () -> batch(queryString));
+    }
+
+    /**
+     * This method performs several weather queries (e.g. the airports of a
+     * route) resolving them on a single repository call, each airport is
+     * counted on the usage statistics as an individual weather query.
+     * The result is streamed as a JSON array with one entry per iata code
+     * (in the same order), containing the iata code, the status of the query
+     * and its information (a List of AtmosphericInformation objects) or
+     * error message, so an invalid or unknown airport does not fail the
+     * others.
+     * @param queryString The JSON representation of the batch query, e.g.
+     * {"iata": ["BOS", "JFK"], "radius": 0} (the radius is optional)
+     * @return A Response streaming the results or BAD_REQUEST for an invalid
+     * batch query
+     */
+    public Response batch(String queryString) {
+        try {
+            Repository repository = RepositoryFactory.getInstance();
+
+            // Validations
+            BatchQuery query = gson.fromJson(queryString, BatchQuery.class);
+            if (query == null || query.iata == null || query.iata.isEmpty()
+                || query.iata.size() > MAXIMUM_BATCH_SIZE) {
+                throw new IllegalArgumentException("Between 1 and "
+                    + MAXIMUM_BATCH_SIZE + " iata codes are required");
+            }
+            final double radius = query.radius != null ? query.radius : 0;
+            if (!(radius >= 0)) {
+                throw new IllegalArgumentException("Invalid radius: " + radius);
+            }
+
+            final String[] errors = new String[query.iata.size()];
+            final List<String> validIatas = new ArrayList<>();
+            for (int i = 0; i < errors.length; i++) {
+                try {
+                    AirportData.validateIATA(query.iata.get(i));
+                    validIatas.add(query.iata.get(i));
+                } catch (InvalidIATAException ex) {
+                    errors[i] = ex.getMessage();
+                }
+            }
+
+            final List<Collection<AtmosphericInformation>> information =
+                repository.getAtmosphericInformation(validIatas,
+                    radius == 0 ? null : radius);
+
+            final List<String> iatas = query.iata;
+            StreamingOutput output = stream -> {
+                try (JsonGenerator generator = mapper.getFactory()
+                    .createGenerator(stream)) {
+                    generator.writeStartArray();
+                    for (int i = 0, found = 0; i < errors.length; i++) {
+                        generator.writeStartObject();
+                        generator.writeStringField("iata", iatas.get(i));
+                        Collection<AtmosphericInformation> airportInformation =
+                            errors[i] == null ? information.get(found++) : null;
+                        if (errors[i] != null) {
+                            generator.writeNumberField("status",
+                                Response.Status.BAD_REQUEST.getStatusCode());
+                            generator.writeStringField("message", errors[i]);
+                        } else if (airportInformation == null) {
+                            generator.writeNumberField("status",
+                                Response.Status.NOT_FOUND.getStatusCode());
+                            generator.writeStringField("message", "The airport "
+                                + iatas.get(i) + " was not found.");
+                        } else {
+                            generator.writeNumberField("status",
+                                Response.Status.OK.getStatusCode());
+                            generator.writeFieldName("information");
+                            mapper.writeValue(generator, airportInformation);
+                        }
+                        generator.writeEndObject();
+
+                        // Flushing regularly, so the chunks are sent while
+                        // the results are written
+                        if ((i + 1) % STREAM_FLUSH_INTERVAL == 0) {
+                            generator.flush();
+                        }
+                    }
+                    generator.writeEndArray();
+                }
+            };
+
+            return Response.status(Response.Status.OK).entity(output).build();
+        } catch (IllegalArgumentException | JsonParseException ex) {
+            final String message = "Invalid batch query: " + ex.getMessage();
+            LOGGER.warning(() -> message);
+            return Response.status(Response.Status.BAD_REQUEST).entity(message)
+                .build();
+        }
+    }
+
+    /**
+     * This method runs the #nearest(String, String, boolean) method on the
+     * query executor.
+     * @param asyncResponse The response to be resumed with the query result
+     * @param iata The iata code of the airport of interest
+     * @param countString The number of airports to return
+     * @param withData If only the airports with atmospheric information have
+     * to be returned
+     * @see #nearest(String, String, boolean)
+     */
+    @GET @Path("/nearest/{iata}/{k}") @Produces(MediaType.APPLICATION_JSON)
+    public void nearest(@Suspended AsyncResponse asyncResponse,
+                        @PathParam("iata") String iata,
+                        @PathParam("k") String countString,
+                        @QueryParam("withData") @DefaultValue("false") boolean withData) {
+        QueryExecutor.getInstance().submit(asyncResponse,
+            () -> nearest(iata, countString, withData));
+    }
+
+    /**
+     * This method performs validations and delegates the k-nearest search to
+     * the repository.
+     * @param iata The iata code of the airport of interest
+     * @param countString The number of airports to return (k)
+     * @param withData If only the airports with atmospheric information have
+     * to be returned
+     * @return A Response containing a List of AirportAtmosphericInformation
+     * objects sorted by distance (starting with the airport itself), NOT_FOUND
+     * if the airport does not exists or BAD_REQUEST for invalid parameters
+     */
+    public Response nearest(String iata, String countString, boolean withData) {
+        try {
+            Repository repository = RepositoryFactory.getInstance();
+
+            // Validations
+            AirportData.validateIATA(iata);
+            final int count = Integer.parseInt(countString);
+            if (count < 1 || count > MAXIMUM_NEAREST_COUNT) {
+                throw new NumberFormatException("Out of range: " + count);
+            }
+
+            List<AirportAtmosphericInformation> result =
+                repository.getNearestAtmosphericInformation(iata, count,
+                    withData);
+
+            return Response.status(Response.Status.OK).entity(result).build();
+        } catch (InvalidIATAException ex) {
+            LOGGER.warning(ex::getMessage);
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(ex.getMessage()).build();
+        } catch (AirportNotFoundExcepition ex) {
+            final String message = "The airport " + ex.getIata() +
+                " for the requested nearest airports was not found.";
+            LOGGER.warning(() -> message);
+            return Response.status(Response.Status.NOT_FOUND).entity(message)
+                .build();
+        } catch (NumberFormatException ex) {
+            final String message = "The number of airports must be between 1 "
+                + "and " + MAXIMUM_NEAREST_COUNT + ", received: " + countString;
+            LOGGER.warning(() -> message);
+            LOGGER.log(Level.FINEST, ex, () -> "Exception associated: ");
+            return Response.status(Response.Status.BAD_REQUEST).entity(message)
+                .build();
+        }
+    }
+
+    /**
+     * This method runs the #aggregate(String, String) method on the query
+     * executor.
+     * @param asyncResponse The response to be resumed with the query result
+     * @param iata The iata code of the airport of interest
+     * @param radiusString The radius in km to aggregate
+     * @see #aggregate(String, String)
+     */
+    @GET @Path("/aggregate/{iata}/{radius}") @Produces(MediaType.APPLICATION_JSON)
+    public void aggregate(@Suspended AsyncResponse asyncResponse,
+                          @PathParam("iata") String iata,
+                          @PathParam("radius") String radiusString) {
+        QueryExecutor.getInstance().submit(asyncResponse,
+            () -> aggregate(iata, radiusString));
+    }
+
+    /**
+     * This method returns one summary per data point type of the airports
+     * within the radius, instead of the information of each airport (so the
+     * response size does not depend on the number of airports).
+     * @param iata The iata code of the airport of interest
+     * @param radiusString The radius in km to aggregate
+     * @return A Response containing a Map of DataPointAggregate objects by
+     * data point type (only the types having information), NOT_FOUND if the
+     * airport does not exists or BAD_REQUEST for invalid parameters
+     */
+    public Response aggregate(String iata, String radiusString) {
+        try {
+            Repository repository = RepositoryFactory.getInstance();
+
+            // Validations
+            AirportData.validateIATA(iata);
+            double radius = radiusString == null ||
+                radiusString.trim().isEmpty() ? 0 :
+                    Double.valueOf(radiusString);
+            if (!(radius >= 0)) {
+                throw new NumberFormatException("Out of range: " + radius);
+            }
+
+            Map<DataPoint.Type, DataPointAggregate> result =
+                repository.getAggregatedAtmosphericInformation(iata, radius);
+
+            return Response.status(Response.Status.OK).entity(result).build();
+        } catch (InvalidIATAException ex) {
+            LOGGER.warning(ex::getMessage);
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(ex.getMessage()).build();
+        } catch (AirportNotFoundExcepition ex) {
+            final String message = "The airport " + ex.getIata() +
+                " for the requested aggregate was not found.";
+            LOGGER.warning(() -> message);
+            return Response.status(Response.Status.NOT_FOUND).entity(message)
+                .build();
+        } catch (NumberFormatException ex) {
+            final String message = "There radius given for the aggregate "
+                + " was not able to be parsed on the API call.";
+            LOGGER.warning(() -> message);
+            LOGGER.log(Level.FINEST, ex, () -> "Exception associated: ");
+            return Response.status(Response.Status.BAD_REQUEST).entity(message)
+                .build();
+        }
+    }
+
+    /**
+     * This method runs the #changes(String, String) method on the query
+     * executor.
+     * @param asyncResponse The response to be resumed with the query result
+     * @param sinceString The cursor returned by the previous call
+     * @param limitString The maximum number of changes to return
+     * @see #changes(String, String)
+     */
+    @GET @Path("/changes") @Produces(MediaType.APPLICATION_JSON)
+    public void changes(@Suspended AsyncResponse asyncResponse,
+                        @QueryParam("since") String sinceString,
+                        @QueryParam("limit") String limitString) {
+        QueryExecutor.getInstance().submit(asyncResponse,
+            () -> changes(sinceString, limitString));
+    }
+
+    /**
+     * This method returns the airports whose atmospheric information changed
+     * after the given cursor, so mirrors can follow the changes instead of
+     * querying every airport. When the result indicates a resync is
+     * required, the whole state has to be queried again and then the changes
+     * followed from the returned sequence.
+     * @param sinceString The cursor returned by the previous call (0 or
+     * missing for the first one)
+     * @param limitString The maximum number of changes to return (optional)
+     * @return A Response containing an AtmosphericInformationChanges object
+     * or BAD_REQUEST for invalid parameters
+     */
+    public Response changes(String sinceString, String limitString) {
+        try {
+            Repository repository = RepositoryFactory.getInstance();
+
+            // Validations
+            final long since = sinceString == null ||
+                sinceString.trim().isEmpty() ? 0 : Long.parseLong(sinceString);
+            final int limit = limitString == null ||
+                limitString.trim().isEmpty() ? MAXIMUM_CHANGES_COUNT :
+                    Integer.parseInt(limitString);
+            if (since < 0 || limit < 1 || limit > MAXIMUM_CHANGES_COUNT) {
+                throw new NumberFormatException("Out of range: " + since
+                    + ", " + limit);
+            }
+
+            AtmosphericInformationChanges result =
+                repository.getAtmosphericInformationChanges(since, limit);
+
+            return Response.status(Response.Status.OK).entity(result).build();
+        } catch (NumberFormatException ex) {
+            final String message = "The cursor must be a positive number and "
+                + "the limit between 1 and " + MAXIMUM_CHANGES_COUNT
+                + ", received: " + sinceString + ", " + limitString;
+            LOGGER.warning(() -> message);
+            LOGGER.log(Level.FINEST, ex, () -> "Exception associated: ");
+            return Response.status(Response.Status.BAD_REQUEST).entity(message)
+                .build();
+        }
+    }
+
+    /**
+     * This method runs the #region(String, String, String, String) method on
+     * the query executor.
+     * @param asyncResponse The response to be resumed with the query result
+     * @param minimumLatitude The southern limit of the region
+     * @param maximumLatitude The northern limit of the region
+     * @param minimumLongitude The western limit of the region
+     * @param maximumLongitude The eastern limit of the region
+     * @see #region(String, String, String, String)
+     */
+    @GET @Path("/region") @Produces(MediaType.APPLICATION_JSON)
+    public void region(@Suspended AsyncResponse asyncResponse,
+                       @QueryParam("minLat") String minimumLatitude,
+                       @QueryParam("maxLat") String maximumLatitude,
+                       @QueryParam("minLon") String minimumLongitude,
+                       @QueryParam("maxLon") String maximumLongitude) {
+        QueryExecutor.getInstance().submit(asyncResponse,
+            () -> region(minimumLatitude, maximumLatitude, minimumLongitude,
+                maximumLongitude));
+    }
+
+    /**
+     * This method returns the atmospheric information of the airports inside
+     * a bounding box (e.g. a map viewport).
+     * @param minimumLatitude The southern limit of the region
+     * @param maximumLatitude The northern limit of the region
+     * @param minimumLongitude The western limit of the region
+     * @param maximumLongitude The eastern limit of the region (lower than the
+     * western one if the region crosses the antimeridian)
+     * @return A Response containing a List of AirportAtmosphericInformation
+     * objects or BAD_REQUEST for invalid limits
+     */
+    public Response region(String minimumLatitude, String maximumLatitude,
+        String minimumLongitude, String maximumLongitude) {
+        try {
+            Region region = Region.boundingBox(
+                parseCoordinate("minLat", minimumLatitude),
+                parseCoordinate("maxLat", maximumLatitude),
+                parseCoordinate("minLon", minimumLongitude),
+                parseCoordinate("maxLon", maximumLongitude));
+
+            return regionResponse(region);
+        } catch (IllegalArgumentException ex) {
+            final String message = "Invalid region: " + ex.getMessage();
+            LOGGER.warning(() -> message);
+            return Response.status(Response.Status.BAD_REQUEST).entity(message)
+                .build();
+        }
+    }
+
+    /**
+     * This method runs the #polygon(String) method on the query executor.
+     * @param asyncResponse The response to be resumed with the query result
+     * @param verticesString The JSON representation of the vertices
+     * @see #polygon(String)
+     */
+    @POST @Path("/region/polygon") @Produces(MediaType.APPLICATION_JSON)
+    public void polygon(@Suspended AsyncResponse asyncResponse,
+                        String verticesString) {
+        QueryExecutor.getInstance().submit(asyncResponse,
+            () -> polygon(verticesString));
+    }
+
+    /**
+     * This method returns the atmospheric information of the airports inside
+     * a polygon.
+     * @param verticesString The JSON representation of the vertices of the
+     * polygon, an array of [latitude, longitude] pairs
+     * @return A Response containing a List of AirportAtmosphericInformation
+     * objects or BAD_REQUEST for invalid polygons
+     * @see Region#polygon(double[][])
+     */
+    public Response polygon(String verticesString) {
+        try {
+            Region region = Region.polygon(gson.fromJson(verticesString,
+                double[][].class));
+
+            return regionResponse(region);
+        } catch (IllegalArgumentException | JsonParseException ex) {
+            final String message = "Invalid polygon: " + ex.getMessage();
+            LOGGER.warning(() -> message);
+            return Response.status(Response.Status.BAD_REQUEST).entity(message)
+                .build();
+        }
+    }
+
+    /**
+     * @param region The region of interest
+     * @return A Response containing the information inside the region
+     */
+    private Response regionResponse(Region region) {
+        Repository repository = RepositoryFactory.getInstance();
+
+        List<AirportAtmosphericInformation> result =
+            repository.getRegionAtmosphericInformation(region);
+
+        return Response.status(Response.Status.OK).entity(result).build();
+    }
+
+    /**
+     * @param name The name of the parameter
+     * @param value The value of the parameter
+     * @return The coordinate
+     * @throws IllegalArgumentException If the value is missing or invalid
+     */
+    private static double parseCoordinate(String name, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("The " + name
+                + " parameter is required");
+        }
+
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("The " + name
+                + " parameter is not a number: " + value, ex);
+        }
+    }
+
+    /**
+     * This method subscribes the caller to the atmospheric information
+     * changes of the given airport and the airports in the given radius.
+     * The changes are pushed as Server-Sent Events (one "weather" event with
+     * a JSON AirportAtmosphericInformation per changed airport), starting with
+     * the current information of each airport.
+     * The airports in the radius are determined at subscription time.
+     * @param iata The iata code of the airport of interest
+     * @param radiusString The radius in km to look for other airports
+     * @return A Response with the events stream, BAD_REQUEST for invalid
+     * parameters or NOT_FOUND if the airport does not exists
+     * @see WeatherChangeFeed
+     */
+    @GET @Path("/stream/{iata}/{radius}") @Produces(SERVER_SENT_EVENTS)
+    public Response stream(@PathParam("iata") String iata,
+                           @PathParam("radius") String radiusString) {
+        try {
+            Repository repository = RepositoryFactory.getInstance();
+
+            // Validations
+            AirportData.validateIATA(iata);
+            double radius = radiusString == null ||
+                radiusString.trim().isEmpty() ? 0 :
+                    Double.valueOf(radiusString);
+            if (!(radius >= 0)) {
+                throw new NumberFormatException("Out of range: " + radius);
+            }
+
+            Set<AirportData> airports = repository.getAirportsWithin(iata,
+                radius);
+
+            ChunkedOutput<String> output = new ChunkedOutput<>(String.class);
+            WeatherChangeFeed.getInstance().subscribe(airports, output);
+
+            return Response.status(Response.Status.OK).entity(output).build();
+        } catch (InvalidIATAException ex) {
+            LOGGER.warning(ex::getMessage);
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(ex.getMessage()).build();
+        } catch (AirportNotFoundExcepition ex) {
+            final String message = "The airport " + ex.getIata() +
+                " for the requested stream was not found.";
+            LOGGER.warning(() -> message);
+            return Response.status(Response.Status.NOT_FOUND).entity(message)
+                .build();
+        } catch (NumberFormatException ex) {
+            final String message = "There radius given for the stream "
+                + " was not able to be parsed on the API call.";
+            LOGGER.warning(() -> message);
+            LOGGER.log(Level.FINEST, ex, () -> "Exception associated: ");
+            return Response.status(Response.Status.BAD_REQUEST).entity(message)
+                .build();
+        }
+    }
+
+    /**
+     * @param iata The iata code of the weather query
+     * @param radiusString The radius of the weather query
+     * @return An entity tag changing with the result of the query (the
+     * airports within the radius and the version of their information), or
+     * null if the query is invalid (the error is reported by the query)
+     */
+    private static EntityTag tag(String iata, String radiusString) {
+        try {
+            AirportData.validateIATA(iata);
+            final double radius = radiusString == null ||
+                radiusString.trim().isEmpty() ? 0 :
+                    Double.valueOf(radiusString);
+            if (!(radius >= 0)) {
+                return null;
+            }
+
+            final Repository repository = RepositoryFactory.getInstance();
+            final Set<AirportData> airports = repository.getAirportsWithin(iata,
+                radius);
+            return new EntityTag(Integer.toHexString(airports.hashCode()) + '-'
+                + Long.toHexString(repository
+                    .getAtmosphericInformationVersion(airports)));
+        } catch (InvalidIATAException | AirportNotFoundExcepition
+            | NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @param ifNoneMatch The If-None-Match header, i.e. * or a list of tags
+     * @param tag The entity tag of the current result
+     * @return If the header matches the tag (using the weak comparison)
+     */
+    private static boolean matches(String ifNoneMatch, EntityTag tag) {
+        for (String value : ifNoneMatch.split(",")) {
+            final String trimmed = value.trim();
+            if (trimmed.equals("*")) {
+                return true;
+            }
+            try {
+                if (EntityTag.valueOf(trimmed).getValue().equals(tag.getValue())) {
+                    return true;
+                }
+            } catch (IllegalArgumentException ex) {
+                LOGGER.log(Level.FINEST, ex, () -> "Invalid entity tag: "
+                    + trimmed);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This class represents the body of a batch query.
+     */
+    private static class BatchQuery {
+
+        /**
+         * The iata codes of the airports to query.
+         */
+        private List<String> iata;
+
+        /**
+         * The radius in km to look for alternatives (null means 0).
+         */
+        private Double radius;
+
+    }
+
 }
@@ -0,0 +1,307 @@
+package com.example.trial.weather.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This is a logging facade for the hot paths of the endpoints, where a
+ * misbehaving client (e.g. a collector retrying an invalid request) can
+ * produce a flood of identical messages.
+ *
+ * The messages are built lazily (only if the level is enabled), identical
+ * messages (with the same level and throwable class) are logged only once
+ * per deduplication window (followed by a "repeated N times" summary once the
+ * window is over) and there is a global budget of messages per second (the
+ * messages over the budget are counted and reported later).
+ *
+ * The summaries are emitted by the next message after the window or, if
+ * there is none, by a timer, so the repetitions of the last burst are not
+ * lost.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class ThrottledLogger {
+
+    /**
+     * The default time in which identical messages are logged only once.
+     */
+    private static final long DEFAULT_DEDUPLICATION_WINDOW_IN_MILLISECONDS = 10000;
+
+    /**
+     * The default maximum number of messages logged per second.
+     */
+    private static final int DEFAULT_LOGS_PER_SECOND = 100;
+
+    /**
+     * The maximum number of different messages tracked for deduplication
+     * (above that the messages are only limited by the global budget).
+     */
+    private static final int MAXIMUM_TRACKED_MESSAGES = 1024;
+
+    /**
+     * The milliseconds in a second.
+     */
+    private static final long ONE_SECOND_IN_MILLISECONDS = 1000;
+
+    /**
+     * The timer summarizing the repetitions when no more messages arrive.
+     */
+    private static final ScheduledExecutorService SUMMARIZER =
+        Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "throttled-logger-summarizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    /**
+     * The underlying logger.
+     */
+    private final Logger logger;
+
+    /**
+     * The time in milliseconds in which identical messages are logged once.
+     */
+    private final long deduplicationWindow;
+
+    /**
+     * The maximum number of messages logged per second.
+     */
+    private final int logsPerSecond;
+
+    /**
+     * The messages logged in the current deduplication window.
+     */
+    private final Map<String, Repetition> repetitions = new ConcurrentHashMap<>();
+
+    /**
+     * The next time the expired repetitions have to be summarized.
+     */
+    private final AtomicLong nextSummaryTime = new AtomicLong();
+
+    /**
+     * If the timer summary is scheduled.
+     */
+    private final AtomicBoolean summaryScheduled = new AtomicBoolean();
+
+    /**
+     * The second the budget is being consumed and the consumed budget.
+     */
+    private final AtomicLong budgetSecond = new AtomicLong();
+    private final AtomicInteger budgetUsed = new AtomicInteger();
+
+    /**
+     * The number of messages suppressed because of the budget.
+     */
+    private final AtomicLong budgetSuppressedCount = new AtomicLong();
+
+    /**
+     * @param logger The underlying logger
+     * @param deduplicationWindow The time in milliseconds in which identical
+     * messages are logged only once
+     * @param logsPerSecond The maximum number of messages logged per second
+     */
+    public ThrottledLogger(Logger logger, long deduplicationWindow,
+        int logsPerSecond) {
+        this.logger = logger;
+        this.deduplicationWindow = deduplicationWindow;
+        this.logsPerSecond = logsPerSecond;
+    }
+
+    /**
+     * @param name The name of the underlying logger
+     * @return A new logger with the default window and budget
+     */
+    public static ThrottledLogger getLogger(String name) {
+        return new ThrottledLogger(Logger.getLogger(name),
+            DEFAULT_DEDUPLICATION_WINDOW_IN_MILLISECONDS,
+            DEFAULT_LOGS_PER_SECOND);
+    }
+
+    /**
+     * @param message The supplier of the message to be logged
+     */
+    public void warning(Supplier<String> message) {
+        log(Level.WARNING, null, message);
+    }
+
+    /**
+     * @param level The message level
+     * @param message The supplier of the message to be logged
+     */
+    public void log(Level level, Supplier<String> message) {
+        log(level, null, message);
+    }
+
+    /**
+     * @param level The message level
+     * @param thrown The throwable associated with the message
+     * @param message The supplier of the message to be logged
+     */
+    public void log(Level level, Throwable thrown, Supplier<String> message) {
+        if (!logger.isLoggable(level)) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        summarize(now);
+
+        final String text = message.get();
+        final String key = level.getName() + ':'
+            + (thrown != null ? thrown.getClass().getName() : "") + ':' + text;
+
+        Repetition repetition = repetitions.get(key);
+        if (repetition != null) {
+            if (now - repetition.startTime < deduplicationWindow) {
+                repetition.count.incrementAndGet();
+                return;
+            }
+
+            // The window is over, but the repetition was not yet summarized
+            if (repetitions.remove(key, repetition)) {
+                summarize(repetition);
+            }
+        }
+
+        if (repetitions.size() < MAXIMUM_TRACKED_MESSAGES) {
+            repetition = repetitions.putIfAbsent(key,
+                new Repetition(level, text, now));
+            if (repetition != null) {
+                // Other thread logged the same message at the same time
+                repetition.count.incrementAndGet();
+                return;
+            }
+            scheduleSummary();
+        }
+
+        emit(level, text, thrown);
+    }
+
+    /**
+     * Summarizes the repetitions whose window is over, at most once per
+     * deduplication window.
+     * @param now The current time in milliseconds
+     */
+    private void summarize(long now) {
+        final long summaryTime = nextSummaryTime.get();
+        if (now < summaryTime || !nextSummaryTime.compareAndSet(summaryTime,
+            now + deduplicationWindow)) {
+            return;
+        }
+
+        summarizeExpired(now);
+    }
+
+    /**
+     * Schedules the timer summary if not yet scheduled.
+     */
+    private void scheduleSummary() {
+        if (summaryScheduled.compareAndSet(false, true)) {
+            SUMMARIZER.schedule(this::summarizeScheduled, deduplicationWindow,
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Summarizes the repetitions whose window is over, scheduling the timer
+     * summary again while there are repetitions pending.
+     */
+    private void summarizeScheduled() {
+        summaryScheduled.set(false);
+        summarizeExpired(System.currentTimeMillis());
+        if (!repetitions.isEmpty()) {
+            scheduleSummary();
+        }
+    }
+
+    /**
+     * Summarizes the repetitions whose window is over and the messages
+     * suppressed because of the budget.
+     * @param now The current time in milliseconds
+     */
+    private void summarizeExpired(long now) {
+        for (Map.Entry<String, Repetition> entry : repetitions.entrySet()) {
+            final Repetition repetition = entry.getValue();
+            if (now - repetition.startTime >= deduplicationWindow
+                && repetitions.remove(entry.getKey(), repetition)) {
+                summarize(repetition);
+            }
+        }
+
+        final long suppressed = budgetSuppressedCount.getAndSet(0);
+        if (suppressed > 0) {
+            emit(Level.WARNING, suppressed + " log messages were suppressed "
+                + "because of the logging rate limit.", null);
+        }
+    }
+
+    /**
+     * @param repetition The repetition to be summarized (if repeated)
+     */
+    private void summarize(Repetition repetition) {
+        final int count = repetition.count.get();
+        if (count > 0) {
+            emit(repetition.level, repetition.message + " (repeated " + count
+                + " times)", null);
+        }
+    }
+
+    /**
+     * Logs the message if there is budget for it.
+     * @param level The message level
+     * @param message The message to be logged
+     * @param thrown The throwable associated with the message or null
+     */
+    private void emit(Level level, String message, Throwable thrown) {
+        if (!acquireBudget()) {
+            budgetSuppressedCount.incrementAndGet();
+            return;
+        }
+
+        logger.logp(level, logger.getName(), null, message, thrown);
+    }
+
+    /**
+     * @return true if the budget of the current second allows one more
+     * message
+     */
+    private boolean acquireBudget() {
+        final long second = System.currentTimeMillis() / ONE_SECOND_IN_MILLISECONDS;
+        final long current = budgetSecond.get();
+        if (second != current && budgetSecond.compareAndSet(current, second)) {
+            budgetUsed.set(0);
+        }
+
+        return budgetUsed.incrementAndGet() <= logsPerSecond;
+    }
+
+    /**
+     * This class represents a message logged in the current window and how
+     * many times it was repeated since.
+     */
+    private static class Repetition {
+
+        private final Level level;
+
+        private final String message;
+
+        private final long startTime;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        Repetition(Level level, String message, long startTime) {
+            this.level = level;
+            this.message = message;
+            this.startTime = startTime;
+        }
+
+    }
+
+}
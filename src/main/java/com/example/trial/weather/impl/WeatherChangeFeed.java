@@ -0,0 +1,415 @@
+package com.example.trial.weather.impl;
+
+import com.example.trial.weather.domain.AirportAtmosphericInformation;
+import com.example.trial.weather.domain.AirportData;
+import com.example.trial.weather.domain.AtmosphericInformation;
+import com.example.trial.weather.repository.AtmosphericInformationListener;
+import com.example.trial.weather.repository.Repository;
+import com.example.trial.weather.repository.RepositoryFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.jersey.server.ChunkedOutput;
+
+/**
+ * This is the single change feed of atmospheric information updates, it
+ * listens to the repository and fans out the changes to the subscribers as
+ * Server-Sent Events.
+ *
+ * Each subscriber keeps only the latest pending information per airport, so
+ * bursts of updates are coalesced into a single event per airport. A
+ * subscriber whose delivery is stalled for longer than the configured time
+ * (i.e. a slow consumer) is dropped instead of accumulating the changes: a
+ * watchdog (out of the delivery pool) interrupts the stalled write, so the
+ * delivery thread is released, and the output is closed by a separate
+ * executor (as closing may block as well). Each delivery writes a bounded
+ * number of events, so the busy subscribers do not monopolize the threads.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class WeatherChangeFeed implements AtmosphericInformationListener {
+
+    private static final Logger LOGGER = Logger.getLogger(WeatherChangeFeed.class.getName());
+
+    /**
+     * The default time the changes are accumulated before being delivered.
+     */
+    private static final long DEFAULT_COALESCING_DELAY_IN_MILLISECONDS = 100;
+
+    /**
+     * The default time a delivery can be stalled before dropping the
+     * subscriber.
+     */
+    private static final long DEFAULT_STALL_TIMEOUT_IN_MILLISECONDS = 10000;
+
+    /**
+     * The default number of threads used to deliver the events.
+     */
+    private static final int DEFAULT_THREAD_COUNT = 2;
+
+    /**
+     * The maximum number of events written on a single delivery, the rest
+     * are written on the next one.
+     */
+    private static final int MAXIMUM_EVENTS_PER_DELIVERY = 64;
+
+    /**
+     * The name of the events sent to the subscribers.
+     */
+    private static final String EVENT_NAME = "weather";
+
+    /**
+     * This is the current shared feed instance.
+     */
+    private static WeatherChangeFeed instance;
+
+    /**
+     * Shared mapper used to build the events data (the same format used in
+     * the query responses).
+     */
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * The current subscriptions.
+     */
+    private final Set<Subscription> subscriptions = new CopyOnWriteArraySet<>();
+
+    /**
+     * The executor delivering the events.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * The executor looking for stalled deliveries.
+     */
+    private final ScheduledExecutorService watchdog;
+
+    /**
+     * The executor closing the outputs of the dropped subscriptions.
+     */
+    private final ExecutorService closer;
+
+    /**
+     * The time in milliseconds the changes are accumulated before delivery.
+     */
+    private final long coalescingDelay;
+
+    /**
+     * The time in milliseconds a delivery can be stalled.
+     */
+    private final long stallTimeout;
+
+    /**
+     * @param coalescingDelay The time in milliseconds the changes are
+     * accumulated before being delivered
+     * @param stallTimeout The time in milliseconds a delivery can be stalled
+     * before dropping the subscriber
+     * @param threadCount The number of threads delivering the events
+     */
+    public WeatherChangeFeed(long coalescingDelay, long stallTimeout,
+        int threadCount) {
+        this.coalescingDelay = coalescingDelay;
+        this.stallTimeout = stallTimeout;
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(threadCount, runnable -> {
+            Thread thread = new Thread(runnable,
+                "weather-feed-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "weather-feed-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long checkInterval = Math.max(1, stallTimeout / 2);
+        watchdog.scheduleWithFixedDelay(this::dropStalledSubscriptions,
+            checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+
+        final AtomicInteger closerNumber = new AtomicInteger();
+        closer = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable,
+                "weather-feed-closer-" + closerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return A new instance (listening the shared repository) if none was
+     * yet created or the existing one
+     */
+    public static synchronized WeatherChangeFeed getInstance() {
+        if (instance == null) {
+            instance = new WeatherChangeFeed(
+                DEFAULT_COALESCING_DELAY_IN_MILLISECONDS,
+                DEFAULT_STALL_TIMEOUT_IN_MILLISECONDS, DEFAULT_THREAD_COUNT);
+            RepositoryFactory.getInstance().addListener(instance);
+        }
+
+        return instance;
+    }
+
+    /**
+     * This method subscribes an output to the changes of the given airports.
+     * The current information of the airports is sent right away.
+     * @param airports The airports of interest
+     * @param output The output where the events are written
+     */
+    public void subscribe(Set<AirportData> airports, ChunkedOutput<String> output) {
+        Subscription subscription = new Subscription(airports, output);
+        subscriptions.add(subscription);
+
+        // Sending the current state of the airports
+        Repository repository = RepositoryFactory.getInstance();
+        for (AirportData airport : airports) {
+            AtmosphericInformation current =
+                repository.getCurrentAtmosphericInformation(airport.getIata());
+            if (current != null) {
+                subscription.pending.put(airport.getIata(),
+                    new AirportAtmosphericInformation(airport, current));
+            }
+        }
+        subscription.schedule();
+    }
+
+    /**
+     * @return The number of current subscriptions
+     */
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Queues the change on every interested subscriber.
+     * @param airport The airport whose information changed
+     * @param atmosphericInformation The updated atmospheric information
+     * @see AtmosphericInformationListener#onUpdate(AirportData, AtmosphericInformation)
+     */
+    @Override
+    public void onUpdate(AirportData airport,
+        AtmosphericInformation atmosphericInformation) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.iatas.contains(airport.getIata())) {
+                subscription.offer(airport, atmosphericInformation);
+            }
+        }
+    }
+
+    /**
+     * Drops the subscriptions whose delivery is stalled.
+     */
+    private void dropStalledSubscriptions() {
+        final long now = System.currentTimeMillis();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.isStalled(now)) {
+                LOGGER.log(Level.INFO, "Dropping a slow subscriber.");
+                subscription.drop();
+            }
+        }
+    }
+
+    /**
+     * This method stops the delivery of events and closes all the
+     * subscriptions.
+     */
+    public void shutdown() {
+        watchdog.shutdownNow();
+        executor.shutdownNow();
+        for (Subscription subscription : subscriptions) {
+            subscription.drop();
+        }
+        closer.shutdown();
+    }
+
+    /**
+     * This class represents a subscriber and its pending changes.
+     */
+    private class Subscription {
+
+        /**
+         * The iata codes of the airports of interest.
+         */
+        private final Set<String> iatas = new HashSet<>();
+
+        /**
+         * The latest not yet delivered information per airport.
+         */
+        private final Map<String, AirportAtmosphericInformation> pending =
+            new ConcurrentHashMap<>();
+
+        /**
+         * Indicates if a delivery is scheduled or running.
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /**
+         * The time the current delivery started or 0 if not delivering
+         * (guarded by this).
+         */
+        private long deliveryStartTime;
+
+        /**
+         * The thread running the current delivery or null if not delivering
+         * (guarded by this).
+         */
+        private Thread deliveryThread;
+
+        /**
+         * If the subscription was dropped (guarded by this).
+         */
+        private boolean closed;
+
+        /**
+         * The output where the events are written.
+         */
+        private final ChunkedOutput<String> output;
+
+        Subscription(Set<AirportData> airports, ChunkedOutput<String> output) {
+            for (AirportData airport : airports) {
+                iatas.add(airport.getIata());
+            }
+            this.output = output;
+        }
+
+        /**
+         * Queues a change replacing any previous one of the same airport.
+         * @param airport The airport whose information changed
+         * @param atmosphericInformation The snapshot of the updated
+         * atmospheric information (it is serialized later on delivery)
+         */
+        void offer(AirportData airport,
+            AtmosphericInformation atmosphericInformation) {
+            pending.put(airport.getIata(),
+                new AirportAtmosphericInformation(airport, atmosphericInformation));
+            schedule();
+        }
+
+        /**
+         * Schedules a delivery if there is none scheduled or running.
+         */
+        void schedule() {
+            if (!pending.isEmpty() && scheduled.compareAndSet(false, true)) {
+                executor.schedule(this::deliver, coalescingDelay,
+                    TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * Writes the pending changes to the output, up to the maximum events
+         * per delivery (continuing right away with the rest).
+         */
+        void deliver() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                deliveryStartTime = System.currentTimeMillis();
+                deliveryThread = Thread.currentThread();
+            }
+
+            boolean completed = true;
+            try {
+                int count = 0;
+                for (Iterator<AirportAtmosphericInformation> it =
+                    pending.values().iterator(); it.hasNext();) {
+                    if (count++ == MAXIMUM_EVENTS_PER_DELIVERY) {
+                        completed = false;
+                        break;
+                    }
+
+                    AirportAtmosphericInformation change = it.next();
+                    it.remove();
+                    output.write(toEvent(change));
+                }
+            } catch (IOException ex) {
+                // The subscriber is not longer there (or it was interrupted
+                // by the watchdog)
+                LOGGER.log(Level.FINEST, "Subscriber disconnected: ", ex);
+                drop();
+                return;
+            } finally {
+                synchronized (this) {
+                    deliveryStartTime = 0;
+                    deliveryThread = null;
+                }
+                // Clearing the interruption of the watchdog (if any)
+                Thread.interrupted();
+            }
+
+            if (completed) {
+                // Changes may have arrived while delivering
+                scheduled.set(false);
+                schedule();
+            } else {
+                executor.execute(this::deliver);
+            }
+        }
+
+        /**
+         * @param now The current time
+         * @return If the current delivery exceeded the stall timeout
+         */
+        synchronized boolean isStalled(long now) {
+            return deliveryStartTime != 0
+                && now - deliveryStartTime > stallTimeout;
+        }
+
+        /**
+         * Removes the subscription, interrupting the delivery in progress (if
+         * any), and closes the output out of the delivery threads.
+         */
+        void drop() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+
+                if (deliveryThread != null
+                    && deliveryThread != Thread.currentThread()) {
+                    deliveryThread.interrupt();
+                }
+            }
+
+            subscriptions.remove(this);
+            pending.clear();
+            closer.execute(() -> {
+                try {
+                    output.close();
+                } catch (IOException ex) {
+                    LOGGER.log(Level.FINEST, "Error closing a subscription: ", ex);
+                }
+            });
+        }
+
+        /**
+         * @param change The change to be sent
+         * @return The Server-Sent Event representation of the change
+         * @throws JsonProcessingException If the change can not be serialized
+         */
+        private String toEvent(AirportAtmosphericInformation change)
+            throws JsonProcessingException {
+            return "event: " + EVENT_NAME + "\n"
+                + "data: " + mapper.writeValueAsString(change) + "\n\n";
+        }
+
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.example.trial.weather.repository;
+
+import com.example.trial.weather.domain.AirportData;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * This is an immutable snapshot of the airports coordinates stored by column
+ * (latitudes, longitudes and the cosine of the latitudes), so a full scan
+ * goes over contiguous arrays without dereferencing each airport.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class AirportColumns {
+
+    /**
+     * The minimum number of airports to scan in parallel.
+     */
+    private static final int PARALLEL_SCAN_MINIMUM_SIZE = 20000;
+
+    private final AirportData[] airports;
+
+    private final double[] latitudes;
+
+    private final double[] longitudes;
+
+    private final double[] latitudeCosines;
+
+    /**
+     * @param airports The airports of the snapshot
+     */
+    public AirportColumns(Collection<AirportData> airports) {
+        this.airports = airports.toArray(new AirportData[airports.size()]);
+        this.latitudes = new double[this.airports.length];
+        this.longitudes = new double[this.airports.length];
+        this.latitudeCosines = new double[this.airports.length];
+
+        for (int i = 0; i < this.airports.length; i++) {
+            latitudes[i] = this.airports[i].getLatitude();
+            longitudes[i] = this.airports[i].getLongitude();
+            latitudeCosines[i] = Math.cos(Math.toRadians(latitudes[i]));
+        }
+    }
+
+    /**
+     * Visits the airports within a distance of the point, in the order of
+     * the snapshot.
+     * @param latitude The latitude of the point
+     * @param longitude The longitude of the point
+     * @param radius The maximum distance in KM
+     * @param consumer The consumer of the airports within the distance
+     */
+    public void forEachWithin(double latitude, double longitude, double radius,
+        Consumer<AirportData> consumer) {
+        final double latitudeCosine = Math.cos(Math.toRadians(latitude));
+
+        IntStream indexes = IntStream.range(0, airports.length);
+        if (airports.length >= PARALLEL_SCAN_MINIMUM_SIZE) {
+            indexes = indexes.parallel();
+        }
+
+        // The matching positions are collected in order, so the consumer is
+        // called on the caller thread
+        for (int i : indexes.filter(i -> AirportData.distance(latitude,
+            longitude, latitudeCosine, latitudes[i], longitudes[i],
+            latitudeCosines[i]) <= radius).toArray()) {
+            consumer.accept(airports[i]);
+        }
+    }
+
+    /**
+     * @return The number of airports of the snapshot
+     */
+    public int size() {
+        return airports.length;
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.example.trial.weather.repository;
+
+import com.example.trial.weather.domain.AirportAtmosphericInformation;
+import java.util.List;
+
+/**
+ * This class represents a page of the atmospheric information changes after
+ * a cursor.
+ * This a Data Transfer Object (DTO)
+ * @see Repository#getAtmosphericInformationChanges(long, int)
+ * @author ignaciolarranaga@gmail.com
+ */
+public class AtmosphericInformationChanges {
+
+    /**
+     * The cursor to request the following changes (the sequence of the last
+     * change included, or the current sequence if a resync is required).
+     */
+    private final long sequence;
+
+    /**
+     * If the changes after the requested cursor are no longer available, so
+     * the whole state has to be queried again (and then the changes followed
+     * from this sequence).
+     */
+    private final boolean resyncRequired;
+
+    /**
+     * If there are more changes after this page.
+     */
+    private final boolean more;
+
+    /**
+     * The airports changed with their current atmospheric information, in
+     * order of change (null information for the airports removed).
+     */
+    private final List<AirportAtmosphericInformation> changes;
+
+    public AtmosphericInformationChanges(long sequence, boolean resyncRequired,
+        boolean more, List<AirportAtmosphericInformation> changes) {
+        this.sequence = sequence;
+        this.resyncRequired = resyncRequired;
+        this.more = more;
+        this.changes = changes;
+    }
+
+    public final long getSequence() {
+        return sequence;
+    }
+
+    public final boolean isResyncRequired() {
+        return resyncRequired;
+    }
+
+    public final boolean isMore() {
+        return more;
+    }
+
+    public final List<AirportAtmosphericInformation> getChanges() {
+        return changes;
+    }
+
+}
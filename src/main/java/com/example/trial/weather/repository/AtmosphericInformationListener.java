@@ -0,0 +1,25 @@
+package com.example.trial.weather.repository;
+
+import com.example.trial.weather.domain.AirportData;
+import com.example.trial.weather.domain.AtmosphericInformation;
+
+/**
+ * This interface represents a listener notified each time the atmospheric
+ * information of an airport changes.
+ * IMPORTANT: Listeners are notified by the thread updating the repository
+ * (once the repository lock is released), so they must return quickly and
+ * never block.
+ * @see Repository#addListener(AtmosphericInformationListener)
+ * @author ignaciolarranaga@gmail.com
+ */
+public interface AtmosphericInformationListener {
+
+    /**
+     * @param airport The airport whose information changed
+     * @param atmosphericInformation A snapshot of the updated atmospheric
+     * information (not modified by the later updates)
+     */
+    void onUpdate(AirportData airport,
+        AtmosphericInformation atmosphericInformation);
+
+}
@@ -0,0 +1,149 @@
+package com.example.trial.weather.repository;
+
+import com.example.trial.weather.domain.AirportData;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiPredicate;
+
+/**
+ * This is a bounded log of the airports changed, ordered by a global
+ * monotonic sequence.
+ *
+ * Only the last change of each airport is kept (a new change of an airport
+ * replaces its previous entry), and when the log exceeds its capacity the
+ * oldest entries are discarded. The cursors older than the last discarded
+ * entry can not be served anymore, so they require a full resync.
+ *
+ * It is not thread safe, it is guarded by the repository.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class ChangeLog {
+
+    /**
+     * The default maximum number of entries kept.
+     */
+    public static final int DEFAULT_CAPACITY = 100000;
+
+    /**
+     * The maximum number of entries kept.
+     */
+    private final int capacity;
+
+    /**
+     * The airports changed by the sequence of their last change.
+     */
+    private final TreeMap<Long, AirportData> changes = new TreeMap<>();
+
+    /**
+     * The sequence of the last change of each airport in the log.
+     */
+    private final Map<String, Long> sequences = new HashMap<>();
+
+    /**
+     * The sequence of the last change recorded.
+     */
+    private long sequence;
+
+    /**
+     * The sequence of the last change discarded (the oldest cursor that can
+     * be served).
+     */
+    private long discardedSequence;
+
+    public ChangeLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The maximum number of entries kept
+     */
+    public ChangeLog(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param airport The airport changed
+     * @return The sequence assigned to the change
+     */
+    public long record(AirportData airport) {
+        final Long previous = sequences.put(airport.getIata(), ++sequence);
+        if (previous != null) {
+            changes.remove(previous);
+        }
+        changes.put(sequence, airport);
+
+        if (changes.size() > capacity) {
+            Map.Entry<Long, AirportData> oldest = changes.pollFirstEntry();
+            sequences.remove(oldest.getValue().getIata());
+            discardedSequence = oldest.getKey();
+        }
+
+        return sequence;
+    }
+
+    /**
+     * @param since The cursor, i.e. the sequence of the last change known
+     * @return true if the changes after the cursor are no longer available
+     */
+    public boolean isResyncRequired(long since) {
+        return since < discardedSequence || since > sequence;
+    }
+
+    /**
+     * Visits the changes after the cursor in order, while the visitor
+     * returns true.
+     * @param since The cursor, i.e. the sequence of the last change known
+     * @param visitor The visitor of the sequence and airport of each change
+     */
+    public void forEachSince(long since,
+        BiPredicate<Long, AirportData> visitor) {
+        for (Map.Entry<Long, AirportData> change
+            : changes.tailMap(since, false).entrySet()) {
+            if (!visitor.test(change.getKey(), change.getValue())) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Discards all the changes advancing the sequence, so every previous
+     * cursor (even the latest one) requires a full resync, and the cursors
+     * taken after it are served.
+     */
+    public void clear() {
+        changes.clear();
+        sequences.clear();
+        discardedSequence = ++sequence;
+    }
+
+    /**
+     * @param iata The iata code of an airport
+     * @return The sequence of the last change of the airport, or the one of
+     * the last change discarded if it is not in the log (its last change was
+     * not after it)
+     */
+    public long getSequence(String iata) {
+        final Long airportSequence = sequences.get(iata);
+        return airportSequence != null ? airportSequence : discardedSequence;
+    }
+
+    /**
+     * @return The sequence of the last change recorded
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The number of entries in the log
+     */
+    public int size() {
+        return changes.size();
+    }
+
+}
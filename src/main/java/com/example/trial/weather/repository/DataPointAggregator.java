@@ -0,0 +1,185 @@
+package com.example.trial.weather.repository;
+
+import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.domain.DataPointAggregate;
+import java.util.Arrays;
+
+/**
+ * This class aggregates the data points of a same type of several airports,
+ * one at a time, so it can be fed while the airports are visited.
+ *
+ * The merged quartiles are estimated from the mixture of the distributions of
+ * the airports (weighted by their count of observations), where each one is
+ * approximated by a piecewise linear cumulative distribution through its
+ * quartiles (with tails as wide as the nearest quartile interval). If no
+ * airport has observations counted the airports are weighted equally.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class DataPointAggregator {
+
+    /**
+     * The number of iterations of the quantile search (enough to reach the
+     * double precision for any realistic range).
+     */
+    private static final int QUANTILE_SEARCH_ITERATIONS = 64;
+
+    /**
+     * The probabilities of the knots of the distribution of each airport.
+     */
+    private static final double[] KNOT_PROBABILITIES = {0, 0.25, 0.5, 0.75, 1};
+
+    /**
+     * The initial capacity (in airports) of the knots.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The number of airports aggregated.
+     */
+    private int airportCount;
+
+    /**
+     * The total number of observations and the sum of the means weighted by
+     * them.
+     */
+    private long count;
+    private double weightedMeanSum;
+
+    /**
+     * The sum of the means (used when there are no observations counted).
+     */
+    private double meanSum;
+
+    /**
+     * The lowest 1st quartile and the highest 3rd quartile.
+     */
+    private int minimum = Integer.MAX_VALUE;
+    private int maximum = Integer.MIN_VALUE;
+
+    /**
+     * The knots of the distribution of each airport (KNOT_PROBABILITIES.length
+     * values per airport) and its weight.
+     */
+    private double[] knots = new double[INITIAL_CAPACITY * KNOT_PROBABILITIES.length];
+    private double[] weights = new double[INITIAL_CAPACITY];
+
+    /**
+     * @param dataPoint The data point of an airport
+     */
+    public void add(DataPoint dataPoint) {
+        final int[] quartiles = {dataPoint.getFirst(), dataPoint.getSecond(),
+            dataPoint.getThird()};
+        Arrays.sort(quartiles);
+
+        count += dataPoint.getCount();
+        weightedMeanSum += dataPoint.getMean() * dataPoint.getCount();
+        meanSum += dataPoint.getMean();
+        minimum = Math.min(minimum, quartiles[0]);
+        maximum = Math.max(maximum, quartiles[2]);
+
+        if (weights.length == airportCount) {
+            weights = Arrays.copyOf(weights, airportCount * 2);
+            knots = Arrays.copyOf(knots, weights.length * KNOT_PROBABILITIES.length);
+        }
+
+        final int offset = airportCount * KNOT_PROBABILITIES.length;
+        knots[offset] = quartiles[0] - (quartiles[1] - quartiles[0]);
+        knots[offset + 1] = quartiles[0];
+        knots[offset + 2] = quartiles[1];
+        knots[offset + 3] = quartiles[2];
+        knots[offset + 4] = quartiles[2] + (quartiles[2] - quartiles[1]);
+        weights[airportCount] = dataPoint.getCount();
+        airportCount++;
+    }
+
+    /**
+     * @return true if no data point was aggregated
+     */
+    public boolean isEmpty() {
+        return airportCount == 0;
+    }
+
+    /**
+     * @return The aggregation of the data points added
+     * @throws IllegalStateException If no data point was added
+     */
+    public DataPointAggregate getAggregate() {
+        if (isEmpty()) {
+            throw new IllegalStateException("There are no data points aggregated");
+        }
+
+        DataPointAggregate aggregate = new DataPointAggregate();
+        aggregate.setAirportCount(airportCount);
+        aggregate.setCount(count);
+        aggregate.setMean(count > 0 ? weightedMeanSum / count
+            : meanSum / airportCount);
+        aggregate.setMinimum(minimum);
+        aggregate.setMaximum(maximum);
+        aggregate.setFirst(quantile(0.25));
+        aggregate.setSecond(quantile(0.5));
+        aggregate.setThird(quantile(0.75));
+
+        return aggregate;
+    }
+
+    /**
+     * @param probability The probability of the quantile
+     * @return The estimated quantile of the mixture (bisection over its
+     * cumulative distribution)
+     */
+    double quantile(double probability) {
+        double low = Double.MAX_VALUE;
+        double high = -Double.MAX_VALUE;
+        for (int i = 0; i < airportCount; i++) {
+            low = Math.min(low, knots[i * KNOT_PROBABILITIES.length]);
+            high = Math.max(high, knots[(i + 1) * KNOT_PROBABILITIES.length - 1]);
+        }
+
+        for (int i = 0; i < QUANTILE_SEARCH_ITERATIONS && low < high; i++) {
+            final double middle = (low + high) / 2;
+            if (cumulativeProbability(middle) < probability) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+
+        return (low + high) / 2;
+    }
+
+    /**
+     * @param value A value
+     * @return The probability of the mixture of an observation lower than or
+     * equal to the value
+     */
+    private double cumulativeProbability(double value) {
+        double weightedProbability = 0;
+        double totalWeight = 0;
+
+        for (int i = 0; i < airportCount; i++) {
+            final int offset = i * KNOT_PROBABILITIES.length;
+            final double weight = count > 0 ? weights[i] : 1;
+            totalWeight += weight;
+
+            if (value >= knots[offset + KNOT_PROBABILITIES.length - 1]) {
+                weightedProbability += weight;
+                continue;
+            }
+
+            for (int j = 0; j < KNOT_PROBABILITIES.length - 1; j++) {
+                if (value < knots[offset + j + 1]) {
+                    if (value >= knots[offset + j]) {
+                        weightedProbability += weight * (KNOT_PROBABILITIES[j]
+                            + (KNOT_PROBABILITIES[j + 1] - KNOT_PROBABILITIES[j])
+                            * (value - knots[offset + j])
+                            / (knots[offset + j + 1] - knots[offset + j]));
+                    }
+                    break;
+                }
+            }
+        }
+
+        return weightedProbability / totalWeight;
+    }
+
+}
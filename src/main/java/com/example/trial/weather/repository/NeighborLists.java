@@ -0,0 +1,331 @@
+package com.example.trial.weather.repository;
+
+import com.example.trial.weather.domain.AirportData;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * This class maintains the precomputed neighbors of each airport (the
+ * airports within the radius, itself included) for the most requested radii,
+ * so the queries of those radii are a list walk without distance
+ * calculations.
+ *
+ * The radii are chosen from the usage statistics (only the integer radii are
+ * materialized, as they are the ones used in practice). A materialized radius
+ * is kept with half the calls required to materialize it, so a radius around
+ * the thresholds is not dropped and built again on alternate intervals. The
+ * lists are updated incrementally as the airports are added or removed. A radius whose
+ * lists would exceed the maximum number of entries (i.e. it covers most of
+ * the catalogue) is not materialized.
+ *
+ * The new radii can be built without the guard of the repository (see
+ * #build(int, Collection)) and installed once built, so the readers are not
+ * blocked meanwhile.
+ *
+ * It is not thread safe, it is guarded by the repository.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class NeighborLists {
+
+    /**
+     * The default maximum number of radii materialized.
+     */
+    public static final int DEFAULT_MAXIMUM_RADII = 4;
+
+    /**
+     * The default maximum number of entries (neighbors of all the airports)
+     * of a materialized radius.
+     */
+    public static final int DEFAULT_MAXIMUM_ENTRIES = 2000000;
+
+    /**
+     * The minimum share of the calls of a radius to be materialized.
+     */
+    private static final double MINIMUM_CALL_SHARE = 0.05;
+
+    /**
+     * The minimum number of calls of a radius to be materialized.
+     */
+    private static final int MINIMUM_CALLS = 100;
+
+    /**
+     * The fraction of the minimum calls (and share) required to keep a
+     * materialized radius.
+     */
+    private static final double KEEP_FACTOR = 0.5;
+
+    /**
+     * The spatial index used to find the neighbors of the airports added.
+     */
+    private final SpatialIndex index;
+
+    /**
+     * The maximum number of radii materialized.
+     */
+    private final int maximumRadii;
+
+    /**
+     * The maximum number of entries of a materialized radius.
+     */
+    private final int maximumEntries;
+
+    /**
+     * The neighbors of each airport by radius.
+     */
+    private final Map<Integer, Map<String, List<AirportData>>> neighbors =
+        new HashMap<>();
+
+    /**
+     * The number of entries of each materialized radius.
+     */
+    private final Map<Integer, Integer> entries = new HashMap<>();
+
+    /**
+     * The radii discarded for exceeding the maximum number of entries.
+     */
+    private final Set<Integer> discarded = new HashSet<>();
+
+    /**
+     * @param index The spatial index used to find the neighbors
+     */
+    public NeighborLists(SpatialIndex index) {
+        this(index, DEFAULT_MAXIMUM_RADII, DEFAULT_MAXIMUM_ENTRIES);
+    }
+
+    /**
+     * @param index The spatial index used to find the neighbors
+     * @param maximumRadii The maximum number of radii materialized
+     * @param maximumEntries The maximum number of entries of a radius
+     */
+    public NeighborLists(SpatialIndex index, int maximumRadii,
+        int maximumEntries) {
+        this.index = index;
+        this.maximumRadii = maximumRadii;
+        this.maximumEntries = maximumEntries;
+    }
+
+    /**
+     * @param iata The iata code of the airport
+     * @param radius The radius of the query
+     * @return The airports within the radius of the given one, or null if
+     * the radius is not materialized (or the airport is unknown)
+     */
+    public List<AirportData> get(String iata, double radius) {
+        final Map<String, List<AirportData>> radiusNeighbors =
+            neighbors.get(toKey(radius));
+        return radiusNeighbors != null ? radiusNeighbors.get(iata) : null;
+    }
+
+    /**
+     * @param radius The radius of the query
+     * @return true if the neighbors are materialized for the radius
+     */
+    public boolean isMaterialized(double radius) {
+        return neighbors.containsKey(toKey(radius));
+    }
+
+    /**
+     * @return The radii materialized
+     */
+    public Set<Integer> getRadii() {
+        return Collections.unmodifiableSet(neighbors.keySet());
+    }
+
+    /**
+     * Adds the airport (already indexed) to the materialized radii.
+     * @param airport The airport added
+     */
+    public void add(AirportData airport) {
+        for (Integer radius : new ArrayList<>(neighbors.keySet())) {
+            final Map<String, List<AirportData>> radiusNeighbors =
+                neighbors.get(radius);
+            final List<AirportData> airportNeighbors = new ArrayList<>();
+
+            index.forEachWithin(airport.getLatitude(), airport.getLongitude(),
+                radius, other -> {
+                    airportNeighbors.add(other);
+                    if (!other.getIata().equals(airport.getIata())) {
+                        radiusNeighbors.get(other.getIata()).add(airport);
+                    }
+                });
+            radiusNeighbors.put(airport.getIata(), airportNeighbors);
+
+            final int radiusEntries = entries.get(radius)
+                + 2 * airportNeighbors.size() - 1;
+            if (radiusEntries > maximumEntries) {
+                discard(radius);
+            } else {
+                entries.put(radius, radiusEntries);
+            }
+        }
+    }
+
+    /**
+     * Removes the airport from the materialized radii.
+     * @param airport The airport removed
+     */
+    public void remove(AirportData airport) {
+        for (Map.Entry<Integer, Map<String, List<AirportData>>> radius
+            : neighbors.entrySet()) {
+            final List<AirportData> airportNeighbors =
+                radius.getValue().remove(airport.getIata());
+            if (airportNeighbors == null) {
+                continue;
+            }
+
+            for (AirportData other : airportNeighbors) {
+                final List<AirportData> otherNeighbors =
+                    radius.getValue().get(other.getIata());
+                if (otherNeighbors != null) {
+                    otherNeighbors.removeIf(neighbor ->
+                        neighbor.getIata().equals(airport.getIata()));
+                }
+            }
+            entries.put(radius.getKey(), entries.get(radius.getKey())
+                - 2 * airportNeighbors.size() + 1);
+        }
+    }
+
+    /**
+     * Removes all the materialized radii.
+     */
+    public void clear() {
+        neighbors.clear();
+        entries.clear();
+        discarded.clear();
+    }
+
+    /**
+     * Chooses the most requested radii and materializes the new ones.
+     * @param radiusCallCounters The number of calls by radius
+     * @param totalCallCount The total number of calls
+     * @param airports All the airports (already indexed)
+     */
+    public void update(Map<Integer, Integer> radiusCallCounters,
+        int totalCallCount, Collection<AirportData> airports) {
+        for (Integer radius : choose(radiusCallCounters, totalCallCount)) {
+            install(radius, build(radius, airports));
+        }
+    }
+
+    /**
+     * Chooses the most requested radii, dropping the materialized ones not
+     * chosen anymore (they are kept with a fraction of the calls required to
+     * materialize them).
+     * @param radiusCallCounters The number of calls by (exact) radius
+     * @param totalCallCount The total number of calls
+     * @return The radii chosen and not yet materialized
+     */
+    public List<Integer> choose(Map<Integer, Integer> radiusCallCounters,
+        int totalCallCount) {
+        final List<Integer> chosen = radiusCallCounters.entrySet().stream()
+            // The radius 0 is a point lookup already
+            .filter(entry -> entry.getKey() > 0)
+            .filter(entry -> !discarded.contains(entry.getKey()))
+            .filter(entry -> isRequested(entry.getKey(), entry.getValue(),
+                totalCallCount))
+            .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed())
+            .limit(maximumRadii)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+
+        neighbors.keySet().retainAll(chosen);
+        entries.keySet().retainAll(chosen);
+        chosen.removeAll(neighbors.keySet());
+        return chosen;
+    }
+
+    /**
+     * Builds the neighbors of a radius over a separate index of the given
+     * airports, so it does not access the state guarded by the repository
+     * (i.e. it can run concurrently with the queries and updates).
+     * @param radius The radius to be materialized
+     * @param airports All the airports
+     * @return The neighbors of each airport, or null if they exceed the
+     * maximum number of entries
+     */
+    public Map<String, List<AirportData>> build(int radius,
+        Collection<AirportData> airports) {
+        final SpatialIndex airportsIndex = new SpatialIndex();
+        airportsIndex.addAll(airports);
+
+        final Map<String, List<AirportData>> radiusNeighbors = new HashMap<>();
+        int radiusEntries = 0;
+        for (AirportData airport : airports) {
+            final List<AirportData> airportNeighbors = new ArrayList<>();
+            airportsIndex.forEachWithin(airport.getLatitude(),
+                airport.getLongitude(), radius, airportNeighbors::add);
+            radiusNeighbors.put(airport.getIata(), airportNeighbors);
+
+            radiusEntries += airportNeighbors.size();
+            if (radiusEntries > maximumEntries) {
+                return null;
+            }
+        }
+
+        return radiusNeighbors;
+    }
+
+    /**
+     * Installs the neighbors built for a radius (they must be built from the
+     * current airports).
+     * @param radius The radius materialized
+     * @param radiusNeighbors The neighbors built, or null if the radius
+     * exceeded the maximum number of entries (so it is discarded)
+     * @see #build(int, Collection)
+     */
+    public void install(int radius,
+        Map<String, List<AirportData>> radiusNeighbors) {
+        if (radiusNeighbors == null) {
+            discard(radius);
+            return;
+        }
+
+        int radiusEntries = 0;
+        for (List<AirportData> airportNeighbors : radiusNeighbors.values()) {
+            radiusEntries += airportNeighbors.size();
+        }
+        neighbors.put(radius, radiusNeighbors);
+        entries.put(radius, radiusEntries);
+    }
+
+    /**
+     * @param radius The radius
+     * @param callCount The number of calls of the radius
+     * @param totalCallCount The total number of calls
+     * @return true if the radius is requested enough to be materialized (or
+     * kept if it is already)
+     */
+    private boolean isRequested(int radius, int callCount,
+        int totalCallCount) {
+        final double factor = neighbors.containsKey(radius) ? KEEP_FACTOR : 1;
+        return callCount >= MINIMUM_CALLS * factor
+            && callCount >= totalCallCount * MINIMUM_CALL_SHARE * factor;
+    }
+
+    /**
+     * @param radius The radius to be discarded
+     */
+    private void discard(int radius) {
+        neighbors.remove(radius);
+        entries.remove(radius);
+        discarded.add(radius);
+    }
+
+    /**
+     * @param radius The radius of a query
+     * @return The key of the radius, or null if it can not be materialized
+     */
+    private static Integer toKey(double radius) {
+        return radius == Math.rint(radius) && radius <= Integer.MAX_VALUE
+            ? (int) radius : null;
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.example.trial.weather.repository;
+
+/**
+ * This enumeration represents the ways a radius query can be resolved.
+ * @see StaticRepositoryImpl#getAtmosphericInformation(String, Double)
+ * @author ignaciolarranaga@gmail.com
+ */
+public enum QueryPlan {
+
+    /**
+     * Only the cell of the airport is visited (a 0 radius).
+     */
+    POINT_LOOKUP,
+
+    /**
+     * The precomputed neighbors of the airport are walked.
+     * @see NeighborLists
+     */
+    NEIGHBOR_LIST,
+
+    /**
+     * The cells of the spatial index within the radius are visited.
+     * @see SpatialIndex#forEachWithin
+     */
+    INDEX_SCAN,
+
+    /**
+     * All the airports are scanned over their coordinate columns (in
+     * parallel for large catalogues).
+     * @see AirportColumns
+     */
+    COLUMNAR_SCAN
+
+}
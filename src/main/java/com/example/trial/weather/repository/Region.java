@@ -0,0 +1,213 @@
+package com.example.trial.weather.repository;
+
+/**
+ * This class represents a geographic region to be queried, given by its
+ * bounding box (used to find the candidate cells in the spatial index) and
+ * an exact containment test.
+ *
+ * The longitudes are in the range [-180, 180], a bounding box whose minimum
+ * longitude is greater than its maximum one crosses the antimeridian (e.g.
+ * from 170 to -170 covers 20 degrees).
+ * @author ignaciolarranaga@gmail.com
+ */
+public abstract class Region {
+
+    /**
+     * The minimum number of vertices of a polygon.
+     */
+    private static final int MINIMUM_POLYGON_VERTICES = 3;
+
+    /**
+     * The bounding box of the region.
+     */
+    private final double minimumLatitude;
+    private final double maximumLatitude;
+    private final double minimumLongitude;
+    private final double maximumLongitude;
+
+    private Region(double minimumLatitude, double maximumLatitude,
+        double minimumLongitude, double maximumLongitude) {
+        this.minimumLatitude = minimumLatitude;
+        this.maximumLatitude = maximumLatitude;
+        this.minimumLongitude = minimumLongitude;
+        this.maximumLongitude = maximumLongitude;
+    }
+
+    /**
+     * @param minimumLatitude The southern limit
+     * @param maximumLatitude The northern limit
+     * @param minimumLongitude The western limit
+     * @param maximumLongitude The eastern limit (lower than the western one
+     * if the box crosses the antimeridian)
+     * @return The region of the bounding box
+     * @throws IllegalArgumentException If the limits are out of range
+     */
+    public static Region boundingBox(double minimumLatitude,
+        double maximumLatitude, double minimumLongitude,
+        double maximumLongitude) {
+        validateLatitude(minimumLatitude);
+        validateLatitude(maximumLatitude);
+        validateLongitude(minimumLongitude);
+        validateLongitude(maximumLongitude);
+        if (minimumLatitude > maximumLatitude) {
+            throw new IllegalArgumentException("The minimum latitude "
+                + minimumLatitude + " is greater than the maximum one "
+                + maximumLatitude);
+        }
+
+        return new Region(minimumLatitude, maximumLatitude, minimumLongitude,
+            maximumLongitude) {
+            @Override
+            public boolean contains(double latitude, double longitude) {
+                return latitude >= getMinimumLatitude()
+                    && latitude <= getMaximumLatitude()
+                    && containsLongitude(longitude);
+            }
+        };
+    }
+
+    /**
+     * The edges of the polygon are straight lines in latitude/longitude
+     * coordinates (as drawn on a map), taking the shortest way between two
+     * consecutive vertices, so an edge may cross the antimeridian.
+     * @param vertices The vertices of the polygon as latitude and longitude
+     * pairs
+     * @return The region of the polygon
+     * @throws IllegalArgumentException If the polygon is invalid or it
+     * encloses a pole (not supported)
+     */
+    public static Region polygon(double[][] vertices) {
+        if (vertices == null || vertices.length < MINIMUM_POLYGON_VERTICES) {
+            throw new IllegalArgumentException("A polygon requires at least "
+                + MINIMUM_POLYGON_VERTICES + " vertices");
+        }
+
+        // The longitudes are unwrapped, so the edges crossing the
+        // antimeridian are continuous (the result may exceed [-180, 180])
+        final double[] latitudes = new double[vertices.length];
+        final double[] longitudes = new double[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            if (vertices[i] == null || vertices[i].length != 2) {
+                throw new IllegalArgumentException("The vertex " + i
+                    + " is not a latitude and longitude pair");
+            }
+            validateLatitude(vertices[i][0]);
+            validateLongitude(vertices[i][1]);
+
+            latitudes[i] = vertices[i][0];
+            longitudes[i] = i == 0 ? vertices[i][1] : longitudes[i - 1]
+                + SpatialIndex.normalizeLongitude(vertices[i][1] - vertices[i - 1][1]);
+        }
+
+        final double closing = longitudes[vertices.length - 1]
+            + SpatialIndex.normalizeLongitude(longitudes[0] - longitudes[vertices.length - 1]);
+        if (Math.abs(closing - longitudes[0]) > 180) {
+            throw new IllegalArgumentException("Polygons enclosing a pole are "
+                + "not supported");
+        }
+
+        double minimumLatitude = latitudes[0];
+        double maximumLatitude = latitudes[0];
+        double minimumLongitude = longitudes[0];
+        double maximumLongitude = longitudes[0];
+        for (int i = 1; i < vertices.length; i++) {
+            minimumLatitude = Math.min(minimumLatitude, latitudes[i]);
+            maximumLatitude = Math.max(maximumLatitude, latitudes[i]);
+            minimumLongitude = Math.min(minimumLongitude, longitudes[i]);
+            maximumLongitude = Math.max(maximumLongitude, longitudes[i]);
+        }
+        final boolean fullWidth = maximumLongitude - minimumLongitude >= 360;
+        double eastern = SpatialIndex.normalizeLongitude(maximumLongitude);
+        if (eastern == -180) {
+            eastern = 180;
+        }
+
+        return new Region(minimumLatitude, maximumLatitude,
+            fullWidth ? -180 : SpatialIndex.normalizeLongitude(minimumLongitude),
+            fullWidth ? 180 : eastern) {
+            @Override
+            public boolean contains(double latitude, double longitude) {
+                if (latitude < getMinimumLatitude()
+                    || latitude > getMaximumLatitude()) {
+                    return false;
+                }
+
+                // The point is tested on the unwrapped copies of its longitude
+                return containsUnwrapped(latitudes, longitudes, latitude, longitude)
+                    || containsUnwrapped(latitudes, longitudes, latitude, longitude + 360)
+                    || containsUnwrapped(latitudes, longitudes, latitude, longitude - 360);
+            }
+        };
+    }
+
+    /**
+     * @param latitude The latitude of the point
+     * @param longitude The longitude of the point
+     * @return true if the point is inside the region
+     */
+    public abstract boolean contains(double latitude, double longitude);
+
+    /**
+     * @param longitude A longitude in the range [-180, 180]
+     * @return true if the longitude is inside the bounding box
+     */
+    protected boolean containsLongitude(double longitude) {
+        if (minimumLongitude <= maximumLongitude) {
+            return longitude >= minimumLongitude && longitude <= maximumLongitude;
+        }
+
+        // Crossing the antimeridian
+        return longitude >= minimumLongitude || longitude <= maximumLongitude;
+    }
+
+    /**
+     * This is the even-odd rule (ray casting) test.
+     * @param latitudes The latitudes of the vertices
+     * @param longitudes The unwrapped longitudes of the vertices
+     * @param latitude The latitude of the point
+     * @param longitude The longitude of the point
+     * @return true if the point is inside the polygon
+     */
+    private static boolean containsUnwrapped(double[] latitudes,
+        double[] longitudes, double latitude, double longitude) {
+        boolean inside = false;
+        for (int i = 0, j = latitudes.length - 1; i < latitudes.length; j = i++) {
+            if ((latitudes[i] > latitude) != (latitudes[j] > latitude)
+                && longitude < (longitudes[j] - longitudes[i])
+                    * (latitude - latitudes[i]) / (latitudes[j] - latitudes[i])
+                    + longitudes[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private static void validateLatitude(double latitude) {
+        if (Double.isNaN(latitude) || latitude < -90 || latitude > 90) {
+            throw new IllegalArgumentException("Invalid latitude: " + latitude);
+        }
+    }
+
+    private static void validateLongitude(double longitude) {
+        if (Double.isNaN(longitude) || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Invalid longitude: " + longitude);
+        }
+    }
+
+    public double getMinimumLatitude() {
+        return minimumLatitude;
+    }
+
+    public double getMaximumLatitude() {
+        return maximumLatitude;
+    }
+
+    public double getMinimumLongitude() {
+        return minimumLongitude;
+    }
+
+    public double getMaximumLongitude() {
+        return maximumLongitude;
+    }
+
+}
@@ -1,12 +1,17 @@
 package com.example.trial.weather.repository;
 
 import com.example.trial.weather.exceptions.AirportNotFoundExcepition;
+import com.example.trial.weather.domain.AirportAtmosphericInformation;
 import com.example.trial.weather.domain.AirportData;
 import com.example.trial.weather.domain.AtmosphericInformation;
 import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.domain.DataPointAggregate;
 import com.example.trial.weather.exceptions.InvalidDataPointException;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * This interface represents the a repository for the service information.
@@ -26,6 +31,24 @@ public interface Repository {
      */
     void addAirport(AirportData airport);
 
+    /**
+     * Adds several airports to the repository at once (the ones already
+     * defined are not added).
+     * @param airports The airports to be added
+     * @return The airports not added because they were already defined, in
+     * the same order
+     */
+    List<AirportData> addAirports(List<AirportData> airports);
+
+    /**
+     * Bulk loads the airports (e.g. the catalogue on the startup), building
+     * the derived structures once at the end instead of per airport (the ones
+     * already defined are not loaded).
+     * @param airports The airports to be loaded
+     * @return The number of airports loaded
+     */
+    int loadAirports(Collection<AirportData> airports);
+
     /**
      * Deletes an airport from the repository.
      * @param iata The iata code to do the delete
@@ -57,8 +80,43 @@ public interface Repository {
      */
     Set<String> getAirportCodes();
 
+    /**
+     * Visits a page of the airports in order of iata code, without copying
+     * the whole catalogue nor blocking the writers (the airports added or
+     * removed meanwhile may or may not be visited).
+     * @param after The iata code after which the page starts (the last one
+     * of the previous page) or null for the first page
+     * @param limit The maximum number of airports to visit
+     * @param consumer The consumer of the airports
+     */
+    void forEachAirport(String after, int limit, Consumer<AirportData> consumer);
+
+    /**
+     * Finds the airports within the radius of the given one over the
+     * spatial index (it is not counted on the usage statistics).
+     * @param iata The iata code of the airport of interest
+     * @param radius (optional) The radius in KM around the airport, null
+     * means 0
+     * @return The airports within the radius, including the given one
+     * @throws AirportNotFoundExcepition If the given airport is not found
+     */
+    Set<AirportData> getAirportsWithin(String iata, Double radius)
+        throws AirportNotFoundExcepition;
+
     // AtmosphericInformation related methods
 
+    /**
+     * Returns the version of the atmospheric information of the given
+     * airports, i.e. the sequence of their last change (see
+     * #getAtmosphericInformationChanges(long, int)), so a result can be
+     * tagged without running the query. It is not counted on the usage
+     * statistics.
+     * @param airports The airports of interest
+     * @return A version increasing whenever the information of any of the
+     * airports changes
+     */
+    long getAtmosphericInformationVersion(Collection<AirportData> airports);
+
     /**
      * @param iata The iata code to do the search
      * @param radius (optional) Indicates the radius to get atmospheric
@@ -71,6 +129,89 @@ public interface Repository {
     Collection<AtmosphericInformation> getAtmosphericInformation(
         String iata, Double radius) throws AirportNotFoundExcepition;
 
+    /**
+     * Counts a call of #getAtmosphericInformation(String, Double) on the
+     * usage statistics without performing it (e.g. for a query answered with
+     * the result of an identical concurrent one).
+     * @param iata The iata code of the query
+     * @param radius (optional) The radius of the query
+     */
+    void countAtmosphericInformationCall(String iata, Double radius);
+
+    /**
+     * Performs several atmospheric information queries at once, with the
+     * same semantics (and usage statistics) of
+     * #getAtmosphericInformation(String, Double) for each airport found.
+     * @param iatas The iata codes of the airports to search
+     * @param radius The radius around the airports
+     * @return The atmospheric information of each airport in the same order
+     * of the iata codes, null for the airports not found
+     */
+    List<Collection<AtmosphericInformation>> getAtmosphericInformation(
+        List<String> iatas, Double radius);
+
+    /**
+     * Returns the airports whose atmospheric information changed (or that
+     * were removed) after the given cursor, so a mirror of the whole state
+     * can be kept up to date.
+     * @param since The cursor, i.e. the sequence returned by the previous
+     * call (0 for the first one)
+     * @param limit The maximum number of changes to return
+     * @return The changes after the cursor, or the resync required signal if
+     * they are no longer available
+     */
+    AtmosphericInformationChanges getAtmosphericInformationChanges(long since,
+        int limit);
+
+    /**
+     * Returns the airports nearest to the given one (including itself) with
+     * their atmospheric information, sorted by distance.
+     * @param iata The iata code of the airport of interest
+     * @param count The maximum number of airports to return
+     * @param withInformationOnly If only the airports with atmospheric
+     * information have to be considered
+     * @return The nearest airports with their atmospheric information (null
+     * for the airports without information)
+     * @throws AirportNotFoundExcepition If the given airport is not found
+     */
+    List<AirportAtmosphericInformation> getNearestAtmosphericInformation(
+        String iata, int count, boolean withInformationOnly)
+        throws AirportNotFoundExcepition;
+
+    /**
+     * Returns the atmospheric information of the airports inside the region.
+     * It is not counted on the usage statistics.
+     * @param region The region of interest
+     * @return The airports inside the region having atmospheric information,
+     * with their information
+     */
+    List<AirportAtmosphericInformation> getRegionAtmosphericInformation(
+        Region region);
+
+    /**
+     * Aggregates the atmospheric information of the airports within the
+     * radius of the given one, by data point type.
+     * It is not counted on the usage statistics.
+     * @param iata The iata code of the airport of interest
+     * @param radius The radius in KM to consider (null means 0)
+     * @return The aggregation of each data point type having information
+     * within the radius
+     * @throws AirportNotFoundExcepition If the given airport is not found
+     */
+    Map<DataPoint.Type, DataPointAggregate> getAggregatedAtmosphericInformation(
+        String iata, Double radius) throws AirportNotFoundExcepition;
+
+    /**
+     * Returns the atmospheric information of a single airport, unlike
+     * #getAtmosphericInformation(String, Double) it is not counted on the
+     * usage statistics.
+     * @param iata The iata code to do the search
+     * @return A snapshot of the current atmospheric information of the
+     * airport (not modified by the later updates) or null if there is no
+     * information for it
+     */
+    AtmosphericInformation getCurrentAtmosphericInformation(String iata);
+
     /**
      * @return All the current atmospheric information
      */
@@ -89,6 +230,18 @@ public interface Repository {
         DataPoint dataPoint)
         throws InvalidDataPointException, AirportNotFoundExcepition;
 
+    /**
+     * Registers a listener to be notified on every atmospheric information
+     * update.
+     * @param listener The listener to be added
+     */
+    void addListener(AtmosphericInformationListener listener);
+
+    /**
+     * @param listener The listener to be removed
+     */
+    void removeListener(AtmosphericInformationListener listener);
+
     // Statistics related methods
 
     /**
@@ -52,11 +52,19 @@ public class RepositoryUsageStatistics {
      */
     private final int[] radiusCallsHistogram;
 
+    /**
+     * The number of radius queries resolved with each plan.
+     * @see QueryPlan
+     */
+    private final Map<QueryPlan,Long> queryPlanCounts;
+
     public RepositoryUsageStatistics(int dataPointCount,
-        Map<String,Double> iataCallFrecuencies, int[] radiusCallsHistogram) {
+        Map<String,Double> iataCallFrecuencies, int[] radiusCallsHistogram,
+        Map<QueryPlan,Long> queryPlanCounts) {
         this.dataPointCount = dataPointCount;
         this.iataCallFrecuencies = iataCallFrecuencies;
         this.radiusCallsHistogram = radiusCallsHistogram;
+        this.queryPlanCounts = queryPlanCounts;
     }
 
     public final int getDataPointCount() {
@@ -71,4 +79,8 @@ public class RepositoryUsageStatistics {
         return radiusCallsHistogram;
     }
 
+    public final Map<QueryPlan,Long> getQueryPlanCounts() {
+        return queryPlanCounts;
+    }
+
 }
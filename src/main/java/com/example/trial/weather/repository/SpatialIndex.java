@@ -0,0 +1,486 @@
+package com.example.trial.weather.repository;
+
+import com.example.trial.weather.domain.AirportData;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * This is a spatial index of the airports based on a grid of latitude and
+ * longitude cells.
+ *
+ * The searches visit the cells in order of their minimum possible distance to
+ * the point of interest (computed exactly over the sphere), so they only
+ * compute the distance to the airports of the cells that may contain a
+ * result.
+ *
+ * It is not thread safe, it is guarded by the repository.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class SpatialIndex {
+
+    /**
+     * The default size of the cells.
+     */
+    public static final double DEFAULT_CELL_SIZE_IN_DEGREES = 1.0;
+
+    /**
+     * A tolerance subtracted from the minimum distance of the cells, so the
+     * floating point errors never exclude a cell containing a result.
+     */
+    private static final double DISTANCE_TOLERANCE_IN_KM = 1e-6;
+
+    /**
+     * The size of the cells in degrees.
+     */
+    private final double cellSize;
+
+    /**
+     * The number of cells in the latitude and longitude axis.
+     */
+    private final int latitudeCells;
+    private final int longitudeCells;
+
+    /**
+     * The airports by cell key (only the non empty cells are present).
+     */
+    private final Map<Integer, List<AirportData>> cells = new HashMap<>();
+
+    /**
+     * The number of airports indexed.
+     */
+    private int size;
+
+    public SpatialIndex() {
+        this(DEFAULT_CELL_SIZE_IN_DEGREES);
+    }
+
+    /**
+     * @param cellSize The size of the cells in degrees
+     */
+    public SpatialIndex(double cellSize) {
+        if (cellSize <= 0 || cellSize > 90) {
+            throw new IllegalArgumentException("Invalid cell size: " + cellSize);
+        }
+
+        this.cellSize = cellSize;
+        this.latitudeCells = (int) Math.ceil(180 / cellSize);
+        this.longitudeCells = (int) Math.ceil(360 / cellSize);
+    }
+
+    /**
+     * @param airport The airport to be indexed
+     */
+    public void add(AirportData airport) {
+        cells.computeIfAbsent(cellKey(airport.getLatitude(),
+            airport.getLongitude()), key -> new ArrayList<>()).add(airport);
+        size++;
+    }
+
+    /**
+     * Indexes several airports at once, sizing each cell exactly (e.g. for
+     * the initial load of the catalogue).
+     * @param airports The airports to be indexed
+     */
+    public void addAll(Collection<AirportData> airports) {
+        final Map<Integer, Integer> counts = new HashMap<>();
+        for (AirportData airport : airports) {
+            counts.merge(cellKey(airport.getLatitude(), airport.getLongitude()),
+                1, Integer::sum);
+        }
+
+        for (AirportData airport : airports) {
+            final int key = cellKey(airport.getLatitude(), airport.getLongitude());
+            cells.computeIfAbsent(key, k -> new ArrayList<>(counts.get(k)))
+                .add(airport);
+        }
+        size += airports.size();
+    }
+
+    /**
+     * @param airport The airport to be removed from the index
+     * @return true if the airport was indexed
+     */
+    public boolean remove(AirportData airport) {
+        final int key = cellKey(airport.getLatitude(), airport.getLongitude());
+        final List<AirportData> cell = cells.get(key);
+        if (cell == null) {
+            return false;
+        }
+
+        for (Iterator<AirportData> it = cell.iterator(); it.hasNext();) {
+            if (it.next().getIata().equals(airport.getIata())) {
+                it.remove();
+                size--;
+                if (cell.isEmpty()) {
+                    cells.remove(key);
+                }
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes all the airports from the index.
+     */
+    public void clear() {
+        cells.clear();
+        size = 0;
+    }
+
+    /**
+     * @return The number of airports indexed
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * This is a best-first search of the nearest airports: the cells are
+     * visited in order of their minimum distance to the point, keeping the k
+     * nearest airports found in a bounded priority queue, until the next cell
+     * can not contain an airport nearer than the k-th found.
+     * @param latitude The latitude of the point
+     * @param longitude The longitude of the point
+     * @param k The maximum number of airports to return
+     * @param filter The condition the airports have to satisfy
+     * @return The k (or less if there are not enough) nearest airports
+     * satisfying the filter, sorted by distance
+     */
+    public List<AirportData> nearest(double latitude, double longitude, int k,
+        Predicate<AirportData> filter) {
+        if (k <= 0 || size == 0) {
+            return new ArrayList<>();
+        }
+
+        // The k nearest airports found, the farthest on top
+        final PriorityQueue<Neighbor> nearest = new PriorityQueue<>(k,
+            Comparator.comparingDouble((Neighbor neighbor) -> neighbor.distance)
+                .reversed());
+
+        // The cells to be visited, the nearest on top
+        final PriorityQueue<Neighbor> frontier = new PriorityQueue<>(
+            Comparator.comparingDouble((Neighbor neighbor) -> neighbor.distance));
+        final Set<Integer> visited = new HashSet<>();
+
+        final int startCell = cellKey(latitude, longitude);
+        visited.add(startCell);
+        frontier.add(new Neighbor(startCell, 0));
+
+        while (!frontier.isEmpty()) {
+            final Neighbor cell = frontier.poll();
+            if (nearest.size() == k && cell.distance > nearest.peek().distance) {
+                // Neither this cell nor the following can improve the result
+                break;
+            }
+
+            for (AirportData airport : cells.getOrDefault(cell.key,
+                Collections.emptyList())) {
+                if (!filter.test(airport)) {
+                    continue;
+                }
+
+                final double distance = AirportData.distance(latitude,
+                    longitude, airport.getLatitude(), airport.getLongitude());
+                if (nearest.size() < k) {
+                    nearest.add(new Neighbor(airport, distance));
+                } else if (distance < nearest.peek().distance) {
+                    nearest.poll();
+                    nearest.add(new Neighbor(airport, distance));
+                }
+            }
+
+            for (int neighborCell : neighborCells(cell.key)) {
+                if (visited.add(neighborCell)) {
+                    frontier.add(new Neighbor(neighborCell, minimumDistance(
+                        latitude, longitude, neighborCell)));
+                }
+            }
+        }
+
+        final List<AirportData> result = new ArrayList<>(nearest.size());
+        while (!nearest.isEmpty()) {
+            result.add(nearest.poll().airport);
+        }
+        Collections.reverse(result);
+
+        return result;
+    }
+
+    /**
+     * Visits the airports within a distance of the point, the cells are
+     * flooded from the one containing the point while they may contain an
+     * airport within the distance.
+     * @param latitude The latitude of the point
+     * @param longitude The longitude of the point
+     * @param radius The maximum distance in KM
+     * @param consumer The consumer of the airports within the distance
+     */
+    public void forEachWithin(double latitude, double longitude, double radius,
+        Consumer<AirportData> consumer) {
+        floodWithin(latitude, longitude, radius, key -> {
+            for (AirportData airport : cells.getOrDefault(key,
+                Collections.emptyList())) {
+                if (AirportData.distance(latitude, longitude,
+                    airport.getLatitude(), airport.getLongitude()) <= radius) {
+                    consumer.accept(airport);
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Estimates the number of airports within a distance of the point, as
+     * the number of airports of the cells that may contain them (so it is an
+     * upper bound), without calculating the distance to the airports.
+     * @param latitude The latitude of the point
+     * @param longitude The longitude of the point
+     * @param radius The maximum distance in KM
+     * @param maximumCells The maximum number of cells to visit, if exceeded
+     * the estimation is the number of airports indexed
+     * @return The estimated number of airports within the distance
+     */
+    public int estimateWithin(double latitude, double longitude, double radius,
+        int maximumCells) {
+        final int[] estimation = {0};
+        final int[] visitedCells = {0};
+        floodWithin(latitude, longitude, radius, key -> {
+            if (++visitedCells[0] > maximumCells) {
+                estimation[0] = size;
+                return false;
+            }
+
+            final List<AirportData> cell = cells.get(key);
+            if (cell != null) {
+                estimation[0] += cell.size();
+            }
+            return true;
+        });
+
+        return Math.min(estimation[0], size);
+    }
+
+    /**
+     * Visits the cells that may contain a point within the distance, flooding
+     * them from the one containing the point.
+     * @param latitude The latitude of the point
+     * @param longitude The longitude of the point
+     * @param radius The maximum distance in KM
+     * @param visitor The visitor of the cell keys, it returns false to stop
+     */
+    private void floodWithin(double latitude, double longitude, double radius,
+        IntPredicate visitor) {
+        if (size == 0) {
+            return;
+        }
+
+        final List<Integer> pending = new ArrayList<>();
+        final Set<Integer> visited = new HashSet<>();
+
+        final int startCell = cellKey(latitude, longitude);
+        visited.add(startCell);
+        pending.add(startCell);
+
+        while (!pending.isEmpty()) {
+            final int key = pending.remove(pending.size() - 1);
+            if (!visitor.test(key)) {
+                return;
+            }
+
+            for (int neighborCell : neighborCells(key)) {
+                if (visited.add(neighborCell) && minimumDistance(latitude,
+                    longitude, neighborCell) <= radius) {
+                    pending.add(neighborCell);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits the airports inside the region, only the cells intersecting its
+     * bounding box are considered.
+     * @param region The region of interest
+     * @param consumer The consumer of the airports inside the region
+     */
+    public void forEachInRegion(Region region, Consumer<AirportData> consumer) {
+        final int firstLatitudeCell = latitudeCell(region.getMinimumLatitude());
+        final int lastLatitudeCell = latitudeCell(region.getMaximumLatitude());
+
+        // The longitude cells from the western to the eastern limit, wrapping
+        // around the antimeridian if needed
+        final int firstLongitudeCell = longitudeCell(region.getMinimumLongitude());
+        double width = region.getMaximumLongitude() - region.getMinimumLongitude();
+        if (width < 0) {
+            width += 360;
+        }
+        final int longitudeCellCount = Math.min(longitudeCells,
+            (int) Math.floor((region.getMinimumLongitude() + 180 + width) / cellSize)
+                - (int) Math.floor((region.getMinimumLongitude() + 180) / cellSize) + 1);
+
+        for (int latitudeCell = firstLatitudeCell; latitudeCell <= lastLatitudeCell;
+            latitudeCell++) {
+            for (int i = 0; i < longitudeCellCount; i++) {
+                final List<AirportData> cell = cells.get(cellKey(latitudeCell,
+                    (firstLongitudeCell + i) % longitudeCells));
+                if (cell == null) {
+                    continue;
+                }
+
+                for (AirportData airport : cell) {
+                    if (region.contains(airport.getLatitude(),
+                        airport.getLongitude())) {
+                        consumer.accept(airport);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param latitude The latitude in degrees
+     * @param longitude The longitude in degrees
+     * @return The key of the cell containing the point
+     */
+    int cellKey(double latitude, double longitude) {
+        return cellKey(latitudeCell(latitude), longitudeCell(longitude));
+    }
+
+    private int cellKey(int latitudeCell, int longitudeCell) {
+        return latitudeCell * longitudeCells + longitudeCell;
+    }
+
+    private int latitudeCell(double latitude) {
+        return Math.max(0, Math.min(latitudeCells - 1,
+            (int) Math.floor((latitude + 90) / cellSize)));
+    }
+
+    private int longitudeCell(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellSize),
+            longitudeCells);
+    }
+
+    /**
+     * @param key The key of a cell
+     * @return The keys of the adjacent cells, wrapping around the
+     * antimeridian, the cells touching the poles are adjacent to the other
+     * cells touching the same pole
+     */
+    private List<Integer> neighborCells(int key) {
+        final int latitudeCell = key / longitudeCells;
+        final int longitudeCell = key % longitudeCells;
+        final List<Integer> neighbors = new ArrayList<>(8);
+
+        for (int latitudeOffset = -1; latitudeOffset <= 1; latitudeOffset++) {
+            final int neighborLatitudeCell = latitudeCell + latitudeOffset;
+            if (neighborLatitudeCell < 0 || neighborLatitudeCell >= latitudeCells) {
+                continue;
+            }
+
+            for (int longitudeOffset = -1; longitudeOffset <= 1; longitudeOffset++) {
+                if (latitudeOffset != 0 || longitudeOffset != 0) {
+                    neighbors.add(cellKey(neighborLatitudeCell, Math.floorMod(
+                        longitudeCell + longitudeOffset, longitudeCells)));
+                }
+            }
+        }
+
+        if (latitudeCell == 0 || latitudeCell == latitudeCells - 1) {
+            for (int other = 0; other < longitudeCells; other++) {
+                neighbors.add(cellKey(latitudeCell, other));
+            }
+        }
+
+        return neighbors;
+    }
+
+    /**
+     * @param latitude The latitude of the point
+     * @param longitude The longitude of the point
+     * @param key The key of a cell
+     * @return The minimum distance in KM from the point to any point of the
+     * cell (minus a small tolerance)
+     */
+    double minimumDistance(double latitude, double longitude, int key) {
+        final double minimumLatitude = -90 + (key / longitudeCells) * cellSize;
+        final double maximumLatitude = Math.min(90, minimumLatitude + cellSize);
+        final double minimumLongitude = -180 + (key % longitudeCells) * cellSize;
+
+        // The longitude difference to the nearest meridian side of the cell
+        final double offset = normalizeLongitude(longitude - minimumLongitude);
+        final double deltaLongitude = offset >= 0 && offset <= cellSize ? 0
+            : Math.min(Math.abs(offset),
+                Math.abs(normalizeLongitude(offset - cellSize)));
+
+        // The nearest point of a meridian is where the great circle
+        // perpendicular to it from the point crosses it, or the pole when the
+        // meridian is more than 90 degrees away
+        final double nearestLatitude;
+        if (deltaLongitude == 0) {
+            nearestLatitude = latitude;
+        } else if (deltaLongitude < 90) {
+            nearestLatitude = Math.toDegrees(Math.atan(
+                Math.tan(Math.toRadians(latitude))
+                    / Math.cos(Math.toRadians(deltaLongitude))));
+        } else {
+            nearestLatitude = latitude >= 0 ? 90 : -90;
+        }
+
+        final double distance = AirportData.distance(latitude, 0,
+            Math.max(minimumLatitude, Math.min(maximumLatitude, nearestLatitude)),
+            deltaLongitude);
+        return Math.max(0, distance - DISTANCE_TOLERANCE_IN_KM);
+    }
+
+    /**
+     * @param longitude A longitude difference in degrees
+     * @return The same longitude difference in the range [-180, 180)
+     */
+    static double normalizeLongitude(double longitude) {
+        double normalized = (longitude + 180) % 360;
+        if (normalized < 0) {
+            normalized += 360;
+        }
+        return normalized - 180;
+    }
+
+    /**
+     * This class represents a candidate of a search (an airport or a cell)
+     * and its distance to the point of interest.
+     */
+    private static class Neighbor {
+
+        private final AirportData airport;
+
+        private final int key;
+
+        private final double distance;
+
+        Neighbor(AirportData airport, double distance) {
+            this.airport = airport;
+            this.key = -1;
+            this.distance = distance;
+        }
+
+        Neighbor(int key, double distance) {
+            this.airport = null;
+            this.key = key;
+            this.distance = distance;
+        }
+
+    }
+
+}
@@ -1,34 +1,126 @@
 package com.example.trial.weather.repository;
 
 import com.example.trial.weather.exceptions.AirportNotFoundExcepition;
+import com.example.trial.weather.domain.AirportAtmosphericInformation;
 import com.example.trial.weather.domain.AirportData;
 import com.example.trial.weather.domain.AtmosphericInformation;
 import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.domain.DataPointAggregate;
 import com.example.trial.weather.exceptions.InvalidDataPointException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * This is an implementation of the repository using static fields and
- * synchronized methods to be thread safe.
+ * synchronized methods to be thread safe (the airports catalogue is a
+ * concurrent map, so it can also be read without holding the lock).
  * @author ignaciolarranaga@gmail.com
  */
 public class StaticRepositoryImpl implements Repository {
 
+    /**
+     * The log of the atmospheric information changes.
+     */
+    private static ChangeLog changeLog = new ChangeLog();
+
     /**
      * The atmospheric information for each airport.
      */
     private static Map<String, AtmosphericInformation> atmosphericInformation = new HashMap<>();
 
     /**
-     * The airports information.
+     * The airports information by iata code, sorted so the catalogue can be
+     * paginated and iterated (weakly consistent) without holding the lock.
+     */
+    private static ConcurrentNavigableMap<String, AirportData> airports =
+        new ConcurrentSkipListMap<>();
+
+    /**
+     * The spatial index of the airports.
+     */
+    private static SpatialIndex airportIndex = new SpatialIndex();
+
+    /**
+     * The precomputed neighbors of the airports for the most requested
+     * radii.
+     */
+    private static NeighborLists neighborLists = new NeighborLists(airportIndex);
+
+    /**
+     * The number of calls between the updates of the materialized radii.
+     */
+    private static final int NEIGHBOR_LISTS_UPDATE_INTERVAL = 1000;
+
+    /**
+     * The number of calls of each exact integer radius since the last update
+     * of the materialized radii (the histogram rounds and caps the radii, so
+     * it can not be used to choose them).
+     */
+    private static Map<Integer, Integer> recentRadiusCallCounters = new HashMap<>();
+
+    /**
+     * The executor building the neighbors of the new materialized radii
+     * without holding the lock.
+     */
+    private static final ExecutorService neighborListsBuilder =
+        Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "neighbor-lists-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    /**
+     * If the neighbors of new radii are being built.
+     */
+    private static boolean neighborListsBuilding;
+
+    /**
+     * If the most requested radii are materialized.
+     */
+    private static boolean neighborListsEnabled = true;
+
+    /**
+     * The version of the airports catalogue, increased on every change (so
+     * the neighbors built from a previous version are not installed).
+     */
+    private static long catalogueVersion;
+
+    /**
+     * The columnar snapshot of the airports for the full scans (null when it
+     * has to be rebuilt after a change).
+     */
+    private static AirportColumns airportColumns;
+
+    /**
+     * The maximum estimated share of the airports within the radius for a
+     * query to be resolved over the spatial index instead of a full scan.
+     */
+    private static final double INDEX_SCAN_MAXIMUM_SELECTIVITY = 0.25;
+
+    /**
+     * The maximum number of cells visited to estimate the selectivity of a
+     * query (beyond that the query is considered not selective).
+     */
+    private static final int SELECTIVITY_ESTIMATION_MAXIMUM_CELLS = 4096;
+
+    /**
+     * The number of queries resolved with each plan.
      */
-    private static Set<AirportData> airports = new HashSet<>();
+    private static Map<QueryPlan, Long> queryPlanCounters =
+        new EnumMap<>(QueryPlan.class);
 
     /**
      * This is a map containing the counters for all the IATA calls received.
@@ -48,6 +140,12 @@ public class StaticRepositoryImpl implements Repository {
      */
     private static int totalCallCount = 0;
 
+    /**
+     * The listeners notified on each atmospheric information update.
+     */
+    private static List<AtmosphericInformationListener> listeners =
+        new CopyOnWriteArrayList<>();
+
     /**
      * Adds an airport to the container.
      * @param airport The airport to be added
@@ -55,7 +153,60 @@ public class StaticRepositoryImpl implements Repository {
      */
     @Override
     public synchronized void addAirport(AirportData airport) {
-        airports.add(airport);
+        if (airports.putIfAbsent(airport.getIata(), airport) == null) {
+            airportIndex.add(airport);
+            neighborLists.add(airport);
+            airportColumns = null;
+            catalogueVersion++;
+        }
+    }
+
+    /**
+     * Adds several airports to the container under a single lock.
+     * @param newAirports The airports to be added
+     * @return The airports already defined
+     * @see Repository#addAirports(List)
+     */
+    @Override
+    public synchronized List<AirportData> addAirports(List<AirportData> newAirports) {
+        final List<AirportData> rejected = new ArrayList<>();
+        for (AirportData airport : newAirports) {
+            if (airports.putIfAbsent(airport.getIata(), airport) != null) {
+                rejected.add(airport);
+                continue;
+            }
+
+            airportIndex.add(airport);
+            neighborLists.add(airport);
+        }
+        airportColumns = null;
+        catalogueVersion++;
+        return rejected;
+    }
+
+    /**
+     * Loads the airports into the container and indexes them at once. The
+     * materialized radii are dropped, they are chosen again (over the whole
+     * catalogue) on the next update.
+     * @param newAirports The airports to be loaded
+     * @return The number of airports loaded
+     * @see Repository#loadAirports(Collection)
+     */
+    @Override
+    public synchronized int loadAirports(Collection<AirportData> newAirports) {
+        final List<AirportData> loaded = new ArrayList<>(newAirports.size());
+        for (AirportData airport : newAirports) {
+            if (airports.putIfAbsent(airport.getIata(), airport) == null) {
+                loaded.add(airport);
+            }
+        }
+
+        airportIndex.addAll(loaded);
+        neighborLists.clear();
+        neighborListsEnabled = true;
+        airportColumns = null;
+        catalogueVersion++;
+        return loaded.size();
     }
 
     /**
@@ -67,12 +218,14 @@ public class StaticRepositoryImpl implements Repository {
      */
     @Override
     public synchronized void removeAirport(String iata) throws AirportNotFoundExcepition {
-        for (Iterator<AirportData> it = airports.iterator(); it.hasNext();) {
-            AirportData data = it.next();
-            if (data.getIata().equals(iata)) {
-                it.remove();
-                return;
-            }
+        AirportData data = airports.remove(iata);
+        if (data != null) {
+            airportIndex.remove(data);
+            neighborLists.remove(data);
+            airportColumns = null;
+            catalogueVersion++;
+            changeLog.record(data);
+            return;
         }
 
         throw new AirportNotFoundExcepition("The airport " + iata +
@@ -85,10 +238,8 @@ public class StaticRepositoryImpl implements Repository {
      * @see Repository#getAirport(String)
      */
     @Override
-    public synchronized AirportData getAirport(String iata) {
-        return airports.stream()
-            .filter(ap -> ap.getIata().equals(iata))
-            .findFirst().orElse(null);
+    public AirportData getAirport(String iata) {
+        return iata != null ? airports.get(iata) : null;
     }
 
     /**
@@ -97,10 +248,8 @@ public class StaticRepositoryImpl implements Repository {
      * @see Repository#containsAirport(String)
      */
     @Override
-    public synchronized boolean containsAirport(String iata) {
-        return airports.stream()
-            .map(a -> a.getIata())
-            .anyMatch(c -> c.equals(iata));
+    public boolean containsAirport(String iata) {
+        return iata != null && airports.containsKey(iata);
     }
 
     /**
@@ -108,8 +257,8 @@ public class StaticRepositoryImpl implements Repository {
      * @see Repository#getAirports()
      */
     @Override
-    public synchronized Set<AirportData> getAirports() {
-        return new HashSet<>(airports);
+    public Set<AirportData> getAirports() {
+        return new HashSet<>(airports.values());
     }
 
     /**
@@ -117,14 +266,73 @@ public class StaticRepositoryImpl implements Repository {
      * @see Repository#getAirportCodes() 
      */
     @Override
-    public synchronized Set<String> getAirportCodes() {
-        return airports.stream()
-            .map(a -> a.getIata())
-            .collect(Collectors.toSet());
+    public Set<String> getAirportCodes() {
+        return new HashSet<>(airports.keySet());
+    }
+
+    /**
+     * Iterates the airports without holding the lock, so the concurrent
+     * changes may or may not be visited (but it never fails because of them).
+     * @param after The iata code after which to start (null for the first)
+     * @param limit The maximum number of airports to visit
+     * @param consumer The consumer of the airports, in order of iata code
+     * @see Repository#forEachAirport(String, int, Consumer)
+     */
+    @Override
+    public void forEachAirport(String after, int limit,
+        Consumer<AirportData> consumer) {
+        int count = 0;
+        for (AirportData airport : (after != null
+            ? airports.tailMap(after, false) : airports).values()) {
+            if (count++ == limit) {
+                return;
+            }
+            consumer.accept(airport);
+        }
+    }
+
+    /**
+     * @param iata The iata code of the airport of interest
+     * @param radius The radius around the airport (null means 0)
+     * @return The airports within the radius found over the spatial index
+     * @throws AirportNotFoundExcepition If the airport is not in the repository
+     * @see Repository#getAirportsWithin(String, Double)
+     */
+    @Override
+    public synchronized Set<AirportData> getAirportsWithin(String iata,
+        Double radius) throws AirportNotFoundExcepition {
+        AirportData airport = getAirport(iata);
+
+        if (airport == null) {
+            throw new AirportNotFoundExcepition("The airport " + iata +
+                " was not found", iata);
+        }
+
+        final Set<AirportData> result = new HashSet<>();
+        airportIndex.forEachWithin(airport.getLatitude(),
+            airport.getLongitude(), radius != null ? radius : 0.0, result::add);
+        return result;
+    }
+
+    /**
+     * @param airports The airports of interest
+     * @return The sequence of the last change of the airports on the change
+     * log
+     * @see Repository#getAtmosphericInformationVersion(Collection)
+     */
+    @Override
+    public synchronized long getAtmosphericInformationVersion(
+        Collection<AirportData> airports) {
+        long version = 0;
+        for (AirportData airport : airports) {
+            version = Math.max(version, changeLog.getSequence(airport.getIata()));
+        }
+        return version;
     }
 
     /**
-     * Filters the container for the specific data and performs the query.
+     * Finds the airports within the radius (with the plan chosen by the
+     * query planner) and returns their data.
      * This method also counts a call for the usage statistics.
      * @param iata The iata code of the airport to search
      * @param radius The radius around the airport.
@@ -144,19 +352,270 @@ public class StaticRepositoryImpl implements Repository {
 
         increaseCallCounters(iata, radius);
 
-        return airports.stream()
-            // Filtering only airports within the indicated radious
-            .filter(other -> airport.distance(other) <=
-                // Null raidous means 0, i.e only the same airport
-                (radius != null ? radius : 0.0))
-            // Filtering only airports with data
-            .filter(other ->
-                atmosphericInformation.containsKey(other.getIata()))
-            // Obtaining the data
-            .map(other -> atmosphericInformation.get(other.getIata()))
+        // Null raidous means 0, i.e only the same airport
+        return getAtmosphericInformation(findWithin(airport,
+            radius != null ? radius : 0.0));
+    }
+
+    /**
+     * Resolves all the queries holding the repository lock once, the
+     * airports within the radius are found over the spatial index.
+     * @param iatas The iata codes of the airports to search
+     * @param radius The radius around the airports
+     * @return The atmospheric information of each airport or null if it was
+     * not found
+     * @see Repository#getAtmosphericInformation(List, Double)
+     */
+    @Override
+    public synchronized List<Collection<AtmosphericInformation>> getAtmosphericInformation(
+        List<String> iatas, Double radius) {
+        final List<Collection<AtmosphericInformation>> result =
+            new ArrayList<>(iatas.size());
+        for (String iata : iatas) {
+            AirportData airport = getAirport(iata);
+            if (airport == null) {
+                result.add(null);
+                continue;
+            }
+
+            increaseCallCounters(iata, radius);
+
+            result.add(getAtmosphericInformation(findWithin(airport,
+                radius != null ? radius : 0.0)));
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds the airports within the radius with the plan estimated to be
+     * the cheapest, counting it on the plan metrics.
+     * @param airport The airport of interest
+     * @param radius The radius around the airport
+     * @return The airports within the radius of the given one
+     */
+    private List<AirportData> findWithin(AirportData airport, double radius) {
+        final QueryPlan plan = plan(airport, radius);
+        queryPlanCounters.put(plan, queryPlanCounters.getOrDefault(plan, 0L) + 1);
+
+        if (plan == QueryPlan.NEIGHBOR_LIST) {
+            return neighborLists.get(airport.getIata(), radius);
+        }
+
+        final List<AirportData> result = new ArrayList<>();
+        if (plan == QueryPlan.COLUMNAR_SCAN) {
+            if (airportColumns == null) {
+                airportColumns = new AirportColumns(airports.values());
+            }
+            airportColumns.forEachWithin(airport.getLatitude(),
+                airport.getLongitude(), radius, result::add);
+        } else {
+            airportIndex.forEachWithin(airport.getLatitude(),
+                airport.getLongitude(), radius, result::add);
+        }
+        return result;
+    }
+
+    /**
+     * This is the query planner: a 0 radius is a point lookup, then the
+     * materialized radii are preferred, otherwise the selectivity is
+     * estimated from the number of airports of the index cells within the
+     * radius, so the spatial index is used only while it is expected to
+     * discard most of the airports.
+     * @param airport The airport of interest
+     * @param radius The radius around the airport
+     * @return The plan to find the airports within the radius
+     */
+    private QueryPlan plan(AirportData airport, double radius) {
+        if (radius == 0) {
+            return QueryPlan.POINT_LOOKUP;
+        }
+
+        if (neighborLists.get(airport.getIata(), radius) != null) {
+            return QueryPlan.NEIGHBOR_LIST;
+        }
+
+        final int estimation = airportIndex.estimateWithin(airport.getLatitude(),
+            airport.getLongitude(), radius, SELECTIVITY_ESTIMATION_MAXIMUM_CELLS);
+        return estimation <= airportIndex.size() * INDEX_SCAN_MAXIMUM_SELECTIVITY
+            ? QueryPlan.INDEX_SCAN : QueryPlan.COLUMNAR_SCAN;
+    }
+
+    /**
+     * @param airports Some airports
+     * @return The atmospheric information of the airports having it
+     */
+    private List<AtmosphericInformation> getAtmosphericInformation(
+        List<AirportData> airports) {
+        List<AtmosphericInformation> result = new ArrayList<>();
+        for (AirportData airport : airports) {
+            AtmosphericInformation information =
+                atmosphericInformation.get(airport.getIata());
+            if (information != null) {
+                result.add(information);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Serves the changes from the change log, the information returned is
+     * the current one of each airport.
+     * @param since The cursor of the previous call (0 for the first one)
+     * @param limit The maximum number of changes to return
+     * @return The changes after the cursor
+     * @see Repository#getAtmosphericInformationChanges(long, int)
+     */
+    @Override
+    public synchronized AtmosphericInformationChanges getAtmosphericInformationChanges(
+        long since, int limit) {
+        if (changeLog.isResyncRequired(since)) {
+            return new AtmosphericInformationChanges(changeLog.getSequence(),
+                true, false, new ArrayList<>());
+        }
+
+        final List<AirportAtmosphericInformation> changes = new ArrayList<>();
+        final long[] last = {since};
+        final boolean[] more = {false};
+        changeLog.forEachSince(since, (sequence, airport) -> {
+            if (changes.size() == limit) {
+                more[0] = true;
+                return false;
+            }
+
+            // The removed airports are informed without information
+            changes.add(new AirportAtmosphericInformation(airport,
+                airport.equals(airports.get(airport.getIata()))
+                    ? atmosphericInformation.get(airport.getIata()) : null));
+            last[0] = sequence;
+            return true;
+        });
+
+        return new AtmosphericInformationChanges(more[0] ? last[0]
+            : changeLog.getSequence(), false, more[0], changes);
+    }
+
+    /**
+     * Performs a k-nearest search over the spatial index.
+     * @param iata The iata code of the airport of interest
+     * @param count The maximum number of airports to return
+     * @param withInformationOnly If only the airports with atmospheric
+     * information have to be considered
+     * @return The nearest airports with their atmospheric information
+     * @throws AirportNotFoundExcepition If the airport is not in the repository
+     * @see Repository#getNearestAtmosphericInformation(String, int, boolean)
+     */
+    @Override
+    public synchronized List<AirportAtmosphericInformation> getNearestAtmosphericInformation(
+        String iata, int count, boolean withInformationOnly)
+        throws AirportNotFoundExcepition {
+        AirportData airport = getAirport(iata);
+
+        if (airport == null) {
+            throw new AirportNotFoundExcepition("The airport " + iata +
+                "was not found", iata);
+        }
+
+        return airportIndex.nearest(airport.getLatitude(),
+            airport.getLongitude(), count, other -> !withInformationOnly
+                || atmosphericInformation.containsKey(other.getIata()))
+            .stream()
+            .map(other -> new AirportAtmosphericInformation(other,
+                atmosphericInformation.get(other.getIata())))
             .collect(Collectors.toList());
     }
 
+    /**
+     * Visits the candidate cells of the region on the spatial index.
+     * @param region The region of interest
+     * @return The airports inside the region with atmospheric information
+     * @see Repository#getRegionAtmosphericInformation(Region)
+     */
+    @Override
+    public synchronized List<AirportAtmosphericInformation> getRegionAtmosphericInformation(
+        Region region) {
+        List<AirportAtmosphericInformation> result = new ArrayList<>();
+        airportIndex.forEachInRegion(region, airport -> {
+            AtmosphericInformation information =
+                atmosphericInformation.get(airport.getIata());
+            if (information != null) {
+                result.add(new AirportAtmosphericInformation(airport,
+                    information));
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Streams the airports within the radius over the spatial index, feeding
+     * one aggregator per data point type (no intermediate collection).
+     * @param iata The iata code of the airport of interest
+     * @param radius The radius in KM to consider (null means 0)
+     * @return The aggregation of each data point type having information
+     * @throws AirportNotFoundExcepition If the given airport is not found
+     * @see Repository#getAggregatedAtmosphericInformation(String, Double)
+     */
+    @Override
+    public synchronized Map<DataPoint.Type, DataPointAggregate> getAggregatedAtmosphericInformation(
+        String iata, Double radius) throws AirportNotFoundExcepition {
+        AirportData airport = getAirport(iata);
+
+        if (airport == null) {
+            throw new AirportNotFoundExcepition("The airport " + iata +
+                "was not found", iata);
+        }
+
+        final Map<DataPoint.Type, DataPointAggregator> aggregators =
+            new EnumMap<>(DataPoint.Type.class);
+        airportIndex.forEachWithin(airport.getLatitude(),
+            airport.getLongitude(), radius != null ? radius : 0.0, other -> {
+                AtmosphericInformation information =
+                    atmosphericInformation.get(other.getIata());
+                if (information == null) {
+                    return;
+                }
+
+                for (DataPoint.Type type : DataPoint.Type.values()) {
+                    DataPoint dataPoint = information.getDataPoint(type);
+                    if (dataPoint != null) {
+                        aggregators.computeIfAbsent(type,
+                            key -> new DataPointAggregator()).add(dataPoint);
+                    }
+                }
+            });
+
+        final Map<DataPoint.Type, DataPointAggregate> result =
+            new EnumMap<>(DataPoint.Type.class);
+        aggregators.forEach((type, aggregator) ->
+            result.put(type, aggregator.getAggregate()));
+
+        return result;
+    }
+
+    /**
+     * @param iata The iata code of the query
+     * @param radius The radius of the query
+     * @see Repository#countAtmosphericInformationCall(String, Double)
+     */
+    @Override
+    public synchronized void countAtmosphericInformationCall(String iata,
+        Double radius) {
+        increaseCallCounters(iata, radius);
+    }
+
+    /**
+     * @param iata The iata code of the airport to search
+     * @return A copy of the atmospheric information of the airport or null
+     * @see Repository#getCurrentAtmosphericInformation(String)
+     */
+    @Override
+    public synchronized AtmosphericInformation getCurrentAtmosphericInformation(
+        String iata) {
+        final AtmosphericInformation current = atmosphericInformation.get(iata);
+        return current != null ? current.copy() : null;
+    }
+
     /**
      * @return A collection of all the atmospheric information
      * @see Repository#getAllAtmosphericInformation() 
@@ -168,7 +627,8 @@ public class StaticRepositoryImpl implements Repository {
 
     /**
      * This method performs validations and delegates to the corresponding
-     * atmospheric information object.
+     * atmospheric information object, then notifies the listeners once the
+     * lock is released.
      * @param iata The iata code of the airport to update the information
      * @param type The type of data point
      * @param dataPoint The data point to be added
@@ -178,19 +638,53 @@ public class StaticRepositoryImpl implements Repository {
      * @see Repository#updateAtmosphericInformation(String, DataPoint.Type, DataPoint)
      */
     @Override
-    public synchronized void updateAtmosphericInformation(String iata,
+    public void updateAtmosphericInformation(String iata,
         DataPoint.Type type, DataPoint dataPoint)
         throws InvalidDataPointException, AirportNotFoundExcepition {
-        if (getAirport(iata) == null) {
+        AirportData airport = getAirport(iata);
+        if (airport == null) {
             throw new AirportNotFoundExcepition("The airport " + iata +
                 "was not found", iata);
         }
 
-        if (! atmosphericInformation.containsKey(iata)) {
-            atmosphericInformation.put(iata, new AtmosphericInformation());
+        final AtmosphericInformation updated;
+        synchronized (this) {
+            if (! atmosphericInformation.containsKey(iata)) {
+                atmosphericInformation.put(iata, new AtmosphericInformation());
+            }
+
+            final AtmosphericInformation current = atmosphericInformation.get(iata);
+            current.update(type, dataPoint);
+            changeLog.record(airport);
+
+            // The listeners get a snapshot taken under the lock, so the
+            // concurrent updates are not seen while they process it
+            updated = current.copy();
         }
 
-        atmosphericInformation.get(iata).update(type, dataPoint);
+        // The listeners are notified out of the lock (the list is copied on
+        // write, so the iteration is over a snapshot of it)
+        for (AtmosphericInformationListener listener : listeners) {
+            listener.onUpdate(airport, updated);
+        }
+    }
+
+    /**
+     * @param listener The listener to be added
+     * @see Repository#addListener(AtmosphericInformationListener)
+     */
+    @Override
+    public void addListener(AtmosphericInformationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener The listener to be removed
+     * @see Repository#removeListener(AtmosphericInformationListener)
+     */
+    @Override
+    public void removeListener(AtmosphericInformationListener listener) {
+        listeners.remove(listener);
     }
 
     /**
@@ -210,7 +704,7 @@ public class StaticRepositoryImpl implements Repository {
             .mapToInt(ai -> ai.getNotNullDataPointCount())
             .sum();
 
-        Map<String, Double> freq = airports.stream()
+        Map<String, Double> freq = airports.values().stream()
         // Mapping each IATA counter to its frequency dividing by the total
         // number of weather method calls
         .collect(Collectors.toMap(ad -> ad.getIata(),
@@ -230,21 +724,44 @@ public class StaticRepositoryImpl implements Repository {
             };
         }
 
-        return new RepositoryUsageStatistics(datasize, freq, histogram);
+        return new RepositoryUsageStatistics(datasize, freq, histogram,
+            new EnumMap<>(queryPlanCounters));
     }
 
     /**
      * Resets all the variables. Mainly intended for testing.
+     * The listeners are kept, as they are not part of the information.
      * @see Repository#reset() 
      */
     public synchronized void reset() {
         airports.clear();
+        airportIndex.clear();
+        neighborLists.clear();
+        airportColumns = null;
+        catalogueVersion++;
         atmosphericInformation.clear();
+        changeLog.clear();
 
         // Counters
         totalCallCount = 0;
         radiusCallCounters.clear();
+        recentRadiusCallCounters.clear();
         iataCallCounters.clear();
+        queryPlanCounters.clear();
+    }
+
+    /**
+     * Enables or disables the materialization of the most requested radii,
+     * dropping the materialized ones when disabled (so the queries keep
+     * their plan regardless of the usage). Mainly intended for testing, the
+     * reset enables it again.
+     * @param enabled If the radii have to be materialized
+     */
+    public synchronized void setNeighborListsEnabled(boolean enabled) {
+        neighborListsEnabled = enabled;
+        if (!enabled) {
+            neighborLists.clear();
+        }
     }
 
     private void increaseCallCounters(String iata, Double radius) {
@@ -268,6 +785,62 @@ public class StaticRepositoryImpl implements Repository {
 
         radiusCallCounters.put(nearestIntegerRadius,
             radiusCallCounters.getOrDefault(nearestIntegerRadius, 0) + 1);
+
+        // Only the exact integer radii can be materialized
+        if (radius == Math.rint(radius) && radius <= Integer.MAX_VALUE) {
+            recentRadiusCallCounters.merge(radius.intValue(), 1, Integer::sum);
+        }
+
+        // Materializing the neighbors of the most requested radii
+        if (totalCallCount % NEIGHBOR_LISTS_UPDATE_INTERVAL == 0) {
+            updateNeighborLists();
+        }
+    }
+
+    /**
+     * Chooses the most requested radii of the last interval and builds the
+     * neighbors of the new ones in the background, as it takes a time
+     * proportional to the airports and their neighbors. The catalogue is
+     * iterated without the lock, so the result is installed only if the
+     * catalogue did not change meanwhile (otherwise the radii are chosen
+     * again on the next update).
+     */
+    private void updateNeighborLists() {
+        final Map<Integer, Integer> counters = recentRadiusCallCounters;
+        recentRadiusCallCounters = new HashMap<>();
+        if (neighborListsBuilding || !neighborListsEnabled) {
+            return;
+        }
+
+        final List<Integer> radii = neighborLists.choose(counters,
+            NEIGHBOR_LISTS_UPDATE_INTERVAL);
+        if (radii.isEmpty()) {
+            return;
+        }
+
+        neighborListsBuilding = true;
+        final long version = catalogueVersion;
+        neighborListsBuilder.execute(() -> {
+            try {
+                final List<AirportData> snapshot =
+                    new ArrayList<>(airports.values());
+                for (Integer radius : radii) {
+                    final Map<String, List<AirportData>> built =
+                        neighborLists.build(radius, snapshot);
+                    synchronized (this) {
+                        if (catalogueVersion != version
+                            || !neighborListsEnabled) {
+                            return;
+                        }
+                        neighborLists.install(radius, built);
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    neighborListsBuilding = false;
+                }
+            }
+        });
     }
 
 }
@@ -0,0 +1,455 @@
+package com.example.trial.weather.server;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This is an asynchronous access log. The request threads only record the
+ * request information (method, path, status, latency and bytes) in a
+ * preallocated lock-free ring buffer, a background thread drains it and
+ * writes the entries in batches to a rolling file.
+ *
+ * The request threads never block: if the buffer is more than half full only
+ * a sample of the requests is recorded (the entries indicate the sampling
+ * rate), and if it is full the entries are dropped (and counted).
+ *
+ * The ring buffer supports multiple producers: each producer claims a
+ * sequence number, writes the slot and then publishes the sequence number on
+ * the slot. The single consumer reads the slots in sequence order as long as
+ * they are published.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class AccessLog implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(AccessLog.class.getName());
+
+    /**
+     * The default number of entries the buffer can hold (it has to be a
+     * power of 2).
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * The default size in bytes of a file before being rolled.
+     */
+    public static final long DEFAULT_MAXIMUM_FILE_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The default number of rolled files kept.
+     */
+    public static final int DEFAULT_MAXIMUM_FILE_COUNT = 5;
+
+    /**
+     * One every how many requests is recorded when the buffer is overloaded.
+     */
+    private static final int OVERLOAD_SAMPLING_RATE = 10;
+
+    /**
+     * The maximum number of entries written in a single batch.
+     */
+    private static final int MAXIMUM_BATCH_SIZE = 1024;
+
+    /**
+     * The time the drain thread waits when there are no entries.
+     */
+    private static final long DRAIN_INTERVAL_IN_MILLISECONDS = 100;
+
+    /**
+     * Used to represent a not known value (like the bytes of a chunked
+     * response).
+     */
+    private static final long UNKNOWN = -1;
+
+    /**
+     * The log file, rolled files have the same name followed by .1, .2, etc.
+     */
+    private final File file;
+
+    /**
+     * The size in bytes of a file before being rolled.
+     */
+    private final long maximumFileSize;
+
+    /**
+     * The number of rolled files kept.
+     */
+    private final int maximumFileCount;
+
+    /**
+     * The ring buffer capacity and the mask to get a slot from a sequence.
+     */
+    private final int capacity;
+    private final int mask;
+
+    /**
+     * Above this number of buffered entries only a sample is recorded.
+     */
+    private final int overloadThreshold;
+
+    /**
+     * The ring buffer slots, one array per field to avoid allocating entries.
+     */
+    private final long[] timestamps;
+    private final String[] methods;
+    private final String[] paths;
+    private final int[] statuses;
+    private final long[] latencies;
+    private final long[] bytes;
+    private final int[] samplingRates;
+
+    /**
+     * The sequence number published on each slot.
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * The next sequence number to be claimed by a producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The next sequence number to be read by the consumer.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * The number of entries dropped because the buffer was full.
+     */
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * The number of entries not recorded because of the sampling.
+     */
+    private final AtomicLong sampledOutCount = new AtomicLong();
+
+    /**
+     * The thread draining the buffer.
+     */
+    private final Thread drainThread;
+
+    /**
+     * Indicates if the log is still running.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * The current file writer and the amount of bytes written to the file.
+     */
+    private Writer writer;
+    private long fileSize;
+
+    /**
+     * @param file The file to write the log
+     * @throws IOException If the file can not be opened
+     */
+    public AccessLog(File file) throws IOException {
+        this(file, DEFAULT_CAPACITY, DEFAULT_MAXIMUM_FILE_SIZE,
+            DEFAULT_MAXIMUM_FILE_COUNT);
+    }
+
+    /**
+     * @param file The file to write the log
+     * @param capacity The number of entries the buffer can hold, it has to be
+     * a power of 2
+     * @param maximumFileSize The size in bytes of a file before being rolled
+     * @param maximumFileCount The number of rolled files kept
+     * @throws IOException If the file can not be opened
+     */
+    public AccessLog(File file, int capacity, long maximumFileSize,
+        int maximumFileCount) throws IOException {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity has to be a power "
+                + "of 2: " + capacity);
+        }
+
+        this.file = file;
+        this.maximumFileSize = maximumFileSize;
+        this.maximumFileCount = maximumFileCount;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.overloadThreshold = capacity / 2;
+
+        timestamps = new long[capacity];
+        methods = new String[capacity];
+        paths = new String[capacity];
+        statuses = new int[capacity];
+        latencies = new long[capacity];
+        bytes = new long[capacity];
+        samplingRates = new int[capacity];
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, UNKNOWN);
+        }
+
+        openFile();
+
+        drainThread = new Thread(this::drainLoop, "access-log");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    /**
+     * Records a request, it never blocks.
+     * @param method The request method
+     * @param path The request path
+     * @param status The response status
+     * @param latency The time in nanoseconds taken to process the request or
+     * a negative value if unknown
+     * @param byteCount The response size in bytes or a negative value if
+     * unknown
+     */
+    public void log(String method, String path, int status, long latency,
+        long byteCount) {
+        long sequence = tail.get();
+
+        // Sampling if overloaded (decided only once per entry)
+        int samplingRate = 1;
+        if (sequence - head.get() >= overloadThreshold) {
+            samplingRate = OVERLOAD_SAMPLING_RATE;
+            if (ThreadLocalRandom.current().nextInt(samplingRate) != 0) {
+                sampledOutCount.incrementAndGet();
+                return;
+            }
+        }
+
+        // Claiming a slot
+        while (true) {
+            if (sequence - head.get() >= capacity) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                break;
+            }
+            sequence = tail.get();
+        }
+
+        final int slot = (int) (sequence & mask);
+        timestamps[slot] = System.currentTimeMillis();
+        methods[slot] = method;
+        paths[slot] = path;
+        statuses[slot] = status;
+        latencies[slot] = latency;
+        bytes[slot] = byteCount;
+        samplingRates[slot] = samplingRate;
+
+        // Publishing makes the previous writes visible to the consumer
+        published.lazySet(slot, sequence);
+    }
+
+    /**
+     * @return The number of entries dropped because the buffer was full
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return The number of entries not recorded because of the sampling
+     */
+    public long getSampledOutCount() {
+        return sampledOutCount.get();
+    }
+
+    /**
+     * Stops the drain thread writing the remaining entries and closes the
+     * file.
+     */
+    @Override
+    public void close() {
+        running = false;
+        drainThread.interrupt();
+        try {
+            drainThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            drain();
+            writer.close();
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Error closing the access log", ex);
+        }
+    }
+
+    /**
+     * The drain thread main loop.
+     */
+    private void drainLoop() {
+        while (running) {
+            try {
+                if (drain() == 0) {
+                    TimeUnit.MILLISECONDS.sleep(DRAIN_INTERVAL_IN_MILLISECONDS);
+                }
+            } catch (InterruptedException ex) {
+                // Closing, the remaining entries are drained by #close()
+                return;
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, "Error writing the access log", ex);
+            }
+        }
+    }
+
+    /**
+     * Writes the published entries to the file in batches.
+     * @return The number of written entries
+     * @throws IOException If an error writing the file occurs
+     */
+    private int drain() throws IOException {
+        StringBuilder batch = new StringBuilder();
+        int count = 0;
+        long sequence = head.get();
+        int slot = (int) (sequence & mask);
+        while (published.get(slot) == sequence) {
+            appendEntry(batch, slot);
+
+            // Releasing the references so they can be collected
+            methods[slot] = null;
+            paths[slot] = null;
+
+            sequence++;
+            count++;
+            slot = (int) (sequence & mask);
+
+            if (count % MAXIMUM_BATCH_SIZE == 0) {
+                head.set(sequence);
+                write(batch);
+                batch.setLength(0);
+            }
+        }
+        head.set(sequence);
+        write(batch);
+
+        return count;
+    }
+
+    /**
+     * @param builder The builder where the entry is appended
+     * @param slot The slot of the entry
+     */
+    private void appendEntry(StringBuilder builder, int slot) {
+        builder.append(Instant.ofEpochMilli(timestamps[slot]))
+            .append(' ').append(methods[slot])
+            .append(' ').append(paths[slot])
+            .append(' ').append(statuses[slot])
+            .append(' ');
+        if (latencies[slot] >= 0) {
+            builder.append(TimeUnit.NANOSECONDS.toMicros(latencies[slot]))
+                .append("us");
+        } else {
+            builder.append('-');
+        }
+        builder.append(' ');
+        if (bytes[slot] >= 0) {
+            builder.append(bytes[slot]).append('B');
+        } else {
+            builder.append('-');
+        }
+        if (samplingRates[slot] > 1) {
+            builder.append(" sampled=1/").append(samplingRates[slot]);
+        }
+        builder.append('\n');
+    }
+
+    /**
+     * Writes the content to the file rolling it if required.
+     * @param content The content to be written
+     * @throws IOException If an error writing the file occurs
+     */
+    private void write(CharSequence content) throws IOException {
+        if (content.length() == 0) {
+            return;
+        }
+
+        writer.append(content);
+        writer.flush();
+        fileSize += encodedLength(content);
+
+        if (fileSize >= maximumFileSize) {
+            roll();
+        }
+    }
+
+    /**
+     * @param content Some content
+     * @return The number of bytes of the content encoded in UTF-8 (an
+     * unpaired surrogate is encoded as the one byte replacement)
+     */
+    private static long encodedLength(CharSequence content) {
+        long length = 0;
+        for (int i = 0; i < content.length(); i++) {
+            final char c = content.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (!Character.isSurrogate(c)) {
+                length += 3;
+            } else if (Character.isHighSurrogate(c) && i + 1 < content.length()
+                && Character.isLowSurrogate(content.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Renames the current file (and the previously rolled ones) and opens a
+     * new file.
+     * @throws IOException If an error renaming or opening the files occurs
+     */
+    private void roll() throws IOException {
+        writer.close();
+
+        File oldest = rolledFile(maximumFileCount);
+        if (oldest.exists() && !oldest.delete()) {
+            LOGGER.log(Level.WARNING, "Unable to delete {0}", oldest);
+        }
+        for (int i = maximumFileCount - 1; i >= 1; i--) {
+            File rolled = rolledFile(i);
+            if (rolled.exists() && !rolled.renameTo(rolledFile(i + 1))) {
+                LOGGER.log(Level.WARNING, "Unable to roll {0}", rolled);
+            }
+        }
+        if (!file.renameTo(rolledFile(1))) {
+            LOGGER.log(Level.WARNING, "Unable to roll {0}", file);
+        }
+
+        openFile();
+    }
+
+    /**
+     * @param index The roll index
+     * @return The file rolled with the given index
+     */
+    private File rolledFile(int index) {
+        return new File(file.getPath() + "." + index);
+    }
+
+    /**
+     * Opens the log file for appending.
+     * @throws IOException If the file can not be opened
+     */
+    private void openFile() throws IOException {
+        writer = new BufferedWriter(new OutputStreamWriter(
+            new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        fileSize = file.length();
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.example.trial.weather.server;
+
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.http.Note;
+import org.glassfish.grizzly.http.server.HttpServerFilter;
+import org.glassfish.grizzly.http.server.HttpServerProbe;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+
+/**
+ * This is a server probe recording every completed request on the access
+ * log.
+ *
+ * The Grizzly probe methods take a raw Connection (overriding them with a
+ * parameterized one does not compile), so the rawtypes warnings are
+ * suppressed on them.
+ * @see AccessLog
+ * @author ignaciolarranaga@gmail.com
+ */
+public class AccessLogProbe extends HttpServerProbe.Adapter {
+
+    /**
+     * The note used to keep the time each request was received.
+     */
+    private static final Note<Long> START_TIME_NOTE =
+        Request.createNote(AccessLogProbe.class.getName() + ".startTime");
+
+    /**
+     * The log where the requests are recorded.
+     */
+    private final AccessLog accessLog;
+
+    /**
+     * @param accessLog The log where the requests are recorded
+     */
+    public AccessLogProbe(AccessLog accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void onRequestReceiveEvent(HttpServerFilter filter,
+        Connection connection, Request request) {
+        request.setNote(START_TIME_NOTE, System.nanoTime());
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void onRequestCompleteEvent(HttpServerFilter filter,
+        Connection connection, Response response) {
+        final Request request = response.getRequest();
+        final Long startTime = request.getNote(START_TIME_NOTE);
+        final long latency = startTime != null ?
+            System.nanoTime() - startTime : -1;
+
+        accessLog.log(request.getMethod().getMethodString(),
+            request.getRequestURI(), response.getStatus(), latency,
+            response.getContentLengthLong());
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.example.trial.weather.server;
+
+import com.example.trial.weather.AirportFileParser;
+import com.example.trial.weather.domain.AirportData;
+import com.example.trial.weather.exceptions.InvalidAirportDataException;
+import com.example.trial.weather.repository.Repository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class loads the airport catalogue directly into the repository before
+ * the server accepts requests, so the first requests do not fail while the
+ * catalogue is being uploaded.
+ *
+ * The file can be an airport file (see AirportLoader for the structure) or a
+ * snapshot of the catalogue, i.e. the JSON array returned by
+ * /collect/airports/export (recognized by the .json extension). The invalid
+ * airports are skipped and the catalogue is indexed once at the end.
+ * @see ServerConfiguration#getPreloadFile()
+ * @author ignaciolarranaga@gmail.com
+ */
+public class AirportPreloader {
+
+    private static final Logger LOGGER = Logger.getLogger(AirportPreloader.class.getName());
+
+    /**
+     * The extension of the snapshot files.
+     */
+    private static final String SNAPSHOT_EXTENSION = ".json";
+
+    /**
+     * The repository where the airports are loaded.
+     */
+    private final Repository repository;
+
+    /**
+     * @param repository The repository where the airports are loaded
+     */
+    public AirportPreloader(Repository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @param file The airport file or snapshot to be loaded
+     * @return The number of airports loaded
+     * @throws IOException If an error reading the file occurs
+     */
+    public int preload(Path file) throws IOException {
+        final long start = System.nanoTime();
+
+        final List<AirportData> airports;
+        if (file.getFileName().toString().endsWith(SNAPSHOT_EXTENSION)) {
+            try (InputStream input = Files.newInputStream(file)) {
+                airports = Arrays.asList(new ObjectMapper().readValue(input,
+                    AirportData[].class));
+            }
+        } else {
+            final AirportFileParser.Result result =
+                new AirportFileParser().parse(file);
+            if (!result.getIgnoredLines().isEmpty()) {
+                LOGGER.log(Level.WARNING, "{0} lines of {1} don't match the "
+                    + "structure, first: {2}", new Object[] {
+                    result.getIgnoredLines().size(), file,
+                    result.getIgnoredLines().get(0)});
+            }
+            airports = result.getAirports();
+        }
+
+        final List<AirportData> valid = new ArrayList<>(airports.size());
+        String firstInvalid = null;
+        for (AirportData airport : airports) {
+            try {
+                airport.validate();
+                valid.add(airport);
+            } catch (InvalidAirportDataException ex) {
+                if (firstInvalid == null) {
+                    firstInvalid = ex.getMessage();
+                }
+            }
+        }
+        if (firstInvalid != null) {
+            LOGGER.log(Level.WARNING, "{0} invalid airports skipped, first: "
+                + "{1}", new Object[] {airports.size() - valid.size(),
+                firstInvalid});
+        }
+
+        final int loaded = repository.loadAirports(valid);
+        LOGGER.log(Level.INFO, "{0} airports preloaded from {1} in {2} ms",
+            new Object[] {loaded, file, TimeUnit.NANOSECONDS.toMillis(
+                System.nanoTime() - start)});
+        return loaded;
+    }
+
+}
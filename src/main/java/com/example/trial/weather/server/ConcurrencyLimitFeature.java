@@ -0,0 +1,117 @@
+package com.example.trial.weather.server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.ws.rs.Path;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.core.Response;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+/**
+ * This feature applies an adaptive concurrency limit to every resource
+ * method, with a separate limit per resource class (so a burst of collector
+ * updates does not starve the queries and vice versa). The pings are never
+ * limited, they are health checks.
+ *
+ * It is also the application event listener releasing the permits: the
+ * FINISHED event is triggered once the response is written, so the streamed
+ * responses hold the permit while being written, and also once a request
+ * fails with an unmapped exception (when the response filters are not run).
+ * The event streams (chunked outputs) finish once the headers are written,
+ * so they are not counted while open.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class ConcurrencyLimitFeature implements DynamicFeature,
+    ApplicationEventListener {
+
+    /**
+     * The path of the methods not limited.
+     */
+    private static final String PING_PATH = "/ping";
+
+    /**
+     * The limiters by resource class.
+     */
+    private final Map<Class<?>, ConcurrencyLimiter> limiters
+        = new ConcurrentHashMap<>();
+
+    /**
+     * The limit before any measurement and the highest value of the limit.
+     */
+    private final int initialLimit;
+    private final int maximumLimit;
+
+    /**
+     * The listener of every request, releasing the permit (if any) once
+     * finished.
+     */
+    private final RequestEventListener releaser = event -> {
+        if (event.getType() != RequestEvent.Type.FINISHED) {
+            return;
+        }
+
+        final ContainerRequest request = event.getContainerRequest();
+        final Object permit = request.getProperty(
+            ConcurrencyLimitFilter.PERMIT_PROPERTY);
+        if (permit == null) {
+            // Not limited or rejected
+            return;
+        }
+        request.removeProperty(ConcurrencyLimitFilter.PERMIT_PROPERTY);
+
+        // The requests not processed in time are congestion signals
+        final ContainerResponse response = event.getContainerResponse();
+        ((ConcurrencyLimitFilter.Permit) permit).release(response != null
+            && response.getStatus()
+                == Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+    };
+
+    /**
+     * @param initialLimit The limit before any measurement
+     * @param maximumLimit The highest value of the limit
+     */
+    public ConcurrencyLimitFeature(int initialLimit, int maximumLimit) {
+        this.initialLimit = initialLimit;
+        this.maximumLimit = maximumLimit;
+    }
+
+    @Override
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        final Path path = resourceInfo.getResourceMethod().getAnnotation(Path.class);
+        if (path != null && PING_PATH.equals(path.value())) {
+            return;
+        }
+
+        context.register(new ConcurrencyLimitFilter(getLimiter(
+            resourceInfo.getResourceClass())));
+    }
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+        // Nothing to do with the application events
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        return releaser;
+    }
+
+    /**
+     * @param resourceClass The resource class
+     * @return The limiter shared by the methods of the resource class
+     */
+    public ConcurrencyLimiter getLimiter(Class<?> resourceClass) {
+        return limiters.computeIfAbsent(resourceClass,
+            key -> new ConcurrencyLimiter(initialLimit,
+                Math.min(ConcurrencyLimiter.DEFAULT_MINIMUM_LIMIT, maximumLimit),
+                maximumLimit));
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.example.trial.weather.server;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+/**
+ * This filter sheds the requests over the limit of concurrent requests of a
+ * resource, answering TOO_MANY_REQUESTS with a Retry-After header. The
+ * accepted requests hold a permit until they finish, i.e. until the response
+ * entity is written (including the streamed ones) or the processing fails,
+ * then it is released feeding the limiter with the latency (see
+ * ConcurrencyLimitFeature).
+ * @author ignaciolarranaga@gmail.com
+ */
+public class ConcurrencyLimitFilter implements ContainerRequestFilter {
+
+    /**
+     * The TOO_MANY_REQUESTS status (not defined in JAX-RS 2.0).
+     */
+    public static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * The request property holding the permit of the accepted requests.
+     */
+    static final String PERMIT_PROPERTY = ConcurrencyLimitFilter.class
+        .getName() + ".permit";
+
+    /**
+     * The seconds suggested to the clients to wait before retrying.
+     */
+    private static final int RETRY_AFTER_IN_SECONDS = 1;
+
+    /**
+     * The limiter shared by the methods of the resource.
+     */
+    private final ConcurrencyLimiter limiter;
+
+    /**
+     * @param limiter The limiter shared by the methods of the resource
+     */
+    public ConcurrencyLimitFilter(ConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (!limiter.tryAcquire()) {
+            requestContext.abortWith(Response.status(TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_IN_SECONDS)
+                .entity("The server is overloaded, please retry later.")
+                .build());
+            return;
+        }
+
+        requestContext.setProperty(PERMIT_PROPERTY, new Permit(limiter));
+    }
+
+    /**
+     * This class represents the slot of the limiter held by an accepted
+     * request.
+     */
+    static class Permit {
+
+        private final ConcurrencyLimiter limiter;
+
+        /**
+         * The time the request was accepted.
+         */
+        private final long startTime = System.nanoTime();
+
+        /**
+         * If the permit was already released.
+         */
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(ConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        /**
+         * Releases the slot once (the next calls are ignored).
+         * @param dropped If the request was not processed in time, i.e. a
+         * congestion signal
+         */
+        void release(boolean dropped) {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - startTime, dropped);
+            }
+        }
+
+    }
+
+}
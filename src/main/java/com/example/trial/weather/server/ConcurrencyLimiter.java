@@ -0,0 +1,201 @@
+package com.example.trial.weather.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class represents an adaptive limit of concurrent requests (AIMD
+ * driven by the measured latency).
+ *
+ * The limit grows additively (about one per limit requests) while the
+ * latency stays close to the baseline (the minimum latency observed in the
+ * recent samples) and the limit is actually in use, and it is reduced
+ * multiplicatively when the latency exceeds the tolerance or a request is
+ * dropped (e.g. timed out). The requests over the limit are rejected
+ * immediately instead of queuing, so the accepted ones keep a good latency.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class ConcurrencyLimiter {
+
+    /**
+     * The default limit before any measurement.
+     */
+    public static final int DEFAULT_INITIAL_LIMIT = 64;
+
+    /**
+     * The default lowest value of the limit.
+     */
+    public static final int DEFAULT_MINIMUM_LIMIT = 4;
+
+    /**
+     * The default highest value of the limit.
+     */
+    public static final int DEFAULT_MAXIMUM_LIMIT = 1024;
+
+    /**
+     * The ratio over the baseline latency considered congestion.
+     */
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    /**
+     * The latency under which a sample is never considered congestion (it
+     * avoids reacting to the noise of very fast requests).
+     */
+    private static final long MINIMUM_CONGESTION_LATENCY_IN_NANOSECONDS
+        = TimeUnit.MILLISECONDS.toNanos(5);
+
+    /**
+     * The factor applied to the limit on congestion.
+     */
+    private static final double BACKOFF_RATIO = 0.9;
+
+    /**
+     * The minimum time between two consecutive reductions of the limit, so a
+     * single burst of slow requests reduces the limit once.
+     */
+    private static final long MINIMUM_BACKOFF_INTERVAL_IN_NANOSECONDS
+        = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * The number of samples after which the baseline latency is renewed (so
+     * it follows the changes of the workload).
+     */
+    private static final int BASELINE_WINDOW_SIZE = 1000;
+
+    /**
+     * The lowest and highest values of the limit.
+     */
+    private final int minimumLimit;
+    private final int maximumLimit;
+
+    /**
+     * The current limit (fractional so it can grow additively).
+     */
+    private volatile double limit;
+
+    /**
+     * The number of requests in progress.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * The number of requests rejected.
+     */
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * The baseline latency, the minimum of the current baseline window and
+     * the number of samples in it (guarded by this).
+     */
+    private long baselineLatency = Long.MAX_VALUE;
+    private long windowMinimumLatency = Long.MAX_VALUE;
+    private int windowSampleCount;
+
+    /**
+     * The last time the limit was reduced (guarded by this).
+     */
+    private long lastBackoffTime;
+
+    public ConcurrencyLimiter() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MINIMUM_LIMIT, DEFAULT_MAXIMUM_LIMIT);
+    }
+
+    /**
+     * @param initialLimit The limit before any measurement
+     * @param minimumLimit The lowest value of the limit
+     * @param maximumLimit The highest value of the limit
+     */
+    public ConcurrencyLimiter(int initialLimit, int minimumLimit,
+        int maximumLimit) {
+        if (minimumLimit < 1 || maximumLimit < minimumLimit) {
+            throw new IllegalArgumentException("Invalid limits: " + minimumLimit
+                + ".." + maximumLimit);
+        }
+
+        this.minimumLimit = minimumLimit;
+        this.maximumLimit = maximumLimit;
+        this.limit = Math.max(minimumLimit, Math.min(maximumLimit, initialLimit));
+        this.lastBackoffTime = System.nanoTime() - MINIMUM_BACKOFF_INTERVAL_IN_NANOSECONDS;
+    }
+
+    /**
+     * @return true if the request can proceed (in which case the caller has
+     * to call {@link #release(long, boolean)} once done), false if it is over
+     * the limit
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param latency The time in nanoseconds the request took
+     * @param dropped If the request was dropped (e.g. timed out) instead of
+     * being processed
+     */
+    public void release(long latency, boolean dropped) {
+        final int current = inFlight.getAndDecrement();
+        update(latency, dropped, current);
+    }
+
+    /**
+     * @param latency The time in nanoseconds the request took
+     * @param dropped If the request was dropped instead of being processed
+     * @param inFlightCount The requests in progress when it finished
+     */
+    private synchronized void update(long latency, boolean dropped,
+        int inFlightCount) {
+        windowMinimumLatency = Math.min(windowMinimumLatency, latency);
+        if (++windowSampleCount >= BASELINE_WINDOW_SIZE
+            || baselineLatency == Long.MAX_VALUE) {
+            baselineLatency = windowMinimumLatency;
+            windowMinimumLatency = Long.MAX_VALUE;
+            windowSampleCount = 0;
+        }
+
+        final long threshold = Math.max(MINIMUM_CONGESTION_LATENCY_IN_NANOSECONDS,
+            (long) (baselineLatency * LATENCY_TOLERANCE));
+        if (dropped || latency > threshold) {
+            final long now = System.nanoTime();
+            if (now - lastBackoffTime >= MINIMUM_BACKOFF_INTERVAL_IN_NANOSECONDS) {
+                lastBackoffTime = now;
+                limit = Math.max(minimumLimit, limit * BACKOFF_RATIO);
+            }
+        } else if (inFlightCount * 2 >= limit) {
+            // Only grows if the limit is actually in use
+            limit = Math.min(maximumLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * @return The current limit of concurrent requests
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return The number of requests in progress
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return The number of requests rejected since the start
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+}
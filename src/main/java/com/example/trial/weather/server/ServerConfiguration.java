@@ -0,0 +1,345 @@
+package com.example.trial.weather.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * This class represents the tuning of the HTTP server: the transport selector
+ * threads, the worker thread pool, the IO strategy, the access log, the
+ * adaptive concurrency limits of the resources, the query executor and the
+ * catalogue preloaded on the startup.
+ *
+ * The settings are externalized as properties (prefixed with
+ * "weather.server."), read from the file referenced by the
+ * "weather.server.config" system property (if any) and overridden by the
+ * system properties themselves, e.g.
+ * -Dweather.server.workerMaxPoolSize=256. The unspecified settings keep the
+ * defaults of the server.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class ServerConfiguration {
+
+    /**
+     * The prefix of the configuration properties.
+     */
+    public static final String PROPERTY_PREFIX = "weather.server.";
+
+    /**
+     * The system property referencing the optional configuration file.
+     */
+    public static final String CONFIGURATION_FILE_PROPERTY = PROPERTY_PREFIX
+        + "config";
+
+    /**
+     * The value used for the settings in which the server default applies.
+     */
+    public static final int DEFAULT = -1;
+
+    /**
+     * This enum represents how the requests are processed once read by the
+     * selector threads.
+     */
+    public enum IOStrategy {
+        /**
+         * Every request is processed in the worker thread pool.
+         */
+        WORKER_THREAD,
+        /**
+         * The trivial routes (e.g. the pings) are processed directly in the
+         * selector threads, avoiding the thread hand-off, while the rest of
+         * the requests are dispatched to the worker thread pool.
+         */
+        SAME_THREAD
+    }
+
+    /**
+     * The number of selector threads (accepting and reading connections).
+     */
+    private int selectorRunners = DEFAULT;
+
+    /**
+     * The number of worker threads kept alive.
+     */
+    private int workerCorePoolSize = DEFAULT;
+
+    /**
+     * The maximum number of worker threads.
+     */
+    private int workerMaxPoolSize = DEFAULT;
+
+    /**
+     * The maximum number of requests waiting for a worker thread (negative
+     * means unbounded).
+     */
+    private int workerQueueLimit = DEFAULT;
+
+    /**
+     * How the requests are processed once read.
+     */
+    private IOStrategy ioStrategy = IOStrategy.WORKER_THREAD;
+
+    /**
+     * If the requests have to be processed in a new virtual thread each
+     * instead of the worker thread pool (only available on Java 21+).
+     */
+    private boolean virtualThreads;
+
+    /**
+     * The file where the requests are logged.
+     */
+    private String accessLogFile = "access.log";
+
+    /**
+     * If the concurrent requests of each resource have to be limited
+     * adaptively (shedding the excess).
+     */
+    private boolean concurrencyLimiting = true;
+
+    /**
+     * The limit of concurrent requests per resource before any measurement.
+     */
+    private int initialConcurrencyLimit = ConcurrencyLimiter.DEFAULT_INITIAL_LIMIT;
+
+    /**
+     * The highest limit of concurrent requests per resource.
+     */
+    private int maximumConcurrencyLimit = ConcurrencyLimiter.DEFAULT_MAXIMUM_LIMIT;
+
+    /**
+     * The number of threads running the queries.
+     */
+    private int queryThreadCount = DEFAULT;
+
+    /**
+     * The maximum number of queries waiting for a thread.
+     */
+    private int queryQueueLimit = DEFAULT;
+
+    /**
+     * The maximum time in milliseconds a query can take (including the time
+     * waiting for a thread).
+     */
+    private int queryTimeout = DEFAULT;
+
+    /**
+     * The airport file (or snapshot) loaded before accepting requests (none
+     * by default).
+     * @see AirportPreloader
+     */
+    private String preloadFile;
+
+    /**
+     * @return The configuration of the configuration file (if any) overridden
+     * by the system properties
+     * @throws IOException If the configuration file can not be read
+     */
+    public static ServerConfiguration load() throws IOException {
+        Properties properties = new Properties();
+
+        final String file = System.getProperty(CONFIGURATION_FILE_PROPERTY);
+        if (file != null) {
+            try (InputStream input = Files.newInputStream(
+                new File(file).toPath())) {
+                properties.load(input);
+            }
+        }
+        properties.putAll(System.getProperties());
+
+        return fromProperties(properties);
+    }
+
+    /**
+     * @param properties The properties containing the settings
+     * @return The configuration with the settings found
+     * @throws IllegalArgumentException If a setting has an invalid value
+     */
+    public static ServerConfiguration fromProperties(Properties properties) {
+        ServerConfiguration configuration = new ServerConfiguration();
+        configuration.setSelectorRunners(getInt(properties, "selectorRunners",
+            configuration.getSelectorRunners()));
+        configuration.setWorkerCorePoolSize(getInt(properties,
+            "workerCorePoolSize", configuration.getWorkerCorePoolSize()));
+        configuration.setWorkerMaxPoolSize(getInt(properties,
+            "workerMaxPoolSize", configuration.getWorkerMaxPoolSize()));
+        configuration.setWorkerQueueLimit(getInt(properties,
+            "workerQueueLimit", configuration.getWorkerQueueLimit()));
+
+        final String ioStrategy = properties.getProperty(PROPERTY_PREFIX
+            + "ioStrategy");
+        if (ioStrategy != null) {
+            configuration.setIoStrategy(IOStrategy.valueOf(
+                ioStrategy.trim().toUpperCase().replace('-', '_')));
+        }
+
+        final String virtualThreads = properties.getProperty(PROPERTY_PREFIX
+            + "virtualThreads");
+        if (virtualThreads != null) {
+            configuration.setVirtualThreads(
+                Boolean.parseBoolean(virtualThreads.trim()));
+        }
+
+        configuration.setAccessLogFile(properties.getProperty(PROPERTY_PREFIX
+            + "accessLogFile", configuration.getAccessLogFile()));
+
+        final String concurrencyLimiting = properties.getProperty(PROPERTY_PREFIX
+            + "concurrencyLimiting");
+        if (concurrencyLimiting != null) {
+            configuration.setConcurrencyLimiting(
+                Boolean.parseBoolean(concurrencyLimiting.trim()));
+        }
+        configuration.setInitialConcurrencyLimit(getInt(properties,
+            "initialConcurrencyLimit", configuration.getInitialConcurrencyLimit()));
+        configuration.setMaximumConcurrencyLimit(getInt(properties,
+            "maximumConcurrencyLimit", configuration.getMaximumConcurrencyLimit()));
+
+        configuration.setQueryThreadCount(getInt(properties,
+            "queryThreadCount", configuration.getQueryThreadCount()));
+        configuration.setQueryQueueLimit(getInt(properties,
+            "queryQueueLimit", configuration.getQueryQueueLimit()));
+        configuration.setQueryTimeout(getInt(properties, "queryTimeout",
+            configuration.getQueryTimeout()));
+
+        configuration.setPreloadFile(properties.getProperty(PROPERTY_PREFIX
+            + "preloadFile", configuration.getPreloadFile()));
+
+        return configuration;
+    }
+
+    /**
+     * @param properties The properties containing the setting
+     * @param name The name of the setting (without the prefix)
+     * @param defaultValue The value to be used if the setting is not present
+     * @return The value of the setting
+     * @throws IllegalArgumentException If the setting is not a number
+     */
+    private static int getInt(Properties properties, String name,
+        int defaultValue) {
+        final String value = properties.getProperty(PROPERTY_PREFIX + name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid value for the "
+                + PROPERTY_PREFIX + name + " setting: " + value, ex);
+        }
+    }
+
+    public int getSelectorRunners() {
+        return selectorRunners;
+    }
+
+    public void setSelectorRunners(int selectorRunners) {
+        this.selectorRunners = selectorRunners;
+    }
+
+    public int getWorkerCorePoolSize() {
+        return workerCorePoolSize;
+    }
+
+    public void setWorkerCorePoolSize(int workerCorePoolSize) {
+        this.workerCorePoolSize = workerCorePoolSize;
+    }
+
+    public int getWorkerMaxPoolSize() {
+        return workerMaxPoolSize;
+    }
+
+    public void setWorkerMaxPoolSize(int workerMaxPoolSize) {
+        this.workerMaxPoolSize = workerMaxPoolSize;
+    }
+
+    public int getWorkerQueueLimit() {
+        return workerQueueLimit;
+    }
+
+    public void setWorkerQueueLimit(int workerQueueLimit) {
+        this.workerQueueLimit = workerQueueLimit;
+    }
+
+    public IOStrategy getIoStrategy() {
+        return ioStrategy;
+    }
+
+    public void setIoStrategy(IOStrategy ioStrategy) {
+        this.ioStrategy = ioStrategy;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public String getAccessLogFile() {
+        return accessLogFile;
+    }
+
+    public void setAccessLogFile(String accessLogFile) {
+        this.accessLogFile = accessLogFile;
+    }
+
+    public boolean isConcurrencyLimiting() {
+        return concurrencyLimiting;
+    }
+
+    public void setConcurrencyLimiting(boolean concurrencyLimiting) {
+        this.concurrencyLimiting = concurrencyLimiting;
+    }
+
+    public int getInitialConcurrencyLimit() {
+        return initialConcurrencyLimit;
+    }
+
+    public void setInitialConcurrencyLimit(int initialConcurrencyLimit) {
+        this.initialConcurrencyLimit = initialConcurrencyLimit;
+    }
+
+    public int getMaximumConcurrencyLimit() {
+        return maximumConcurrencyLimit;
+    }
+
+    public void setMaximumConcurrencyLimit(int maximumConcurrencyLimit) {
+        this.maximumConcurrencyLimit = maximumConcurrencyLimit;
+    }
+
+    public int getQueryThreadCount() {
+        return queryThreadCount;
+    }
+
+    public void setQueryThreadCount(int queryThreadCount) {
+        this.queryThreadCount = queryThreadCount;
+    }
+
+    public int getQueryQueueLimit() {
+        return queryQueueLimit;
+    }
+
+    public void setQueryQueueLimit(int queryQueueLimit) {
+        this.queryQueueLimit = queryQueueLimit;
+    }
+
+    public int getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    public void setQueryTimeout(int queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+
+    public String getPreloadFile() {
+        return preloadFile;
+    }
+
+    public void setPreloadFile(String preloadFile) {
+        this.preloadFile = preloadFile;
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.example.trial.weather.server;
+
+import java.lang.reflect.InvocationTargetException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.HttpHandlerRegistration;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.RequestExecutorProvider;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.strategies.SameThreadIOStrategy;
+import org.glassfish.grizzly.strategies.WorkerThreadIOStrategy;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpContainer;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpContainerProvider;
+import org.glassfish.jersey.server.ResourceConfig;
+
+/**
+ * This is the factory of the HTTP servers (used by the main server and the
+ * tests), it is equivalent to the Jersey GrizzlyHttpServerFactory but
+ * applying the server configuration to the transport.
+ * @author ignaciolarranaga@gmail.com
+ */
+public class WeatherHttpServerFactory {
+
+    private static final Logger LOGGER = Logger.getLogger(
+        WeatherHttpServerFactory.class.getName());
+
+    /**
+     * The name of the network listener.
+     */
+    private static final String LISTENER_NAME = "weather";
+
+    /**
+     * The name of the worker thread pool.
+     */
+    private static final String WORKER_POOL_NAME = "weather-worker";
+
+    /**
+     * The routes trivial enough to be processed in the selector threads when
+     * using the same thread IO strategy.
+     */
+    private static final Set<String> TRIVIAL_ROUTES = Collections
+        .unmodifiableSet(new HashSet<>(Arrays.asList("/collect/ping",
+            "/query/ping")));
+
+    private WeatherHttpServerFactory() {
+    }
+
+    /**
+     * @param uri The URI the server will listen to
+     * @param resourceConfig The resources to be served
+     * @param configuration The server configuration
+     * @return The server created (not yet started)
+     */
+    public static HttpServer createHttpServer(URI uri,
+        ResourceConfig resourceConfig, ServerConfiguration configuration) {
+        final String host = uri.getHost() == null ? NetworkListener.DEFAULT_NETWORK_HOST
+            : uri.getHost();
+        final int port = uri.getPort() == -1 ? NetworkListener.DEFAULT_NETWORK_PORT
+            : uri.getPort();
+
+        NetworkListener listener = new NetworkListener(LISTENER_NAME, host, port);
+        configureTransport(listener.getTransport(), configuration);
+
+        HttpServer server = new HttpServer();
+        server.addListener(listener);
+
+        if (configuration.isConcurrencyLimiting()) {
+            resourceConfig.register(new ConcurrencyLimitFeature(
+                configuration.getInitialConcurrencyLimit(),
+                configuration.getMaximumConcurrencyLimit()));
+        }
+
+        // The provider is used directly since the generic container factory
+        // picks the first container found in the classpath
+        HttpHandler handler = new GrizzlyHttpContainerProvider().createContainer(
+            GrizzlyHttpContainer.class, resourceConfig);
+        if (configuration.getIoStrategy() == ServerConfiguration.IOStrategy.SAME_THREAD) {
+            handler = new TrivialRoutesHttpHandler(handler);
+        }
+
+        String path = uri.getPath() == null ? "" : uri.getPath().replaceAll("/{2,}", "/");
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+
+        org.glassfish.grizzly.http.server.ServerConfiguration serverConfiguration
+            = server.getServerConfiguration();
+        serverConfiguration.addHttpHandler(handler,
+            HttpHandlerRegistration.builder().contextPath(path).build());
+        serverConfiguration.setPassTraceRequest(true);
+        serverConfiguration.setDefaultQueryEncoding(StandardCharsets.UTF_8);
+
+        return server;
+    }
+
+    /**
+     * @param transport The transport to be configured
+     * @param configuration The server configuration
+     */
+    private static void configureTransport(TCPNIOTransport transport,
+        ServerConfiguration configuration) {
+        if (configuration.getSelectorRunners() > 0) {
+            transport.setSelectorRunnersCount(configuration.getSelectorRunners());
+        }
+
+        // The worker pool is taken before the strategy is set, since the same
+        // thread strategy does not create one and it is still needed for the
+        // non-trivial routes
+        ThreadPoolConfig workerConfig = transport.getWorkerThreadPoolConfig().copy();
+        workerConfig.setPoolName(WORKER_POOL_NAME);
+        if (configuration.getWorkerMaxPoolSize() > 0) {
+            workerConfig.setMaxPoolSize(configuration.getWorkerMaxPoolSize());
+            workerConfig.setCorePoolSize(Math.min(workerConfig.getCorePoolSize(),
+                configuration.getWorkerMaxPoolSize()));
+        }
+        if (configuration.getWorkerCorePoolSize() > 0) {
+            workerConfig.setCorePoolSize(configuration.getWorkerCorePoolSize());
+            workerConfig.setMaxPoolSize(Math.max(workerConfig.getMaxPoolSize(),
+                configuration.getWorkerCorePoolSize()));
+        }
+        if (configuration.getWorkerQueueLimit() != ServerConfiguration.DEFAULT) {
+            workerConfig.setQueueLimit(configuration.getWorkerQueueLimit());
+        }
+
+        transport.setIOStrategy(
+            configuration.getIoStrategy() == ServerConfiguration.IOStrategy.SAME_THREAD
+                ? SameThreadIOStrategy.getInstance()
+                : WorkerThreadIOStrategy.getInstance());
+        transport.setWorkerThreadPoolConfig(workerConfig);
+
+        if (configuration.isVirtualThreads()) {
+            ExecutorService executor = createVirtualThreadExecutor();
+            if (executor != null) {
+                transport.setWorkerThreadPool(executor);
+            }
+        }
+    }
+
+    /**
+     * @return An executor starting a virtual thread per task or null if the
+     * runtime does not support them (prior to Java 21)
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            // Resolved by reflection since the code targets Java 8
+            return (ExecutorService) Executors.class.getMethod(
+                "newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException
+            | InvocationTargetException ex) {
+            LOGGER.log(Level.WARNING, "Virtual threads are not supported by "
+                + "this runtime ({0}), using the worker thread pool.",
+                System.getProperty("java.version"));
+            return null;
+        }
+    }
+
+    /**
+     * This handler processes the trivial routes in the thread reading the
+     * request (the selector thread under the same thread IO strategy) and
+     * dispatches the rest to the worker thread pool.
+     */
+    static class TrivialRoutesHttpHandler extends HttpHandler {
+
+        /**
+         * The handler actually processing the requests.
+         */
+        private final HttpHandler delegate;
+
+        /**
+         * The provider dispatching the requests to the worker thread pool.
+         */
+        private final RequestExecutorProvider workerThreadProvider
+            = new RequestExecutorProvider.WorkerThreadProvider();
+
+        /**
+         * The provider selecting the thread for each request.
+         */
+        private final RequestExecutorProvider requestExecutorProvider
+            = (Request request) -> isTrivialRoute(request) ? null
+                : workerThreadProvider.getExecutor(request);
+
+        TrivialRoutesHttpHandler(HttpHandler delegate) {
+            super(delegate.getName());
+            this.delegate = delegate;
+        }
+
+        /**
+         * @param request The request received
+         * @return true if the request can be processed without a thread
+         * hand-off
+         */
+        static boolean isTrivialRoute(Request request) {
+            return "GET".equals(request.getMethod().getMethodString())
+                && TRIVIAL_ROUTES.contains(request.getRequestURI());
+        }
+
+        @Override
+        public RequestExecutorProvider getRequestExecutorProvider() {
+            return requestExecutorProvider;
+        }
+
+        @Override
+        public void service(Request request, Response response) throws Exception {
+            delegate.service(request, response);
+        }
+
+        @Override
+        public void start() {
+            delegate.start();
+        }
+
+        @Override
+        public void destroy() {
+            delegate.destroy();
+        }
+
+    }
+
+}
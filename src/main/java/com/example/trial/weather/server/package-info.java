@@ -0,0 +1,6 @@
+/**
+ * This package contains the HTTP server infrastructure (i.e. the pieces
+ * surrounding the endpoints but not part of the API itself, like the access
+ * log).
+ */
+package com.example.trial.weather.server;
@@ -0,0 +1,125 @@
+package com.example.trial.weather.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class coalesces identical concurrent computations: while a
+ * computation for a key is in progress, the callers with the same key wait
+ * for it and receive its same result (or exception) instead of performing
+ * their own. So the work per key is at most one computation at a time.
+ *
+ * The results are not cached, once the computation finishes the next caller
+ * performs a new one.
+ * @param <K> The type of the keys identifying the computations
+ * @param <V> The type of the results
+ * @author ignaciolarranaga@gmail.com
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * The computations in progress by key.
+     */
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * The number of calls answered with the result of other computation.
+     */
+    private final AtomicLong sharedCount = new AtomicLong();
+
+    /**
+     * @param <X> The type of the exception thrown by the computation
+     * @param key The key identifying the computation
+     * @param computation The computation to be performed if there is none in
+     * progress for the key
+     * @return The result of the computation performed or the one in progress
+     * @throws X If the computation failed
+     */
+    public <X extends Exception> V execute(K key, Computation<V, X> computation)
+        throws X {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            sharedCount.incrementAndGet();
+            return await(existing);
+        }
+
+        try {
+            final V result = computation.compute();
+            future.complete(result);
+            return result;
+        } catch (Exception | Error ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * @param <X> The type of the exception thrown by the computation
+     * @param future The computation in progress
+     * @return The result of the computation
+     * @throws X If the computation failed
+     */
+    @SuppressWarnings("unchecked")
+    private static <V, X extends Exception> V await(CompletableFuture<V> future)
+        throws X {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException ex) {
+                    // The computation is short, waiting it anyway
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    final Throwable cause = ex.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    // Computations with the same key throw the same exceptions
+                    throw (X) cause;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return The number of computations in progress
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return The number of calls answered with the result of other
+     * computation
+     */
+    public long getSharedCount() {
+        return sharedCount.get();
+    }
+
+    /**
+     * This interface represents a computation that may throw a checked
+     * exception.
+     * @param <V> The type of the result
+     * @param <X> The type of the exception
+     */
+    @FunctionalInterface
+    public interface Computation<V, X extends Exception> {
+
+        V compute() throws X;
+
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * This package contains the utilities shared by the server and the clients
+ */
+package com.example.trial.weather.util;
@@ -0,0 +1,190 @@
+package com.example.trial.weather;
+
+import com.example.trial.weather.domain.AirportData;
+import com.opencsv.CSVReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class AirportFileParserTest {
+
+    private static final String SAMPLE_FILE_LINE_BOS = "1,\"General Edward Lawrence Logan Intl\",\"Boston\",\"United States\",\"BOS\",\"KBOS\",42.364347,-71.005181,19,-5,\"A\"";
+    private static final String QUOTED_SEPARATOR_FILE_LINE = "2,\"Kennedy, John F\",\"New York\",\"United States\",\"JFK\",\"KJFK\",\"40.639751\",-73.778925,13,-5,\"A\"";
+    private static final String ESCAPED_QUOTE_FILE_LINE = "3,\"The \"\"Airport\"\", Intl\",\"Newark\",\"United States\",\"EWR\",\"KEWR\",40.6925,-74.168667,18,-5,\"A\"";
+    private static final String MISSING_FIELD_FILE_LINE = "\"General Edward Lawrence Logan Intl\",\"Boston\",\"United States\",\"BOS\",\"KBOS\",42.364347,-71.005181,19,-5,\"A\"";
+    private static final String WRONG_COORDINATE_FILE_LINE = "4,\"Stewart Intl\",\"Newburgh\",\"United States\",\"SWF\",\"KSWF\",North,-74.104839,491,-5,\"A\"";
+
+    private Path file;
+
+    @Before
+    public void initTest() throws IOException {
+        file = Files.createTempFile("airports", ".dat");
+    }
+
+    @After
+    public void finishTest() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testProvidedSampleMatchesCsvReader() throws IOException {
+        List<AirportData> expected = new ArrayList<>();
+        try (CSVReader reader = new CSVReader(new InputStreamReader(
+            getClass().getResourceAsStream("/airports.dat"),
+            StandardCharsets.UTF_8))) {
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                expected.add(new AirportData(line[4], Double.valueOf(line[6]),
+                    Double.valueOf(line[7])));
+            }
+        }
+
+        try (InputStream input = getClass().getResourceAsStream("/airports.dat")) {
+            Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        AirportFileParser.Result result = new AirportFileParser().parse(file);
+        assertEquals(expected, result.getAirports());
+        assertEquals(expected.size(), result.getLines());
+        assertEquals(Collections.emptyList(), result.getIgnoredLines());
+    }
+
+    @Test
+    public void testQuotedFields() throws IOException {
+        write(SAMPLE_FILE_LINE_BOS, QUOTED_SEPARATOR_FILE_LINE,
+            ESCAPED_QUOTE_FILE_LINE);
+
+        AirportFileParser.Result result = new AirportFileParser().parse(file);
+        assertEquals(Arrays.asList(
+            new AirportData("BOS", 42.364347, -71.005181),
+            new AirportData("JFK", 40.639751, -73.778925),
+            new AirportData("EWR", 40.6925, -74.168667)),
+            result.getAirports());
+    }
+
+    @Test
+    public void testIncorrectlyFormatedLinesIgnored() throws IOException {
+        write(MISSING_FIELD_FILE_LINE, SAMPLE_FILE_LINE_BOS,
+            WRONG_COORDINATE_FILE_LINE, "");
+
+        AirportFileParser.Result result = new AirportFileParser().parse(file);
+        assertEquals(Collections.singletonList(
+            new AirportData("BOS", 42.364347, -71.005181)),
+            result.getAirports());
+        assertEquals(Arrays.asList(0, 2, 3), result.getIgnoredLines());
+        assertEquals(4, result.getLines());
+    }
+
+    @Test
+    public void testWindowsLineBreaks() throws IOException {
+        Files.write(file, (SAMPLE_FILE_LINE_BOS + "\r\n"
+            + QUOTED_SEPARATOR_FILE_LINE + "\r\n").getBytes(StandardCharsets.UTF_8));
+
+        AirportFileParser.Result result = new AirportFileParser().parse(file);
+        assertEquals(2, result.getAirports().size());
+        assertEquals(new AirportData("BOS", 42.364347, -71.005181),
+            result.getAirports().get(0));
+    }
+
+    @Test
+    public void testParallelChunksMatchSequential() throws IOException {
+        // Large enough to be split in several chunks
+        List<String> lines = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 40000; i++) {
+            if (i % 1000 == 999) {
+                lines.add(MISSING_FIELD_FILE_LINE);
+            } else {
+                lines.add(i + ",\"Airport, " + i + "\",\"City\",\"Country\",\"A"
+                    + (char) ('A' + i % 26) + (char) ('A' + i / 26 % 26)
+                    + "\",\"XXXX\"," + (random.nextDouble() * 180 - 90) + ","
+                    + (random.nextDouble() * 360 - 180) + ",0,0,\"U\"");
+            }
+        }
+        write(lines.toArray(new String[lines.size()]));
+
+        AirportFileParser.Result sequential = new AirportFileParser(1).parse(file);
+        AirportFileParser.Result parallel = new AirportFileParser(4).parse(file);
+
+        assertEquals(40000, parallel.getLines());
+        assertEquals(40, parallel.getIgnoredLines().size());
+        assertEquals(999, (int) parallel.getIgnoredLines().get(0));
+        assertEquals(sequential.getIgnoredLines(), parallel.getIgnoredLines());
+        assertEquals(sequential.getAirports(), parallel.getAirports());
+    }
+
+    @Test
+    public void testStreamMatchesFile() throws IOException {
+        // Including a line longer than the stream buffer
+        char[] longName = new char[100000];
+        Arrays.fill(longName, 'x');
+        write(SAMPLE_FILE_LINE_BOS, MISSING_FIELD_FILE_LINE,
+            "5,\"" + new String(longName) + "\",\"City\",\"Country\",\"LHR\",\"EGLL\",51.4775,-0.461389,83,0,\"E\"",
+            QUOTED_SEPARATOR_FILE_LINE);
+
+        List<AirportData> airports = new ArrayList<>();
+        List<Integer> ignoredLines = new ArrayList<>();
+        try (InputStream input = Files.newInputStream(file)) {
+            AirportFileParser.parse(input, (line, end, airport) -> {
+                if (airport != null) {
+                    airports.add(airport);
+                } else {
+                    ignoredLines.add(line);
+                }
+            });
+        }
+
+        AirportFileParser.Result result = new AirportFileParser().parse(file);
+        assertEquals(3, airports.size());
+        assertEquals(result.getAirports(), airports);
+        assertEquals(result.getIgnoredLines(), ignoredLines);
+    }
+
+    @Test
+    public void testParseDoubleMatchesParseDouble() {
+        Random random = new Random(1);
+        List<String> values = new ArrayList<>(Arrays.asList("0", "-0.0", "90",
+            "-180.000000", "+1.5", ".5", "5.", "1e3", "-1.25E-2",
+            "0.0000000000000000000000001", "12345678901234567890.123"));
+        for (int i = 0; i < 10000; i++) {
+            values.add(String.valueOf(random.nextDouble() * 360 - 180));
+            values.add(String.format(Locale.ROOT, "%.6f", random.nextDouble() * 180 - 90));
+        }
+
+        for (String value : values) {
+            ByteBuffer buffer = ByteBuffer.wrap(
+                value.getBytes(StandardCharsets.US_ASCII));
+            assertEquals(value, Double.parseDouble(value),
+                AirportFileParser.parseDouble(buffer, 0, buffer.limit()), 0);
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testParseDoubleInvalid() {
+        ByteBuffer buffer = ByteBuffer.wrap("-".getBytes(StandardCharsets.US_ASCII));
+        AirportFileParser.parseDouble(buffer, 0, buffer.limit());
+    }
+
+    private void write(String... lines) throws IOException {
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+}
@@ -6,21 +6,30 @@ import com.example.trial.weather.impl.RestWeatherCollectorEndpoint;
 import com.example.trial.weather.impl.RestWeatherQueryEndpoint;
 import com.example.trial.weather.repository.Repository;
 import com.example.trial.weather.repository.RepositoryFactory;
+import com.example.trial.weather.server.ServerConfiguration;
+import com.example.trial.weather.server.WeatherHttpServerFactory;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 import org.glassfish.grizzly.http.server.HttpServer;
-import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 import org.junit.AfterClass;
 import static org.junit.Assert.assertThat;
@@ -58,8 +67,8 @@ public class AirportLoaderIntegrationTest {
         resourceConfig.register(RestWeatherCollectorEndpoint.class);
         resourceConfig.register(RestWeatherQueryEndpoint.class);
 
-        server = GrizzlyHttpServerFactory.createHttpServer(
-            URI.create(BASE_URL), resourceConfig, false);
+        server = WeatherHttpServerFactory.createHttpServer(
+            URI.create(BASE_URL), resourceConfig, ServerConfiguration.load());
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             server.shutdownNow();
         }));
@@ -105,6 +114,123 @@ public class AirportLoaderIntegrationTest {
         }
     }
 
+    @Test
+    public void testProvidedSampleCasePipelined() throws Exception {
+        try (AirportLoader loader = new AirportLoader(BASE_URL)) {
+            try (Reader reader = new InputStreamReader(
+                getClass().getResourceAsStream("/airports.dat"))) {
+                AirportLoader.UploadSummary summary =
+                    loader.uploadPipelined(reader, 3, 2);
+
+                validateFileContentsCorrectlyUploaded();
+                assertThat(summary.getUploadedAirports(), is(10));
+                assertThat(summary.getUploadedBatches(), is(4));
+                assertThat(summary.getFailedBatches(), is(0));
+            }
+        }
+    }
+
+    @Test
+    public void testProvidedSampleCasePipelinedFromFile() throws Exception {
+        Path file = Files.createTempFile("airports", ".dat");
+        try (AirportLoader loader = new AirportLoader(BASE_URL)) {
+            try (InputStream input = getClass().getResourceAsStream("/airports.dat")) {
+                Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            AirportLoader.UploadSummary summary =
+                loader.uploadPipelined(file, 3, 2);
+
+            validateFileContentsCorrectlyUploaded();
+            assertThat(summary.getLines(), is(10));
+            assertThat(summary.getUploadedBatches(), is(4));
+            assertThat(summary.getFailedBatches(), is(0));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testProvidedSampleCaseAdaptive() throws Exception {
+        Path file = Files.createTempFile("airports", ".dat");
+        try (AirportLoader loader = new AirportLoader(BASE_URL)) {
+            try (InputStream input = getClass().getResourceAsStream("/airports.dat")) {
+                Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            AirportLoader.UploadSummary summary = loader.uploadAdaptive(file, 4);
+
+            validateFileContentsCorrectlyUploaded();
+            assertThat(summary.getUploadedAirports(), is(10));
+            assertThat(summary.getFailedBatches(), is(0));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testProvidedSampleCaseResumable() throws Exception {
+        Path file = Files.createTempFile("airports", ".dat");
+        Path checkpoint = Files.createTempFile("airports", ".checkpoint");
+        try (AirportLoader loader = new AirportLoader(BASE_URL)) {
+            try (InputStream input = getClass().getResourceAsStream("/airports.dat")) {
+                Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            // Simulating a previous run stopped after the first 2 batches (6
+            // lines), with some airports of the third batch already uploaded
+            long offset = 0;
+            List<String> lines = Files.readAllLines(file);
+            for (int i = 0; i < 6; i++) {
+                offset += lines.get(i).getBytes().length + 1;
+            }
+            Files.write(checkpoint, Arrays.asList("offset=" + offset, "batch=2"));
+            collect.path("/airport/LTN/51.874722/-0.368333").request().post(null)
+                .close();
+
+            AirportLoader.UploadSummary summary =
+                loader.uploadResumable(file, checkpoint, 3, 2);
+
+            assertThat("Only the remaining lines are uploaded.",
+                summary.getLines(), is(4));
+            assertThat(summary.getUploadedBatches(), is(2));
+            assertThat("The existing airports are acknowledged.",
+                summary.getRejectedBatches(), is(0));
+            assertThat("The checkpoint is removed once completed.",
+                Files.exists(checkpoint), is(false));
+        } finally {
+            Files.delete(file);
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+
+    @Test
+    public void testProvidedSampleCaseCsvImport() throws IOException {
+        try (InputStream input = getClass().getResourceAsStream("/airports.dat")) {
+            Response response = collect.path("/airports/csv").request()
+                .post(Entity.entity(input, "text/csv"));
+            assertThat("Checking the response status to be OK",
+                response.getStatus(), is(Response.Status.OK.getStatusCode()));
+            assertThat(response.readEntity(String.class),
+                containsString("\"added\":10"));
+
+            validateFileContentsCorrectlyUploaded();
+        }
+    }
+
+    @Test
+    public void testWrongAirportExecutedCorrectlyPipelined() throws Exception {
+        try (AirportLoader loader = new AirportLoader(BASE_URL)) {
+            try (Reader reader = new StringReader(INCORRECT_IATA_FILE_LINE)) {
+                AirportLoader.UploadSummary summary =
+                    loader.uploadPipelined(reader, 5, 2);
+
+                validateItHasNoAirports();
+                assertThat(summary.getRejectedBatches(), is(1));
+            }
+        }
+    }
+
     @Test
     public void testWrongFormatedInputForSingleUpload() throws IOException {
         try (AirportLoader loader = new AirportLoader(BASE_URL)) {
@@ -0,0 +1,147 @@
+package com.example.trial.weather;
+
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class BatchTunerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * This test validates the batches grow while the throughput improves
+     */
+    @Test
+    public void testGrowsWhileImproving() {
+        BatchTuner tuner = new BatchTuner(100, 1, 8, 0);
+
+        // Each window of 4 batches takes a second, whatever the size
+        long now = completeWindow(tuner, 0, SECOND);
+        assertThat(tuner.getBatchSize(), is(150));
+        assertThat(tuner.getConcurrency(), is(2));
+
+        now = completeWindow(tuner, now, SECOND);
+        assertThat(tuner.getBatchSize(), is(225));
+        assertThat(tuner.getConcurrency(), is(3));
+        assertThat(tuner.getCurve().size(), is(2));
+        assertThat(tuner.getCurve().get(1).getThroughput(),
+            greaterThan(tuner.getCurve().get(0).getThroughput()));
+    }
+
+    /**
+     * This test validates the direction reverses when the throughput worsens
+     */
+    @Test
+    public void testReversesWhenWorsening() {
+        BatchTuner tuner = new BatchTuner(100, 1, 8, 0);
+        long now = completeWindow(tuner, 0, SECOND);
+        assertThat(tuner.getBatchSize(), is(150));
+
+        // The larger batches take three times longer
+        now = completeWindow(tuner, now, 3 * SECOND);
+        assertThat(tuner.getBatchSize(), is(100));
+        assertThat("The concurrency is kept.", tuner.getConcurrency(), is(2));
+    }
+
+    /**
+     * This test validates the parameters are kept when the throughput is
+     * stable
+     */
+    @Test
+    public void testKeepsWhenStable() {
+        BatchTuner tuner = new BatchTuner(100, 4, 8, 0);
+        long now = completeWindow(tuner, 0, SECOND);
+        int batchSize = tuner.getBatchSize();
+        int concurrency = tuner.getConcurrency();
+
+        // The same throughput (400 airports per second)
+        long windowDuration = SECOND * concurrency * batchSize / 400;
+        for (int i = 0; i < concurrency; i++) {
+            tuner.onCompleted(batchSize, now + windowDuration);
+        }
+        assertThat(tuner.getBatchSize(), is(batchSize));
+        assertThat(tuner.getConcurrency(), is(concurrency));
+    }
+
+    /**
+     * This test validates an overload halves the parameters
+     */
+    @Test
+    public void testShrinksOnOverload() {
+        BatchTuner tuner = new BatchTuner(1000, 8, 8, 0);
+        assertThat(tuner.onOverloaded(tuner.getGeneration(), SECOND), is(true));
+
+        assertThat(tuner.getBatchSize(), is(500));
+        assertThat(tuner.getConcurrency(), is(4));
+        assertThat(tuner.getCurve().get(0).isOverloaded(), is(true));
+
+        for (int i = 0; i < 10; i++) {
+            tuner.onOverloaded(tuner.getGeneration(), SECOND);
+        }
+        assertThat(tuner.getBatchSize(), is(BatchTuner.MINIMUM_BATCH_SIZE));
+        assertThat(tuner.getConcurrency(), is(1));
+    }
+
+    /**
+     * This test validates the overloads of the batches sent before the
+     * latest reduction are ignored
+     */
+    @Test
+    public void testIgnoresStaleOverloads() {
+        BatchTuner tuner = new BatchTuner(1000, 8, 8, 0);
+
+        // All the batches in flight fail, sent under the same generation
+        long generation = tuner.getGeneration();
+        for (int i = 0; i < 8; i++) {
+            tuner.onOverloaded(generation, SECOND);
+        }
+        assertThat(tuner.getBatchSize(), is(500));
+        assertThat(tuner.getConcurrency(), is(4));
+        assertThat(tuner.getCurve().size(), is(1));
+
+        // A batch sent with the reduced parameters reduces them again
+        assertThat(tuner.onOverloaded(tuner.getGeneration(), 2 * SECOND),
+            is(true));
+        assertThat(tuner.getBatchSize(), is(250));
+        assertThat(tuner.getConcurrency(), is(2));
+    }
+
+    /**
+     * This test validates the parameters stay within the bounds
+     */
+    @Test
+    public void testBounds() {
+        BatchTuner tuner = new BatchTuner(BatchTuner.MAXIMUM_BATCH_SIZE * 2, 1,
+            2, 0);
+        assertThat(tuner.getBatchSize(), is(BatchTuner.MAXIMUM_BATCH_SIZE));
+
+        long now = 0;
+        for (int i = 0; i < 20; i++) {
+            // Always improving
+            now = completeWindow(tuner, now, SECOND / (i + 1));
+            assertThat(tuner.getBatchSize(),
+                lessThan(BatchTuner.MAXIMUM_BATCH_SIZE + 1));
+            assertThat(tuner.getConcurrency(), lessThan(3));
+        }
+    }
+
+    /**
+     * Completes a window of batches of the current size.
+     * @return The time at the end of the window
+     */
+    private long completeWindow(BatchTuner tuner, long start, long duration) {
+        int batchSize = tuner.getBatchSize();
+        int batches = Math.max(4, tuner.getConcurrency());
+        for (int i = 0; i < batches; i++) {
+            tuner.onCompleted(batchSize, start + duration);
+        }
+        return start + duration;
+    }
+
+}
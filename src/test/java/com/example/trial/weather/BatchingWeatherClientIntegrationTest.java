@@ -0,0 +1,182 @@
+package com.example.trial.weather;
+
+import com.example.trial.weather.domain.AtmosphericInformation;
+import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.exceptions.AirportNotFoundExcepition;
+import com.example.trial.weather.exceptions.WeatherUpdateException;
+import com.example.trial.weather.impl.RestWeatherCollectorEndpoint;
+import com.example.trial.weather.impl.RestWeatherQueryEndpoint;
+import com.example.trial.weather.repository.Repository;
+import com.example.trial.weather.repository.RepositoryFactory;
+import com.example.trial.weather.server.ServerConfiguration;
+import com.example.trial.weather.server.WeatherHttpServerFactory;
+import com.example.trial.weather.test.util.TestUtilities;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.jersey.server.ResourceConfig;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class BatchingWeatherClientIntegrationTest {
+
+    /**
+     * The base URL to be used in the tests (notice it is different from
+     * production to avoid collisions).
+     */
+    private static final String BASE_URL = "http://localhost:9091/";
+
+    /**
+     * The server used for the test.
+     */
+    private static HttpServer server;
+
+    @BeforeClass
+    public static void init() throws IOException, InterruptedException {
+        final ResourceConfig resourceConfig = new ResourceConfig();
+        resourceConfig.register(RestWeatherCollectorEndpoint.class);
+        resourceConfig.register(RestWeatherQueryEndpoint.class);
+
+        server = WeatherHttpServerFactory.createHttpServer(
+            URI.create(BASE_URL), resourceConfig, ServerConfiguration.load());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.shutdownNow();
+        }));
+
+        server.start();
+    }
+
+    @Before
+    public void initTest() {
+        Repository repository = RepositoryFactory.getInstance();
+        repository.reset();
+        new RestWeatherCollectorEndpoint().addAirport("BOS", "42.364347",
+            "-71.005181");
+    }
+
+    @AfterClass
+    public static void shutdown() {
+        server.shutdown();
+    }
+
+    /**
+     * This test validates the updates are acknowledged once sent by size
+     */
+    @Test
+    public void testUpdatesSentBySize() throws Exception {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try (BatchingWeatherClient client = new BatchingWeatherClient(BASE_URL,
+            10, TimeUnit.MINUTES.toMillis(1), 2)) {
+            for (int i = 0; i < 95; i++) {
+                futures.add(client.update("BOS", "wind",
+                    TestUtilities.WIND_SAMPLE_DATA_POINT));
+            }
+
+            // The first 9 batches are sent without waiting for the interval
+            for (int i = 0; i < 90; i++) {
+                futures.get(i).get(10, TimeUnit.SECONDS);
+            }
+            assertThat(futures.get(90).isDone(), is(false));
+        }
+
+        // The rest are sent on close
+        for (CompletableFuture<Void> future : futures) {
+            assertThat(future.isDone(), is(true));
+            future.get();
+        }
+        assertThat(getInformation().getWind(),
+            is(TestUtilities.WIND_SAMPLE_DATA_POINT));
+    }
+
+    /**
+     * This test validates the updates are sent once the interval elapses
+     */
+    @Test
+    public void testUpdatesSentByTime() throws Exception {
+        try (BatchingWeatherClient client = new BatchingWeatherClient(BASE_URL,
+            100, 50, 2)) {
+            client.update("BOS", "humidty",
+                TestUtilities.HUMIDITY_SAMPLE_DATA_POINT)
+                .get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(getInformation().getHumidity(),
+            is(TestUtilities.HUMIDITY_SAMPLE_DATA_POINT));
+    }
+
+    /**
+     * This test validates the rejected updates complete exceptionally without
+     * failing the rest of the batch
+     */
+    @Test
+    public void testRejectedUpdates() throws Exception {
+        CompletableFuture<Void> accepted;
+        CompletableFuture<Void> unknownAirport;
+        try (BatchingWeatherClient client = new BatchingWeatherClient(BASE_URL)) {
+            unknownAirport = client.update("JFK", "wind",
+                TestUtilities.WIND_SAMPLE_DATA_POINT);
+            accepted = client.update("BOS", "wind",
+                TestUtilities.WIND_SAMPLE_DATA_POINT);
+        }
+
+        accepted.get();
+        try {
+            unknownAirport.get();
+            fail("The update of an unknown airport was acknowledged");
+        } catch (ExecutionException ex) {
+            assertThat(ex.getCause(), instanceOf(WeatherUpdateException.class));
+            assertThat(((WeatherUpdateException) ex.getCause()).getStatus(),
+                is(404));
+        }
+    }
+
+    /**
+     * This test validates the updates of an airport and point type are
+     * applied in order, even with several batches in flight
+     */
+    @Test
+    public void testUpdatesInOrder() throws Exception {
+        try (BatchingWeatherClient client = new BatchingWeatherClient(BASE_URL,
+            1, TimeUnit.MINUTES.toMillis(1), 4)) {
+            for (int mean = 0; mean < 50; mean++) {
+                client.update("BOS", "wind", new DataPoint(1, 2, 3, mean, 1));
+            }
+        }
+
+        assertThat(getInformation().getWind().getMean(), is(49.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchSizeAboveServerLimit() {
+        new BatchingWeatherClient(BASE_URL,
+            BatchingWeatherClient.MAXIMUM_BATCH_SIZE + 1, 100, 4);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUpdateAfterClose() {
+        BatchingWeatherClient client = new BatchingWeatherClient(BASE_URL);
+        client.close();
+        client.update("BOS", "wind", TestUtilities.WIND_SAMPLE_DATA_POINT);
+    }
+
+    private AtmosphericInformation getInformation()
+        throws AirportNotFoundExcepition {
+        return RepositoryFactory.getInstance()
+            .getAtmosphericInformation("BOS", null).iterator().next();
+    }
+
+}
@@ -5,6 +5,8 @@ import com.example.trial.weather.impl.RestWeatherCollectorEndpoint;
 import com.example.trial.weather.impl.RestWeatherQueryEndpoint;
 import com.example.trial.weather.repository.Repository;
 import com.example.trial.weather.repository.RepositoryFactory;
+import com.example.trial.weather.server.ServerConfiguration;
+import com.example.trial.weather.server.WeatherHttpServerFactory;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
@@ -24,7 +26,6 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.glassfish.grizzly.http.server.HttpServer;
-import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
 import static org.hamcrest.Matchers.is;
 import org.junit.AfterClass;
@@ -73,8 +74,8 @@ public class NaivePerformanceTest {
         resourceConfig.register(RestWeatherCollectorEndpoint.class);
         resourceConfig.register(RestWeatherQueryEndpoint.class);
 
-        server = GrizzlyHttpServerFactory.createHttpServer(
-            URI.create(BASE_URL), resourceConfig, false);
+        server = WeatherHttpServerFactory.createHttpServer(
+            URI.create(BASE_URL), resourceConfig, ServerConfiguration.load());
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             server.shutdownNow();
         }));
@@ -0,0 +1,179 @@
+package com.example.trial.weather;
+
+import com.example.trial.weather.impl.RestWeatherCollectorEndpoint;
+import com.example.trial.weather.impl.RestWeatherQueryEndpoint;
+import com.example.trial.weather.repository.Repository;
+import com.example.trial.weather.repository.RepositoryFactory;
+import com.example.trial.weather.server.ServerConfiguration;
+import com.example.trial.weather.server.WeatherHttpServerFactory;
+import com.example.trial.weather.test.util.TestUtilities;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.net.URI;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.jersey.server.ResourceConfig;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class WeatherQueryCacheIntegrationTest {
+
+    /**
+     * The base URL to be used in the tests (notice it is different from
+     * production to avoid collisions).
+     */
+    private static final String BASE_URL = "http://localhost:9091/";
+
+    /**
+     * The server used for the test.
+     */
+    private static HttpServer server;
+
+    private final Gson gson = new Gson();
+
+    private final RestWeatherCollectorEndpoint collect = new RestWeatherCollectorEndpoint();
+
+    @BeforeClass
+    public static void init() throws IOException, InterruptedException {
+        final ResourceConfig resourceConfig = new ResourceConfig();
+        resourceConfig.register(RestWeatherCollectorEndpoint.class);
+        resourceConfig.register(RestWeatherQueryEndpoint.class);
+
+        server = WeatherHttpServerFactory.createHttpServer(
+            URI.create(BASE_URL), resourceConfig, ServerConfiguration.load());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.shutdownNow();
+        }));
+
+        server.start();
+    }
+
+    @Before
+    public void initTest() {
+        Repository repository = RepositoryFactory.getInstance();
+        repository.reset();
+        collect.addAirport("BOS", "42.364347", "-71.005181");
+        collect.addAirport("JFK", "40.639751", "-73.778925");
+        collect.addAirport("EWR", "40.6925", "-74.168667");
+        collect.updateWeather("BOS", "wind",
+            gson.toJson(TestUtilities.WIND_SAMPLE_DATA_POINT));
+    }
+
+    @AfterClass
+    public static void shutdown() {
+        server.shutdown();
+    }
+
+    /**
+     * This test validates the fresh results are served from the cache
+     */
+    @Test
+    public void testFreshResultServed() {
+        try (WeatherQueryCache cache = new WeatherQueryCache(BASE_URL, 60000,
+            0, 10, 1024 * 1024)) {
+            String result = cache.weather("BOS", "0");
+            assertThat(result, containsString("\"mean\":20.0"));
+
+            collect.updateWeather("BOS", "wind", gson.toJson(
+                TestUtilities.TEMPERATURE_SAMPLE_DATA_POINT));
+            assertThat(cache.weather("BOS", "0"), is(result));
+            assertThat(cache.getMissCount(), is(1L));
+            assertThat(cache.getHitCount(), is(1L));
+        }
+    }
+
+    /**
+     * This test validates the expired results are revalidated, transferred
+     * again only if they changed
+     */
+    @Test
+    public void testExpiredResultRevalidated() {
+        try (WeatherQueryCache cache = new WeatherQueryCache(BASE_URL, 0, 0,
+            10, 1024 * 1024)) {
+            String result = cache.weather("BOS", "0");
+            assertThat(cache.weather("BOS", "0"), is(result));
+            assertThat(cache.getNotModifiedCount(), is(1L));
+
+            collect.updateWeather("BOS", "humidty",
+                gson.toJson(TestUtilities.HUMIDITY_SAMPLE_DATA_POINT));
+            assertThat(cache.weather("BOS", "0"), not(result));
+            assertThat(cache.getNotModifiedCount(), is(1L));
+            assertThat(cache.getMissCount(), is(3L));
+        }
+    }
+
+    /**
+     * This test validates the stale results are served while revalidated
+     */
+    @Test
+    public void testStaleWhileRevalidate() throws InterruptedException {
+        try (WeatherQueryCache cache = new WeatherQueryCache(BASE_URL, 0,
+            60000, 10, 1024 * 1024)) {
+            String result = cache.weather("BOS", "0");
+
+            collect.updateWeather("BOS", "humidty",
+                gson.toJson(TestUtilities.HUMIDITY_SAMPLE_DATA_POINT));
+            assertThat(cache.weather("BOS", "0"), is(result));
+
+            // The revalidation in background eventually replaces it
+            String updated = result;
+            for (int i = 0; i < 100 && updated.equals(result); i++) {
+                Thread.sleep(50);
+                updated = cache.weather("BOS", "0");
+            }
+            assertThat(updated, containsString("humidity"));
+            assertThat(cache.getMissCount(), is(1L));
+        }
+    }
+
+    /**
+     * This test validates the cache is bounded by entries and bytes
+     */
+    @Test
+    public void testBounds() {
+        try (WeatherQueryCache cache = new WeatherQueryCache(BASE_URL, 60000,
+            0, 2, 1024 * 1024)) {
+            cache.weather("BOS", "0");
+            cache.weather("JFK", "0");
+            cache.weather("BOS", "0");
+            cache.weather("EWR", "0");
+            assertThat(cache.getSize(), is(2));
+
+            // JFK was the least recently used
+            cache.weather("BOS", "0");
+            assertThat(cache.getMissCount(), is(3L));
+            cache.weather("JFK", "0");
+            assertThat(cache.getMissCount(), is(4L));
+        }
+
+        try (WeatherQueryCache cache = new WeatherQueryCache(BASE_URL, 60000,
+            0, 10, 1)) {
+            cache.weather("BOS", "0");
+            assertThat(cache.getSize(), is(0));
+            assertThat(cache.getBytes(), is(0L));
+        }
+    }
+
+    @Test
+    public void testUnknownAirport() {
+        try (WeatherQueryCache cache = new WeatherQueryCache(BASE_URL)) {
+            cache.weather("LGA", "0");
+            fail("The query of an unknown airport succeeded");
+        } catch (WebApplicationException ex) {
+            assertThat(ex.getResponse().getStatus(),
+                is(Response.Status.NOT_FOUND.getStatusCode()));
+        }
+    }
+
+}
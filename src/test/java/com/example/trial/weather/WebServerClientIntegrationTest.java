@@ -5,10 +5,11 @@ import com.example.trial.weather.impl.RestWeatherCollectorEndpoint;
 import com.example.trial.weather.impl.RestWeatherQueryEndpoint;
 import com.example.trial.weather.repository.Repository;
 import com.example.trial.weather.repository.RepositoryFactory;
+import com.example.trial.weather.server.ServerConfiguration;
+import com.example.trial.weather.server.WeatherHttpServerFactory;
 import java.io.IOException;
 import java.net.URI;
 import org.glassfish.grizzly.http.server.HttpServer;
-import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -37,8 +38,8 @@ public class WebServerClientIntegrationTest {
         resourceConfig.register(RestWeatherCollectorEndpoint.class);
         resourceConfig.register(RestWeatherQueryEndpoint.class);
 
-        server = GrizzlyHttpServerFactory.createHttpServer(
-            URI.create(BASE_URL), resourceConfig, false);
+        server = WeatherHttpServerFactory.createHttpServer(
+            URI.create(BASE_URL), resourceConfig, ServerConfiguration.load());
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             server.shutdownNow();
         }));
@@ -17,22 +17,20 @@ public class AirportDataTest {
     @Test
     public void testDistanceBetweenBOSAndEWR() {
         // Checked at: http://andrew.hedges.name/experiments/haversine/
-        // But the distance seems to be in miles not KMs, any way this does not
-        // affect the results, it is just a matter of units
         assertThat("Validating the distance calculation between BOS and EWR",
-            BOS_AIRPORT_DATA.distance(EWR_AIRPORT_DATA), is(200.87299713488193d));
+            BOS_AIRPORT_DATA.distance(EWR_AIRPORT_DATA), is(322.39945024852545d));
     }
 
     @Test
     public void testDistanceBetweenEWRAndBOS() {
         assertThat("Validating the distance calculation between BOS and EWR",
-            EWR_AIRPORT_DATA.distance(BOS_AIRPORT_DATA), is(200.87299713488193d));
+            EWR_AIRPORT_DATA.distance(BOS_AIRPORT_DATA), is(322.39945024852545d));
     }
 
     @Test
     public void testDistanceBetweenEWRAndJFK() {
         assertThat("Validating the distance calculation between EWR and JFK",
-            EWR_AIRPORT_DATA.distance(JFK_AIRPORT_DATA), is(43.07676410761436));
+            EWR_AIRPORT_DATA.distance(JFK_AIRPORT_DATA), is(33.400812709014325));
     }
 
 }
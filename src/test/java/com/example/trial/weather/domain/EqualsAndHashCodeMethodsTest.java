@@ -77,4 +77,46 @@ public class EqualsAndHashCodeMethodsTest {
 			.testEquals();
     }
 
-}
\ No newline at end of file
+	@Test
+    public void validateAirportAtmosphericInformation() {
+		PodamFactory factory = new PodamFactoryImpl();
+
+        // Creating 2 samples from on same equivalence class (i.e. if we base only on the id they are 2 equals objects)
+		AirportAtmosphericInformation eq11 = factory.manufacturePojo(AirportAtmosphericInformation.class);
+        AirportAtmosphericInformation eq12 = new AirportAtmosphericInformation();
+        BeanUtils.copyProperties(eq11, eq12);
+		// Create 2 samples from ANOTHER equivalence class (another 2 equal objects but differnt from the previous)
+		AirportAtmosphericInformation eq21 = factory.manufacturePojo(AirportAtmosphericInformation.class);
+        AirportAtmosphericInformation eq22 = new AirportAtmosphericInformation();
+        BeanUtils.copyProperties(eq21, eq22);
+
+		new EqualsTester()
+			// The 2 samples of the same equivalence class have to be equals
+			.addEqualityGroup(eq11, eq12)
+            // Those too but different from the previous equivalence class
+			.addEqualityGroup(eq21, eq22)
+			.testEquals();
+    }
+
+    @Test
+    public void validateDataPointAggregate() {
+		PodamFactory factory = new PodamFactoryImpl();
+
+        // Creating 2 samples from on same equivalence class (i.e. if we base only on the id they are 2 equals objects)
+		DataPointAggregate eq11 = factory.manufacturePojo(DataPointAggregate.class);
+        DataPointAggregate eq12 = new DataPointAggregate();
+        BeanUtils.copyProperties(eq11, eq12);
+		// Create 2 samples from ANOTHER equivalence class (another 2 equal objects but differnt from the previous)
+		DataPointAggregate eq21 = factory.manufacturePojo(DataPointAggregate.class);
+        DataPointAggregate eq22 = new DataPointAggregate();
+        BeanUtils.copyProperties(eq21, eq22);
+
+		new EqualsTester()
+			// The 2 samples of the same equivalence class have to be equals
+			.addEqualityGroup(eq11, eq12)
+            // Those too but different from the previous equivalence class
+			.addEqualityGroup(eq21, eq22)
+			.testEquals();
+    }
+
+}
@@ -0,0 +1,222 @@
+package com.example.trial.weather.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import org.junit.After;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class QueryExecutorTest {
+
+    /**
+     * An executor with a single thread and a single queue place, so it can be
+     * easily saturated.
+     */
+    private QueryExecutor executor;
+
+    @Before
+    public void init() {
+        executor = new QueryExecutor(1, 1, 60000);
+    }
+
+    @After
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * This test validates that the response is resumed with the query result
+     */
+    @Test
+    public void testQueryResult() {
+        AsyncResponse asyncResponse = createAsyncResponse();
+
+        executor.submit(asyncResponse, () -> "result");
+
+        verify(asyncResponse, timeout(1000)).resume("result");
+    }
+
+    /**
+     * This test validates that the response is resumed outside of the query
+     * threads, so writing it does not hold one
+     */
+    @Test
+    public void testResumedOutsideQueryThread() throws InterruptedException {
+        AsyncResponse asyncResponse = createAsyncResponse();
+        AtomicReference<String> resumingThread = new AtomicReference<>();
+        CountDownLatch resumed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            resumingThread.set(Thread.currentThread().getName());
+            resumed.countDown();
+            return true;
+        }).when(asyncResponse).resume("result");
+        AtomicReference<String> queryThread = new AtomicReference<>();
+
+        executor.submit(asyncResponse, () -> {
+            queryThread.set(Thread.currentThread().getName());
+            return "result";
+        });
+
+        assertThat(resumed.await(1, TimeUnit.SECONDS), is(true));
+        assertThat(resumingThread.get(), is(not(queryThread.get())));
+    }
+
+    /**
+     * This test validates that a query failing with an error is resumed with
+     * an INTERNAL_SERVER_ERROR
+     */
+    @Test
+    public void testQueryError() {
+        AsyncResponse asyncResponse = createAsyncResponse();
+
+        executor.submit(asyncResponse, () -> {
+            throw new AssertionError("Failed query");
+        });
+
+        ArgumentCaptor<Response> captor = ArgumentCaptor.forClass(Response.class);
+        verify(asyncResponse, timeout(1000)).resume(captor.capture());
+        assertThat(captor.getValue().getStatus(),
+            is(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode()));
+    }
+
+    /**
+     * This test validates that a SERVICE_UNAVAILABLE is returned as soon as
+     * the executor is saturated
+     */
+    @Test
+    public void testSaturation() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        // The first query takes the only thread, the second the only queue
+        // place, so the third has to be rejected
+        executor.submit(createAsyncResponse(), () -> await(latch));
+        executor.submit(createAsyncResponse(), () -> await(latch));
+        AsyncResponse rejected = createAsyncResponse();
+        executor.submit(rejected, () -> "result");
+
+        ArgumentCaptor<Response> captor = ArgumentCaptor.forClass(Response.class);
+        verify(rejected).resume(captor.capture());
+        assertThat("Checking the response status to be SERVICE_UNAVAILABLE.",
+            captor.getValue().getStatus(),
+            is(Response.Status.SERVICE_UNAVAILABLE.getStatusCode()));
+        assertThat("Checking the client is told when to retry.",
+            captor.getValue().getHeaderString(HttpHeaders.RETRY_AFTER),
+            is(notNullValue()));
+        assertThat("Checking the rejection was counted.",
+            executor.getRejectedCount(), is(1L));
+
+        latch.countDown();
+    }
+
+    /**
+     * This test validates that the timeout is set on every submitted query
+     */
+    @Test
+    public void testTimeoutConfigured() {
+        AsyncResponse asyncResponse = createAsyncResponse();
+
+        executor.submit(asyncResponse, () -> "result");
+
+        verify(asyncResponse).setTimeout(60000, TimeUnit.MILLISECONDS);
+        verify(asyncResponse).setTimeoutHandler(any());
+    }
+
+    /**
+     * This test validates that a timed out query is cancelled: interrupted if
+     * running or removed from the queue if waiting
+     */
+    @Test
+    public void testTimedOutQueryCancelled() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicBoolean completed = new AtomicBoolean();
+
+        // The first query takes the only thread, the second the only queue
+        // place
+        AsyncResponse running = createAsyncResponse();
+        executor.submit(running, () -> {
+            started.countDown();
+            try {
+                latch.await();
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+            return "released";
+        });
+        AsyncResponse queued = createAsyncResponse();
+        executor.submit(queued, () -> {
+            completed.set(true);
+            return "result";
+        });
+
+        assertThat(started.await(1, TimeUnit.SECONDS), is(true));
+        fireTimeout(queued);
+        fireTimeout(running);
+        assertThat("The running query was interrupted.",
+            interrupted.await(1, TimeUnit.SECONDS), is(true));
+        assertThat(executor.getTimedOutCount(), is(2L));
+
+        // The queue place was freed
+        AsyncResponse next = createAsyncResponse();
+        executor.submit(next, () -> "next");
+        verify(next, timeout(1000)).resume("next");
+        assertThat("The queued query did not run.", completed.get(), is(false));
+        assertThat(executor.getRejectedCount(), is(0L));
+    }
+
+    /**
+     * Fires the timeout of a submitted query.
+     * @param asyncResponse The response of the query
+     */
+    private static void fireTimeout(AsyncResponse asyncResponse) {
+        ArgumentCaptor<TimeoutHandler> captor = ArgumentCaptor.forClass(
+            TimeoutHandler.class);
+        verify(asyncResponse).setTimeoutHandler(captor.capture());
+        when(asyncResponse.isSuspended()).thenReturn(false);
+        captor.getValue().handleTimeout(asyncResponse);
+    }
+
+    /**
+     * @return A mocked response that is still suspended
+     */
+    private AsyncResponse createAsyncResponse() {
+        AsyncResponse asyncResponse = mock(AsyncResponse.class);
+        when(asyncResponse.isSuspended()).thenReturn(true);
+        return asyncResponse;
+    }
+
+    /**
+     * @param latch The latch to wait for
+     * @return A meaningless result once the latch is released
+     */
+    private static String await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return "released";
+    }
+
+}
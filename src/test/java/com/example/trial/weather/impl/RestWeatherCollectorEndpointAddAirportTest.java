@@ -2,8 +2,11 @@ package com.example.trial.weather.impl;
 
 import com.example.trial.weather.impl.RestWeatherCollectorEndpoint;
 import com.example.trial.weather.WeatherCollectorEndpoint;
+import com.example.trial.weather.domain.AirportData;
 import com.example.trial.weather.repository.Repository;
 import com.example.trial.weather.repository.RepositoryFactory;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 import javax.ws.rs.core.Response;
 import static org.hamcrest.Matchers.containsInAnyOrder;
@@ -167,4 +170,45 @@ public class RestWeatherCollectorEndpointAddAirportTest {
             response.getStatus(), is(Response.Status.OK.getStatusCode()));
     }
 
+    @Test
+    public void testAddAirportsSkippingExisting() {
+        RestWeatherCollectorEndpoint endpoint = new RestWeatherCollectorEndpoint();
+        endpoint.addAirport("BOS", "42.364347", "-71.005181");
+
+        List<AirportData> airports = Arrays.asList(
+            new AirportData("BOS", 0, 0),
+            new AirportData("JFK", 40.639751, -73.778925));
+        Response response = endpoint.addAirports(null, airports);
+        assertThat("The existing airports are rejected by default.",
+            response.getStatus(), is(Response.Status.BAD_REQUEST.getStatusCode()));
+
+        response = endpoint.addAirports("skip", airports);
+        assertThat("Checking the response status to be OK.",
+            response.getStatus(), is(Response.Status.OK.getStatusCode()));
+        assertThat("The existing airport is kept.",
+            RepositoryFactory.getInstance().getAirport("BOS"),
+            is(new AirportData("BOS", 42.364347, -71.005181)));
+        assertThat(RepositoryFactory.getInstance().getAirportCodes(),
+            containsInAnyOrder("BOS", "JFK"));
+    }
+
+    @Test
+    public void testAddAirportsSkippingExistingWithInvalidAirport() {
+        RestWeatherCollectorEndpoint endpoint = new RestWeatherCollectorEndpoint();
+
+        Response response = endpoint.addAirports("skip", Arrays.asList(
+            new AirportData("BS", 42.364347, -71.005181),
+            new AirportData("JFK", 40.639751, -73.778925)));
+        assertThat("Checking the response status to be BAD_REQUEST.",
+            response.getStatus(), is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat("The valid airports are added.",
+            RepositoryFactory.getInstance().getAirportCodes(),
+            containsInAnyOrder("JFK"));
+
+        response = endpoint.addAirports("upsert", Arrays.asList(
+            new AirportData("LGA", 40.777245, -73.872608)));
+        assertThat("Checking the response status to be BAD_REQUEST.",
+            response.getStatus(), is(Response.Status.BAD_REQUEST.getStatusCode()));
+    }
+
 }
@@ -0,0 +1,153 @@
+package com.example.trial.weather.impl;
+
+import com.example.trial.weather.domain.AirportData;
+import com.example.trial.weather.repository.Repository;
+import com.example.trial.weather.repository.RepositoryFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class RestWeatherCollectorEndpointImportAirportsTest {
+
+    // Sample lines for testing
+    private static final String SAMPLE_FILE_LINE_BOS = "1,\"General Edward Lawrence Logan Intl\",\"Boston\",\"United States\",\"BOS\",\"KBOS\",42.364347,-71.005181,19,-5,\"A\"";
+    private static final String SAMPLE_FILE_LINE_JFK = "2,\"John F Kennedy Intl\",\"New York\",\"United States\",\"JFK\",\"KJFK\",40.639751,-73.778925,13,-5,\"A\"";
+    private static final String MISSING_FIELD_FILE_LINE = "\"General Edward Lawrence Logan Intl\",\"Boston\",\"United States\",\"BOS\",\"KBOS\",42.364347,-71.005181,19,-5,\"A\"";
+    private static final String INCORRECT_IATA_FILE_LINE = "3,\"General Edward Lawrence Logan Intl\",\"Boston\",\"United States\",\"BS\",\"KBOS\",42.364347,-71.005181,19,-5,\"A\"";
+    private static final String INCORRECT_LATITUDE_FILE_LINE = "4,\"LaGuardia\",\"New York\",\"United States\",\"LGA\",\"KLGA\",140.777245,-73.872608,22,-5,\"A\"";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final RestWeatherCollectorEndpoint endpoint = new RestWeatherCollectorEndpoint();
+
+    @Before
+    public void init() {
+        RepositoryFactory.getInstance().reset();
+    }
+
+    /**
+     * This test validates the airports of a file are imported
+     */
+    @Test
+    public void testImport() throws IOException {
+        JsonNode report = read(endpoint.importAirports(toStream(
+            SAMPLE_FILE_LINE_BOS + "\n" + SAMPLE_FILE_LINE_JFK + "\n")));
+
+        assertThat(report.get("lines").asInt(), is(2));
+        assertThat(report.get("added").asInt(), is(2));
+        assertThat(report.get("rejected").asInt(), is(0));
+        assertThat(report.get("errors").size(), is(0));
+
+        Repository repository = RepositoryFactory.getInstance();
+        assertThat(repository.getAirport("BOS"),
+            is(new AirportData("BOS", 42.364347, -71.005181)));
+        assertThat(repository.getAirport("JFK"),
+            is(new AirportData("JFK", 40.639751, -73.778925)));
+    }
+
+    /**
+     * This test validates the gzip compressed files are detected and imported
+     */
+    @Test
+    public void testGzipImport() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream output = new GZIPOutputStream(compressed)) {
+            output.write((SAMPLE_FILE_LINE_BOS + "\r\n" + SAMPLE_FILE_LINE_JFK)
+                .getBytes(StandardCharsets.UTF_8));
+        }
+
+        JsonNode report = read(endpoint.importAirports(
+            new ByteArrayInputStream(compressed.toByteArray())));
+
+        assertThat(report.get("added").asInt(), is(2));
+        assertThat(RepositoryFactory.getInstance().getAirport("JFK"),
+            is(new AirportData("JFK", 40.639751, -73.778925)));
+    }
+
+    /**
+     * This test validates each line not imported is reported, while the rest
+     * are imported
+     */
+    @Test
+    public void testErrorsReportedByLine() throws IOException {
+        endpoint.addAirport("JFK", "40.639751", "-73.778925");
+
+        JsonNode report = read(endpoint.importAirports(toStream(
+            MISSING_FIELD_FILE_LINE + "\n"
+            + SAMPLE_FILE_LINE_BOS + "\n"
+            + INCORRECT_IATA_FILE_LINE + "\n"
+            + SAMPLE_FILE_LINE_JFK + "\n"
+            + INCORRECT_LATITUDE_FILE_LINE + "\n"
+            + SAMPLE_FILE_LINE_BOS + "\n")));
+
+        assertThat(report.get("lines").asInt(), is(6));
+        assertThat(report.get("added").asInt(), is(1));
+        assertThat(report.get("rejected").asInt(), is(5));
+
+        JsonNode errors = report.get("errors");
+        assertThat(errors.size(), is(5));
+        assertThat(errors.get(0).get("line").asInt(), is(0));
+        assertThat(errors.get(1).get("line").asInt(), is(2));
+        assertThat(errors.get(1).get("message").asText(), containsString("iata"));
+        assertThat(errors.get(2).get("line").asInt(), is(4));
+        assertThat(errors.get(2).get("message").asText(), containsString("latitude"));
+        // The duplicates are reported when the chunk is added
+        assertThat(errors.get(3).get("line").asInt(), is(3));
+        assertThat(errors.get(3).get("message").asText(), containsString("JFK"));
+        assertThat(errors.get(4).get("line").asInt(), is(5));
+        assertThat(errors.get(4).get("message").asText(), containsString("BOS"));
+
+        assertThat(RepositoryFactory.getInstance().getAirport("LGA"), nullValue());
+    }
+
+    /**
+     * This test validates the files larger than a chunk are fully imported
+     */
+    @Test
+    public void testSeveralChunksImport() throws IOException {
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < 2500; i++) {
+            file.append(i).append(",\"Airport\",\"City\",\"Country\",\"")
+                .append((char) ('A' + i / 676)).append((char) ('A' + i / 26 % 26))
+                .append((char) ('A' + i % 26)).append("\",\"XXXX\",")
+                .append(i % 90).append(".5,").append(i % 180).append(".25,0,0,\"U\"\n");
+        }
+
+        JsonNode report = read(endpoint.importAirports(toStream(file.toString())));
+
+        assertThat(report.get("added").asInt(), is(2500));
+        assertThat(RepositoryFactory.getInstance().getAirports().size(), is(2500));
+        assertThat(RepositoryFactory.getInstance().getAirport("DSD"),
+            is(new AirportData("DSD", 69.5, 159.25)));
+    }
+
+    private InputStream toStream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private JsonNode read(Response response) throws IOException {
+        assertThat("Checking the response status to be OK.",
+            response.getStatus(), is(Response.Status.OK.getStatusCode()));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(output);
+        return mapper.readTree(output.toByteArray());
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.example.trial.weather.impl;
+
+import com.example.trial.weather.domain.AirportData;
+import com.example.trial.weather.repository.RepositoryFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class RestWeatherCollectorEndpointStreamAirportsTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final RestWeatherCollectorEndpoint endpoint = new RestWeatherCollectorEndpoint();
+
+    @Before
+    public void init() {
+        RepositoryFactory.getInstance().reset();
+
+        endpoint.addAirport("JFK", "40.639751", "-73.778925");
+        endpoint.addAirport("BOS", "42.364347", "-71.005181");
+        endpoint.addAirport("LGA", "40.777245", "-73.872608");
+        endpoint.addAirport("EWR", "40.6925", "-74.168667");
+    }
+
+    /**
+     * This test validates all the codes are streamed in order
+     */
+    @Test
+    public void testStreamCodes() throws IOException {
+        assertThat(read(endpoint.getAirports(null, null), String[].class),
+            arrayContaining("BOS", "EWR", "JFK", "LGA"));
+    }
+
+    /**
+     * This test validates the catalogue is paginated following the cursor
+     */
+    @Test
+    public void testPagination() throws IOException {
+        assertThat(read(endpoint.getAirports(null, "3"), String[].class),
+            arrayContaining("BOS", "EWR", "JFK"));
+        assertThat(read(endpoint.getAirports("JFK", "3"), String[].class),
+            arrayContaining("LGA"));
+        assertThat(read(endpoint.getAirports("LGA", "3"), String[].class),
+            is(emptyArray()));
+    }
+
+    /**
+     * This test validates the full records are exported
+     */
+    @Test
+    public void testExport() throws IOException {
+        AirportData[] airports = read(endpoint.exportAirports("BOS", "1"),
+            AirportData[].class);
+
+        assertThat(airports, arrayContaining(
+            RepositoryFactory.getInstance().getAirport("EWR")));
+    }
+
+    /**
+     * This test validates the records are not flushed one by one (only on
+     * the flush interval and at the end)
+     */
+    @Test
+    public void testExportNotFlushedPerAirport() throws IOException {
+        final int[] flushes = {0};
+        OutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        };
+
+        ((StreamingOutput) endpoint.exportAirports(null, null).getEntity())
+            .write(output);
+        assertThat(flushes[0], is(1));
+    }
+
+    /**
+     * This test validates the invalid limits
+     */
+    @Test
+    public void testInvalidLimit() {
+        assertThat(endpoint.getAirports(null, "0").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(endpoint.exportAirports(null, "all").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+    }
+
+    private <T> T read(Response response, Class<T> type) throws IOException {
+        assertThat("Checking the response status to be OK.",
+            response.getStatus(), is(Response.Status.OK.getStatusCode()));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(output);
+        return mapper.readValue(output.toByteArray(), type);
+    }
+
+}
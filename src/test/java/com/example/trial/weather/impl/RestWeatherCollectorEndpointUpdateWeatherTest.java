@@ -1,16 +1,21 @@
 package com.example.trial.weather.impl;
 
 import com.example.trial.weather.impl.RestWeatherCollectorEndpoint;
+import com.example.trial.weather.domain.AtmosphericInformation;
 import com.example.trial.weather.domain.DataPoint;
 import com.example.trial.weather.WeatherCollectorEndpoint;
+import com.example.trial.weather.exceptions.AirportNotFoundExcepition;
 import com.example.trial.weather.WeatherQueryEndpoint;
 import com.example.trial.weather.repository.Repository;
 import com.example.trial.weather.repository.RepositoryFactory;
 import com.example.trial.weather.test.util.TestUtilities;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
 import java.util.Set;
 import javax.ws.rs.core.Response;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import org.junit.Before;
@@ -143,4 +148,67 @@ public class RestWeatherCollectorEndpointUpdateWeatherTest {
             response.getStatus(), is(Response.Status.OK.getStatusCode()));
     }
 
+    /**
+     * This test validates each update of a batch is applied or rejected
+     * individually, keeping the order
+     */
+    @Test
+    public void testUpdateWeatherBatch() throws AirportNotFoundExcepition {
+        RestWeatherCollectorEndpoint endpoint = new RestWeatherCollectorEndpoint();
+        endpoint.addAirport("BOS", "42.364347", "-71.005181");
+
+        String updates = "[{\"iata\": \"BOS\", \"pointType\": \"wind\", \"dataPoint\": "
+            + gson.toJson(TestUtilities.WIND_SAMPLE_DATA_POINT) + "},"
+            + "{\"iata\": \"JFK\", \"pointType\": \"wind\", \"dataPoint\": "
+            + gson.toJson(TestUtilities.WIND_SAMPLE_DATA_POINT) + "},"
+            + "{\"iata\": \"BOS\", \"pointType\": \"wind\", \"dataPoint\": "
+            + gson.toJson(new DataPoint(10, 20, 30, -1, 6)) + "},"
+            + "{\"iata\": \"BOS\", \"pointType\": \"humidty\"},"
+            + "{\"iata\": \"BOS\", \"pointType\": \"humidty\", \"dataPoint\": "
+            + gson.toJson(TestUtilities.HUMIDITY_SAMPLE_DATA_POINT) + "}]";
+        Response response = endpoint.updateWeather(updates);
+        assertThat("Checking the response status to be OK.",
+            response.getStatus(), is(Response.Status.OK.getStatusCode()));
+
+        JsonArray results = new JsonParser().parse(
+            (String) response.getEntity()).getAsJsonArray();
+        assertThat(results.size(), is(5));
+        assertThat(results.get(0).getAsJsonObject().get("status").getAsInt(),
+            is(Response.Status.OK.getStatusCode()));
+        assertThat(results.get(1).getAsJsonObject().get("status").getAsInt(),
+            is(Response.Status.NOT_FOUND.getStatusCode()));
+        assertThat(results.get(1).getAsJsonObject().get("message").getAsString(),
+            containsString("JFK"));
+        assertThat(results.get(2).getAsJsonObject().get("status").getAsInt(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(results.get(3).getAsJsonObject().get("status").getAsInt(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(results.get(4).getAsJsonObject().get("status").getAsInt(),
+            is(Response.Status.OK.getStatusCode()));
+
+        AtmosphericInformation information = RepositoryFactory.getInstance()
+            .getAtmosphericInformation("BOS", null).iterator().next();
+        assertThat(information.getWind(),
+            is(TestUtilities.WIND_SAMPLE_DATA_POINT));
+        assertThat(information.getHumidity(),
+            is(TestUtilities.HUMIDITY_SAMPLE_DATA_POINT));
+    }
+
+    @Test
+    public void testInvalidUpdateWeatherBatchToReturnBadRequest() {
+        RestWeatherCollectorEndpoint endpoint = new RestWeatherCollectorEndpoint();
+
+        Response response = endpoint.updateWeather("{\"iata\": \"BOS\"}");
+        assertThat("Checking the response status to be BAD_REQUEST.",
+            response.getStatus(), is(Response.Status.BAD_REQUEST.getStatusCode()));
+
+        StringBuilder updates = new StringBuilder("[");
+        for (int i = 0; i < 1001; i++) {
+            updates.append(i == 0 ? "" : ",").append("{}");
+        }
+        response = endpoint.updateWeather(updates.append("]").toString());
+        assertThat("Checking the response status to be BAD_REQUEST.",
+            response.getStatus(), is(Response.Status.BAD_REQUEST.getStatusCode()));
+    }
+
 }
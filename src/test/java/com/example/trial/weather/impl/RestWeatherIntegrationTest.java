@@ -8,6 +8,8 @@ import com.example.trial.weather.domain.DataPoint;
 import com.example.trial.weather.repository.Repository;
 import com.example.trial.weather.repository.RepositoryFactory;
 import com.example.trial.weather.test.util.TestUtilities;
+import com.example.trial.weather.server.ServerConfiguration;
+import com.example.trial.weather.server.WeatherHttpServerFactory;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -27,7 +29,6 @@ import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import org.glassfish.grizzly.http.server.HttpServer;
-import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
@@ -73,8 +74,8 @@ public class RestWeatherIntegrationTest {
         resourceConfig.register(RestWeatherCollectorEndpoint.class);
         resourceConfig.register(RestWeatherQueryEndpoint.class);
 
-        server = GrizzlyHttpServerFactory.createHttpServer(
-            URI.create(BASE_URL), resourceConfig, false);
+        server = WeatherHttpServerFactory.createHttpServer(
+            URI.create(BASE_URL), resourceConfig, ServerConfiguration.load());
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             server.shutdownNow();
         }));
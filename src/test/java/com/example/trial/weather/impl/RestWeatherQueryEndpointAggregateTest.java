@@ -0,0 +1,94 @@
+package com.example.trial.weather.impl;
+
+import com.example.trial.weather.WeatherCollectorEndpoint;
+import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.domain.DataPointAggregate;
+import com.example.trial.weather.repository.Repository;
+import com.example.trial.weather.repository.RepositoryFactory;
+import com.google.gson.Gson;
+import java.util.Map;
+import javax.ws.rs.core.Response;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class RestWeatherQueryEndpointAggregateTest {
+
+    private final Gson gson = new Gson();
+
+    private final WeatherCollectorEndpoint collect = new RestWeatherCollectorEndpoint();
+
+    private final RestWeatherQueryEndpoint query = new RestWeatherQueryEndpoint();
+
+    @Before
+    public void init() {
+        Repository repository = RepositoryFactory.getInstance();
+        repository.reset();
+
+        collect.addAirport("BOS", "42.364347", "-71.005181");
+        collect.addAirport("EWR", "40.6925", "-74.168667");
+        collect.addAirport("JFK", "40.639751", "-73.778925");
+        collect.addAirport("LGA", "40.777245", "-73.872608");
+    }
+
+    /**
+     * This test validates the data points of the airports within the radius
+     * are aggregated by type
+     */
+    @Test
+    public void testAggregate() {
+        collect.updateWeather("EWR", "wind", gson.toJson(new DataPoint(10, 20, 30, 20, 10)));
+        collect.updateWeather("LGA", "wind", gson.toJson(new DataPoint(20, 30, 40, 30, 30)));
+        collect.updateWeather("LGA", "temperature", gson.toJson(new DataPoint(5, 10, 15, 10, 2)));
+        // Out of the radius
+        collect.updateWeather("BOS", "wind", gson.toJson(new DataPoint(90, 95, 99, 95, 100)));
+
+        Response response = query.aggregate("JFK", "100");
+
+        assertThat("Checking the response status to be OK.",
+            response.getStatus(), is(Response.Status.OK.getStatusCode()));
+        Map<DataPoint.Type, DataPointAggregate> result =
+            (Map<DataPoint.Type, DataPointAggregate>) response.getEntity();
+        assertThat("Only the types with data are included.", result.keySet(),
+            contains(DataPoint.Type.WIND, DataPoint.Type.TEMPERATURE));
+
+        DataPointAggregate wind = result.get(DataPoint.Type.WIND);
+        assertThat(wind.getAirportCount(), is(2));
+        assertThat(wind.getCount(), is(40L));
+        assertThat(wind.getMean(), is(27.5));
+        assertThat(wind.getMinimum(), is(10));
+        assertThat(wind.getMaximum(), is(40));
+        assertThat(result.get(DataPoint.Type.TEMPERATURE).getAirportCount(), is(1));
+    }
+
+    /**
+     * This test validates the aggregation is not counted on the usage
+     * statistics
+     */
+    @Test
+    public void testNotCounted() {
+        query.aggregate("JFK", "100");
+
+        assertThat(RepositoryFactory.getInstance().getUsageStatistics()
+            .getRadiusCallsHistogram().length, is(0));
+    }
+
+    /**
+     * This test validates the invalid parameters
+     */
+    @Test
+    public void testInvalidParameters() {
+        assertThat(query.aggregate("JFK", "far").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(query.aggregate("JFK", "-1").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(query.aggregate("XXX", "100").getStatus(),
+            is(Response.Status.NOT_FOUND.getStatusCode()));
+    }
+
+}
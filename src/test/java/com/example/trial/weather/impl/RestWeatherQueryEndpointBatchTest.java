@@ -0,0 +1,126 @@
+package com.example.trial.weather.impl;
+
+import com.example.trial.weather.WeatherCollectorEndpoint;
+import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.repository.Repository;
+import com.example.trial.weather.repository.RepositoryFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class RestWeatherQueryEndpointBatchTest {
+
+    private final Gson gson = new Gson();
+
+    private final WeatherCollectorEndpoint collect = new RestWeatherCollectorEndpoint();
+
+    private final RestWeatherQueryEndpoint query = new RestWeatherQueryEndpoint();
+
+    @Before
+    public void init() {
+        Repository repository = RepositoryFactory.getInstance();
+        repository.reset();
+
+        collect.addAirport("BOS", "42.364347", "-71.005181");
+        collect.addAirport("EWR", "40.6925", "-74.168667");
+        collect.addAirport("JFK", "40.639751", "-73.778925");
+        collect.addAirport("LGA", "40.777245", "-73.872608");
+    }
+
+    /**
+     * This test validates each airport of the batch gets its own result, in
+     * the requested order
+     */
+    @Test
+    public void testBatch() throws IOException {
+        DataPoint sampleDataPoint = new DataPoint(10, 22, 30, 20, 10);
+        collect.updateWeather("BOS", "wind", gson.toJson(sampleDataPoint));
+        collect.updateWeather("LGA", "wind", gson.toJson(sampleDataPoint));
+
+        Response response = query.batch(
+            "{\"iata\": [\"BOS\", \"JFK\", \"XXX\", \"bad\"], \"radius\": 50}");
+
+        assertThat("Checking the response status to be OK.",
+            response.getStatus(), is(Response.Status.OK.getStatusCode()));
+        JsonNode result = read(response);
+        assertThat(result.size(), is(4));
+
+        assertThat(result.get(0).get("iata").asText(), is("BOS"));
+        assertThat(result.get(0).get("status").asInt(), is(200));
+        assertThat(result.get(0).get("information").size(), is(1));
+        assertThat(result.get(0).get("information").get(0).get("wind")
+            .get("mean").asDouble(), is(20.0));
+
+        assertThat("The airports in the radius are included.",
+            result.get(1).get("information").size(), is(1));
+        assertThat(result.get(2).get("status").asInt(), is(404));
+        assertThat(result.get(3).get("status").asInt(), is(400));
+    }
+
+    /**
+     * This test validates every airport found is counted on the usage
+     * statistics
+     */
+    @Test
+    public void testCountedPerAirport() throws IOException {
+        read(query.batch("{\"iata\": [\"BOS\", \"JFK\", \"XXX\"]}"));
+
+        Repository repository = RepositoryFactory.getInstance();
+        assertThat(repository.getUsageStatistics().getIataCallFrecuencies()
+            .get("BOS"), is(0.5));
+        assertThat(repository.getUsageStatistics().getRadiusCallsHistogram()[0],
+            is(2));
+    }
+
+    /**
+     * This test validates the invalid batch queries
+     */
+    @Test
+    public void testInvalidQuery() {
+        assertThat(query.batch("{\"iata\": []}").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(query.batch("{\"iata\": [\"BOS\"], \"radius\": -1}").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(query.batch("not json").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+    }
+
+    /**
+     * This test validates the results are not flushed one by one (only on
+     * the flush interval and at the end)
+     */
+    @Test
+    public void testNotFlushedPerResult() throws IOException {
+        final int[] flushes = {0};
+        OutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        };
+
+        ((StreamingOutput) query.batch(
+            "{\"iata\": [\"BOS\", \"EWR\", \"JFK\", \"LGA\"]}").getEntity())
+            .write(output);
+        assertThat(flushes[0], is(1));
+    }
+
+    private JsonNode read(Response response) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(output);
+        return new ObjectMapper().readTree(output.toByteArray());
+    }
+
+}
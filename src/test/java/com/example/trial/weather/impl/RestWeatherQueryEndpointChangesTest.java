@@ -0,0 +1,131 @@
+package com.example.trial.weather.impl;
+
+import com.example.trial.weather.WeatherCollectorEndpoint;
+import com.example.trial.weather.domain.AirportAtmosphericInformation;
+import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.repository.AtmosphericInformationChanges;
+import com.example.trial.weather.repository.Repository;
+import com.example.trial.weather.repository.RepositoryFactory;
+import com.google.gson.Gson;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.ws.rs.core.Response;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class RestWeatherQueryEndpointChangesTest {
+
+    private final Gson gson = new Gson();
+
+    private final WeatherCollectorEndpoint collect = new RestWeatherCollectorEndpoint();
+
+    private final RestWeatherQueryEndpoint query = new RestWeatherQueryEndpoint();
+
+    private final DataPoint sampleDataPoint = new DataPoint(10, 22, 30, 20, 10);
+
+    private long sequence;
+
+    @Before
+    public void init() {
+        Repository repository = RepositoryFactory.getInstance();
+        repository.reset();
+
+        collect.addAirport("BOS", "42.364347", "-71.005181");
+        collect.addAirport("EWR", "40.6925", "-74.168667");
+        collect.addAirport("JFK", "40.639751", "-73.778925");
+
+        // Starting from the sequence after the reset
+        sequence = getChanges(null, null).getSequence();
+    }
+
+    /**
+     * This test validates the changes are paginated following the cursor
+     */
+    @Test
+    public void testChanges() {
+        collect.updateWeather("BOS", "wind", gson.toJson(sampleDataPoint));
+        collect.updateWeather("EWR", "wind", gson.toJson(sampleDataPoint));
+        collect.updateWeather("BOS", "humidity", gson.toJson(sampleDataPoint));
+
+        AtmosphericInformationChanges changes = getChanges(
+            String.valueOf(sequence), "1");
+        assertThat(changes.isResyncRequired(), is(false));
+        assertThat(changes.isMore(), is(true));
+        assertThat(getCodes(changes), contains("EWR"));
+
+        changes = getChanges(String.valueOf(changes.getSequence()), "10");
+        assertThat(changes.isMore(), is(false));
+        assertThat(getCodes(changes), contains("BOS"));
+        assertThat("The current information is returned.",
+            changes.getChanges().get(0).getAtmosphericInformation()
+                .getHumidity(), is(sampleDataPoint));
+
+        changes = getChanges(String.valueOf(changes.getSequence()), null);
+        assertThat("No more changes.", changes.getChanges(), is(empty()));
+    }
+
+    /**
+     * This test validates the removed airports are informed without
+     * information
+     */
+    @Test
+    public void testRemovedAirport() {
+        collect.updateWeather("JFK", "wind", gson.toJson(sampleDataPoint));
+        collect.deleteAirport("JFK");
+
+        AtmosphericInformationChanges changes = getChanges(
+            String.valueOf(sequence), null);
+        assertThat(getCodes(changes), contains("JFK"));
+        assertThat(changes.getChanges().get(0).getAtmosphericInformation(),
+            is(nullValue()));
+    }
+
+    /**
+     * This test validates the old cursors require a resync
+     */
+    @Test
+    public void testResyncRequired() {
+        AtmosphericInformationChanges changes = getChanges(
+            String.valueOf(sequence + 1), null);
+
+        assertThat(changes.isResyncRequired(), is(true));
+        assertThat(changes.getSequence(), is(sequence));
+    }
+
+    /**
+     * This test validates the invalid parameters
+     */
+    @Test
+    public void testInvalidParameters() {
+        assertThat(query.changes("-1", null).getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(query.changes("0", "0").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(query.changes("recent", null).getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+    }
+
+    private AtmosphericInformationChanges getChanges(String since,
+        String limit) {
+        Response response = query.changes(since, limit);
+        assertThat("Checking the response status to be OK.",
+            response.getStatus(), is(Response.Status.OK.getStatusCode()));
+        return (AtmosphericInformationChanges) response.getEntity();
+    }
+
+    private List<String> getCodes(AtmosphericInformationChanges changes) {
+        return changes.getChanges().stream()
+            .map(AirportAtmosphericInformation::getAirport)
+            .map(airport -> airport.getIata())
+            .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.example.trial.weather.impl;
+
+import com.example.trial.weather.WeatherCollectorEndpoint;
+import com.example.trial.weather.domain.AirportAtmosphericInformation;
+import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.repository.Repository;
+import com.example.trial.weather.repository.RepositoryFactory;
+import com.google.gson.Gson;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.ws.rs.core.Response;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class RestWeatherQueryEndpointNearestTest {
+
+    private final Gson gson = new Gson();
+
+    private final WeatherCollectorEndpoint collect = new RestWeatherCollectorEndpoint();
+
+    private final RestWeatherQueryEndpoint query = new RestWeatherQueryEndpoint();
+
+    @Before
+    public void init() {
+        Repository repository = RepositoryFactory.getInstance();
+        repository.reset();
+
+        collect.addAirport("BOS", "42.364347", "-71.005181");
+        collect.addAirport("EWR", "40.6925", "-74.168667");
+        collect.addAirport("JFK", "40.639751", "-73.778925");
+        collect.addAirport("LGA", "40.777245", "-73.872608");
+    }
+
+    /**
+     * This test validates the nearest airports are returned sorted by
+     * distance, starting with the airport itself
+     */
+    @Test
+    public void testNearest() {
+        Response response = query.nearest("JFK", "3", false);
+
+        assertThat("Checking the response status to be OK.",
+            response.getStatus(), is(Response.Status.OK.getStatusCode()));
+        assertThat(getCodes(response), contains("JFK", "LGA", "EWR"));
+    }
+
+    /**
+     * This test validates only the airports with data are returned when
+     * requested
+     */
+    @Test
+    public void testNearestWithData() {
+        DataPoint sampleDataPoint = new DataPoint(10, 22, 30, 20, 10);
+        collect.updateWeather("BOS", "wind", gson.toJson(sampleDataPoint));
+        collect.updateWeather("EWR", "wind", gson.toJson(sampleDataPoint));
+
+        Response response = query.nearest("JFK", "5", true);
+
+        assertThat(getCodes(response), contains("EWR", "BOS"));
+        assertThat("The information is included.",
+            ((List<AirportAtmosphericInformation>) response.getEntity()).get(0)
+                .getAtmosphericInformation().getWind(), is(sampleDataPoint));
+    }
+
+    /**
+     * This test validates the invalid parameters
+     */
+    @Test
+    public void testInvalidParameters() {
+        assertThat(query.nearest("JFK", "0", false).getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(query.nearest("JFK", "many", false).getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(query.nearest("XXX", "3", false).getStatus(),
+            is(Response.Status.NOT_FOUND.getStatusCode()));
+    }
+
+    private List<String> getCodes(Response response) {
+        return ((List<AirportAtmosphericInformation>) response.getEntity())
+            .stream()
+            .map(information -> information.getAirport().getIata())
+            .collect(Collectors.toList());
+    }
+
+}
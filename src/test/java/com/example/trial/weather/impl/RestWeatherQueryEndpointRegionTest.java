@@ -0,0 +1,102 @@
+package com.example.trial.weather.impl;
+
+import com.example.trial.weather.WeatherCollectorEndpoint;
+import com.example.trial.weather.domain.AirportAtmosphericInformation;
+import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.repository.Repository;
+import com.example.trial.weather.repository.RepositoryFactory;
+import com.google.gson.Gson;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.ws.rs.core.Response;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class RestWeatherQueryEndpointRegionTest {
+
+    private final Gson gson = new Gson();
+
+    private final WeatherCollectorEndpoint collect = new RestWeatherCollectorEndpoint();
+
+    private final RestWeatherQueryEndpoint query = new RestWeatherQueryEndpoint();
+
+    @Before
+    public void init() {
+        Repository repository = RepositoryFactory.getInstance();
+        repository.reset();
+
+        collect.addAirport("BOS", "42.364347", "-71.005181");
+        collect.addAirport("EWR", "40.6925", "-74.168667");
+        collect.addAirport("JFK", "40.639751", "-73.778925");
+        collect.addAirport("NAN", "-17.755392", "177.443378");
+        collect.addAirport("APW", "-13.829969", "-172.008336");
+
+        DataPoint sampleDataPoint = new DataPoint(10, 22, 30, 20, 10);
+        for (String iata : new String[] {"BOS", "EWR", "NAN", "APW"}) {
+            collect.updateWeather(iata, "wind", gson.toJson(sampleDataPoint));
+        }
+    }
+
+    /**
+     * This test validates the airports with data inside a bounding box
+     */
+    @Test
+    public void testBoundingBox() {
+        Response response = query.region("40", "41", "-75", "-73");
+
+        assertThat("Checking the response status to be OK.",
+            response.getStatus(), is(Response.Status.OK.getStatusCode()));
+        assertThat("JFK has no data.", getCodes(response),
+            containsInAnyOrder("EWR"));
+    }
+
+    /**
+     * This test validates a bounding box crossing the antimeridian
+     */
+    @Test
+    public void testBoundingBoxAcrossAntimeridian() {
+        Response response = query.region("-20", "-10", "170", "-170");
+
+        assertThat(getCodes(response), containsInAnyOrder("NAN", "APW"));
+    }
+
+    /**
+     * This test validates a polygon
+     */
+    @Test
+    public void testPolygon() {
+        Response response = query.polygon(
+            "[[40, -76], [43, -72], [43, -70], [40, -74]]");
+
+        assertThat(getCodes(response), containsInAnyOrder("BOS", "EWR"));
+    }
+
+    /**
+     * This test validates the invalid regions
+     */
+    @Test
+    public void testInvalidRegions() {
+        assertThat(query.region("41", "40", "-75", "-73").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(query.region(null, "40", "-75", "-73").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(query.polygon("[[40, -76], [43, -72]]").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(query.polygon("not json").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+    }
+
+    private List<String> getCodes(Response response) {
+        return ((List<AirportAtmosphericInformation>) response.getEntity())
+            .stream()
+            .map(information -> information.getAirport().getIata())
+            .collect(Collectors.toList());
+    }
+
+}
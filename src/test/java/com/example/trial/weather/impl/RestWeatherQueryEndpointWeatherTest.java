@@ -11,9 +11,12 @@ import com.example.trial.weather.repository.RepositoryFactory;
 import com.example.trial.weather.test.util.TestUtilities;
 import com.google.gson.Gson;
 import java.util.List;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.Response;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import org.junit.Before;
 import org.junit.Test;
@@ -54,6 +57,31 @@ public class RestWeatherQueryEndpointWeatherTest {
         assertThat("Checking the response status to be BAD_REQUEST.",
             response.getStatus(),
             is(Response.Status.BAD_REQUEST.getStatusCode()));
+
+        // The negative and NaN radii are out of range
+        assertThat(query.weather("BOS", "-1").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(query.weather("BOS", "NaN").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat("The conditional queries are not tagged either.",
+            new RestWeatherQueryEndpoint().weather("BOS", "-1", "*").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+    }
+
+    /**
+     * This test validates the BAD_REQUEST response of a stream with an
+     * invalid radius
+     */
+    @Test
+    public void testStreamInvalidRadius() {
+        WeatherCollectorEndpoint collect = new RestWeatherCollectorEndpoint();
+        RestWeatherQueryEndpoint query = new RestWeatherQueryEndpoint();
+        collect.addAirport("BOS", "42.364347", "-71.005181");
+
+        assertThat(query.stream("BOS", "-1").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(query.stream("BOS", "NaN").getStatus(),
+            is(Response.Status.BAD_REQUEST.getStatusCode()));
     }
 
     /**
@@ -257,6 +285,51 @@ public class RestWeatherQueryEndpointWeatherTest {
             resultList, contains(expected));
     }
 
+    /**
+     * This test validates the results are tagged and the conditional queries
+     * answered with NOT_MODIFIED until the information changes
+     */
+    @Test
+    public void testConditionalQuery() {
+        RestWeatherCollectorEndpoint collect = new RestWeatherCollectorEndpoint();
+        RestWeatherQueryEndpoint query = new RestWeatherQueryEndpoint();
+
+        collect.addAirport("BOS", "42.364347", "-71.005181");
+        collect.updateWeather("BOS", "wind",
+            gson.toJson(TestUtilities.WIND_SAMPLE_DATA_POINT));
+
+        Response response = query.weather("BOS", "0", null);
+        assertThat("Checking the response status to be OK.",
+            response.getStatus(), is(Response.Status.OK.getStatusCode()));
+        EntityTag tag = response.getEntityTag();
+        assertThat(tag, notNullValue());
+
+        response = query.weather("BOS", "0", "\"" + tag.getValue() + "\"");
+        assertThat("Checking the response status to be NOT_MODIFIED.",
+            response.getStatus(), is(Response.Status.NOT_MODIFIED.getStatusCode()));
+        assertThat(response.getEntityTag(), is(tag));
+        assertThat(response.hasEntity(), is(false));
+
+        // The weak comparison and lists are supported
+        response = query.weather("BOS", "0",
+            "\"other\", W/\"" + tag.getValue() + "\"");
+        assertThat("Checking the response status to be NOT_MODIFIED.",
+            response.getStatus(), is(Response.Status.NOT_MODIFIED.getStatusCode()));
+        response = query.weather("BOS", "0", "*");
+        assertThat("Checking the response status to be NOT_MODIFIED.",
+            response.getStatus(), is(Response.Status.NOT_MODIFIED.getStatusCode()));
+        assertThat("The not modified queries are not run nor counted.",
+            RepositoryFactory.getInstance().getUsageStatistics()
+                .getRadiusCallsHistogram()[0], is(1));
+
+        collect.updateWeather("BOS", "humidty",
+            gson.toJson(TestUtilities.HUMIDITY_SAMPLE_DATA_POINT));
+        response = query.weather("BOS", "0", "\"" + tag.getValue() + "\"");
+        assertThat("Checking the response status to be OK.",
+            response.getStatus(), is(Response.Status.OK.getStatusCode()));
+        assertThat(response.getEntityTag(), not(tag));
+    }
+
     /**
      * This method checks the expected atmospheric information for an airport
      * identified by the iata code.
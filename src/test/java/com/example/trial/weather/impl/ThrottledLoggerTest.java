@@ -0,0 +1,154 @@
+package com.example.trial.weather.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import org.junit.After;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class ThrottledLoggerTest {
+
+    /**
+     * The underlying logger used in the tests.
+     */
+    private Logger logger;
+
+    /**
+     * The messages received by the underlying logger.
+     */
+    private final List<String> messages =
+        Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * The handler collecting the messages.
+     */
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            messages.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Before
+    public void init() {
+        logger = Logger.getLogger(ThrottledLoggerTest.class.getName());
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        logger.setLevel(Level.INFO);
+    }
+
+    @After
+    public void shutdown() {
+        logger.removeHandler(handler);
+    }
+
+    /**
+     * This test validates identical messages are logged once and summarized
+     * when the window is over
+     */
+    @Test
+    public void testDeduplication() throws InterruptedException {
+        ThrottledLogger throttledLogger = new ThrottledLogger(logger, 100, 100);
+
+        for (int i = 0; i < 5; i++) {
+            throttledLogger.warning(() -> "The iata code: XX is invalid.");
+        }
+        assertThat("The message was logged only once.", messages,
+            contains("The iata code: XX is invalid."));
+
+        // Once the window is over the next message triggers the summary
+        Thread.sleep(150);
+        throttledLogger.warning(() -> "Other message");
+        assertThat("The repetitions were summarized.", messages,
+            hasItem("The iata code: XX is invalid. (repeated 4 times)"));
+    }
+
+    /**
+     * This test validates the repetitions are summarized once the window is
+     * over even if no more messages are logged
+     */
+    @Test
+    public void testSummaryWithoutMoreMessages() throws InterruptedException {
+        ThrottledLogger throttledLogger = new ThrottledLogger(logger, 100, 100);
+
+        for (int i = 0; i < 3; i++) {
+            throttledLogger.warning(() -> "The iata code: XX is invalid.");
+        }
+
+        Thread.sleep(500);
+        assertThat("The repetitions were summarized.", messages,
+            hasItem("The iata code: XX is invalid. (repeated 2 times)"));
+    }
+
+    /**
+     * This test validates the same message with different throwables is not
+     * deduplicated
+     */
+    @Test
+    public void testDeduplicationByThrowable() {
+        ThrottledLogger throttledLogger = new ThrottledLogger(logger, 10000, 100);
+
+        throttledLogger.log(Level.WARNING, new IllegalStateException(),
+            () -> "The request failed.");
+        throttledLogger.log(Level.WARNING, new IllegalArgumentException(),
+            () -> "The request failed.");
+        throttledLogger.log(Level.WARNING, new IllegalArgumentException(),
+            () -> "The request failed.");
+
+        assertThat("Only the repeated throwable was deduplicated.", messages,
+            contains("The request failed.", "The request failed."));
+    }
+
+    /**
+     * This test validates the global budget of messages per second
+     */
+    @Test
+    public void testBudget() {
+        ThrottledLogger throttledLogger = new ThrottledLogger(logger, 10000, 3);
+
+        for (int i = 0; i < 10; i++) {
+            final int number = i;
+            throttledLogger.warning(() -> "Message " + number);
+        }
+
+        // The second may change in the middle, so at least 3 and at most 6
+        assertThat("The budget was enforced.",
+            messages.size() >= 3 && messages.size() <= 6, is(true));
+    }
+
+    /**
+     * This test validates the messages are not built for disabled levels
+     */
+    @Test
+    public void testLazyMessages() {
+        ThrottledLogger throttledLogger = new ThrottledLogger(logger, 100, 100);
+
+        throttledLogger.log(Level.FINEST, () -> {
+            throw new AssertionError("The message should not be built");
+        });
+
+        assertThat("Nothing was logged.", messages, is(empty()));
+    }
+
+}
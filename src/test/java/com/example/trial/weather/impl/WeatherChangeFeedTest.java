@@ -0,0 +1,168 @@
+package com.example.trial.weather.impl;
+
+import com.example.trial.weather.domain.AirportData;
+import com.example.trial.weather.domain.AtmosphericInformation;
+import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.repository.AtmosphericInformationListener;
+import com.example.trial.weather.repository.Repository;
+import com.example.trial.weather.repository.RepositoryFactory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import org.glassfish.jersey.server.ChunkedOutput;
+import org.junit.After;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class WeatherChangeFeedTest {
+
+    /**
+     * The feed under test, with a short coalescing delay and stall timeout.
+     */
+    private WeatherChangeFeed feed;
+
+    private Repository repository;
+
+    private final AirportData bos = new AirportData("BOS", 42.364347, -71.005181);
+
+    private final AirportData jfk = new AirportData("JFK", 40.639751, -73.778925);
+
+    @Before
+    public void init() {
+        repository = RepositoryFactory.getInstance();
+        repository.reset();
+        repository.addAirport(bos);
+        repository.addAirport(jfk);
+
+        feed = new WeatherChangeFeed(200 /* coalescing */, 300 /* stall */, 1);
+        repository.addListener(feed);
+    }
+
+    @After
+    public void shutdown() {
+        repository.removeListener(feed);
+        feed.shutdown();
+    }
+
+    /**
+     * This test validates that a burst of updates is delivered as a single
+     * event with the latest information
+     */
+    @Test
+    public void testBurstCoalesced() throws Exception {
+        ChunkedOutput<String> output = mock(ChunkedOutput.class);
+        feed.subscribe(Collections.singleton(bos), output);
+
+        for (int mean = 1; mean <= 3; mean++) {
+            repository.updateAtmosphericInformation("BOS", DataPoint.Type.WIND,
+                new DataPoint(1, 2, 3, mean, 1));
+        }
+
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(output, timeout(1000)).write(captor.capture());
+        Thread.sleep(400);
+        verify(output, times(1)).write(anyString());
+
+        assertThat("The event is a weather Server-Sent Event.",
+            captor.getValue(), startsWith("event: weather\ndata: "));
+        assertThat("The event contains the latest information.",
+            captor.getValue(), containsString("\"mean\":3.0"));
+    }
+
+    /**
+     * This test validates that the listeners get snapshots of the
+     * information, not modified by the later updates
+     */
+    @Test
+    public void testListenersGetSnapshots() throws Exception {
+        List<AtmosphericInformation> notified = new ArrayList<>();
+        AtmosphericInformationListener listener =
+            (airport, information) -> notified.add(information);
+        repository.addListener(listener);
+        try {
+            repository.updateAtmosphericInformation("BOS", DataPoint.Type.WIND,
+                new DataPoint(1, 2, 3, 4, 1));
+            repository.updateAtmosphericInformation("BOS",
+                DataPoint.Type.TEMPERATURE, new DataPoint(1, 2, 3, 4, 1));
+        } finally {
+            repository.removeListener(listener);
+        }
+
+        assertThat(notified.size(), is(2));
+        assertThat(notified.get(0).getTemperature(), is(nullValue()));
+        assertThat(notified.get(1).getTemperature().getMean(), is(4.0));
+    }
+
+    /**
+     * This test validates that only the changes of the airports of interest
+     * are delivered
+     */
+    @Test
+    public void testOtherAirportsIgnored() throws Exception {
+        ChunkedOutput<String> output = mock(ChunkedOutput.class);
+        feed.subscribe(Collections.singleton(bos), output);
+
+        repository.updateAtmosphericInformation("JFK", DataPoint.Type.WIND,
+            new DataPoint(1, 2, 3, 4, 1));
+
+        Thread.sleep(400);
+        verify(output, never()).write(anyString());
+    }
+
+    /**
+     * This test validates that a subscriber not consuming the events is
+     * dropped, releasing the delivery thread for the other subscribers
+     */
+    @Test
+    public void testSlowSubscriberDropped() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        ChunkedOutput<String> output = mock(ChunkedOutput.class);
+        doAnswer(invocation -> {
+            try {
+                latch.await();
+            } catch (InterruptedException ex) {
+                throw new IOException("Interrupted write", ex);
+            }
+            return null;
+        }).when(output).write(anyString());
+        feed.subscribe(Collections.singleton(bos), output);
+
+        // The first delivery gets stuck (on the single delivery thread)
+        repository.updateAtmosphericInformation("BOS", DataPoint.Type.WIND,
+            new DataPoint(1, 2, 3, 4, 1));
+        verify(output, timeout(1000)).write(anyString());
+
+        // Once the stall timeout is exceeded it is dropped without waiting
+        // for the write nor a new change
+        verify(output, timeout(1000)).close();
+        assertThat("The subscription was dropped.",
+            feed.getSubscriptionCount(), is(0));
+
+        // And the other subscribers are still served
+        ChunkedOutput<String> other = mock(ChunkedOutput.class);
+        feed.subscribe(Collections.singleton(jfk), other);
+        repository.updateAtmosphericInformation("JFK", DataPoint.Type.WIND,
+            new DataPoint(1, 2, 3, 4, 1));
+        verify(other, timeout(1000)).write(anyString());
+        latch.countDown();
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.example.trial.weather.repository;
+
+import com.example.trial.weather.domain.AirportData;
+import java.util.ArrayList;
+import java.util.List;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class ChangeLogTest {
+
+    private final AirportData boston = new AirportData("BOS", 42.364347, -71.005181);
+
+    private final AirportData newark = new AirportData("EWR", 40.6925, -74.168667);
+
+    private final AirportData kennedy = new AirportData("JFK", 40.639751, -73.778925);
+
+    /**
+     * This test validates only the last change of each airport is kept, in
+     * order of change
+     */
+    @Test
+    public void testLastChangePerAirport() {
+        ChangeLog log = new ChangeLog();
+        log.record(boston);
+        final long cursor = log.record(newark);
+        log.record(boston);
+
+        assertThat(log.size(), is(2));
+        assertThat(changesSince(log, 0), contains(newark, boston));
+        assertThat(changesSince(log, cursor), contains(boston));
+        assertThat(log.isResyncRequired(0), is(false));
+    }
+
+    /**
+     * This test validates the cursors older than the discarded changes
+     * require a resync
+     */
+    @Test
+    public void testCapacity() {
+        ChangeLog log = new ChangeLog(2);
+        final long first = log.record(boston);
+        final long second = log.record(newark);
+        log.record(kennedy);
+
+        assertThat(log.size(), is(2));
+        assertThat(log.isResyncRequired(0), is(true));
+        assertThat(log.isResyncRequired(first), is(false));
+        assertThat(changesSince(log, second), contains(kennedy));
+        assertThat("A cursor from the future requires a resync too.",
+            log.isResyncRequired(log.getSequence() + 1), is(true));
+    }
+
+    /**
+     * This test validates the sequence of the last change of each airport,
+     * bounded by the last discarded one when it is no longer in the log
+     */
+    @Test
+    public void testAirportSequence() {
+        ChangeLog log = new ChangeLog(2);
+        assertThat(log.getSequence("BOS"), is(0L));
+
+        final long first = log.record(boston);
+        final long second = log.record(newark);
+        assertThat(log.getSequence("BOS"), is(first));
+        assertThat(log.getSequence("EWR"), is(second));
+
+        log.record(kennedy);
+        assertThat(log.getSequence("BOS"), is(first));
+        assertThat(log.getSequence("EWR"), is(second));
+    }
+
+    /**
+     * This test validates the sequence is kept after clearing the log
+     */
+    @Test
+    public void testClear() {
+        ChangeLog log = new ChangeLog();
+        final long sequence = log.record(boston);
+        log.clear();
+
+        assertThat(log.isResyncRequired(0), is(true));
+        assertThat("The latest cursor requires a resync too.",
+            log.isResyncRequired(sequence), is(true));
+        assertThat(log.isResyncRequired(log.getSequence()), is(false));
+        assertThat(log.record(newark), is(sequence + 2));
+        assertThat(changesSince(log, sequence + 1), contains(newark));
+    }
+
+    private List<AirportData> changesSince(ChangeLog log, long since) {
+        List<AirportData> result = new ArrayList<>();
+        log.forEachSince(since, (sequence, airport) -> result.add(airport));
+        return result;
+    }
+
+}
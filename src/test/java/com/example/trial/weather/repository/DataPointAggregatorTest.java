@@ -0,0 +1,87 @@
+package com.example.trial.weather.repository;
+
+import com.example.trial.weather.domain.DataPoint;
+import com.example.trial.weather.domain.DataPointAggregate;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class DataPointAggregatorTest {
+
+    /**
+     * This test validates the aggregation of a single data point keeps its
+     * statistics
+     */
+    @Test
+    public void testSingleDataPoint() {
+        DataPointAggregator aggregator = new DataPointAggregator();
+        aggregator.add(new DataPoint(10, 20, 30, 22, 5));
+
+        DataPointAggregate aggregate = aggregator.getAggregate();
+        assertThat(aggregate.getAirportCount(), is(1));
+        assertThat(aggregate.getCount(), is(5L));
+        assertThat(aggregate.getMean(), is(22.0));
+        assertThat(aggregate.getMinimum(), is(10));
+        assertThat(aggregate.getMaximum(), is(30));
+        assertThat(aggregate.getFirst(), is(closeTo(10, 1e-6)));
+        assertThat(aggregate.getSecond(), is(closeTo(20, 1e-6)));
+        assertThat(aggregate.getThird(), is(closeTo(30, 1e-6)));
+    }
+
+    /**
+     * This test validates the mean and the quantiles are weighted by the
+     * count of observations
+     */
+    @Test
+    public void testWeightedAggregation() {
+        DataPointAggregator aggregator = new DataPointAggregator();
+        aggregator.add(new DataPoint(10, 20, 30, 20, 3));
+        aggregator.add(new DataPoint(110, 120, 130, 120, 1));
+
+        DataPointAggregate aggregate = aggregator.getAggregate();
+        assertThat(aggregate.getAirportCount(), is(2));
+        assertThat(aggregate.getCount(), is(4L));
+        assertThat(aggregate.getMean(), is(45.0));
+        assertThat(aggregate.getMinimum(), is(10));
+        assertThat(aggregate.getMaximum(), is(130));
+        // The median is the 2/3 quantile of the first (heavier) distribution
+        assertThat(aggregate.getSecond(), is(closeTo(80.0 / 3, 1e-6)));
+        // The 3rd quartile is the top of the first distribution
+        assertThat(aggregate.getThird(), is(closeTo(40, 1e-6)));
+    }
+
+    /**
+     * This test validates the airports are weighted equally when none has
+     * observations counted
+     */
+    @Test
+    public void testZeroCounts() {
+        DataPointAggregator aggregator = new DataPointAggregator();
+        aggregator.add(new DataPoint(10, 20, 30, 20, 0));
+        aggregator.add(new DataPoint(110, 120, 130, 120, 0));
+
+        DataPointAggregate aggregate = aggregator.getAggregate();
+        assertThat(aggregate.getCount(), is(0L));
+        assertThat(aggregate.getMean(), is(70.0));
+        assertThat(aggregate.getMinimum(), is(10));
+        assertThat(aggregate.getMaximum(), is(130));
+        // Each distribution holds half of the mixture, so the median is the
+        // top of the first one
+        assertThat(aggregate.getFirst(), is(closeTo(20, 1e-6)));
+        assertThat(aggregate.getSecond(), is(closeTo(40, 1e-6)));
+        assertThat(aggregate.getThird(), is(closeTo(120, 1e-6)));
+    }
+
+    /**
+     * This test validates an empty aggregation is rejected
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testEmpty() {
+        new DataPointAggregator().getAggregate();
+    }
+
+}
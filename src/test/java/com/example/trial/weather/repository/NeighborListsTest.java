@@ -0,0 +1,138 @@
+package com.example.trial.weather.repository;
+
+import com.example.trial.weather.domain.AirportData;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class NeighborListsTest {
+
+    /**
+     * This test validates the most requested radii are materialized and kept
+     * up to date with the airports added and removed
+     */
+    @Test
+    public void testIncrementalUpdates() {
+        Random random = new Random(3);
+        SpatialIndex index = new SpatialIndex();
+        NeighborLists lists = new NeighborLists(index);
+        List<AirportData> airports = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            airports.add(randomAirport(random, "A" + i));
+            index.add(airports.get(i));
+        }
+
+        Map<Integer, Integer> radiusCallCounters = new HashMap<>();
+        radiusCallCounters.put(0, 500);
+        radiusCallCounters.put(300, 400);
+        radiusCallCounters.put(1000, 10);
+        lists.update(radiusCallCounters, 910, airports);
+        assertThat("Only the hot radii are materialized.", lists.getRadii(),
+            contains(300));
+
+        // Adding and removing some airports
+        for (int i = 0; i < 100; i++) {
+            AirportData airport = randomAirport(random, "B" + i);
+            airports.add(airport);
+            index.add(airport);
+            lists.add(airport);
+        }
+        for (int i = 0; i < 100; i++) {
+            AirportData airport = airports.remove(random.nextInt(airports.size()));
+            index.remove(airport);
+            lists.remove(airport);
+            assertThat(lists.get(airport.getIata(), 300), is(nullValue()));
+        }
+
+        for (AirportData airport : airports) {
+            Set<AirportData> expected = airports.stream()
+                .filter(other -> airport.distance(other) <= 300)
+                .collect(Collectors.toSet());
+            assertThat("The neighbors of " + airport,
+                new HashSet<>(lists.get(airport.getIata(), 300)), is(expected));
+        }
+        assertThat("The other radii are not materialized.",
+            lists.get(airports.get(0).getIata(), 300.5), is(nullValue()));
+    }
+
+    /**
+     * This test validates a materialized radius is kept with fewer calls than
+     * the required to materialize it, so it is not rebuilt on each interval
+     */
+    @Test
+    public void testMaterializedRadiusKept() {
+        SpatialIndex index = new SpatialIndex();
+        NeighborLists lists = new NeighborLists(index);
+        List<AirportData> airports = new ArrayList<>();
+        airports.add(new AirportData("EWR", 40.6925, -74.168667));
+        airports.add(new AirportData("JFK", 40.639751, -73.778925));
+        airports.forEach(index::add);
+
+        Map<Integer, Integer> radiusCallCounters = new HashMap<>();
+        radiusCallCounters.put(100, 120);
+        lists.update(radiusCallCounters, 1000, airports);
+        assertThat(lists.getRadii(), contains(100));
+
+        radiusCallCounters.put(100, 80);
+        radiusCallCounters.put(200, 80);
+        assertThat("Only the materialized radius is kept.",
+            lists.choose(radiusCallCounters, 1000), is(empty()));
+        assertThat(lists.getRadii(), contains(100));
+
+        radiusCallCounters.put(100, 40);
+        lists.choose(radiusCallCounters, 1000);
+        assertThat("The radius is dropped once barely requested.",
+            lists.getRadii(), is(empty()));
+    }
+
+    /**
+     * This test validates the radii exceeding the maximum number of entries
+     * are not materialized
+     */
+    @Test
+    public void testMaximumEntries() {
+        SpatialIndex index = new SpatialIndex();
+        NeighborLists lists = new NeighborLists(index, 4, 5);
+        List<AirportData> airports = new ArrayList<>();
+        airports.add(new AirportData("EWR", 40.6925, -74.168667));
+        airports.add(new AirportData("JFK", 40.639751, -73.778925));
+        airports.forEach(index::add);
+
+        Map<Integer, Integer> radiusCallCounters = new HashMap<>();
+        radiusCallCounters.put(100, 1000);
+        lists.update(radiusCallCounters, 1000, airports);
+        assertThat(lists.getRadii(), contains(100));
+        assertThat(lists.get("EWR", 100), containsInAnyOrder(airports.toArray()));
+
+        AirportData laGuardia = new AirportData("LGA", 40.777245, -73.872608);
+        index.add(laGuardia);
+        lists.add(laGuardia);
+        assertThat("The radius exceeded the maximum entries.",
+            lists.getRadii(), is(empty()));
+
+        lists.update(radiusCallCounters, 1000, airports);
+        assertThat("The radius is not materialized again.",
+            lists.getRadii(), is(empty()));
+    }
+
+    private AirportData randomAirport(Random random, String iata) {
+        return new AirportData(iata, 30 + random.nextDouble() * 20,
+            -100 + random.nextDouble() * 30);
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.example.trial.weather.repository;
+
+import com.example.trial.weather.domain.AirportData;
+import com.example.trial.weather.domain.AtmosphericInformation;
+import com.example.trial.weather.domain.DataPoint;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class QueryPlanTest {
+
+    private final Repository repository = RepositoryFactory.getInstance();
+
+    private final List<AirportData> airports = new ArrayList<>();
+
+    @Before
+    public void init() throws Exception {
+        repository.reset();
+
+        Random random = new Random(5);
+        for (int i = 0; i < 26 * 26; i++) {
+            AirportData airport = new AirportData("A" + (char) ('A' + i / 26)
+                + (char) ('A' + i % 26), random.nextDouble() * 180 - 90,
+                random.nextDouble() * 360 - 180);
+            airports.add(airport);
+            repository.addAirport(airport);
+
+            DataPoint dataPoint = new DataPoint(1, 2, 3, i, 1);
+            repository.updateAtmosphericInformation(airport.getIata(),
+                DataPoint.Type.WIND, dataPoint);
+        }
+    }
+
+    /**
+     * This test validates the plan chosen depends on the radius, and every
+     * plan matches a linear search
+     */
+    @Test
+    public void testPlans() throws Exception {
+        assertPlan(0, QueryPlan.POINT_LOOKUP);
+        assertPlan(500, QueryPlan.INDEX_SCAN);
+        assertPlan(15000, QueryPlan.COLUMNAR_SCAN);
+    }
+
+    /**
+     * This test validates the most requested radii are resolved with the
+     * materialized neighbors
+     */
+    @Test
+    public void testNeighborListPlan() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            repository.getAtmosphericInformation("AAA", 800.0);
+        }
+
+        waitForNeighborLists(800);
+        assertPlan(800, QueryPlan.NEIGHBOR_LIST);
+    }
+
+    /**
+     * This test validates the radii over the histogram maximum (1000) are
+     * materialized with their exact value
+     */
+    @Test
+    public void testLargeRadiusNeighborListPlan() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            repository.getAtmosphericInformation("AAA", 1500.0);
+        }
+
+        waitForNeighborLists(1500);
+        assertPlan(1500, QueryPlan.NEIGHBOR_LIST);
+    }
+
+    /**
+     * Waits for the neighbors of the radius to be built in the background.
+     * @param radius The radius expected to be materialized
+     */
+    private void waitForNeighborLists(double radius) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            final long before = getPlanCount(QueryPlan.NEIGHBOR_LIST);
+            repository.getAtmosphericInformation("AAA", radius);
+            if (getPlanCount(QueryPlan.NEIGHBOR_LIST) > before) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private void assertPlan(double radius, QueryPlan expected) throws Exception {
+        for (AirportData airport : airports.subList(0, 20)) {
+            final long before = getPlanCount(expected);
+
+            Set<Double> expectedMeans = airports.stream()
+                .filter(other -> airport.distance(other) <= radius)
+                .map(other -> (double) airports.indexOf(other))
+                .collect(Collectors.toSet());
+            Set<Double> means = new HashSet<>();
+            for (AtmosphericInformation information : repository
+                .getAtmosphericInformation(airport.getIata(), radius)) {
+                means.add(information.getWind().getMean());
+            }
+
+            assertThat("The airports within " + radius + " of " + airport,
+                means, is(expectedMeans));
+            assertThat("The plan for " + radius + " of " + airport,
+                getPlanCount(expected), is(before + 1));
+        }
+    }
+
+    private long getPlanCount(QueryPlan plan) {
+        return repository.getUsageStatistics().getQueryPlanCounts()
+            .getOrDefault(plan, 0L);
+    }
+
+}
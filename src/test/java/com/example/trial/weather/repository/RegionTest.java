@@ -0,0 +1,104 @@
+package com.example.trial.weather.repository;
+
+import com.example.trial.weather.domain.AirportData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class RegionTest {
+
+    /**
+     * This test validates a bounding box crossing the antimeridian
+     */
+    @Test
+    public void testBoundingBoxAcrossAntimeridian() {
+        Region region = Region.boundingBox(-20, -10, 170, -170);
+
+        assertThat(region.contains(-15, 175), is(true));
+        assertThat(region.contains(-15, -175), is(true));
+        assertThat(region.contains(-15, 0), is(false));
+        assertThat(region.contains(-25, 175), is(false));
+    }
+
+    /**
+     * This test validates a concave polygon
+     */
+    @Test
+    public void testConcavePolygon() {
+        // A "U" shape: the notch between longitudes 1 and 2 is outside
+        Region region = Region.polygon(new double[][] {{0, 0}, {3, 0}, {3, 1},
+            {1, 1}, {1, 2}, {3, 2}, {3, 3}, {0, 3}});
+
+        assertThat(region.contains(0.5, 1.5), is(true));
+        assertThat(region.contains(2, 0.5), is(true));
+        assertThat("The notch is outside.", region.contains(2, 1.5), is(false));
+        assertThat(region.contains(4, 1.5), is(false));
+    }
+
+    /**
+     * This test validates a polygon crossing the antimeridian
+     */
+    @Test
+    public void testPolygonAcrossAntimeridian() {
+        Region region = Region.polygon(new double[][] {{-20, 170}, {-20, -170},
+            {-10, -170}, {-10, 170}});
+
+        assertThat(region.contains(-15, 179), is(true));
+        assertThat(region.contains(-15, -179), is(true));
+        assertThat(region.contains(-15, 0), is(false));
+        assertThat("The bounding box crosses the antimeridian.",
+            region.getMinimumLongitude() > region.getMaximumLongitude(), is(true));
+    }
+
+    /**
+     * This test validates the polygons enclosing a pole are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testPolygonEnclosingPole() {
+        Region.polygon(new double[][] {{80, 0}, {80, 120}, {80, -120}});
+    }
+
+    /**
+     * This test validates the index finds the same airports than a linear
+     * search
+     */
+    @Test
+    public void testIndexMatchesLinearSearch() {
+        Random random = new Random(11);
+        List<AirportData> airports = new ArrayList<>();
+        SpatialIndex index = new SpatialIndex(3);
+        for (int i = 0; i < 2000; i++) {
+            AirportData airport = new AirportData("A" + i,
+                random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+            airports.add(airport);
+            index.add(airport);
+        }
+
+        List<Region> regions = new ArrayList<>();
+        regions.add(Region.boundingBox(-30, 30, 150, -150));
+        regions.add(Region.boundingBox(10, 60, -100, 20));
+        regions.add(Region.boundingBox(-90, 90, -180, 180));
+        regions.add(Region.polygon(new double[][] {{-40, 160}, {-10, -160},
+            {30, 175}}));
+
+        for (Region region : regions) {
+            List<AirportData> expected = airports.stream()
+                .filter(airport -> region.contains(airport.getLatitude(),
+                    airport.getLongitude()))
+                .collect(Collectors.toList());
+            List<AirportData> found = new ArrayList<>();
+            index.forEachInRegion(region, found::add);
+
+            assertThat(found, containsInAnyOrder(expected.toArray()));
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.example.trial.weather.repository;
+
+import com.example.trial.weather.domain.AirportData;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class SpatialIndexTest {
+
+    /**
+     * This test validates the bulk indexing gives the same results than the
+     * incremental one
+     */
+    @Test
+    public void testAddAllMatchesAdd() {
+        Random random = new Random(3);
+        List<AirportData> airports = new ArrayList<>();
+        SpatialIndex index = new SpatialIndex(5);
+        for (int i = 0; i < 1000; i++) {
+            AirportData airport = new AirportData("A" + i,
+                random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+            airports.add(airport);
+            index.add(airport);
+        }
+        SpatialIndex bulkIndex = new SpatialIndex(5);
+        bulkIndex.addAll(airports);
+
+        assertThat(bulkIndex.size(), is(1000));
+        for (int i = 0; i < 50; i++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            assertThat(bulkIndex.nearest(latitude, longitude, 5, airport -> true),
+                is(index.nearest(latitude, longitude, 5, airport -> true)));
+        }
+    }
+
+    /**
+     * This test validates the nearest airports match a linear search, for
+     * random points all around the world (poles and antimeridian included)
+     */
+    @Test
+    public void testNearestMatchesLinearSearch() {
+        Random random = new Random(7);
+        List<AirportData> airports = new ArrayList<>();
+        SpatialIndex index = new SpatialIndex(5);
+        for (int i = 0; i < 2000; i++) {
+            AirportData airport = new AirportData("A" + i,
+                random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+            airports.add(airport);
+            index.add(airport);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            AirportData point = new AirportData("P" + i,
+                random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+            final int k = 1 + random.nextInt(20);
+
+            List<AirportData> expected = airports.stream()
+                .sorted(Comparator.comparingDouble(point::distance))
+                .limit(k)
+                .collect(Collectors.toList());
+
+            assertThat("The nearest airports of " + point,
+                index.nearest(point.getLatitude(), point.getLongitude(), k,
+                    airport -> true), is(expected));
+        }
+    }
+
+    /**
+     * This test validates the search crosses the antimeridian and applies
+     * the filter
+     */
+    @Test
+    public void testNearestAcrossAntimeridian() {
+        SpatialIndex index = new SpatialIndex();
+        AirportData fiji = new AirportData("NAN", -17.755392, 177.443378);
+        AirportData samoa = new AirportData("APW", -13.829969, -172.008336);
+        AirportData sydney = new AirportData("SYD", -33.946111, 151.177222);
+        index.add(fiji);
+        index.add(samoa);
+        index.add(sydney);
+
+        assertThat(index.nearest(-14, 179.9, 2, airport -> true),
+            contains(fiji, samoa));
+        assertThat("The filtered airports are skipped.",
+            index.nearest(-14, 179.9, 2, airport -> airport != fiji),
+            contains(samoa, sydney));
+    }
+
+    /**
+     * This test validates the airports within a radius match a linear search
+     */
+    @Test
+    public void testWithinMatchesLinearSearch() {
+        Random random = new Random(11);
+        List<AirportData> airports = new ArrayList<>();
+        SpatialIndex index = new SpatialIndex(5);
+        for (int i = 0; i < 2000; i++) {
+            AirportData airport = new AirportData("A" + i,
+                random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+            airports.add(airport);
+            index.add(airport);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            AirportData point = new AirportData("P" + i,
+                random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+            final double radius = random.nextDouble() * 3000;
+            Set<AirportData> expected = airports.stream()
+                .filter(airport -> point.distance(airport) <= radius)
+                .collect(Collectors.toSet());
+
+            Set<AirportData> found = new HashSet<>();
+            index.forEachWithin(point.getLatitude(), point.getLongitude(),
+                radius, found::add);
+            assertThat("The airports within " + radius + " of " + point,
+                found, is(expected));
+        }
+    }
+
+    /**
+     * This test validates the removed airports are no longer found
+     */
+    @Test
+    public void testRemove() {
+        SpatialIndex index = new SpatialIndex();
+        AirportData boston = new AirportData("BOS", 42.364347, -71.005181);
+        index.add(boston);
+
+        assertThat(index.remove(boston), is(true));
+        assertThat(index.size(), is(0));
+        assertThat(index.nearest(42, -71, 1, airport -> true), is(empty()));
+    }
+
+}
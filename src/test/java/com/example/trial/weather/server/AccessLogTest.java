@@ -0,0 +1,112 @@
+package com.example.trial.weather.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import org.junit.Rule;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class AccessLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * This test validates the entries are written with all their information
+     */
+    @Test
+    public void testEntriesWritten() throws IOException {
+        File file = new File(folder.getRoot(), "access.log");
+
+        try (AccessLog accessLog = new AccessLog(file)) {
+            accessLog.log("GET", "/query/weather/BOS/0", 200, 1500000, 312);
+            accessLog.log("POST", "/collect/weather/BOS/wind", 404, -1, -1);
+        }
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertThat("Both entries were written.", lines.size(), is(2));
+        assertThat("The first entry contains all the information.",
+            lines.get(0).substring(lines.get(0).indexOf(' ') + 1),
+            is("GET /query/weather/BOS/0 200 1500us 312B"));
+        assertThat("The unknown values are represented with a dash.",
+            lines.get(1).substring(lines.get(1).indexOf(' ') + 1),
+            is("POST /collect/weather/BOS/wind 404 - -"));
+    }
+
+    /**
+     * This test validates that an overloaded buffer never blocks, every entry
+     * is either written, sampled out or dropped
+     */
+    @Test
+    public void testOverload() throws IOException {
+        File file = new File(folder.getRoot(), "access.log");
+        final int count = 1000;
+
+        AccessLog accessLog = new AccessLog(file, 8, 1024 * 1024, 1);
+        for (int i = 0; i < count; i++) {
+            accessLog.log("GET", "/collect/ping", 200, 0, 1);
+        }
+        accessLog.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertThat("Some entries were not recorded.",
+            accessLog.getDroppedCount() + accessLog.getSampledOutCount(),
+            is(greaterThan(0L)));
+        assertThat("Every entry is accounted.", lines.size()
+            + accessLog.getDroppedCount() + accessLog.getSampledOutCount(),
+            is((long) count));
+    }
+
+    /**
+     * This test validates the file is rolled when it reaches the size limit
+     */
+    @Test
+    public void testRolling() throws IOException {
+        File file = new File(folder.getRoot(), "access.log");
+
+        try (AccessLog accessLog = new AccessLog(file, 64, 100, 2)) {
+            for (int i = 0; i < 20; i++) {
+                accessLog.log("GET", "/collect/ping", 200, 0, 1);
+            }
+        }
+
+        assertThat("The file was rolled.",
+            new File(folder.getRoot(), "access.log.1").exists(), is(true));
+        assertThat("Only the configured number of files is kept.",
+            new File(folder.getRoot(), "access.log.3").exists(), is(false));
+    }
+
+    /**
+     * This test validates the size limit is applied to the bytes written,
+     * not to the characters
+     */
+    @Test
+    public void testRollingCountsBytes() throws IOException {
+        File file = new File(folder.getRoot(), "access.log");
+        StringBuilder path = new StringBuilder("/query/weather/");
+        for (int i = 0; i < 60; i++) {
+            path.append('\u00e9');
+        }
+
+        try (AccessLog accessLog = new AccessLog(file, 64, 120, 2)) {
+            accessLog.log("GET", path.toString(), 200, 0, 1);
+        }
+
+        File rolled = new File(folder.getRoot(), "access.log.1");
+        assertThat("The entry is below the limit in characters.",
+            Files.readAllLines(rolled.toPath(), StandardCharsets.UTF_8)
+                .get(0).length() < 120, is(true));
+        assertThat("The file was rolled as it reached the limit in bytes.",
+            rolled.length() >= 120, is(true));
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.example.trial.weather.server;
+
+import com.example.trial.weather.domain.AirportData;
+import com.example.trial.weather.repository.Repository;
+import com.example.trial.weather.repository.RepositoryFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class AirportPreloaderTest {
+
+    private final Repository repository = RepositoryFactory.getInstance();
+
+    @Before
+    public void init() {
+        repository.reset();
+    }
+
+    /**
+     * This test validates an airport file is loaded and indexed
+     */
+    @Test
+    public void testPreloadAirportFile() throws Exception {
+        Path file = Files.createTempFile("airports", ".dat");
+        try {
+            try (InputStream input = getClass().getResourceAsStream("/airports.dat")) {
+                Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            assertThat(new AirportPreloader(repository).preload(file), is(10));
+            assertThat(repository.getAirportCodes().size(), is(10));
+            assertThat(repository.getAirport("BOS"),
+                is(new AirportData("BOS", 42.364347, -71.005181)));
+
+            // The queries use the index built by the load
+            assertThat(repository.getNearestAtmosphericInformation("BOS", 10,
+                false).size(), is(10));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * This test validates a snapshot is loaded, skipping the invalid and the
+     * already defined airports
+     */
+    @Test
+    public void testPreloadSnapshot() throws IOException {
+        repository.addAirport(new AirportData("BOS", 42.364347, -71.005181));
+
+        Path file = Files.createTempFile("airports", ".json");
+        try {
+            new ObjectMapper().writeValue(file.toFile(), Arrays.asList(
+                new AirportData("BOS", 0, 0),
+                new AirportData("JFK", 40.639751, -73.778925),
+                new AirportData("XX", 40.6925, -74.168667),
+                new AirportData("LGA", 40.777245, -73.872608)));
+
+            assertThat(new AirportPreloader(repository).preload(file), is(2));
+            assertThat(repository.getAirportCodes().size(), is(3));
+            assertThat("The defined airports are kept.",
+                repository.getAirport("BOS"),
+                is(new AirportData("BOS", 42.364347, -71.005181)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.example.trial.weather.server;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.jersey.server.ResourceConfig;
+import static org.hamcrest.Matchers.is;
+import org.junit.After;
+import static org.junit.Assert.assertThat;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class ConcurrencyLimitFeatureTest {
+
+    /**
+     * The base URL to be used in the tests (notice it is different from
+     * production to avoid collisions).
+     */
+    private static final String BASE_URL = "http://localhost:9091/";
+
+    /**
+     * Released once the streamed response can be completed.
+     */
+    private static CountDownLatch streamLatch;
+
+    private final ConcurrencyLimitFeature feature =
+        new ConcurrencyLimitFeature(4, 4);
+
+    private HttpServer server;
+
+    private Client client;
+
+    private WebTarget target;
+
+    @Before
+    public void init() throws IOException {
+        streamLatch = new CountDownLatch(1);
+
+        final ResourceConfig resourceConfig = new ResourceConfig();
+        resourceConfig.register(LimitedResource.class);
+        resourceConfig.register(feature);
+
+        final ServerConfiguration configuration = ServerConfiguration.load();
+        configuration.setConcurrencyLimiting(false);
+        server = WeatherHttpServerFactory.createHttpServer(
+            URI.create(BASE_URL), resourceConfig, configuration);
+        server.start();
+
+        client = ClientBuilder.newClient();
+        target = client.target(BASE_URL + "limited");
+    }
+
+    @After
+    public void shutdown() {
+        streamLatch.countDown();
+        client.close();
+        server.shutdownNow();
+    }
+
+    /**
+     * This test validates a streamed response holds the permit until it is
+     * written
+     */
+    @Test
+    public void testStreamedResponseHoldsPermit() throws Exception {
+        final ConcurrencyLimiter limiter = feature.getLimiter(
+            LimitedResource.class);
+
+        Future<Response> response = target.path("/stream").request().async()
+            .get();
+        waitForInFlight(limiter, 1);
+        assertThat("The permit is held while the entity is written.",
+            limiter.getInFlight(), is(1));
+
+        streamLatch.countDown();
+        assertThat(response.get(10, TimeUnit.SECONDS).readEntity(String.class),
+            is("streamed"));
+        waitForInFlight(limiter, 0);
+        assertThat(limiter.getInFlight(), is(0));
+    }
+
+    /**
+     * This test validates the permit is released when the request fails with
+     * an unmapped exception
+     */
+    @Test
+    public void testFailedRequestReleasesPermit() throws Exception {
+        final ConcurrencyLimiter limiter = feature.getLimiter(
+            LimitedResource.class);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(target.path("/fail").request().get().getStatus(),
+                is(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode()));
+        }
+        waitForInFlight(limiter, 0);
+        assertThat(limiter.getInFlight(), is(0));
+        assertThat(limiter.getRejectedCount(), is(0L));
+    }
+
+    /**
+     * @param limiter The limiter to check
+     * @param expected The expected number of requests in flight
+     */
+    private static void waitForInFlight(ConcurrencyLimiter limiter,
+        int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && limiter.getInFlight() != expected; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * A resource with slow streamed responses and failures.
+     */
+    @Path("/limited")
+    public static class LimitedResource {
+
+        @GET @Path("/stream")
+        public Response stream() {
+            StreamingOutput output = stream -> {
+                try {
+                    streamLatch.await();
+                } catch (InterruptedException ex) {
+                    throw new IOException(ex);
+                }
+                stream.write("streamed".getBytes("UTF-8"));
+            };
+            return Response.ok(output).build();
+        }
+
+        @GET @Path("/fail")
+        public String fail() {
+            throw new IllegalStateException("Unmapped failure");
+        }
+
+    }
+
+}
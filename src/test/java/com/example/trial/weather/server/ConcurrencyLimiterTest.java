@@ -0,0 +1,87 @@
+package com.example.trial.weather.server;
+
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class ConcurrencyLimiterTest {
+
+    /**
+     * A fast request latency.
+     */
+    private static final long FAST = TimeUnit.MICROSECONDS.toNanos(200);
+
+    /**
+     * A latency clearly over the tolerance.
+     */
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * This test validates the requests over the limit are rejected
+     */
+    @Test
+    public void testRejectsOverLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10);
+
+        assertThat(limiter.tryAcquire(), is(true));
+        assertThat(limiter.tryAcquire(), is(true));
+        assertThat("The third concurrent request is rejected.",
+            limiter.tryAcquire(), is(false));
+        assertThat(limiter.getRejectedCount(), is(1L));
+
+        limiter.release(FAST, false);
+        assertThat("Once released there is room again.",
+            limiter.tryAcquire(), is(true));
+    }
+
+    /**
+     * This test validates the limit grows while the latency is good and the
+     * limit is in use
+     */
+    @Test
+    public void testGrowsUnderGoodLatency() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 1, 100);
+
+        for (int i = 0; i < 100; i++) {
+            while (limiter.tryAcquire()) {
+                // Filling the limit
+            }
+            for (int j = limiter.getInFlight(); j > 0; j--) {
+                limiter.release(FAST, false);
+            }
+        }
+
+        assertThat(limiter.getLimit(), is(greaterThan(4)));
+    }
+
+    /**
+     * This test validates the limit is reduced on congestion
+     */
+    @Test
+    public void testBacksOffOnCongestion() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(50, 1, 100);
+
+        limiter.tryAcquire();
+        limiter.release(FAST, false);
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire();
+            limiter.release(SLOW, false);
+            Thread.sleep(110);
+        }
+        assertThat("The slow requests reduced the limit.",
+            limiter.getLimit(), is(lessThan(50)));
+
+        final int limit = limiter.getLimit();
+        limiter.tryAcquire();
+        limiter.release(FAST, true);
+        assertThat("A dropped request reduces the limit.",
+            limiter.getLimit(), is(lessThan(limit)));
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.example.trial.weather.server;
+
+import com.example.trial.weather.impl.RestWeatherCollectorEndpoint;
+import com.example.trial.weather.impl.RestWeatherQueryEndpoint;
+import java.net.URI;
+import java.util.Properties;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.WebTarget;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.strategies.SameThreadIOStrategy;
+import org.glassfish.jersey.server.ResourceConfig;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class ServerConfigurationTest {
+
+    /**
+     * The base URL to be used in the tests (notice it is different from
+     * production to avoid collisions).
+     */
+    private static final String BASE_URL = "http://localhost:9091/";
+
+    /**
+     * This test validates the settings are read from the properties
+     */
+    @Test
+    public void testFromProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("weather.server.selectorRunners", "4");
+        properties.setProperty("weather.server.workerMaxPoolSize", "64");
+        properties.setProperty("weather.server.ioStrategy", "same-thread");
+        properties.setProperty("weather.server.virtualThreads", "true");
+        properties.setProperty("weather.server.preloadFile", "airports.dat");
+        properties.setProperty("weather.server.queryThreadCount", "8");
+        properties.setProperty("weather.server.queryTimeout", "2000");
+
+        ServerConfiguration configuration = ServerConfiguration
+            .fromProperties(properties);
+        assertThat(configuration.getSelectorRunners(), is(4));
+        assertThat(configuration.getWorkerMaxPoolSize(), is(64));
+        assertThat("The unspecified settings keep the default.",
+            configuration.getWorkerCorePoolSize(), is(ServerConfiguration.DEFAULT));
+        assertThat(configuration.getIoStrategy(),
+            is(ServerConfiguration.IOStrategy.SAME_THREAD));
+        assertThat(configuration.isVirtualThreads(), is(true));
+        assertThat(configuration.getPreloadFile(), is("airports.dat"));
+        assertThat(configuration.getQueryThreadCount(), is(8));
+        assertThat(configuration.getQueryQueueLimit(),
+            is(ServerConfiguration.DEFAULT));
+        assertThat(configuration.getQueryTimeout(), is(2000));
+    }
+
+    /**
+     * This test validates an invalid setting is reported
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidProperty() {
+        Properties properties = new Properties();
+        properties.setProperty("weather.server.workerMaxPoolSize", "many");
+
+        ServerConfiguration.fromProperties(properties);
+    }
+
+    /**
+     * This test validates a server tuned with the same thread strategy
+     * serves both the trivial and the regular routes
+     */
+    @Test
+    public void testSameThreadServer() throws Exception {
+        ServerConfiguration configuration = new ServerConfiguration();
+        configuration.setSelectorRunners(2);
+        configuration.setWorkerCorePoolSize(2);
+        configuration.setWorkerMaxPoolSize(4);
+        configuration.setIoStrategy(ServerConfiguration.IOStrategy.SAME_THREAD);
+
+        final ResourceConfig resourceConfig = new ResourceConfig();
+        resourceConfig.register(RestWeatherCollectorEndpoint.class);
+        resourceConfig.register(RestWeatherQueryEndpoint.class);
+
+        HttpServer server = WeatherHttpServerFactory.createHttpServer(
+            URI.create(BASE_URL), resourceConfig, configuration);
+        try {
+            TCPNIOTransport transport = server.getListeners().iterator().next()
+                .getTransport();
+            assertThat(transport.getSelectorRunnersCount(), is(2));
+            assertThat(transport.getWorkerThreadPoolConfig().getMaxPoolSize(), is(4));
+            assertThat(transport.getIOStrategy(), is(instanceOf(SameThreadIOStrategy.class)));
+
+            server.start();
+
+            Client client = ClientBuilder.newClient();
+            WebTarget collect = client.target(BASE_URL + "collect");
+            assertThat(collect.path("ping").request().get().getStatus(), is(200));
+            assertThat(collect.path("airports").request().get().getStatus(), is(200));
+        } finally {
+            server.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.example.trial.weather.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * @author ignaciolarranaga@gmail.com
+ */
+public class SingleFlightTest {
+
+    /**
+     * This test validates identical concurrent calls share one computation
+     * and receive the same result
+     */
+    @Test
+    public void testCoalescing() throws Exception {
+        final SingleFlight<String, List<String>> singleFlight = new SingleFlight<>();
+        final AtomicInteger computations = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final int callers = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            results.add(executor.submit(() -> singleFlight.execute("BOS/0", () -> {
+                computations.incrementAndGet();
+                started.countDown();
+                release.await();
+                return new ArrayList<>();
+            })));
+            started.await();
+
+            for (int i = 1; i < callers; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("BOS/0", () -> {
+                    computations.incrementAndGet();
+                    return new ArrayList<>();
+                })));
+            }
+
+            // Waiting all the followers to join the computation in progress
+            while (singleFlight.getSharedCount() < callers - 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            for (Future<List<String>> result : results) {
+                assertThat("Every caller received the same result.",
+                    result.get(5, TimeUnit.SECONDS),
+                    is(sameInstance(results.get(0).get())));
+            }
+            assertThat("Only one computation was performed.",
+                computations.get(), is(1));
+            assertThat("Nothing remains in progress.",
+                singleFlight.getInFlightCount(), is(0));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * This test validates the exceptions are propagated and the next call
+     * performs a new computation
+     */
+    @Test
+    public void testExceptionPropagated() throws IOException {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        try {
+            singleFlight.execute("XXX/0", () -> {
+                throw new IOException("Not found");
+            });
+            fail("The exception was expected to be propagated");
+        } catch (IOException ex) {
+            assertThat(ex.getMessage(), is("Not found"));
+        }
+
+        assertThat("A new computation is performed after the failure.",
+            singleFlight.execute("XXX/0", () -> "ok"), is("ok"));
+    }
+
+}